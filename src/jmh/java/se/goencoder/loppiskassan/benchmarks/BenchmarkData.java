@@ -0,0 +1,68 @@
+package se.goencoder.loppiskassan.benchmarks;
+
+import se.goencoder.loppiskassan.V1PaymentMethod;
+import se.goencoder.loppiskassan.V1SoldItem;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic test data for the benchmarks. A fixed seed keeps runs comparable.
+ */
+public final class BenchmarkData {
+    public static final long SEED = 20260208L;
+    private static final LocalDateTime START = LocalDateTime.of(2026, 2, 8, 9, 0);
+
+    private BenchmarkData() {}
+
+    /**
+     * Point user.home at a throwaway directory so config stores touched by the code
+     * under test never read or write the developer's real ~/.loppiskassan.
+     * Must run before any config store class is loaded.
+     */
+    public static void isolateUserHome() {
+        try {
+            System.setProperty("user.home", Files.createTempDirectory("loppiskassan-bench").toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Generate {@code count} sold items spread over {@code sellers} sellers, grouped in
+     * purchases of 1-5 items, roughly the shape of a real market day.
+     */
+    public static List<V1SoldItem> soldItems(int count, int sellers) {
+        Random random = new Random(SEED);
+        List<V1SoldItem> items = new ArrayList<>(count);
+        String purchaseId = null;
+        int left = 0;
+        V1PaymentMethod method = V1PaymentMethod.Kontant;
+        for (int i = 0; i < count; i++) {
+            if (left == 0) {
+                purchaseId = "01P" + Long.toString(Math.abs(random.nextLong()), 36).toUpperCase();
+                left = 1 + random.nextInt(5);
+                method = random.nextBoolean() ? V1PaymentMethod.Swish : V1PaymentMethod.Kontant;
+            }
+            left--;
+            LocalDateTime soldTime = START.plusNanos(i * 350_000_000L);
+            LocalDateTime paidOut = random.nextInt(4) == 0 ? soldTime.plusHours(6) : null;
+            items.add(new V1SoldItem(
+                    purchaseId,
+                    "01I" + Long.toString(Math.abs(random.nextLong()), 36).toUpperCase() + i,
+                    soldTime,
+                    1 + random.nextInt(sellers),
+                    10 + random.nextInt(50) * 5,
+                    paidOut,
+                    method,
+                    random.nextBoolean()
+            ));
+        }
+        return items;
+    }
+}
@@ -0,0 +1,84 @@
+package se.goencoder.loppiskassan.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.goencoder.loppiskassan.V1SoldItem;
+import se.goencoder.loppiskassan.utils.FilterUtils;
+import se.goencoder.loppiskassan.utils.HistoryIndex;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * History tab filtering: every filter change re-runs this over the whole event.
+ * The {@code index*} methods answer the same filters from a {@link HistoryIndex}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterUtilsBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int items;
+
+    private List<V1SoldItem> soldItems;
+    private HistoryIndex index;
+
+    @Setup
+    public void setUp() {
+        soldItems = BenchmarkData.soldItems(items, 200);
+        index = HistoryIndex.of(soldItems);
+    }
+
+    @Benchmark
+    public FilterUtils.FilterResult noFilter() {
+        return FilterUtils.applyFiltersWithSum(soldItems, null, null, null);
+    }
+
+    @Benchmark
+    public FilterUtils.FilterResult sellerFilter() {
+        return FilterUtils.applyFiltersWithSum(soldItems, null, "42", null);
+    }
+
+    @Benchmark
+    public FilterUtils.FilterResult allFilters() {
+        return FilterUtils.applyFiltersWithSum(soldItems, "false", "42", "Swish");
+    }
+
+    @Benchmark
+    public FilterUtils.FilterResult indexNoFilter() {
+        return FilterUtils.applyFiltersWithSum(index, null, null, null);
+    }
+
+    @Benchmark
+    public FilterUtils.FilterResult indexSellerFilter() {
+        return FilterUtils.applyFiltersWithSum(index, null, "42", null);
+    }
+
+    @Benchmark
+    public FilterUtils.FilterResult indexAllFilters() {
+        return FilterUtils.applyFiltersWithSum(index, "false", "42", "Swish");
+    }
+
+    @Benchmark
+    public FilterUtils.FilterResult indexPaidAndPayment() {
+        return FilterUtils.applyFiltersWithSum(index, "false", null, "Swish");
+    }
+
+    @Benchmark
+    public HistoryIndex buildIndex() {
+        return HistoryIndex.of(soldItems);
+    }
+}
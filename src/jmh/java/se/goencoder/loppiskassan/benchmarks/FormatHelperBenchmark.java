@@ -0,0 +1,53 @@
+package se.goencoder.loppiskassan.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.goencoder.loppiskassan.V1SoldItem;
+import se.goencoder.loppiskassan.records.FormatHelper;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV export/import used by archive, clipboard copy and file import.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatHelperBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int items;
+
+    private List<V1SoldItem> soldItems;
+    private String csv;
+
+    @Setup
+    public void setUp() {
+        BenchmarkData.isolateUserHome();
+        soldItems = BenchmarkData.soldItems(items, 200);
+        csv = FormatHelper.CVS_HEADERS + FormatHelper.LINE_ENDING + FormatHelper.toCVS(soldItems);
+    }
+
+    @Benchmark
+    public String toCsv() {
+        return FormatHelper.toCVS(soldItems);
+    }
+
+    @Benchmark
+    public List<V1SoldItem> toItems() {
+        return FormatHelper.toItems(csv, true);
+    }
+}
@@ -0,0 +1,115 @@
+package se.goencoder.loppiskassan.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.goencoder.loppiskassan.V1SoldItem;
+import se.goencoder.loppiskassan.service.HistoryMergeService;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "Uppdatera web" merge, bucketed {@link HistoryMergeService} against the old linear scan.
+ * <ul>
+ *   <li>{@code refresh*}: every local item comes back from the backend and 0.1%
+ *       (at least 10) are new, at 1k-1M items.</li>
+ *   <li>{@code disjoint*}: 5k local items and 5k backend items from other cashiers, none
+ *       matching by itemId, so every fetched item goes through the duplicate check.</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class HistoryMergeBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Refresh {
+        @Param({"1000", "10000", "100000", "1000000"})
+        public int items;
+
+        List<V1SoldItem> localItems;
+        Map<String, V1SoldItem> fetchedItems;
+
+        @Setup
+        public void setUp() {
+            int newItems = Math.max(10, items / 1000);
+            List<V1SoldItem> all = BenchmarkData.soldItems(items + newItems, 200);
+            localItems = new ArrayList<>(all.subList(0, items));
+            fetchedItems = uploadedCopies(all);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Disjoint {
+        List<V1SoldItem> localItems;
+        Map<String, V1SoldItem> fetchedItems;
+
+        @Setup
+        public void setUp() {
+            List<V1SoldItem> all = BenchmarkData.soldItems(10_000, 200);
+            localItems = new ArrayList<>(all.subList(0, 5_000));
+            fetchedItems = uploadedCopies(all.subList(5_000, 10_000));
+        }
+    }
+
+    private static final HistoryMergeService SERVICE = new HistoryMergeService();
+
+    @Benchmark
+    public List<V1SoldItem> refreshBucketed(Refresh state) {
+        List<V1SoldItem> history = new ArrayList<>(state.localItems);
+        SERVICE.merge(history, state.fetchedItems);
+        return history;
+    }
+
+    @Benchmark
+    public List<V1SoldItem> refreshLinearScan(Refresh state) {
+        List<V1SoldItem> history = new ArrayList<>(state.localItems);
+        LegacyHistoryMerge.mergeFetchedItems(history, state.fetchedItems);
+        return history;
+    }
+
+    @Benchmark
+    public List<V1SoldItem> disjointBucketed(Disjoint state) {
+        List<V1SoldItem> history = new ArrayList<>(state.localItems);
+        SERVICE.merge(history, state.fetchedItems);
+        return history;
+    }
+
+    @Benchmark
+    public List<V1SoldItem> disjointLinearScan(Disjoint state) {
+        List<V1SoldItem> history = new ArrayList<>(state.localItems);
+        LegacyHistoryMerge.mergeFetchedItems(history, state.fetchedItems);
+        return history;
+    }
+
+    private static Map<String, V1SoldItem> uploadedCopies(List<V1SoldItem> items) {
+        Map<String, V1SoldItem> fetched = new LinkedHashMap<>();
+        for (V1SoldItem item : items) {
+            fetched.put(item.getItemId(), new V1SoldItem(
+                    item.getPurchaseId(),
+                    item.getItemId(),
+                    item.getSoldTime(),
+                    item.getSeller(),
+                    item.getPrice(),
+                    item.getCollectedBySellerTime(),
+                    item.getPaymentMethod(),
+                    true
+            ));
+        }
+        return fetched;
+    }
+}
@@ -0,0 +1,82 @@
+package se.goencoder.loppiskassan.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import se.goencoder.loppiskassan.V1SoldItem;
+import se.goencoder.loppiskassan.storage.JsonlHelper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and writes a pending_items.jsonl sized file with the streaming codec
+ * ({@link JsonlHelper}) and with the org.json baseline ({@link LegacyJsonlHelper}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonlHelperBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int lines;
+
+    private List<V1SoldItem> items;
+    private Path dir;
+    private Path source;
+    private Path target;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        items = BenchmarkData.soldItems(lines, 200);
+        dir = Files.createTempDirectory("jsonl-bench");
+        source = dir.resolve("pending_items.jsonl");
+        target = dir.resolve("out.jsonl");
+        JsonlHelper.writeItems(source, items);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(source);
+        Files.deleteIfExists(target);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public List<V1SoldItem> readStreaming() throws IOException {
+        return JsonlHelper.readItems(source);
+    }
+
+    @Benchmark
+    public List<V1SoldItem> readOrgJson() throws IOException {
+        return LegacyJsonlHelper.readItems(source);
+    }
+
+    @Benchmark
+    public long writeStreaming() throws IOException {
+        JsonlHelper.writeItems(target, items);
+        return Files.size(target);
+    }
+
+    @Benchmark
+    public long writeOrgJson() throws IOException {
+        LegacyJsonlHelper.writeItems(target, items);
+        return Files.size(target);
+    }
+}
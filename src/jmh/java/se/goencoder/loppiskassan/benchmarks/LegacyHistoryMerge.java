@@ -0,0 +1,55 @@
+package se.goencoder.loppiskassan.benchmarks;
+
+import se.goencoder.loppiskassan.V1SoldItem;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Frozen copy of the linear-scan merge that {@code HistoryMergeService} replaced.
+ * Kept only as the baseline for {@link HistoryMergeBenchmark}.
+ */
+final class LegacyHistoryMerge {
+    private static final int SOLD_TIME_TOLERANCE_SECONDS = 60;
+
+    private LegacyHistoryMerge() {}
+
+    static void mergeFetchedItems(List<V1SoldItem> historyItems, Map<String, V1SoldItem> fetchedItems) {
+        Set<String> processedItems = new HashSet<>();
+
+        historyItems.forEach(existingItem -> {
+            V1SoldItem fetchedItem = fetchedItems.get(existingItem.getItemId());
+            if (fetchedItem != null) {
+                existingItem.setCollectedBySellerTime(fetchedItem.getCollectedBySellerTime());
+                existingItem.setUploaded(fetchedItem.isUploaded());
+                processedItems.add(existingItem.getItemId());
+            }
+        });
+
+        for (V1SoldItem fetchedItem : fetchedItems.values()) {
+            if (processedItems.contains(fetchedItem.getItemId())) {
+                continue;
+            }
+            boolean isDuplicate = historyItems.stream().anyMatch(existingItem ->
+                    existingItem.getSeller() == fetchedItem.getSeller() &&
+                    existingItem.getPrice() == fetchedItem.getPrice() &&
+                    isSameTimeApproximately(existingItem.getSoldTime(), fetchedItem.getSoldTime())
+            );
+            if (!isDuplicate) {
+                historyItems.add(fetchedItem);
+            }
+        }
+    }
+
+    private static boolean isSameTimeApproximately(LocalDateTime time1, LocalDateTime time2) {
+        if (time1 == null || time2 == null) {
+            return false;
+        }
+        long diffSeconds = Math.abs(Duration.between(time1, time2).getSeconds());
+        return diffSeconds <= SOLD_TIME_TOLERANCE_SECONDS;
+    }
+}
@@ -0,0 +1,61 @@
+package se.goencoder.loppiskassan.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import se.goencoder.loppiskassan.config.ILoppisConfigurationStore;
+import se.goencoder.loppiskassan.utils.VendorRefreshHelper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seller validation in the cashier tab, called once per entered item. The cost
+ * scales with the size of the cached approved-sellers list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VendorRefreshHelperBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int approvedSellers;
+
+    private int hit;
+    private int miss;
+
+    @Setup
+    public void setUp() {
+        BenchmarkData.isolateUserHome();
+        JSONArray sellers = new JSONArray();
+        for (int i = 1; i <= approvedSellers; i++) {
+            sellers.put(i);
+        }
+        ILoppisConfigurationStore.setApprovedSellers(
+                new JSONObject().put("approvedSellers", sellers).toString());
+        hit = approvedSellers / 2;
+        miss = approvedSellers + 1;
+    }
+
+    @Benchmark
+    public boolean approvedSeller() {
+        return VendorRefreshHelper.isSellerApproved(hit);
+    }
+
+    @Benchmark
+    public boolean unknownSeller() {
+        return VendorRefreshHelper.isSellerApproved(miss);
+    }
+}
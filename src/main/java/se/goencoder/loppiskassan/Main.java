@@ -5,6 +5,8 @@ import se.goencoder.loppiskassan.config.AppMode;
 import se.goencoder.loppiskassan.config.AppModeManager;
 import se.goencoder.loppiskassan.records.FileHelper;
 import se.goencoder.loppiskassan.localization.LocalizationManager;
+import se.goencoder.loppiskassan.metrics.FlightRecording;
+import se.goencoder.loppiskassan.metrics.MetricsExporter;
 import se.goencoder.loppiskassan.ui.Popup;
 import se.goencoder.loppiskassan.ui.AppShellFrame;
 import se.goencoder.loppiskassan.ui.Theme;
@@ -109,6 +111,8 @@ public class Main {
             AppPaths.migrateLegacyPaths();
             FileHelper.createDirectories();
             createLogger();
+            MetricsExporter.start();
+            FlightRecording.start();
 
             // Initialize localization system with proper language configuration
             LocalizationManager.initialize();
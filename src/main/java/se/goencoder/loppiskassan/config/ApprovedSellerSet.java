@@ -0,0 +1,155 @@
+package se.goencoder.loppiskassan.config;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * Immutable primitive set of approved seller numbers, built from the cached
+ * {@code {"approvedSellers":[...]}} JSON in {@link ILoppisConfigurationStore}.
+ * <p>
+ * Seller numbers are small positive ints in practice, so they are stored in a
+ * bitmap. Anything outside the bitmap range (negative or very large numbers) goes
+ * into an open-addressing hash table. Either way {@link #contains(int)} is O(1)
+ * and does not allocate, so it is cheap enough to call on every keystroke in the
+ * cashier seller field.
+ * </p>
+ */
+public final class ApprovedSellerSet {
+    private static final Logger log = Logger.getLogger(ApprovedSellerSet.class.getName());
+
+    /** Largest seller number kept in the bitmap (512 KB at most). */
+    private static final int MAX_BITMAP_SELLER = (1 << 22) - 1;
+    private static final int EMPTY_SLOT = Integer.MIN_VALUE;
+
+    public static final ApprovedSellerSet EMPTY = new ApprovedSellerSet(null, new int[0]);
+
+    private final String source;
+    private final int[] sellers;
+    private final long[] bits;
+    private final int[] table;
+    private final boolean containsEmptySlotValue;
+    private final int size;
+
+    private ApprovedSellerSet(String source, int[] sellers) {
+        this.source = source;
+        int[] distinct = Arrays.stream(sellers).distinct().sorted().toArray();
+        this.sellers = distinct;
+        this.size = distinct.length;
+
+        int maxInBitmap = -1;
+        int outsideBitmap = 0;
+        for (int seller : distinct) {
+            if (seller >= 0 && seller <= MAX_BITMAP_SELLER) {
+                maxInBitmap = Math.max(maxInBitmap, seller);
+            } else {
+                outsideBitmap++;
+            }
+        }
+
+        bits = new long[(maxInBitmap >> 6) + 1];
+        table = new int[outsideBitmap == 0 ? 0 : tableCapacity(outsideBitmap)];
+        Arrays.fill(table, EMPTY_SLOT);
+        boolean hasEmptySlotValue = false;
+        for (int seller : distinct) {
+            if (seller >= 0 && seller <= MAX_BITMAP_SELLER) {
+                bits[seller >> 6] |= 1L << seller;
+            } else if (seller == EMPTY_SLOT) {
+                hasEmptySlotValue = true;
+            } else {
+                int slot = slot(seller, table.length);
+                while (table[slot] != EMPTY_SLOT) {
+                    slot = (slot + 1) & (table.length - 1);
+                }
+                table[slot] = seller;
+            }
+        }
+        this.containsEmptySlotValue = hasEmptySlotValue;
+    }
+
+    public static ApprovedSellerSet of(int... sellers) {
+        return new ApprovedSellerSet(null, sellers);
+    }
+
+    /**
+     * Parse the cached approved-sellers JSON. Blank or unreadable values give an empty
+     * set (logged once here rather than on every lookup).
+     */
+    public static ApprovedSellerSet fromJson(String approvedSellersJson) {
+        if (approvedSellersJson == null || approvedSellersJson.isBlank()) {
+            return new ApprovedSellerSet(approvedSellersJson, new int[0]);
+        }
+        try {
+            JSONArray array = new JSONObject(approvedSellersJson).getJSONArray("approvedSellers");
+            int[] sellers = new int[array.length()];
+            int count = 0;
+            for (int i = 0; i < array.length(); i++) {
+                // Only integral JSON numbers count, as with the old toList().contains(Integer)
+                if (array.get(i) instanceof Integer seller) {
+                    sellers[count++] = seller;
+                }
+            }
+            return new ApprovedSellerSet(approvedSellersJson, Arrays.copyOf(sellers, count));
+        } catch (Exception e) {
+            log.warning("Failed to parse approved sellers JSON: " + e.getMessage());
+            return new ApprovedSellerSet(approvedSellersJson, new int[0]);
+        }
+    }
+
+    public boolean contains(int seller) {
+        if (seller >= 0 && seller <= MAX_BITMAP_SELLER) {
+            int word = seller >> 6;
+            return word < bits.length && (bits[word] & (1L << seller)) != 0;
+        }
+        if (seller == EMPTY_SLOT) {
+            return containsEmptySlotValue;
+        }
+        if (table.length == 0) {
+            return false;
+        }
+        int slot = slot(seller, table.length);
+        while (true) {
+            int value = table[slot];
+            if (value == seller) {
+                return true;
+            }
+            if (value == EMPTY_SLOT) {
+                return false;
+            }
+            slot = (slot + 1) & (table.length - 1);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the seller numbers in ascending order (a copy)
+     */
+    public int[] toArray() {
+        return sellers.clone();
+    }
+
+    /**
+     * @return the JSON string this set was parsed from (identity is used for cache checks)
+     */
+    String source() {
+        return source;
+    }
+
+    private static int tableCapacity(int entries) {
+        // Power of two, at most half full
+        return Integer.highestOneBit(Math.max(2, entries) * 2 - 1) << 1;
+    }
+
+    private static int slot(int value, int capacity) {
+        return (value * 0x9E3779B9 >>> 16 ^ value) & (capacity - 1);
+    }
+}
@@ -20,6 +20,9 @@ public class ILoppisConfigurationStore extends ConfigurationStore<ILoppisConfigu
         INSTANCE.load();
     }
     
+    /** Parsed view of config.approvedSellers, rebuilt whenever that string changes. */
+    private volatile ApprovedSellerSet approvedSellerSet = ApprovedSellerSet.EMPTY;
+    
     private ILoppisConfigurationStore() {}
     
     @Override
@@ -101,9 +104,25 @@ public class ILoppisConfigurationStore extends ConfigurationStore<ILoppisConfigu
     
     public static void setApprovedSellers(String approvedSellers) {
         INSTANCE.config.approvedSellers = approvedSellers;
+        INSTANCE.approvedSellerSet = ApprovedSellerSet.fromJson(approvedSellers);
         INSTANCE.save();
     }
     
+    /**
+     * Approved sellers as a primitive set for O(1) validation. Parsed once per
+     * value of {@link #getApprovedSellers()}, not per lookup.
+     */
+    public static ApprovedSellerSet getApprovedSellerSet() {
+        String json = INSTANCE.config.approvedSellers;
+        ApprovedSellerSet set = INSTANCE.approvedSellerSet;
+        // Identity check: covers the initial load and reset() as well as setApprovedSellers
+        if (set.source() != json) {
+            set = ApprovedSellerSet.fromJson(json);
+            INSTANCE.approvedSellerSet = set;
+        }
+        return set;
+    }
+    
     // Revenue Split
     public static String getRevenueSplit() {
         return INSTANCE.config.revenueSplit;
@@ -6,6 +6,7 @@ import se.goencoder.iloppis.model.V1CreateSoldItemsResponse;
 import se.goencoder.iloppis.model.V1Event;
 import se.goencoder.iloppis.model.V1GetApiKeyResponse;
 import se.goencoder.iloppis.model.V1RejectedItem;
+import se.goencoder.iloppis.model.V1SoldItemErrorCode;
 import se.goencoder.loppiskassan.V1SoldItem;
 import se.goencoder.loppiskassan.model.BulkUploadResult;
 import se.goencoder.loppiskassan.localization.LocalizationManager;
@@ -18,19 +19,23 @@ import se.goencoder.loppiskassan.storage.PendingItemsStore;
 import se.goencoder.loppiskassan.utils.SoldItemUtils;
 import se.goencoder.loppiskassan.utils.RejectedItemsHelper;
 import se.goencoder.loppiskassan.service.RejectedItemsManager;
+import se.goencoder.loppiskassan.service.SoldItemUploadBatcher;
+import se.goencoder.loppiskassan.utils.SoldItemsResponseClassifier.UploadOutcome;
 
 import java.io.IOException;
 import java.time.OffsetDateTime;
-import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Controller for bulk-uploading local event data to iLoppis backend.
- * Handles grouping by purchaseId, sequential upload, and result aggregation.
+ * Handles grouping by purchaseId, batched sequential upload, and result aggregation.
  */
 public class BulkUploadController {
 
@@ -70,15 +75,17 @@ public class BulkUploadController {
             Map<String, List<V1SoldItem>> grouped = items.stream()
                 .collect(Collectors.groupingBy(V1SoldItem::getPurchaseId));
 
-            // 4. Upload each group sequentially
-            for (Map.Entry<String, List<V1SoldItem>> entry : grouped.entrySet()) {
-                uploadPurchaseGroup(
+            // 4. Upload batches of whole purchases sequentially
+            SoldItemUploadBatcher batcher = new SoldItemUploadBatcher();
+            for (List<V1SoldItem> batch : batcher.pack(grouped.values())) {
+                uploadBatch(
                     backendEvent.getId(),
-                    entry.getValue(),
+                    batcher,
+                    batch,
                     result
                 );
-                
-                // Rate limiting between groups
+
+                // Rate limiting between requests
                 Thread.sleep(RATE_LIMIT_DELAY_MS);
             }
 
@@ -130,16 +137,17 @@ public class BulkUploadController {
     }
 
     /**
-     * Upload a single purchase group with retry logic
+     * Upload one batch of purchases with retry logic
      */
-    private static void uploadPurchaseGroup(
+    private static void uploadBatch(
         String eventId,
+        SoldItemUploadBatcher batcher,
         List<V1SoldItem> items,
         BulkUploadResult result
     ) {
         for (int retry = 0; retry < MAX_RETRIES; retry++) {
             try {
-                uploadGroupAttempt(eventId, items, result);
+                uploadGroupAttempt(batcher, items, sentItems -> sendItems(eventId, sentItems), result);
                 return; // Success
             } catch (ApiException e) {
                 if (retry < MAX_RETRIES - 1) {
@@ -160,13 +168,53 @@ public class BulkUploadController {
     }
 
     /**
-     * Perform a single upload attempt for a purchase group
+     * Perform a single upload attempt for a batch of purchases. The batcher splits the
+     * response per purchase and retries items rejected only because another purchase in
+     * the same request had an invalid seller, so one bad purchase does not fail the batch.
      */
-    private static void uploadGroupAttempt(
-        String eventId,
+    static void uploadGroupAttempt(
+        SoldItemUploadBatcher batcher,
         List<V1SoldItem> items,
+        SoldItemUploadBatcher.Sender sender,
         BulkUploadResult result
     ) throws ApiException {
+        Map<String, UploadOutcome> outcomes = batcher.upload(items, sender);
+
+        Map<String, V1SoldItem> itemsById = new HashMap<>();
+        for (V1SoldItem item : items) {
+            if (item.getItemId() != null) {
+                itemsById.put(item.getItemId(), item);
+            }
+        }
+        for (UploadOutcome outcome : outcomes.values()) {
+            for (String itemId : outcome.acceptedItemIds()) {
+                V1SoldItem localItem = itemsById.get(itemId);
+                if (localItem != null) {
+                    result.acceptedItems.add(new V1SoldItem(
+                        localItem.getPurchaseId(),
+                        localItem.getItemId(),
+                        localItem.getSoldTime(),
+                        localItem.getSeller(),
+                        localItem.getPrice(),
+                        localItem.getCollectedBySellerTime(),
+                        localItem.getPaymentMethod(),
+                        true
+                    ));
+                }
+            }
+            for (String itemId : outcome.duplicateItemIds()) {
+                V1SoldItem localItem = itemsById.get(itemId);
+                if (localItem != null) {
+                    result.duplicateItems.add(new V1RejectedItem()
+                        .item(SoldItemUtils.toApiSoldItem(localItem))
+                        .errorCode(V1SoldItemErrorCode.DUPLICATE_RECEIPT));
+                }
+            }
+            result.failedItems.addAll(outcome.rejectedItems());
+        }
+    }
+
+    private static V1CreateSoldItemsResponse sendItems(String eventId, List<V1SoldItem> items) throws ApiException {
         SoldItemsServiceCreateSoldItemsBody requestBody = new SoldItemsServiceCreateSoldItemsBody();
 
         for (V1SoldItem localItem : items) {
@@ -178,37 +226,13 @@ public class BulkUploadController {
             requestBody.addItemsItem(apiItem);
         }
 
-        V1CreateSoldItemsResponse response = ApiHelper.INSTANCE
+        return ApiHelper.INSTANCE
             .getSoldItemsServiceApi()
             .soldItemsServiceCreateSoldItems(eventId, requestBody);
-
-        if (response != null) {
-            // Add accepted items
-            if (response.getAcceptedItems() != null) {
-                List<V1SoldItem> acceptedLocal = new ArrayList<>();
-                for (se.goencoder.iloppis.model.V1SoldItem apiItem : response.getAcceptedItems()) {
-                    V1SoldItem localItem = SoldItemUtils.fromApiSoldItem(apiItem, true);
-                    acceptedLocal.add(localItem);
-                }
-                result.acceptedItems.addAll(acceptedLocal);
-            }
-
-            // Separate rejected items: duplicates vs errors
-            if (response.getRejectedItems() != null) {
-                for (V1RejectedItem rejected : response.getRejectedItems()) {
-                    if (rejected.getErrorCode() != null && 
-                        "DUPLICATE_RECEIPT".equals(rejected.getErrorCode().toString())) {
-                        result.duplicateItems.add(rejected);
-                    } else {
-                        result.failedItems.add(rejected);
-                    }
-                }
-            }
-        }
     }
 
     /**
-     * Handle upload failure for a purchase group
+     * Handle upload failure for a batch of purchases
      */
     private static void handleGroupUploadFailure(
         ApiException e,
@@ -223,7 +247,7 @@ public class BulkUploadController {
             result.addError(LocalizationManager.tr("error.network_upload.message"));
             return;
         }
-        log.log(Level.SEVERE, "Bulk upload group failed", e);
+        log.log(Level.SEVERE, "Bulk upload batch failed", e);
         result.addError(LocalizationManager.tr("error.generic.message", FileHelper.getLogFilePath()));
     }
 
@@ -253,35 +277,30 @@ public class BulkUploadController {
      */
     private static void updateLocalMetadata(LocalEvent localEvent, V1Event backendEvent, BulkUploadResult result) 
         throws IOException {
-        // Read ALL items (including already-uploaded ones)
+        // Journal state changes only; the pending file itself is not rewritten
         PendingItemsStore store = new PendingItemsStore(localEvent.getEventId());
-        List<V1SoldItem> allItems = store.readAll();
-        
-        // Mark uploaded items in the full list
-        for (V1SoldItem localItem : allItems) {
-            boolean wasAccepted = result.acceptedItems.stream()
-                .anyMatch(apiItem -> apiItem.getItemId() != null && 
-                         apiItem.getItemId().equals(localItem.getItemId()));
-            
-            boolean wasDuplicate = result.duplicateItems.stream()
-                .anyMatch(rejected -> rejected.getItem() != null && 
-                         rejected.getItem().getItemId() != null &&
-                         rejected.getItem().getItemId().equals(localItem.getItemId()));
-            
-            if (wasAccepted || wasDuplicate) {
-                localItem.setUploaded(true);
+
+        Set<String> uploadedIds = new HashSet<>();
+        for (V1SoldItem apiItem : result.acceptedItems) {
+            if (apiItem.getItemId() != null) {
+                uploadedIds.add(apiItem.getItemId());
             }
         }
+        for (V1RejectedItem rejected : result.duplicateItems) {
+            if (rejected.getItem() != null && rejected.getItem().getItemId() != null) {
+                uploadedIds.add(rejected.getItem().getItemId());
+            }
+        }
+        store.markUploaded(uploadedIds);
 
-        if (!result.failedItems.isEmpty()) {
-            allItems.removeIf(localItem -> result.failedItems.stream()
-                .anyMatch(rejected -> rejected.getItem() != null &&
-                        rejected.getItem().getItemId() != null &&
-                        rejected.getItem().getItemId().equals(localItem.getItemId())));
+        Set<String> failedIds = new HashSet<>();
+        for (V1RejectedItem rejected : result.failedItems) {
+            if (rejected.getItem() != null && rejected.getItem().getItemId() != null) {
+                failedIds.add(rejected.getItem().getItemId());
+            }
         }
-        
-        // Save updated items back to store
-        store.saveAll(allItems);
+        store.markRejected(failedIds);
+        store.compactIfNeeded();
         
         // Create updated event with upload metadata
         LocalEvent updated = new LocalEvent(
@@ -3,6 +3,10 @@ package se.goencoder.loppiskassan.controller;
 import se.goencoder.loppiskassan.V1PaymentMethod;
 import se.goencoder.loppiskassan.V1SoldItem;
 import se.goencoder.loppiskassan.config.AppModeManager;
+import se.goencoder.loppiskassan.metrics.Counter;
+import se.goencoder.loppiskassan.metrics.Histogram;
+import se.goencoder.loppiskassan.metrics.Metrics;
+import se.goencoder.loppiskassan.model.cashier.CashierCart;
 import se.goencoder.loppiskassan.model.cashier.CashierState;
 import se.goencoder.loppiskassan.storage.LocalEventPaths;
 import se.goencoder.loppiskassan.storage.LocalEventRepository;
@@ -10,6 +14,7 @@ import se.goencoder.loppiskassan.service.CashierStrategy;
 import se.goencoder.loppiskassan.service.LocalCashierStrategy;
 import se.goencoder.loppiskassan.service.IloppisCashierStrategy;
 import se.goencoder.loppiskassan.service.BackgroundSyncManager;
+import se.goencoder.loppiskassan.service.UIThreadingService;
 import se.goencoder.loppiskassan.ui.CashierPanelInterface;
 import se.goencoder.loppiskassan.localization.LocalizationManager;
 import se.goencoder.loppiskassan.ui.Popup;
@@ -20,17 +25,24 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Logger;
 
 public class CashierTabController implements CashierControllerInterface {
 
     private static final CashierTabController instance = new CashierTabController();
     private static final Logger log = Logger.getLogger(CashierTabController.class.getName());
+    /** Checkout click until the strategy reports the purchase durable. */
+    private static final Histogram checkoutMicros = Metrics.histogram("checkout.durable.micros");
+    private static final Counter checkoutFailures = Metrics.counter("checkout.failures");
 
-    private final List<V1SoldItem> items = new ArrayList<>();
+    private final CashierCart cart = new CashierCart();
     private final CashierState state = new CashierState();
     private CashierPanelInterface view;
     private CashierStrategy cashierStrategy;
+    /** Set from checkout until its persist completed and was handled on the UI thread. */
+    private volatile boolean checkoutInFlight;
 
     private CashierTabController() {}
 
@@ -77,6 +89,10 @@ public class CashierTabController implements CashierControllerInterface {
 
     @Override
     public void onPricesSubmitted() {
+        if (checkoutInFlight) {
+            // Leave the prices in the input field until the checkout is done
+            return;
+        }
         Map<Integer, Integer[]> prices = view.getAndClearSellerPrices();
         prices.forEach(this::addItem);
         view.setFocusToSellerField();
@@ -101,19 +117,21 @@ public class CashierTabController implements CashierControllerInterface {
     // --- Item operations ---
     @Override
     public void deleteItem(String itemId) {
-        items.removeIf(item -> {
-            if (item.getItemId().equals(itemId)) {
-                log.info(() -> String.format("cashier:delete %s", logCtx(item.getSeller())));
-                return true;
-            }
-            return false;
-        });
+        if (checkoutInFlight) {
+            return;
+        }
+        V1SoldItem removed = cart.remove(itemId);
+        if (removed == null) {
+            return;
+        }
+        log.info(() -> String.format("cashier:delete %s", logCtx(removed.getSeller())));
+        view.removeSoldItem(itemId);
         reCalculate();
     }
 
     @Override
     public void calculateChange(int payedAmount) {
-        int totalSum = getSum();
+        int totalSum = cart.getTotal();
         int change = payedAmount - totalSum;
         view.setChange(change);
     }
@@ -148,48 +166,70 @@ public class CashierTabController implements CashierControllerInterface {
         log.info(() -> String.format("cashier:add items=%d %s", prices.length, logCtx(sellerId)));
         for (Integer price : prices) {
             V1SoldItem soldItem = new V1SoldItem(sellerId, price, null);
-            items.add(soldItem);
+            cart.add(soldItem);
             view.addSoldItem(soldItem);
         }
         reCalculate();
     }
 
     // --- Checkout process ---
-    public void checkout(V1PaymentMethod paymentMethod) {
+    /**
+     * Persist the cart and, once the strategy reports it durable, clear the till.
+     * Disk work happens off the calling thread; the result is handled on the UI thread.
+     * While a checkout is in flight the cart is frozen: prices stay in the input field
+     * and cancel, delete and further checkouts are ignored.
+     *
+     * @return a future that completes after the checkout was finished or reported as failed
+     */
+    public CompletableFuture<Void> checkout(V1PaymentMethod paymentMethod) {
+        CompletableFuture<Void> handled = new CompletableFuture<>();
+        if (checkoutInFlight || cart.isEmpty()) {
+            handled.complete(null);
+            return handled;
+        }
         LocalDateTime now = LocalDateTime.now();
         // Generate a ULID instead of UUID to match the server's expected format ^[0-9A-HJKMNP-TV-Z]{26}$
         String purchaseId = UlidGenerator.generate();
+        // Strategies get their own list; the cart is cleared after checkout
+        List<V1SoldItem> items = new ArrayList<>(cart.getItems());
         prepareItemsForCheckout(items, purchaseId, paymentMethod, now);
         
         // Calculate total before clearing
-        int totalAmount = getSum();
+        int totalAmount = cart.getTotal();
         
         // Use strategy pattern to persist items
         CashierStrategy strategy = getCashierStrategy();
-        
-        if (AppModeManager.isLocalMode()) {
-            // Local mode: synchronous save
-            try {
-                strategy.persistItems(items, purchaseId, paymentMethod, now);
-                finishCheckoutFlow(paymentMethod, totalAmount);
-            } catch (Exception e) {
-                Popup.ERROR.showAndWait(
-                        LocalizationManager.tr("error.save_file"),
-                        e.getMessage()
-                );
-            }
-        } else {
-            // iLoppis mode: local-first, enqueue for background sync
-            try {
-                strategy.persistItems(items, purchaseId, paymentMethod, now);
-                finishCheckoutFlow(paymentMethod, totalAmount);
-            } catch (Exception e) {
-                Popup.ERROR.showAndWait(
-                        LocalizationManager.tr("error.upload_web"),
-                        e.getMessage()
-                );
-            }
-        }
+        // Local mode writes the event file; iLoppis mode writes locally and syncs in the background
+        String errorKey = AppModeManager.isLocalMode() ? "error.save_file" : "error.upload_web";
+
+        checkoutInFlight = true;
+        view.enableCheckoutButtons(false);
+        long start = System.nanoTime();
+        strategy.persistItemsAsync(items, purchaseId, paymentMethod, now)
+                .whenComplete((result, error) -> {
+                    if (error == null) {
+                        checkoutMicros.recordSince(start);
+                    } else {
+                        checkoutFailures.increment();
+                    }
+                    UIThreadingService.runOnUIThread(() -> {
+                        checkoutInFlight = false;
+                        try {
+                            if (error == null) {
+                                finishCheckoutFlow(paymentMethod, totalAmount);
+                            } else {
+                                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                        ? error.getCause() : error;
+                                log.warning(() -> String.format("cashier:checkout failed purchase=%s: %s", purchaseId, cause));
+                                view.enableCheckoutButtons(!cart.isEmpty());
+                                Popup.ERROR.showAndWait(LocalizationManager.tr(errorKey), cause.getMessage());
+                            }
+                        } finally {
+                            handled.complete(null);
+                        }
+                    });
+                });
+        return handled;
     }
 
     private void finishCheckoutFlow(V1PaymentMethod paymentMethod, int totalAmount) {
@@ -197,7 +237,7 @@ public class CashierTabController implements CashierControllerInterface {
         view.showCheckoutSuccess(paymentMethod, totalAmount);
 
         // 2) Clear the cashier UI
-        items.clear();
+        cart.clear();
         view.clearView();
         state.reset();  // Reset state to initial values
 
@@ -210,45 +250,46 @@ public class CashierTabController implements CashierControllerInterface {
     }
 
     public void cancelCheckout() {
-        items.clear();
+        if (checkoutInFlight) {
+            return;
+        }
+        cart.clear();
         view.clearView();
         state.reset();  // Reset state to initial values
     }
 
     // --- Recalculate totals ---
+    /**
+     * Refresh totals after an add or delete. The view already got the row change itself,
+     * and the totals come from the cart's running sum, so this is constant time.
+     */
     private void reCalculate() {
-        int totalSum = getSum();
-        int roundedSum = (totalSum + 99) / 100 * 100;
+        int totalSum = cart.getTotal();
+        int roundedSum = cart.getRoundedTotal();
         int change = roundedSum - totalSum;
 
-        view.clearView();
-        items.forEach(view::addSoldItem);
         view.setChange(change);
         view.setPaidAmount(roundedSum);
         view.setFocusToSellerField();
         
         // Sync state after recalculation
-        syncStateFromItems();
-    }
-
-    private int getSum() {
-        return items.stream().mapToInt(V1SoldItem::getPrice).sum();
+        syncStateFromCart();
     }
 
     /**
-     * Synchronizes the CashierState with the current items list.
+     * Synchronizes the CashierState with the cart.
      * Updates item count, total sum, and checkout button enabled state.
-     * Called after any operation that modifies the items list.
+     * Called after any operation that modifies the cart.
      */
-    private void syncStateFromItems() {
-        state.setItems(new ArrayList<>(items));
-        state.setItemCount(items.size());
-        int total = getSum();
+    private void syncStateFromCart() {
+        state.setItems(cart.getItems());
+        state.setItemCount(cart.size());
+        int total = cart.getTotal();
         state.setTotalSum(total);
-        state.setCheckoutEnabled(!items.isEmpty());
+        state.setCheckoutEnabled(!cart.isEmpty());
         
         // Calculate rounded paid amount and change (for Swedish rounding to nearest 100 öre)
-        int roundedSum = (total + 99) / 100 * 100;
+        int roundedSum = cart.getRoundedTotal();
         state.setPaidAmount(roundedSum);
         state.setChange(roundedSum - total);
         
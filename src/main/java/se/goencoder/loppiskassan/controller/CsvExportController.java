@@ -3,8 +3,7 @@ package se.goencoder.loppiskassan.controller;
 import se.goencoder.loppiskassan.V1SoldItem;
 import se.goencoder.loppiskassan.localization.LocalizationManager;
 import se.goencoder.loppiskassan.service.DialogService;
-import se.goencoder.loppiskassan.storage.JsonlHelper;
-import se.goencoder.loppiskassan.storage.LocalEventPaths;
+import se.goencoder.loppiskassan.storage.PendingItemsStore;
 import se.goencoder.loppiskassan.ui.Popup;
 import se.goencoder.loppiskassan.ui.dialogs.ExportDataDialog;
 
@@ -37,9 +36,7 @@ public class CsvExportController {
      */
     public static void exportEventDataAsCsv(String eventId, String eventName) {
         try {
-            List<V1SoldItem> items = JsonlHelper.readItems(
-                    LocalEventPaths.getPendingItemsPath(eventId)
-            );
+            List<V1SoldItem> items = new PendingItemsStore(eventId).readAll();
 
             if (items.isEmpty()) {
                 Popup.WARNING.showAndWait(
@@ -1,10 +1,7 @@
 package se.goencoder.loppiskassan.controller;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
 import se.goencoder.iloppis.api.ApiKeyServiceApi;
 import se.goencoder.iloppis.api.EventServiceApi;
-import se.goencoder.iloppis.api.VendorServiceApi;
 import se.goencoder.iloppis.invoker.ApiException;
 import se.goencoder.iloppis.model.*;
 import se.goencoder.loppiskassan.config.AppMode;
@@ -20,6 +17,7 @@ import se.goencoder.loppiskassan.ui.Popup;
 import se.goencoder.loppiskassan.ui.dialogs.CashierCodeDialog;
 import se.goencoder.loppiskassan.util.AppPaths;
 import se.goencoder.loppiskassan.utils.EventUtils;
+import se.goencoder.loppiskassan.utils.VendorRefreshHelper;
 import se.goencoder.loppiskassan.localization.LocalizationManager;
 import se.goencoder.loppiskassan.storage.LocalEvent;
 import se.goencoder.loppiskassan.storage.LocalEventRepository;
@@ -40,9 +38,6 @@ public class DiscoveryTabController implements DiscoveryControllerInterface {
     private static final Logger log = Logger.getLogger(DiscoveryTabController.class.getName());
     private static final DiscoveryTabController instance = new DiscoveryTabController();
 
-    // Constant for API requests
-    private static final int APPROVED_SELLERS_PAGE_SIZE = 500;
-
     private DiscoveryPanelInterface view;
     private volatile List<V1Event> eventList;
     private volatile Map<String, LocalEvent> localEventMap = new HashMap<>();
@@ -103,7 +98,7 @@ public class DiscoveryTabController implements DiscoveryControllerInterface {
         }
 
         // Check connectivity before attempting API call
-        boolean online = se.goencoder.loppiskassan.rest.ConnectivityChecker.isOnline();
+        boolean online = se.goencoder.loppiskassan.rest.ConnectivityMonitor.getInstance().isOnline();
         state.setOfflineMode(!online);
 
         if (online) {
@@ -509,7 +504,7 @@ public class DiscoveryTabController implements DiscoveryControllerInterface {
     }
 
     private void configureOnlineMode(String eventId, V1Event event, V1RevenueSplit split) {
-        boolean online = se.goencoder.loppiskassan.rest.ConnectivityChecker.isOnline();
+        boolean online = se.goencoder.loppiskassan.rest.ConnectivityMonitor.getInstance().isOnline();
 
         se.goencoder.loppiskassan.storage.CachedOnlineEvent cached =
                 se.goencoder.loppiskassan.storage.OnlineEventCache.loadCachedEvent(eventId);
@@ -705,48 +700,7 @@ public class DiscoveryTabController implements DiscoveryControllerInterface {
     }
 
     private void fetchApprovedSellers(String eventId) throws ApiException {
-        log.info("=== DiscoveryTabController fetchApprovedSellers START === event: " + eventId);
-        
-        VendorServiceApi api = ApiHelper.INSTANCE.getVendorServiceApi();
-        Set<Integer> approvedSellers = new HashSet<>();
-        String nextPageToken = "";
-        int pageCount = 0;
-        
-        // Use vendors:filter with status="approved" (same endpoint as Android/Frontend)
-        do {
-            pageCount++;
-            
-            V1VendorFilter filter = new V1VendorFilter();
-            filter.setStatus("approved");
-            
-            V1Pagination pagination = new V1Pagination();
-            pagination.setPageSize(APPROVED_SELLERS_PAGE_SIZE);
-            if (!nextPageToken.isEmpty()) {
-                pagination.setPageToken(nextPageToken);
-            }
-            
-            VendorServiceFilterVendorsBody body = new VendorServiceFilterVendorsBody();
-            body.setFilter(filter);
-            body.setPagination(pagination);
-            
-            V1FilterVendorsResponse res = api.vendorServiceFilterVendors(eventId, body);
-            
-            if (res.getVendors() != null) {
-                for (V1Vendor vendor : res.getVendors()) {
-                    approvedSellers.add(vendor.getSellerNumber());
-                }
-            }
-            
-            nextPageToken = res.getNextPageToken();
-            
-        } while (nextPageToken != null && !nextPageToken.isEmpty());
-        
-        log.info(String.format("=== DiscoveryTabController fetchApprovedSellers END === %d pages, %d APPROVED", 
-            pageCount, approvedSellers.size()));
-        
-        JSONObject jsonObject = new JSONObject();
-        jsonObject.put("approvedSellers", new JSONArray(approvedSellers));
-        ILoppisConfigurationStore.setApprovedSellers(jsonObject.toString());
+        VendorRefreshHelper.fetchAllApprovedSellers(eventId);
     }
 
     private void handleLocalEvent(LocalEvent localEvent) {
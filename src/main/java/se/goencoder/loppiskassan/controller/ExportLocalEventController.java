@@ -4,15 +4,13 @@ import se.goencoder.loppiskassan.V1SoldItem;
 import se.goencoder.loppiskassan.localization.LocalizationManager;
 import se.goencoder.loppiskassan.service.DialogService;
 import se.goencoder.loppiskassan.storage.JsonlHelper;
-import se.goencoder.loppiskassan.storage.LocalEventPaths;
+import se.goencoder.loppiskassan.storage.PendingItemsStore;
 import se.goencoder.loppiskassan.ui.Popup;
 import se.goencoder.loppiskassan.ui.dialogs.ExportDataDialog;
 
 import java.awt.Component;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -32,9 +30,7 @@ public class ExportLocalEventController {
     public static void exportEventData(String eventId, String eventName) {
         try {
             // 1. Read data to be exported
-            List<V1SoldItem> items = JsonlHelper.readItems(
-                LocalEventPaths.getPendingItemsPath(eventId)
-            );
+            List<V1SoldItem> items = new PendingItemsStore(eventId).readAll();
             
             if (items.isEmpty()) {
                 Popup.WARNING.showAndWait(
@@ -51,12 +47,8 @@ public class ExportLocalEventController {
             File destination = showExportDialog(defaultFileName, items.size());
             if (destination == null) return; // User cancelled
             
-            // 4. Copy pending_items.jsonl to destination
-            Files.copy(
-                LocalEventPaths.getPendingItemsPath(eventId),
-                destination.toPath(),
-                StandardCopyOption.REPLACE_EXISTING
-            );
+            // 4. Write pending items (with state journal applied) to destination
+            JsonlHelper.writeItems(destination.toPath(), items);
             
             // 5. Show success dialog
             showSuccessDialog(destination, items.size());
@@ -10,23 +10,31 @@ import se.goencoder.loppiskassan.config.AppModeManager;
 import se.goencoder.loppiskassan.model.history.HistoryState;
 import se.goencoder.loppiskassan.records.FormatHelper;
 import se.goencoder.loppiskassan.records.FileHelper;
+import se.goencoder.loppiskassan.storage.HistorySyncCursor;
 import se.goencoder.loppiskassan.storage.JsonlHelper;
 import se.goencoder.loppiskassan.storage.LocalEventPaths;
 import se.goencoder.loppiskassan.storage.LocalEventRepository;
+import se.goencoder.loppiskassan.storage.PendingItemsStore;
+import se.goencoder.loppiskassan.storage.PendingItemsWriter;
 import se.goencoder.loppiskassan.rest.ApiHelper;
 import se.goencoder.loppiskassan.rest.AuthErrorHandler;
 import se.goencoder.loppiskassan.ui.HistoryPanelInterface;
+import se.goencoder.loppiskassan.ui.HistorySearchIndex;
 import se.goencoder.loppiskassan.ui.Popup;
+import se.goencoder.loppiskassan.ui.ProgressDialog;
 import se.goencoder.loppiskassan.ui.dialogs.DestructiveConfirmationDialog;
 import se.goencoder.loppiskassan.utils.FileUtils;
 import se.goencoder.loppiskassan.utils.FilterUtils;
 import se.goencoder.loppiskassan.utils.FilterUtils.FilterResult;
+import se.goencoder.loppiskassan.utils.HistoryIndex;
 import se.goencoder.loppiskassan.utils.SoldItemUtils;
 import se.goencoder.loppiskassan.service.BackgroundSyncManager;
 import se.goencoder.loppiskassan.localization.LocalizationManager;
 
 import se.goencoder.loppiskassan.service.UIThreadingService;
+import se.goencoder.loppiskassan.service.HistoryMergeService;
 import se.goencoder.loppiskassan.service.HistoryOperations;
+import se.goencoder.loppiskassan.service.HistoryWebSync;
 import se.goencoder.loppiskassan.service.LocalHistoryOperations;
 import se.goencoder.loppiskassan.service.OnlineHistoryOperations;
 import java.io.BufferedOutputStream;
@@ -41,12 +49,12 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import static se.goencoder.iloppis.model.V1PaidFilter.PAID_FILTER_UNSPECIFIED;
-import static se.goencoder.iloppis.model.V1PaymentMethodFilter.PAYMENT_METHOD_FILTER_UNSPECIFIED;
 import static se.goencoder.loppiskassan.ui.Constants.*;
 
 /**
@@ -56,14 +64,13 @@ public class HistoryTabController implements HistoryControllerInterface {
     private static final HistoryTabController instance = new HistoryTabController();
     private static final Logger log = Logger.getLogger(HistoryTabController.class.getName());
 
-    // Constants for API queries and timing tolerance
-    private static final int PAGE_SIZE = 500;
-    private static final int SOLD_TIME_TOLERANCE_SECONDS = 60;
-
     private HistoryPanelInterface view;
     private List<V1SoldItem> allHistoryItems;
+    /** Filter index over allHistoryItems; rebuilt or updated on every change to the list. */
+    private HistoryIndex historyIndex = HistoryIndex.of(List.of());
     private final HistoryState state = new HistoryState();
     private final HistoryOperations operations;
+    private final HistoryMergeService historyMerge = new HistoryMergeService();
 
     private HistoryTabController() {
         // Initialize history operations based on mode using strategy pattern
@@ -74,6 +81,12 @@ public class HistoryTabController implements HistoryControllerInterface {
                     HistoryTabController.this.saveHistoryToFile();
                 }
                 
+                @Override
+                public void savePayoutToFile(List<V1SoldItem> items, LocalDateTime paidOutTime) {
+                    historyIndex.refresh(items);
+                    HistoryTabController.this.savePayoutToFile(items, paidOutTime);
+                }
+                
                 @Override
                 public void archiveItemsToFile(List<V1SoldItem> items) {
                     HistoryTabController.this.archiveItemsToFile(items);
@@ -134,9 +147,12 @@ public class HistoryTabController implements HistoryControllerInterface {
             } else {
                 LocalEventRepository.ensureEventStorage(eventId);
                 historyPath = LocalEventPaths.getPendingItemsPath(eventId);
-                allHistoryItems = JsonlHelper.readItems(historyPath);
+                // Checkouts still queued for disk must be in the list, or the next rewrite drops them
+                PendingItemsWriter.getInstance().flush();
+                allHistoryItems = new PendingItemsStore(eventId).readAll();
             }
-            Set<String> distinctSellers = SoldItemUtils.getDistinctSellers(allHistoryItems);
+            rebuildIndexes();
+            Set<String> distinctSellers = historyIndex.distinctSellers();
             
             // Update state
             state.setAllItems(allHistoryItems);
@@ -184,7 +200,8 @@ public class HistoryTabController implements HistoryControllerInterface {
     public void buttonAction(String actionCommand) {
         switch (actionCommand) {
             case BUTTON_ERASE -> clearData();
-            case BUTTON_IMPORT -> handleImportAction();
+            case BUTTON_IMPORT -> handleImportAction(false);
+            case BUTTON_FULL_RESYNC -> handleImportAction(true);
             case BUTTON_PAY_OUT -> operations.performPayout(applyFilters());
             case BUTTON_COPY_TO_CLIPBOARD -> copyToClipboard();
             case BUTTON_ARCHIVE -> performArchiveAction();
@@ -192,14 +209,60 @@ public class HistoryTabController implements HistoryControllerInterface {
         }
     }
 
-    private void downloadSoldItems() {
-        // Retrieve all sold items from the web, merge with local items, and save them to the local file.
+    private boolean downloadSoldItems(boolean fullResync) throws ApiException {
+        // Fetch the sold items changed since the last download (all of them on a full resync),
+        // merge them into the local items and save the file if anything changed.
+        // The download runs behind a cancellable progress dialog; returns false if cancelled.
         String eventId = AppModeManager.getEventId();
-        Map<String, V1SoldItem> fetchedItems = fetchItemsFromWeb(eventId);
-        mergeFetchedItems(fetchedItems);
-        saveHistoryToFile();
-        updateDistinctSellers();
+        HistorySyncCursor cursor = HistorySyncCursor.load(eventId);
+        int localItemCount = allHistoryItems.size();
+        AtomicReference<HistoryWebSync.Download> downloaded = new AtomicReference<>();
+        AtomicReference<Throwable> failed = new AtomicReference<>();
+        ProgressDialog.runCancellableTask(
+                view.getComponent(),
+                LocalizationManager.tr("history.progress.updating_items"),
+                LocalizationManager.tr("history.progress.syncing"),
+                cancelled -> new HistoryWebSync(eventId).download(cursor, localItemCount, fullResync, cancelled),
+                downloaded::set,
+                failed::set);
+        Throwable failure = failed.get();
+        if (failure instanceof CancellationException) {
+            log.info("History download cancelled");
+            return false;
+        }
+        if (failure instanceof ApiException apiException) {
+            throw apiException;
+        }
+        if (failure != null) {
+            throw failure instanceof RuntimeException runtime ? runtime : new IllegalStateException(failure);
+        }
+        HistoryWebSync.Download download = downloaded.get();
+        Map<String, V1SoldItem> fetchedItems = download.items();
+        int sizeBeforeMerge = allHistoryItems.size();
+        HistoryMergeService.MergeResult merge = historyMerge.merge(allHistoryItems, fetchedItems);
+        log.info(() -> String.format("Merged %d fetched items (%s): %d updated, %d added, %d duplicates skipped",
+                fetchedItems.size(), download.full() ? "full" : "incremental",
+                merge.updated(), merge.added(), merge.duplicates()));
+        boolean saved = true;
+        if (merge.changedHistory()) {
+            // The merge changes paid-out state in place and appends; rebuild rather than track it.
+            // Search labels read the current state, so only the appended items need indexing
+            historyIndex = HistoryIndex.of(allHistoryItems);
+            view.addToSearchIndex(List.copyOf(allHistoryItems.subList(sizeBeforeMerge, allHistoryItems.size())));
+            saved = saveHistoryToFile();
+            updateDistinctSellers();
+        }
+        if (saved) {
+            try {
+                download.cursor().save(eventId);
+            } catch (IOException e) {
+                // Without a cursor the next download is a full one
+                log.warning("Failed to save history sync cursor: " + e.getMessage());
+                HistorySyncCursor.delete(eventId);
+            }
+        }
         filterUpdated();
+        return true;
     }
 
     private void clearData() {
@@ -213,6 +276,11 @@ public class HistoryTabController implements HistoryControllerInterface {
         
         if (confirmed) {
             allHistoryItems.clear();
+            String eventId = AppModeManager.getEventId();
+            if (eventId != null && !eventId.isBlank()) {
+                HistorySyncCursor.delete(eventId);
+            }
+            rebuildIndexes();
             saveHistoryToFile();
             filterUpdated();
         }
@@ -290,7 +358,7 @@ public class HistoryTabController implements HistoryControllerInterface {
     }
 
     private void updateDistinctSellers() {
-        Set<String> distinctSellers = SoldItemUtils.getDistinctSellers(allHistoryItems);
+        Set<String> distinctSellers = historyIndex().distinctSellers();
             UIThreadingService.invokeLater(() -> view.updateSellerDropdown(distinctSellers));
     }
 
@@ -309,14 +377,28 @@ public class HistoryTabController implements HistoryControllerInterface {
 
     private FilterResult applyFiltersWithResult() {
         return FilterUtils.applyFiltersWithSum(
-                allHistoryItems,
+                historyIndex(),
                 view.getPaidFilter(),
                 view.getSellerFilter(),
                 view.getPaymentMethodFilter()
         );
     }
 
-    private void handleImportAction() {
+    /**
+     * The filter index, rebuilt if the list was changed without updating it.
+     */
+    private HistoryIndex historyIndex() {
+        if (allHistoryItems == null) {
+            allHistoryItems = new ArrayList<>();
+        }
+        if (!historyIndex.covers(allHistoryItems)) {
+            log.fine("History index out of date, rebuilding");
+            rebuildIndexes();
+        }
+        return historyIndex;
+    }
+
+    private void handleImportAction(boolean fullResync) {
         try {
             operations.performSync(() -> {
                 if (AppModeManager.isLocalMode()) {
@@ -344,8 +426,7 @@ public class HistoryTabController implements HistoryControllerInterface {
                     }
                     
                     try {
-                        downloadSoldItems();
-                        downloadSucceeded = true;
+                        downloadSucceeded = downloadSoldItems(fullResync);
                     } catch (Exception downloadError) {
                         ApiException apiEx = extractApiException(downloadError);
                         if (apiEx != null && AuthErrorHandler.isAuthError(apiEx)) {
@@ -385,95 +466,33 @@ public class HistoryTabController implements HistoryControllerInterface {
         }
     }
 
-    private Map<String, V1SoldItem> fetchItemsFromWeb(String eventId) {
-        // Fetch items from the web service.
-        Map<String, V1SoldItem> fetchedItems = new HashMap<>();
+    /**
+     * @return false if the file could not be written (the user has been told)
+     */
+    private boolean saveHistoryToFile() {
+        java.nio.file.Path historyPath = null;
         try {
-            String pageToken = "";
-            boolean fetchedAll = false;
-
-            while (!fetchedAll) {
-                V1ListSoldItemsResponse result = ApiHelper.INSTANCE.getSoldItemsServiceApi()
-                        .soldItemsServiceListSoldItems(
-                                eventId,                              // eventId
-                                null,                                 // purchaseId
-                                PAID_FILTER_UNSPECIFIED.getValue(),   // paidFilter
-                                PAYMENT_METHOD_FILTER_UNSPECIFIED.getValue(), // paymentMethodFilter
-                                null,                                 // seller
-                                Boolean.FALSE,                        // includeArchived
-                                Integer.valueOf(PAGE_SIZE),                 // pageSize
-                                pageToken,                           // nextPageToken
-                                "",                                  // prevPageToken
-                                Boolean.FALSE                        // includeAggregates
-                        );
-
-                result.getItems().forEach(item -> {
-                    V1SoldItem soldItem = SoldItemUtils.fromApiSoldItem(item, true);
-                    fetchedItems.put(soldItem.getItemId(), soldItem);
-                });
-
-                fetchedAll = result.getNextPageToken() == null || result.getNextPageToken().isEmpty();
-                pageToken = result.getNextPageToken();
-            }
-        } catch (ApiException e) {
-            throw new RuntimeException(e);
-        }
-
-        return fetchedItems;
-    }
-
-    private void mergeFetchedItems(Map<String, V1SoldItem> fetchedItems) {
-        // Track items that have been added to prevent duplicates
-        Set<String> processedItems = new HashSet<>();
-
-        // First pass: Update existing items
-        allHistoryItems.forEach(existingItem -> {
-            V1SoldItem fetchedItem = fetchedItems.get(existingItem.getItemId());
-            if (fetchedItem != null) {
-                // Update existing item
-                existingItem.setCollectedBySellerTime(fetchedItem.getCollectedBySellerTime());
-                existingItem.setUploaded(fetchedItem.isUploaded());
-                processedItems.add(existingItem.getItemId());
-            }
-        });
-
-        // Second pass: Add new items, but check for potential duplicates
-        for (V1SoldItem fetchedItem : fetchedItems.values()) {
-            if (processedItems.contains(fetchedItem.getItemId())) {
-                // Already processed this item
-                continue;
+            String eventId = AppModeManager.getEventId();
+            if (eventId == null || eventId.isBlank()) {
+                return true;
             }
-
-            // Check for potential duplicate by matching seller, price, and close timestamp
-            boolean isDuplicate = allHistoryItems.stream().anyMatch(existingItem ->
-                    existingItem.getSeller() == fetchedItem.getSeller() &&
-                    existingItem.getPrice() == fetchedItem.getPrice() &&
-                    isSameTimeApproximately(existingItem.getSoldTime(), fetchedItem.getSoldTime(), SOLD_TIME_TOLERANCE_SECONDS) // 60 seconds tolerance
-            );
-
-            if (!isDuplicate) {
-                allHistoryItems.add(fetchedItem);
+            historyPath = LocalEventPaths.getPendingItemsPath(eventId);
+            if (AppModeManager.isLocalMode()) {
+                FileUtils.saveSoldItems(eventId, allHistoryItems);
+            } else {
+                BackgroundSyncManager.getInstance().savePendingItems(eventId, allHistoryItems);
             }
-        }
-    }
-
-    /**
-     * Helper method to check if two timestamps are approximately the same
-     * @param time1 First timestamp
-     * @param time2 Second timestamp
-     * @param toleranceSeconds Maximum difference in seconds
-     * @return true if timestamps are within tolerance
-     */
-    private boolean isSameTimeApproximately(LocalDateTime time1, LocalDateTime time2, long toleranceSeconds) {
-        if (time1 == null || time2 == null) {
+            return true;
+        } catch (IOException e) {
+            String pathInfo = historyPath == null ? e.getMessage() : historyPath.toString();
+            Popup.FATAL.showAndWait(
+                    LocalizationManager.tr("error.write_register_file", pathInfo),
+                    e.getMessage());
             return false;
         }
-
-        long diffSeconds = Math.abs(java.time.Duration.between(time1, time2).getSeconds());
-        return diffSeconds <= toleranceSeconds;
     }
 
-    private void saveHistoryToFile() {
+    private void savePayoutToFile(List<V1SoldItem> paidItems, LocalDateTime paidOutTime) {
         java.nio.file.Path historyPath = null;
         try {
             String eventId = AppModeManager.getEventId();
@@ -481,11 +500,7 @@ public class HistoryTabController implements HistoryControllerInterface {
                 return;
             }
             historyPath = LocalEventPaths.getPendingItemsPath(eventId);
-            if (AppModeManager.isLocalMode()) {
-                FileUtils.saveSoldItems(eventId, allHistoryItems);
-            } else {
-                BackgroundSyncManager.getInstance().savePendingItems(eventId, allHistoryItems);
-            }
+            FileUtils.markSoldItemsPaidOut(eventId, paidItems, paidOutTime);
         } catch (IOException e) {
             String pathInfo = historyPath == null ? e.getMessage() : historyPath.toString();
             Popup.FATAL.showAndWait(
@@ -560,6 +575,19 @@ public class HistoryTabController implements HistoryControllerInterface {
                 .collect(Collectors.toSet());
 
         allHistoryItems.removeIf(item -> filteredItemIds.contains(item.getItemId()));
+        // Positions shift on removal; archiving is rare enough to rebuild
+        rebuildIndexes();
+    }
+
+    /**
+     * Build the filter index and a new search index over the whole list. Only for loads and
+     * removals; appended items are added to both.
+     */
+    private void rebuildIndexes() {
+        historyIndex = HistoryIndex.of(allHistoryItems);
+        if (view != null) {
+            view.setSearchIndex(HistorySearchIndex.of(List.copyOf(allHistoryItems)));
+        }
     }
 
     private String generateSummary(List<V1SoldItem> filteredItems) {
@@ -640,7 +668,7 @@ public class HistoryTabController implements HistoryControllerInterface {
 
     private boolean isArchiveEnabled() {
         // Enable archive if there is at least one paid item in all history
-        return allHistoryItems != null && allHistoryItems.stream().anyMatch(V1SoldItem::isCollectedBySeller);
+        return allHistoryItems != null && historyIndex().paidCount() > 0;
     }
 
     private void updateImportButton() {
@@ -650,11 +678,13 @@ public class HistoryTabController implements HistoryControllerInterface {
             // Local mode: hide the button entirely (no web sync available)
             view.setImportButtonVisible(false);
             view.enableButton(BUTTON_IMPORT, false);
+            view.enableButton(BUTTON_FULL_RESYNC, false);
         } else {
             // Online mode: show and enable the button
             view.setImportButtonVisible(true);
             view.setImportButtonText(LocalizationManager.tr("button.update_web"));
             view.enableButton(BUTTON_IMPORT, true);
+            view.enableButton(BUTTON_FULL_RESYNC, true);
         }
     }
 
@@ -676,13 +706,16 @@ public class HistoryTabController implements HistoryControllerInterface {
                 .map(V1SoldItem::getItemId)
                 .collect(Collectors.toSet());
 
-        long added = 0;
+        List<V1SoldItem> addedItems = new ArrayList<>();
         for (V1SoldItem item : importedItems) {
             if (!existingItemIds.contains(item.getItemId())) {
-                allHistoryItems.add(item);
-                added++;
+                addedItems.add(item);
             }
         }
+        historyIndex().append(addedItems);
+        allHistoryItems.addAll(addedItems);
+        view.addToSearchIndex(addedItems);
+        long added = addedItems.size();
 
         return new ImportResult(added, importedItems.size());
     }
@@ -0,0 +1,92 @@
+package se.goencoder.loppiskassan.metrics;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import se.goencoder.loppiskassan.util.AppPaths;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Java Flight Recorder support: a rolling recording of the app's own events and a dump
+ * to the logs directory for the settings dialog.
+ * <p>
+ * The app's events ({@link SyncCycleEvent}, {@link PurchaseUploadEvent}, {@link PendingFileEvent},
+ * {@link VendorRefreshPageEvent}, {@link HistoryFilterEvent}) are few per minute, so the rolling
+ * recording costs next to nothing; when no recording has them enabled, emitting one is a flag
+ * check. JDK events are only included if the app was started with
+ * {@code -XX:StartFlightRecording}; the dump contains everything any recording has.
+ * Set {@code -Dloppiskassan.jfr=false} to skip the rolling recording.
+ * </p>
+ */
+public final class FlightRecording {
+    private static final Logger log = Logger.getLogger(FlightRecording.class.getName());
+
+    private static final Duration MAX_AGE = Duration.ofMinutes(30);
+    private static final long MAX_SIZE_BYTES = 20L * 1024 * 1024;
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final List<Class<? extends jdk.jfr.Event>> EVENT_TYPES = List.of(
+            SyncCycleEvent.class,
+            PurchaseUploadEvent.class,
+            PendingFileEvent.class,
+            VendorRefreshPageEvent.class,
+            HistoryFilterEvent.class);
+
+    private static Recording rolling;
+
+    private FlightRecording() {
+    }
+
+    /**
+     * Start the rolling recording of the app's events, unless disabled or JFR is unavailable.
+     */
+    public static synchronized void start() {
+        if (rolling != null || "false".equalsIgnoreCase(System.getProperty("loppiskassan.jfr"))
+                || !FlightRecorder.isAvailable()) {
+            return;
+        }
+        try {
+            Recording recording = new Recording();
+            recording.setName("loppiskassan");
+            for (Class<? extends jdk.jfr.Event> type : EVENT_TYPES) {
+                recording.enable(type).withThreshold(Duration.ZERO);
+            }
+            recording.setToDisk(true);
+            recording.setMaxAge(MAX_AGE);
+            recording.setMaxSize(MAX_SIZE_BYTES);
+            recording.start();
+            rolling = recording;
+        } catch (RuntimeException e) {
+            log.warning("Could not start flight recording: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write what the running recordings hold to {@code logs/loppiskassan-<time>.jfr}.
+     *
+     * @return the written file
+     * @throws IOException if JFR is unavailable, nothing is recording, or the write failed
+     */
+    public static Path dumpToLogs() throws IOException {
+        if (!FlightRecorder.isAvailable()) {
+            throw new IOException("Java Flight Recorder is not available in this runtime");
+        }
+        Path dir = AppPaths.getLogsDir();
+        Files.createDirectories(dir);
+        Path path = dir.resolve("loppiskassan-" + LocalDateTime.now().format(FILE_TIME) + ".jfr");
+        try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot()) {
+            if (snapshot.getSize() == 0) {
+                throw new IOException("No flight recording is running");
+            }
+            snapshot.dump(path);
+        }
+        log.info("Flight recording written to " + path);
+        return path;
+    }
+}
@@ -0,0 +1,25 @@
+package se.goencoder.loppiskassan.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A value that goes up and down, such as a queue depth. Set it when the value is computed
+ * anyway; for values that are cheap to read on demand, register a supplier with
+ * {@link Metrics#gauge(String, LongSupplier)} instead.
+ */
+public final class Gauge implements LongSupplier {
+    private final AtomicLong value = new AtomicLong();
+
+    Gauge() {
+    }
+
+    public void set(long newValue) {
+        value.set(newValue);
+    }
+
+    @Override
+    public long getAsLong() {
+        return value.get();
+    }
+}
@@ -0,0 +1,29 @@
+package se.goencoder.loppiskassan.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One pass of the history filters (paid out, seller, payment method).
+ */
+@Name("se.goencoder.loppiskassan.HistoryFilter")
+@Label("History Filter")
+@Category({"LoppisKassan", "History"})
+@Description("One pass of the history filters")
+public class HistoryFilterEvent extends Event {
+    @Label("Indexed")
+    @Description("Answered from the history index rather than a scan")
+    public boolean indexed;
+
+    @Label("Input Items")
+    public int inputItems;
+
+    @Label("Matches")
+    public int matches;
+
+    @Label("Filters")
+    public String filters;
+}
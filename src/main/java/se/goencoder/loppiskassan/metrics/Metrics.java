@@ -0,0 +1,95 @@
+package se.goencoder.loppiskassan.metrics;
+
+import org.json.JSONObject;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide registry of counters, gauges and histograms.
+ * <p>
+ * Instruments are created on first use and live for the life of the process, so call sites
+ * can keep them in static fields. Names are dotted, lower case, and end in the unit where
+ * there is one ({@code sync.cycle.micros}, {@code jsonl.read.bytes}).
+ * {@link MetricsExporter} publishes {@link #snapshot()} for anyone watching the tills.
+ * </p>
+ */
+public final class Metrics {
+
+    private static final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    public static Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    /**
+     * @return a gauge to {@link Gauge#set} whenever the value is known
+     */
+    public static Gauge gauge(String name) {
+        LongSupplier existing = gauges.computeIfAbsent(name, n -> new Gauge());
+        if (existing instanceof Gauge gauge) {
+            return gauge;
+        }
+        throw new IllegalStateException("Gauge " + name + " is read from a supplier");
+    }
+
+    /**
+     * Register a gauge that is read on every snapshot. The supplier must be cheap and
+     * thread safe. Registering the same name again replaces the supplier.
+     */
+    public static void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     * Current values of all instruments, with the till's host name and the time taken.
+     * Histograms report count, mean, p50, p90, p99 and max.
+     */
+    public static JSONObject snapshot() {
+        JSONObject counterValues = new JSONObject();
+        new TreeMap<>(counters).forEach((name, counter) -> counterValues.put(name, counter.get()));
+
+        JSONObject gaugeValues = new JSONObject();
+        for (Map.Entry<String, LongSupplier> entry : new TreeMap<>(gauges).entrySet()) {
+            try {
+                gaugeValues.put(entry.getKey(), entry.getValue().getAsLong());
+            } catch (RuntimeException e) {
+                // A gauge whose owner is gone or not ready must not break the export
+            }
+        }
+
+        JSONObject histogramValues = new JSONObject();
+        new TreeMap<>(histograms).forEach((name, histogram) -> histogramValues.put(name, histogram.toJson()));
+
+        return new JSONObject()
+                .put("till", tillName())
+                .put("timestamp", OffsetDateTime.now().toString())
+                .put("uptimeMillis", ManagementFactory.getRuntimeMXBean().getUptime())
+                .put("counters", counterValues)
+                .put("gauges", gaugeValues)
+                .put("histograms", histogramValues);
+    }
+
+    private static String tillName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
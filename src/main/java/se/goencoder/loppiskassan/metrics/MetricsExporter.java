@@ -0,0 +1,152 @@
+package se.goencoder.loppiskassan.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import se.goencoder.loppiskassan.util.AppPaths;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Publishes {@link Metrics#snapshot()} so the tills can be watched while the market runs.
+ * <ul>
+ *   <li>{@code ~/.loppiskassan/logs/metrics.json} is rewritten every
+ *       {@value #EXPORT_INTERVAL_SECONDS} seconds and on exit.</li>
+ *   <li>If {@code LOPPISKASSAN_METRICS_PORT} (or the {@code loppiskassan.metrics.port} system
+ *       property) is set, {@code GET /metrics} on that port serves the same JSON. The server
+ *       binds to the loopback address only; reach it from another machine through a tunnel.</li>
+ * </ul>
+ */
+public final class MetricsExporter {
+    private static final Logger log = Logger.getLogger(MetricsExporter.class.getName());
+
+    static final long EXPORT_INTERVAL_SECONDS = 15;
+    private static final String FILE_NAME = "metrics.json";
+
+    private static ScheduledExecutorService exporter;
+    private static HttpServer server;
+
+    private MetricsExporter() {
+    }
+
+    /**
+     * Start the periodic file export and, if configured, the HTTP endpoint. Safe to call twice.
+     */
+    public static synchronized void start() {
+        if (exporter != null) {
+            return;
+        }
+        exporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        exporter.scheduleWithFixedDelay(MetricsExporter::exportQuietly,
+                EXPORT_INTERVAL_SECONDS, EXPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(MetricsExporter::exportQuietly, "metrics-final-export"));
+
+        Integer port = configuredPort();
+        if (port != null) {
+            try {
+                startServer(port);
+            } catch (IOException e) {
+                log.warning("Metrics endpoint could not listen on port " + port + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Serve {@code GET /metrics} on the loopback address.
+     *
+     * @param port the port, or 0 for any free port
+     * @return the port actually bound
+     */
+    static synchronized int startServer(int port) throws IOException {
+        if (server != null) {
+            return server.getAddress().getPort();
+        }
+        HttpServer created = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        created.createContext("/metrics", MetricsExporter::serve);
+        created.setExecutor(null);
+        created.start();
+        server = created;
+        int bound = created.getAddress().getPort();
+        log.info("Metrics endpoint listening on http://" + InetAddress.getLoopbackAddress().getHostAddress()
+                + ":" + bound + "/metrics");
+        return bound;
+    }
+
+    static synchronized void stopServer() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    /**
+     * Write the current snapshot to the logs directory (temp file, then move into place).
+     */
+    static Path export() throws IOException {
+        Path dir = AppPaths.getLogsDir();
+        Files.createDirectories(dir);
+        Path path = dir.resolve(FILE_NAME);
+        Path tmp = dir.resolve(FILE_NAME + ".tmp");
+        Files.writeString(tmp, Metrics.snapshot().toString(2), StandardCharsets.UTF_8);
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return path;
+    }
+
+    private static void exportQuietly() {
+        try {
+            export();
+        } catch (IOException | RuntimeException e) {
+            log.fine("Metrics export failed: " + e.getMessage());
+        }
+    }
+
+    private static void serve(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = Metrics.snapshot().toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static Integer configuredPort() {
+        String value = System.getProperty("loppiskassan.metrics.port");
+        if (value == null || value.isBlank()) {
+            value = System.getenv("LOPPISKASSAN_METRICS_PORT");
+        }
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.warning("Ignoring invalid metrics port: " + value);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package se.goencoder.loppiskassan.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One read, append or rewrite of a JSON Lines items file.
+ */
+@Name("se.goencoder.loppiskassan.PendingFile")
+@Label("Items File I/O")
+@Category({"LoppisKassan", "Storage"})
+@Description("One read, append or rewrite of an items file")
+public class PendingFileEvent extends Event {
+    public static final String READ = "read";
+    public static final String APPEND = "append";
+    public static final String WRITE = "write";
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Path")
+    public String path;
+
+    @Label("Items")
+    public int items;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
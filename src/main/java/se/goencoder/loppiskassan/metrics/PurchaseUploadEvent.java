@@ -0,0 +1,32 @@
+package se.goencoder.loppiskassan.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One sold-items request carrying a group of whole purchases.
+ */
+@Name("se.goencoder.loppiskassan.PurchaseUpload")
+@Label("Purchase Group Upload")
+@Category({"LoppisKassan", "Sync"})
+@Description("One sold-items upload request")
+public class PurchaseUploadEvent extends Event {
+    @Label("Event Id")
+    public String eventId;
+
+    @Label("Purchases")
+    public int purchases;
+
+    @Label("Items")
+    public int items;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+
+    @Label("Status Code")
+    @Description("HTTP status of a failed call, 0 when there was no response")
+    public int statusCode;
+}
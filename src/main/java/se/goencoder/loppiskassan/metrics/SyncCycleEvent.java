@@ -0,0 +1,38 @@
+package se.goencoder.loppiskassan.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One background sync cycle: flush, upload of all pending purchases and journaling of the outcome.
+ */
+@Name("se.goencoder.loppiskassan.SyncCycle")
+@Label("Sync Cycle")
+@Category({"LoppisKassan", "Sync"})
+@Description("One background sync cycle")
+public class SyncCycleEvent extends Event {
+    @Label("Event Id")
+    public String eventId;
+
+    @Label("Pending Items")
+    @Description("Items not yet uploaded when the cycle started")
+    public int pendingItems;
+
+    @Label("Accepted")
+    public int accepted;
+
+    @Label("Duplicates")
+    public int duplicates;
+
+    @Label("Rejected")
+    public int rejected;
+
+    @Label("Network Error")
+    public boolean networkError;
+
+    @Label("Auth Error")
+    public boolean authError;
+}
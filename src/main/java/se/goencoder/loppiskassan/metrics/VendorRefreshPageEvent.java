@@ -0,0 +1,26 @@
+package se.goencoder.loppiskassan.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One vendors:filter request while refreshing approved sellers.
+ */
+@Name("se.goencoder.loppiskassan.VendorRefreshPage")
+@Label("Vendor Refresh Page")
+@Category({"LoppisKassan", "API"})
+@Description("One page of approved vendors")
+public class VendorRefreshPageEvent extends Event {
+    @Label("Event Id")
+    public String eventId;
+
+    @Label("Page")
+    @Description("1-based page number, or 0 for a targeted seller lookup")
+    public int page;
+
+    @Label("Vendors")
+    public int vendors;
+}
@@ -0,0 +1,73 @@
+package se.goencoder.loppiskassan.model.cashier;
+
+import se.goencoder.loppiskassan.V1SoldItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Items of the purchase being entered at the till, in entry order, with a running total.
+ * <p>
+ * Adding or removing an item updates the total in constant time. Removal also has to find
+ * the item in the cart. The controller forwards each change to the view as a single row
+ * insert or delete, so the 60th item of a large purchase costs the same as the first.
+ * </p>
+ */
+public class CashierCart {
+
+    private final List<V1SoldItem> items = new ArrayList<>();
+    private final List<V1SoldItem> view = Collections.unmodifiableList(items);
+    private int total;
+
+    public void add(V1SoldItem item) {
+        items.add(item);
+        total += item.getPrice();
+    }
+
+    /**
+     * @return the removed item, or null if no item has {@code itemId}
+     */
+    public V1SoldItem remove(String itemId) {
+        for (int i = items.size() - 1; i >= 0; i--) {
+            V1SoldItem item = items.get(i);
+            if (item.getItemId().equals(itemId)) {
+                items.remove(i);
+                total -= item.getPrice();
+                return item;
+            }
+        }
+        return null;
+    }
+
+    public void clear() {
+        items.clear();
+        total = 0;
+    }
+
+    /**
+     * @return a read-only live view of the items, in entry order
+     */
+    public List<V1SoldItem> getItems() {
+        return view;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the total rounded up to a multiple of 100, suggested as the paid amount
+     */
+    public int getRoundedTotal() {
+        return (total + 99) / 100 * 100;
+    }
+}
@@ -88,10 +88,15 @@ public class CashierState {
     }
 
     // Setters with PropertyChangeSupport notification
+
+    /**
+     * Set the cart items. The list is kept as given, not copied: the controller passes the
+     * cart's read-only live view after every change, so this stays constant time. The event
+     * has a null old value, meaning "contents changed".
+     */
     public void setItems(List<V1SoldItem> items) {
-        List<V1SoldItem> oldValue = this.items;
-        this.items = new ArrayList<>(items);
-        pcs.firePropertyChange(PROP_ITEMS, oldValue, this.items);
+        this.items = items;
+        pcs.firePropertyChange(PROP_ITEMS, null, items);
     }
 
     public void setTotalSum(int totalSum) {
@@ -30,9 +30,6 @@ public enum ApiHelper {
         this.apiClient.setReadTimeout(5000);
         this.apiClient.setWriteTimeout(5000);
         
-        // Configure the JSON serialization to use pretty printing
-        this.apiClient.getJSON().setGson(this.apiClient.getJSON().getGson().newBuilder().setPrettyPrinting().create());
-
         if (ILoppisConfigurationStore.getApiKey() != null) {
             setCurrentApiKey(ILoppisConfigurationStore.getApiKey());
         }
@@ -65,6 +62,13 @@ public enum ApiHelper {
         return INSTANCE.approvedMarketServiceApi;
     }
 
+    /**
+     * The shared OkHttp client, for calls outside the generated API (connectivity probe).
+     */
+    okhttp3.OkHttpClient httpClient() {
+        return apiClient.getHttpClient();
+    }
+
     public void setCurrentApiKey(String apiKey) {
         this.apiClient.addDefaultHeader("Authorization", "Bearer " + apiKey);
     }
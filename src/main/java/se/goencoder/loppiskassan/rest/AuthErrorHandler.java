@@ -1,18 +1,10 @@
 package se.goencoder.loppiskassan.rest;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
 import se.goencoder.iloppis.api.ApiKeyServiceApi;
-import se.goencoder.iloppis.api.VendorServiceApi;
 import se.goencoder.iloppis.invoker.ApiException;
 import se.goencoder.iloppis.model.V1Event;
-import se.goencoder.iloppis.model.V1FilterVendorsResponse;
 import se.goencoder.iloppis.model.V1GetApiKeyResponse;
-import se.goencoder.iloppis.model.V1Pagination;
 import se.goencoder.iloppis.model.V1RevenueSplit;
-import se.goencoder.iloppis.model.V1Vendor;
-import se.goencoder.iloppis.model.V1VendorFilter;
-import se.goencoder.iloppis.model.VendorServiceFilterVendorsBody;
 import se.goencoder.loppiskassan.config.AppModeManager;
 import se.goencoder.loppiskassan.config.ILoppisConfigurationStore;
 import se.goencoder.loppiskassan.localization.LocalizationManager;
@@ -21,11 +13,10 @@ import se.goencoder.loppiskassan.ui.EDT;
 import se.goencoder.loppiskassan.ui.Popup;
 import se.goencoder.loppiskassan.ui.ProgressDialog;
 import se.goencoder.loppiskassan.ui.dialogs.CashierCodeDialog;
+import se.goencoder.loppiskassan.utils.VendorRefreshHelper;
 
 import java.awt.Frame;
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
@@ -36,7 +27,6 @@ import java.util.logging.Logger;
 public final class AuthErrorHandler {
 
     private static final Logger log = Logger.getLogger(AuthErrorHandler.class.getName());
-    private static final int APPROVED_SELLERS_PAGE_SIZE = 500;
     private static final AtomicBoolean promptActive = new AtomicBoolean(false);
 
     private AuthErrorHandler() {}
@@ -180,74 +170,7 @@ public final class AuthErrorHandler {
     }
 
     private static void refreshApprovedSellers(String eventId) throws ApiException {
-        log.info("=== AuthErrorHandler refreshApprovedSellers START === event: " + eventId);
-        
-        VendorServiceApi api = ApiHelper.INSTANCE.getVendorServiceApi();
-        Set<Integer> approvedSellers = new HashSet<>();
-        String nextPageToken = "";
-        int pageCount = 0;
-        Integer totalApproved = null;
-        int expectedPages = -1;
-        String previousPageToken = null;
-        
-        // Use vendors:filter with status="approved" (same endpoint as Android/Frontend)
-        do {
-            pageCount++;
-            
-            V1VendorFilter filter = new V1VendorFilter();
-            filter.setStatus("approved");
-            
-            V1Pagination pagination = new V1Pagination();
-            pagination.setPageSize(APPROVED_SELLERS_PAGE_SIZE);
-            if (!nextPageToken.isEmpty()) {
-                pagination.setPageToken(nextPageToken);
-            }
-            
-            VendorServiceFilterVendorsBody body = new VendorServiceFilterVendorsBody();
-            body.setFilter(filter);
-            body.setPagination(pagination);
-            
-            V1FilterVendorsResponse res = api.vendorServiceFilterVendors(eventId, body);
-            if (res.getTotal() != null && totalApproved == null) {
-                totalApproved = res.getTotal();
-                expectedPages = (int) Math.ceil(totalApproved / (double) APPROVED_SELLERS_PAGE_SIZE);
-            }
-            
-            if (res.getVendors() != null) {
-                for (V1Vendor vendor : res.getVendors()) {
-                    approvedSellers.add(vendor.getSellerNumber());
-                }
-            }
-            if (res.getVendors() == null || res.getVendors().isEmpty()) {
-                log.warning("No vendors returned on this page; stopping pagination.");
-                break;
-            }
-            
-            nextPageToken = res.getNextPageToken();
-            if (nextPageToken != null && !nextPageToken.isEmpty()) {
-                if (nextPageToken.equals(previousPageToken)) {
-                    log.warning("Pagination token did not advance; stopping to avoid infinite loop.");
-                    break;
-                }
-                if (expectedPages > 0 && pageCount >= expectedPages) {
-                    log.warning("Reached expected page count from total; stopping pagination.");
-                    break;
-                }
-                if (totalApproved != null && approvedSellers.size() >= totalApproved) {
-                    log.info("Loaded all approved sellers; stopping pagination.");
-                    break;
-                }
-            }
-            previousPageToken = nextPageToken;
-            
-        } while (nextPageToken != null && !nextPageToken.isEmpty());
-        
-        log.info(String.format("=== AuthErrorHandler refreshApprovedSellers END === %d pages, %d APPROVED", 
-            pageCount, approvedSellers.size()));
-        
-        JSONObject jsonObject = new JSONObject();
-        jsonObject.put("approvedSellers", new JSONArray(approvedSellers));
-        ILoppisConfigurationStore.setApprovedSellers(jsonObject.toString());
+        VendorRefreshHelper.fetchAllApprovedSellers(eventId);
     }
 
     private static V1Event loadEventFromConfig() {
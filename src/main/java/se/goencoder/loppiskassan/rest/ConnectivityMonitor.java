@@ -0,0 +1,179 @@
+package se.goencoder.loppiskassan.rest;
+
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import se.goencoder.loppiskassan.config.ILoppisConfigurationStore;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Whether the iLoppis backend is reachable, as one shared verdict.
+ * <p>
+ * The verdict is kept for {@value #VERDICT_TTL_MS} ms. {@link #isOnline()} only probes when it
+ * is older than that, and concurrent callers share one probe. The probe is a HEAD request to
+ * the API base URL on the API client's connection pool, so it usually reuses a warm TLS
+ * connection; any HTTP answer counts as online.
+ * </p>
+ * <p>
+ * Real API calls update the verdict too: every call through {@link ApiHelper} (background
+ * sync uploads included) passes {@link #passiveInterceptor()}, which reports a response as
+ * reachable and a network failure as unreachable. Listeners are told about transitions only,
+ * on the thread that observed them.
+ * </p>
+ */
+public final class ConnectivityMonitor {
+    private static final Logger log = Logger.getLogger(ConnectivityMonitor.class.getName());
+
+    static final long VERDICT_TTL_MS = 15_000;
+    private static final int PROBE_TIMEOUT_MS = 2000;
+
+    private static final ConnectivityMonitor instance =
+            new ConnectivityMonitor(ConnectivityMonitor::probeBackend, System::currentTimeMillis);
+    private static volatile OkHttpClient probeClient;
+
+    private final BooleanSupplier probe;
+    private final LongSupplier clock;
+    private final List<Consumer<Boolean>> listeners = new CopyOnWriteArrayList<>();
+    private final Object probeLock = new Object();
+    private volatile boolean online;
+    /** When the verdict was last set; 0 means never. */
+    private volatile long verdictAtMillis;
+
+    ConnectivityMonitor(BooleanSupplier probe, LongSupplier clock) {
+        this.probe = probe;
+        this.clock = clock;
+    }
+
+    public static ConnectivityMonitor getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return the current verdict, probing the backend (for at most
+     *         {@value #PROBE_TIMEOUT_MS} ms) if it is older than {@value #VERDICT_TTL_MS} ms
+     */
+    public boolean isOnline() {
+        if (isFresh()) {
+            return online;
+        }
+        synchronized (probeLock) {
+            // Another caller may have probed while we waited
+            return isFresh() ? online : checkNow();
+        }
+    }
+
+    /**
+     * Probe the backend now, regardless of the cached verdict.
+     */
+    public boolean checkNow() {
+        boolean reachable = probe.getAsBoolean();
+        update(reachable);
+        return reachable;
+    }
+
+    /**
+     * @return the last verdict without probing; false before the first one
+     */
+    public boolean isLastKnownOnline() {
+        return online;
+    }
+
+    /** A real API call got an HTTP response. */
+    public void reportReachable() {
+        update(true);
+    }
+
+    /** A real API call failed without a response (timeout, refused, unknown host). */
+    public void reportUnreachable() {
+        update(false);
+    }
+
+    /**
+     * Register a listener for online/offline transitions.
+     * It is called on the thread that observed the change, only when the state changes.
+     */
+    public void addListener(Consumer<Boolean> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<Boolean> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return an interceptor that reports the outcome of each call to this monitor
+     */
+    Interceptor passiveInterceptor() {
+        return chain -> {
+            Response response;
+            try {
+                response = chain.proceed(chain.request());
+            } catch (IOException e) {
+                reportUnreachable();
+                throw e;
+            }
+            reportReachable();
+            return response;
+        };
+    }
+
+    private boolean isFresh() {
+        long at = verdictAtMillis;
+        return at != 0 && clock.getAsLong() - at < VERDICT_TTL_MS;
+    }
+
+    private void update(boolean reachable) {
+        boolean changed;
+        synchronized (this) {
+            changed = verdictAtMillis == 0 || online != reachable;
+            online = reachable;
+            verdictAtMillis = Math.max(1, clock.getAsLong());
+        }
+        if (changed) {
+            log.info("Backend " + (reachable ? "reachable" : "unreachable"));
+            for (Consumer<Boolean> listener : listeners) {
+                listener.accept(reachable);
+            }
+        }
+    }
+
+    private static boolean probeBackend() {
+        Request request = new Request.Builder()
+                .url(ILoppisConfigurationStore.getApiBaseUrl())
+                .head()
+                .build();
+        try (Response response = probeClient().newCall(request).execute()) {
+            // Any answer, even an error status, means the backend is reachable
+            log.finest(() -> "Connectivity probe answered " + response.code());
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            log.fine("Connectivity probe failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * The API client with short timeouts. Built from it, so it shares its connection pool.
+     */
+    private static OkHttpClient probeClient() {
+        OkHttpClient client = probeClient;
+        if (client == null) {
+            client = ApiHelper.INSTANCE.httpClient().newBuilder()
+                    .connectTimeout(PROBE_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                    .readTimeout(PROBE_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                    .callTimeout(PROBE_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                    .build();
+            probeClient = client;
+        }
+        return client;
+    }
+}
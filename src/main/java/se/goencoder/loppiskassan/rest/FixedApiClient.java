@@ -1,11 +1,9 @@
 package se.goencoder.loppiskassan.rest;
 
 import java.util.Collections;
-import java.util.logging.Logger;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.RequestBody;
-import okhttp3.logging.HttpLoggingInterceptor;
 import se.goencoder.iloppis.invoker.ApiClient;
 import se.goencoder.iloppis.invoker.ApiException;
 import java.nio.charset.StandardCharsets;
@@ -17,19 +15,15 @@ import java.nio.charset.StandardCharsets;
  */
 public class FixedApiClient extends ApiClient {
 
-    private static final Logger log = Logger.getLogger(FixedApiClient.class.getName());
     private static final MediaType JSON_MEDIA_TYPE = MediaType.get("application/json");
 
     public FixedApiClient() {
         super();
-        // Add HTTP logging interceptor (BASIC level to avoid logging sensitive payloads)
-        HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor(message -> 
-            log.info("[HTTP] " + message)
-        );
-        loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BASIC);
-        
+        // Metrics and connectivity for every call; tracing is off unless configured (see HttpTraceInterceptor)
         OkHttpClient client = getHttpClient().newBuilder()
-            .addInterceptor(loggingInterceptor)
+            .addInterceptor(new MetricsInterceptor())
+            .addInterceptor(ConnectivityMonitor.getInstance().passiveInterceptor())
+            .addInterceptor(new HttpTraceInterceptor())
             .build();
         setHttpClient(client);
     }
@@ -47,10 +41,8 @@ public class FixedApiClient extends ApiClient {
 
         try {
             // Serialize the object to JSON using the same JSON serializer as the parent
+            // Bodies are traced (redacted) by HttpTraceInterceptor when enabled
             String json = getJSON().serialize(obj);
-            
-            // DEBUG: Log the serialized JSON
-            log.info("[API-REQ-BODY] " + json);
 
             // Create the RequestBody with the correct parameter order for OkHttp 3.x
             MediaType mediaType = MediaType.get(contentType);
@@ -0,0 +1,185 @@
+package se.goencoder.loppiskassan.rest;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * HTTP tracing for the API client, replacing OkHttp's logging interceptor.
+ * <p>
+ * The trace level comes from {@code -Dloppiskassan.http.trace} or {@code LOPPISKASSAN_HTTP_TRACE}:
+ * <ul>
+ *   <li>{@code off} (default): nothing is built or logged for successful calls. A failed call
+ *       (no response or a non-2xx status) is logged as one line.</li>
+ *   <li>{@code basic}: one line per call: method, path, status, time and body sizes.</li>
+ *   <li>{@code body}: as basic, plus the request and response bodies, capped at
+ *       {@value #MAX_CAPTURED_CHARS} characters, with keys, tokens and codes redacted.</li>
+ * </ul>
+ * With {@code -Dloppiskassan.http.trace.sample=N} only every N:th successful call is traced;
+ * failures are always logged. Headers are never logged, so the bearer token cannot leak.
+ * </p>
+ */
+class HttpTraceInterceptor implements Interceptor {
+    private static final Logger log = Logger.getLogger(HttpTraceInterceptor.class.getName());
+
+    static final int MAX_CAPTURED_CHARS = 2048;
+    private static final Pattern SECRET_FIELD = Pattern.compile(
+            "(\"(?:apiKey|api_key|key|token|accessToken|refreshToken|password|code|cashierCode)\"\\s*:\\s*)\"[^\"]*\"",
+            Pattern.CASE_INSENSITIVE);
+
+    enum Level { OFF, BASIC, BODY }
+
+    private final Level level;
+    private final long sampleEvery;
+    private final AtomicLong calls = new AtomicLong();
+
+    HttpTraceInterceptor() {
+        this(configuredLevel(), configuredSampleEvery());
+    }
+
+    HttpTraceInterceptor(Level level, long sampleEvery) {
+        this.level = level;
+        this.sampleEvery = Math.max(1, sampleEvery);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (level == Level.OFF) {
+            return proceedLoggingFailures(chain, request);
+        }
+        boolean sampled = calls.getAndIncrement() % sampleEvery == 0;
+        String requestBody = sampled && level == Level.BODY ? capture(request.body()) : null;
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            log.warning(line(request, "failed (" + e.getMessage() + ")", start, null));
+            throw e;
+        }
+        if (sampled || !response.isSuccessful()) {
+            StringBuilder line = new StringBuilder(line(request, String.valueOf(response.code()), start, response));
+            if (level == Level.BODY) {
+                if (requestBody != null) {
+                    line.append("\n  request: ").append(requestBody);
+                }
+                line.append("\n  response: ").append(redact(response.peekBody(MAX_CAPTURED_CHARS * 4L).string()));
+            }
+            if (response.isSuccessful()) {
+                log.info(line.toString());
+            } else {
+                log.warning(line.toString());
+            }
+        }
+        return response;
+    }
+
+    /**
+     * The disabled path: no clock reads, no strings, unless the call fails.
+     */
+    private static Response proceedLoggingFailures(Chain chain, Request request) throws IOException {
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            log.warning("[HTTP] " + request.method() + " " + request.url().encodedPath() + " failed (" + e.getMessage() + ")");
+            throw e;
+        }
+        if (!response.isSuccessful()) {
+            log.warning("[HTTP] " + request.method() + " " + request.url().encodedPath() + " " + response.code());
+        }
+        return response;
+    }
+
+    private static String line(Request request, String outcome, long startNanos, Response response) {
+        StringBuilder line = new StringBuilder(96)
+                .append("[HTTP] ").append(request.method()).append(' ').append(request.url().encodedPath())
+                .append(' ').append(outcome)
+                .append(' ').append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)).append("ms");
+        RequestBody body = request.body();
+        if (body != null) {
+            line.append(" req=").append(contentLength(body)).append('B');
+        }
+        if (response != null && response.body() != null) {
+            line.append(" resp=").append(response.body().contentLength()).append('B');
+        }
+        return line.toString();
+    }
+
+    private static long contentLength(RequestBody body) {
+        try {
+            return body.contentLength();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static String capture(RequestBody body) {
+        if (body == null) {
+            return "";
+        }
+        try {
+            Buffer buffer = new Buffer();
+            body.writeTo(buffer);
+            long size = buffer.size();
+            String text = buffer.readString(Math.min(size, MAX_CAPTURED_CHARS * 4L), StandardCharsets.UTF_8);
+            return redact(text);
+        } catch (IOException e) {
+            return "<unreadable: " + e.getMessage() + ">";
+        }
+    }
+
+    /**
+     * Blank out secret JSON fields and cap the text at {@link #MAX_CAPTURED_CHARS} characters.
+     */
+    static String redact(String text) {
+        String redacted = SECRET_FIELD.matcher(text).replaceAll("$1\"***\"");
+        if (redacted.length() <= MAX_CAPTURED_CHARS) {
+            return redacted;
+        }
+        return redacted.substring(0, MAX_CAPTURED_CHARS) + "... (" + (redacted.length() - MAX_CAPTURED_CHARS) + " more chars)";
+    }
+
+    private static Level configuredLevel() {
+        String value = setting("loppiskassan.http.trace", "LOPPISKASSAN_HTTP_TRACE");
+        if (value == null) {
+            return Level.OFF;
+        }
+        try {
+            return Level.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.warning("Unknown HTTP trace level '" + value + "', tracing is off");
+            return Level.OFF;
+        }
+    }
+
+    private static long configuredSampleEvery() {
+        String value = setting("loppiskassan.http.trace.sample", "LOPPISKASSAN_HTTP_TRACE_SAMPLE");
+        if (value == null) {
+            return 1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    private static String setting(String property, String env) {
+        String value = System.getProperty(property);
+        if (value == null || value.isBlank()) {
+            value = System.getenv(env);
+        }
+        return value == null || value.isBlank() ? null : value;
+    }
+}
@@ -0,0 +1,54 @@
+package se.goencoder.loppiskassan.rest;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import se.goencoder.loppiskassan.metrics.Metrics;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Records every API call in {@link Metrics}, per endpoint:
+ * {@code api.<METHOD> <path>.micros} for latency and {@code api.<METHOD> <path>.errors}
+ * for failed calls (no response, or a non-2xx status).
+ * <p>
+ * Path segments that identify a resource (event ids, ULIDs, numbers) are replaced by
+ * {@code {id}}, so all calls to one endpoint share a name.
+ * </p>
+ */
+class MetricsInterceptor implements Interceptor {
+
+    private static final Pattern ID_SEGMENT = Pattern.compile(".*\\d.*|[0-9A-Za-z_-]{20,}");
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String endpoint = "api." + request.method() + " " + endpointPath(request.url().encodedPathSegments());
+        long start = System.nanoTime();
+        try {
+            Response response = chain.proceed(request);
+            if (!response.isSuccessful()) {
+                Metrics.counter(endpoint + ".errors").increment();
+            }
+            return response;
+        } catch (IOException | RuntimeException e) {
+            Metrics.counter(endpoint + ".errors").increment();
+            throw e;
+        } finally {
+            Metrics.histogram(endpoint + ".micros").recordSince(start);
+        }
+    }
+
+    static String endpointPath(List<String> segments) {
+        StringBuilder path = new StringBuilder();
+        for (String segment : segments) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            path.append('/').append(ID_SEGMENT.matcher(segment).matches() && !segment.matches("v\\d+") ? "{id}" : segment);
+        }
+        return path.length() == 0 ? "/" : path.toString();
+    }
+}
@@ -0,0 +1,153 @@
+package se.goencoder.loppiskassan.rest;
+
+import se.goencoder.iloppis.invoker.ApiException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Walks a token-paginated API listing with the next request already in flight.
+ * <p>
+ * A virtual thread fetches pages in order and hands them over through a queue of
+ * {@code prefetch} slots; the caller's thread converts each page in
+ * {@link #forEach}. While page N is being converted, page N+1 is on its way, so a
+ * listing costs about one round trip per page instead of round trip plus conversion.
+ * When the consumer falls behind the fetcher blocks on the full queue, so at most
+ * {@code prefetch + 1} pages are held at a time. Pages are never accumulated here.
+ * </p>
+ * <p>
+ * The iLoppis page tokens are opaque, so pages cannot be requested out of order and
+ * there is no fan-out; prefetching is the parallelism available.
+ * </p>
+ */
+public final class PagedFetcher<P> {
+
+    public static final int DEFAULT_PREFETCH = 2;
+    private static final long CANCEL_POLL_MS = 100;
+
+    /** Fetches the page at {@code pageToken}; the empty token is the first page. */
+    @FunctionalInterface
+    public interface PageRequest<P> {
+        P fetch(String pageToken) throws ApiException;
+    }
+
+    /** Takes one page; returns false to stop paging. */
+    @FunctionalInterface
+    public interface PageConsumer<P> {
+        boolean accept(P page) throws ApiException;
+    }
+
+    /**
+     * @param pages         pages handed to the consumer
+     * @param lastPageToken the token of the last of them
+     */
+    public record Summary(int pages, String lastPageToken) {
+    }
+
+    private record Fetched<P>(P page, String token) {
+    }
+
+    private record Failed(Exception error) {
+    }
+
+    private static final Object END = new Object();
+
+    private final PageRequest<P> request;
+    private final Function<P, String> nextToken;
+    private final int prefetch;
+
+    public PagedFetcher(PageRequest<P> request, Function<P, String> nextToken) {
+        this(request, nextToken, DEFAULT_PREFETCH);
+    }
+
+    public PagedFetcher(PageRequest<P> request, Function<P, String> nextToken, int prefetch) {
+        this.request = request;
+        this.nextToken = nextToken;
+        this.prefetch = Math.max(1, prefetch);
+    }
+
+    /**
+     * Hand the pages from {@code firstToken} on to {@code consumer}, in order, on the calling thread.
+     * Paging ends at an empty next token, at a token that does not advance, or when the
+     * consumer returns false.
+     *
+     * @param cancelled checked between pages and while waiting; interrupting the caller also cancels
+     * @throws ApiException          the first failed request, after the pages before it were consumed
+     * @throws CancellationException if cancelled; the request in flight is abandoned
+     */
+    public Summary forEach(String firstToken, PageConsumer<P> consumer, BooleanSupplier cancelled)
+            throws ApiException {
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(prefetch);
+        Thread fetcher = Thread.ofVirtual().name("page-fetcher").start(
+                () -> fetchAll(firstToken == null ? "" : firstToken, queue));
+        int pages = 0;
+        String lastToken = firstToken;
+        try {
+            while (true) {
+                if (cancelled.getAsBoolean() || Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Paging cancelled after " + pages + " pages");
+                }
+                Object next = queue.poll(CANCEL_POLL_MS, TimeUnit.MILLISECONDS);
+                if (next == null) {
+                    continue;
+                }
+                if (next == END) {
+                    return new Summary(pages, lastToken);
+                }
+                if (next instanceof Failed failed) {
+                    throw rethrow(failed.error());
+                }
+                @SuppressWarnings("unchecked")
+                Fetched<P> fetched = (Fetched<P>) next;
+                pages++;
+                lastToken = fetched.token();
+                if (!consumer.accept(fetched.page())) {
+                    return new Summary(pages, lastToken);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Paging interrupted after " + pages + " pages");
+        } finally {
+            // Stops a fetcher blocked on the queue or in a request (virtual thread I/O is interruptible)
+            fetcher.interrupt();
+        }
+    }
+
+    private void fetchAll(String firstToken, BlockingQueue<Object> queue) {
+        String token = firstToken;
+        try {
+            while (true) {
+                P page;
+                try {
+                    page = request.fetch(token);
+                } catch (ApiException | RuntimeException e) {
+                    if (!Thread.currentThread().isInterrupted()) {
+                        queue.put(new Failed(e));
+                    }
+                    return;
+                }
+                queue.put(new Fetched<>(page, token));
+                String next = nextToken.apply(page);
+                if (next == null || next.isEmpty() || next.equals(token)) {
+                    queue.put(END);
+                    return;
+                }
+                token = next;
+            }
+        } catch (InterruptedException e) {
+            // The consumer is gone
+        }
+    }
+
+    private static ApiException rethrow(Exception error) {
+        if (error instanceof ApiException apiException) {
+            return apiException;
+        }
+        throw (RuntimeException) error;
+    }
+}
@@ -4,9 +4,15 @@ import se.goencoder.iloppis.invoker.ApiException;
 import se.goencoder.iloppis.model.SoldItemsServiceCreateSoldItemsBody;
 import se.goencoder.iloppis.model.V1CreateSoldItemsResponse;
 import se.goencoder.loppiskassan.V1SoldItem;
+import se.goencoder.loppiskassan.metrics.Counter;
+import se.goencoder.loppiskassan.metrics.Histogram;
+import se.goencoder.loppiskassan.metrics.Metrics;
+import se.goencoder.loppiskassan.metrics.PurchaseUploadEvent;
+import se.goencoder.loppiskassan.metrics.SyncCycleEvent;
 import se.goencoder.loppiskassan.rest.ApiHelper;
 import se.goencoder.loppiskassan.rest.AuthErrorHandler;
-import se.goencoder.loppiskassan.storage.LocalEventPaths;
+import se.goencoder.loppiskassan.rest.ConnectivityMonitor;
+import se.goencoder.loppiskassan.storage.PendingItemsIndex;
 import se.goencoder.loppiskassan.storage.PendingItemsStore;
 import se.goencoder.loppiskassan.utils.RejectedItemsHelper;
 import se.goencoder.loppiskassan.utils.SoldItemsResponseClassifier;
@@ -14,21 +20,19 @@ import se.goencoder.loppiskassan.utils.UlidGenerator;
 
 import javax.swing.SwingUtilities;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -46,11 +50,28 @@ import java.util.stream.Collectors;
  *
  * This class owns the "sync thread". Any code path that needs to mutate the pending
  * file MUST go through this class.
+ * <p>
+ * The sync thread also owns a {@link PendingItemsIndex} for the active event. It is
+ * loaded once in {@link #start(String)} and updated on every write, so pending counts
+ * are O(1) and a sync cycle never re-reads the pending file.
+ * </p>
+ * <p>
+ * When cycles run is decided by {@link SyncScheduler}: checkouts are coalesced into
+ * micro-batches, network errors back off with jitter, and a reachable backend ends
+ * the backoff early.
+ * </p>
  */
 public class BackgroundSyncManager {
 
     private static final Logger log = Logger.getLogger(BackgroundSyncManager.class.getName());
-    private static final long SYNC_INTERVAL_MS = 30_000; // 30 seconds
+
+    private static final Histogram cycleMicros = Metrics.histogram("sync.cycle.micros");
+    private static final Histogram uploadMicros = Metrics.histogram("sync.upload.micros");
+    private static final Counter acceptedItems = Metrics.counter("sync.items.accepted");
+    private static final Counter duplicateItems = Metrics.counter("sync.items.duplicate");
+    private static final Counter rejectedItemsCount = Metrics.counter("sync.items.rejected");
+    private static final Counter networkErrors = Metrics.counter("sync.errors.network");
+    private static final Counter authErrors = Metrics.counter("sync.errors.auth");
 
     private static BackgroundSyncManager instance;
 
@@ -58,10 +79,15 @@ public class BackgroundSyncManager {
      * The single-threaded executor that performs ALL file I/O and uploads.
      */
     private ScheduledExecutorService syncExecutor;
-    private ScheduledFuture<?> periodicTask;
+    /** Decides when cycles run (debounce, idle interval, backoff). One per started executor. */
+    private volatile SyncScheduler scheduler;
     private volatile Thread syncThread;
     private final Queue<List<V1SoldItem>> pendingQueue = new ConcurrentLinkedQueue<>();
 
+    /** Authoritative in-memory view of the pending file. Mutated only on the sync thread. */
+    private volatile PendingItemsIndex index;
+    private volatile String indexEventId;
+
     private String activeEventId;
     private boolean isRunning = false;
 
@@ -72,6 +98,23 @@ public class BackgroundSyncManager {
 
     private PendingCountListener pendingCountListener;
 
+    /** Listener interface for sync scheduler state (idle, syncing, backing off...). */
+    public interface SyncStatusListener {
+        void onSyncStatusChanged(SyncScheduler.Status status);
+    }
+
+    private SyncStatusListener syncStatusListener;
+
+    /** Listener interface for items the backend now holds (accepted, or already there). */
+    public interface UploadListener {
+        void onItemsUploaded(String eventId, Set<String> itemIds);
+    }
+
+    private UploadListener uploadListener;
+
+    private final SoldItemUploadBatcher uploadBatcher = new SoldItemUploadBatcher();
+    private final PurchaseUploadPipeline uploadPipeline = new PurchaseUploadPipeline(this::uploadBatch);
+
     /**
      * Result summary from a sync run.
      * Used by manual sync actions (e.g. History "Uppdatera web").
@@ -90,7 +133,14 @@ public class BackgroundSyncManager {
     }
 
     private BackgroundSyncManager() {
-        // Private constructor for singleton
+        Metrics.gauge("queue.pending", this::getPendingCount);
+        // End a network backoff as soon as the backend answers again
+        ConnectivityMonitor.getInstance().addListener(online -> {
+            SyncScheduler current = scheduler;
+            if (online && current != null) {
+                current.connectivityRestored();
+            }
+        });
     }
 
     public static synchronized BackgroundSyncManager getInstance() {
@@ -111,7 +161,7 @@ public class BackgroundSyncManager {
             return;
         }
         if (isRunning && eventId.equals(activeEventId)) {
-            triggerSyncNow();
+            requestSync();
             return;
         }
 
@@ -129,18 +179,23 @@ public class BackgroundSyncManager {
 
         log.info("Starting background sync for event: " + eventId);
 
-        periodicTask = syncExecutor.scheduleWithFixedDelay(
-                this::syncOnceSafely,
-                SYNC_INTERVAL_MS,
-                SYNC_INTERVAL_MS,
-                TimeUnit.MILLISECONDS
-        );
+        syncExecutor.submit(() -> {
+            try {
+                loadIndex(eventId);
+            } catch (IOException e) {
+                log.warning("Background sync: Failed to load pending items - " + e.getMessage());
+            }
+            notifyPendingCountChanged();
+        });
 
-        triggerSyncNow();
+        SyncScheduler newScheduler = new SyncScheduler(syncExecutor, this::syncOnceInternal);
+        newScheduler.setListener(this::notifySyncStatusChanged);
+        scheduler = newScheduler;
+        newScheduler.requestNow();
     }
 
     /**
-     * Ensure background sync is running for the given event, and trigger an immediate attempt.
+     * Ensure background sync is running for the given event, and request a (debounced) attempt.
      */
     public synchronized void ensureRunning(String eventId) {
         if (eventId == null || eventId.isBlank()) {
@@ -150,16 +205,16 @@ public class BackgroundSyncManager {
             start(eventId);
             return;
         }
-        triggerSyncNow();
+        requestSync();
     }
 
     /**
      * Stop background sync and clear state.
      */
     public synchronized void stop() {
-        if (periodicTask != null) {
-            periodicTask.cancel(false);
-            periodicTask = null;
+        if (scheduler != null) {
+            scheduler.stop();
+            scheduler = null;
         }
         if (syncExecutor != null) {
             syncExecutor.shutdownNow();
@@ -167,6 +222,8 @@ public class BackgroundSyncManager {
         }
         isRunning = false;
         activeEventId = null;
+        index = null;
+        indexEventId = null;
     }
 
     /**
@@ -176,6 +233,13 @@ public class BackgroundSyncManager {
         return isRunning;
     }
 
+    /**
+     * Check if background sync is running for the given event.
+     */
+    public synchronized boolean isRunningFor(String eventId) {
+        return isRunning && eventId != null && eventId.equals(activeEventId);
+    }
+
     /**
      * Enqueue items for local persistence and background upload.
      * The method returns only after items are durably written to pending JSONL.
@@ -193,7 +257,7 @@ public class BackgroundSyncManager {
             return null;
         });
         notifyPendingCountChanged();
-        triggerSyncNow();
+        requestSync();
     }
 
     /**
@@ -208,6 +272,7 @@ public class BackgroundSyncManager {
         runOnSyncThread(() -> {
             PendingItemsStore store = new PendingItemsStore(eventId);
             store.saveAll(items);
+            requireIndex(eventId).replaceAll(items);
             return null;
         });
         notifyPendingCountChanged();
@@ -223,35 +288,32 @@ public class BackgroundSyncManager {
         }
         ensureRunning(eventId);
         runOnSyncThread(() -> {
-            PendingItemsStore store = new PendingItemsStore(eventId);
-            List<V1SoldItem> allItems = store.readAll();
-            boolean updatedExisting = false;
-            for (int i = 0; i < allItems.size(); i++) {
-                V1SoldItem existing = allItems.get(i);
-                if (existing.getItemId() != null && existing.getItemId().equals(item.getItemId())) {
-                    allItems.set(i, item);
-                    updatedExisting = true;
-                }
-            }
-            if (updatedExisting) {
-                store.saveAll(allItems);
-            } else {
-                store.appendItems(List.of(item));
-            }
+            new PendingItemsStore(eventId).upsert(item);
+            requireIndex(eventId).upsert(item);
             return null;
         });
         notifyPendingCountChanged();
     }
 
     /**
-     * Trigger a best-effort sync attempt immediately on the sync thread.
+     * Trigger a best-effort sync attempt immediately on the sync thread, ending any backoff.
      */
     public void triggerSyncNow() {
-        ScheduledExecutorService executor = syncExecutor;
-        if (executor == null) {
-            return;
+        SyncScheduler current = scheduler;
+        if (current != null) {
+            current.requestNow();
+        }
+    }
+
+    /**
+     * Request a sync attempt soon. Requests within a short window are coalesced into one
+     * cycle, and a network backoff is respected. Used after checkouts.
+     */
+    public void requestSync() {
+        SyncScheduler current = scheduler;
+        if (current != null) {
+            current.requestSoon();
         }
-        executor.submit(this::syncOnceSafely);
     }
 
     /**
@@ -264,7 +326,8 @@ public class BackgroundSyncManager {
         }
         ensureRunning(eventId);
         try {
-            return runOnSyncThread(this::syncOnceInternal);
+            SyncScheduler current = scheduler;
+            return runOnSyncThread(current != null ? current::runCycle : this::syncOnceInternal);
         } catch (IOException e) {
             return new SyncResult(0, 0, 0, false, false, true);
         }
@@ -278,19 +341,37 @@ public class BackgroundSyncManager {
         this.pendingCountListener = listener;
     }
 
+    /**
+     * Set listener for sync scheduler state changes (for the status bar).
+     * Called on EDT.
+     */
+    public void setSyncStatusListener(SyncStatusListener listener) {
+        this.syncStatusListener = listener;
+    }
+
+    /**
+     * Set listener for uploaded items (load tests, diagnostics).
+     * Called on the sync thread after the items are marked uploaded, so it must return quickly.
+     */
+    public void setUploadListener(UploadListener listener) {
+        this.uploadListener = listener;
+    }
+
+    /**
+     * Current scheduler state, or {@link SyncScheduler.Status#STOPPED} when sync is not running.
+     */
+    public SyncScheduler.Status getSyncStatus() {
+        SyncScheduler current = scheduler;
+        return current == null ? SyncScheduler.Status.STOPPED : current.getStatus();
+    }
+
     /**
      * Get the current count of pending (non-uploaded) items for the active event.
-     * Returns 0 if no event is active or on any error.
+     * Returns 0 if no event is active or the index has not been loaded yet.
      */
     public int getPendingCount() {
-        String eventId = activeEventId;
-        if (eventId == null) return 0;
-        try {
-            PendingItemsStore store = new PendingItemsStore(eventId);
-            return store.readPending().size();
-        } catch (IOException e) {
-            return 0;
-        }
+        PendingItemsIndex current = index;
+        return current == null ? 0 : current.pendingCount();
     }
 
     public void notifyPendingCountChanged() {
@@ -300,21 +381,22 @@ public class BackgroundSyncManager {
         }
     }
 
-    private void syncOnceSafely() {
-        try {
-            syncOnceInternal();
-        } catch (Exception e) {
-            log.warning("Background sync: Unexpected error - " + e.getMessage());
+    private void notifySyncStatusChanged(SyncScheduler.Status status) {
+        SyncStatusListener listener = syncStatusListener;
+        if (listener != null) {
+            SwingUtilities.invokeLater(() -> listener.onSyncStatusChanged(status));
         }
     }
 
     /**
      * Sync cycle. Runs ONLY on the sync thread.
+     * Only the uploads themselves run on {@link PurchaseUploadPipeline} workers; their
+     * results come back here before anything is written.
      *
      * Steps:
      * 1) Flush queued items to disk (local-first)
      * 2) Read pending items
-     * 3) Upload + classify + retry collateral
+     * 3) Upload in batches of whole purchases + classify + retry collateral
      * 4) Update pending file, append rejected
      */
     private SyncResult syncOnceInternal() throws IOException {
@@ -322,86 +404,117 @@ public class BackgroundSyncManager {
         if (eventId == null || eventId.isBlank()) {
             return SyncResult.empty();
         }
+        long start = System.nanoTime();
+        SyncCycleEvent event = new SyncCycleEvent();
+        event.begin();
+        int pendingBefore = getPendingCount();
+        try {
+            SyncResult result = syncOnce(eventId);
+            event.end();
+            if (event.shouldCommit()) {
+                event.eventId = eventId;
+                event.pendingItems = pendingBefore;
+                event.accepted = result.accepted();
+                event.duplicates = result.duplicates();
+                event.rejected = result.rejected();
+                event.networkError = result.networkError();
+                event.authError = result.authError();
+                event.commit();
+            }
+            acceptedItems.add(result.accepted());
+            duplicateItems.add(result.duplicates());
+            rejectedItemsCount.add(result.rejected());
+            if (result.networkError()) {
+                networkErrors.increment();
+            }
+            if (result.authError()) {
+                authErrors.increment();
+            }
+            return result;
+        } finally {
+            cycleMicros.recordSince(start);
+        }
+    }
 
-        flushQueueToDisk(eventId);
+    private SyncResult syncOnce(String eventId) throws IOException {
 
-        Path pendingPath = LocalEventPaths.getPendingItemsPath(eventId);
-        if (!Files.exists(pendingPath) || Files.size(pendingPath) == 0) {
-            return SyncResult.empty();
-        }
+        flushQueueToDisk(eventId);
 
         PendingItemsStore store = new PendingItemsStore(eventId);
-        List<V1SoldItem> pendingItems = store.readPending();
+        PendingItemsIndex pendingIndex = requireIndex(eventId);
+        List<V1SoldItem> pendingItems = pendingIndex.pendingItems();
         if (pendingItems.isEmpty()) {
             return SyncResult.empty();
         }
 
+        List<V1SoldItem> repairedItems = new ArrayList<>();
         Map<String, List<V1SoldItem>> purchaseGroups = pendingItems.stream()
                 .collect(Collectors.groupingBy(item -> {
                     String purchaseId = item.getPurchaseId();
                     if (purchaseId == null || purchaseId.isBlank()) {
                         purchaseId = UlidGenerator.generate();
                         item.setPurchaseId(purchaseId);
+                        repairedItems.add(item);
                     }
                     return purchaseId;
                 }));
+        for (V1SoldItem repaired : repairedItems) {
+            store.upsert(repaired);
+        }
 
-        HashSet<String> acceptedIds = new HashSet<>();
-        HashSet<String> duplicateIds = new HashSet<>();
-        List<se.goencoder.iloppis.model.V1RejectedItem> rejectedItems = new ArrayList<>();
+        // Several purchases per request, several requests in flight; the merged result
+        // is applied below, on this thread
+        PurchaseUploadPipeline.Result uploads =
+                uploadPipeline.upload(eventId, uploadBatcher.pack(purchaseGroups.values()));
+        Set<String> acceptedIds = uploads.acceptedItemIds();
+        Set<String> duplicateIds = uploads.duplicateItemIds();
+        List<se.goencoder.iloppis.model.V1RejectedItem> rejectedItems = uploads.rejectedItems();
 
         boolean networkError = false;
         boolean authError = false;
 
-        for (List<V1SoldItem> purchaseItems : purchaseGroups.values()) {
-            try {
-                SoldItemsResponseClassifier.UploadOutcome outcome = uploadPurchaseGroupWithRetry(eventId, purchaseItems);
-                acceptedIds.addAll(outcome.acceptedItemIds());
-                duplicateIds.addAll(outcome.duplicateItemIds());
-                rejectedItems.addAll(outcome.rejectedItems());
-            } catch (ApiException e) {
-                if (AuthErrorHandler.isAuthError(e)) {
-                    AuthErrorHandler.handleAuthStatus(e.getCode());
-                    authError = true;
-                } else if (ApiHelper.isLikelyNetworkError(e)) {
-                    networkError = true;
-                } else {
-                    log.warning("Background sync: API error - " + e.getMessage());
-                }
-                break; // stop this sync cycle on any API failure
+        ApiException failure = uploads.failure();
+        if (failure != null) {
+            if (AuthErrorHandler.isAuthError(failure)) {
+                AuthErrorHandler.handleAuthStatus(failure.getCode());
+                authError = true;
+            } else if (ApiHelper.isLikelyNetworkError(failure)) {
+                networkError = true;
+            } else {
+                log.warning("Background sync: API error - " + failure.getMessage());
             }
+            log.info("Background sync: " + uploads.notUploaded() + " upload batch(es) left for the next cycle");
         }
 
         if (!rejectedItems.isEmpty()) {
             RejectedItemsHelper.saveRejectedItems(eventId, rejectedItems);
         }
 
-        if (!acceptedIds.isEmpty() || !duplicateIds.isEmpty() || !rejectedItems.isEmpty()) {
-            List<V1SoldItem> allItems = store.readAll();
-            List<V1SoldItem> updatedItems = new ArrayList<>();
+        // Only the state changes of this batch are journaled; the pending file is not rewritten.
+        if (!rejectedItems.isEmpty()) {
             HashSet<String> rejectedIds = new HashSet<>();
             for (se.goencoder.iloppis.model.V1RejectedItem rejectedItem : rejectedItems) {
-                if (rejectedItem.getItem() != null && rejectedItem.getItem().getItemId() != null) {
-                    rejectedIds.add(rejectedItem.getItem().getItemId());
+                String itemId = getRejectedItemId(rejectedItem);
+                if (itemId != null) {
+                    rejectedIds.add(itemId);
                 }
             }
+            store.markRejected(rejectedIds);
+            pendingIndex.remove(rejectedIds);
+        }
+        if (!acceptedIds.isEmpty() || !duplicateIds.isEmpty()) {
             HashSet<String> uploadedIds = new HashSet<>(acceptedIds);
             uploadedIds.addAll(duplicateIds);
-
-            for (V1SoldItem allItem : allItems) {
-                if (allItem.getItemId() == null) {
-                    updatedItems.add(allItem);
-                    continue;
-                }
-                if (rejectedIds.contains(allItem.getItemId())) {
-                    continue;
-                }
-                if (uploadedIds.contains(allItem.getItemId())) {
-                    allItem.setUploaded(true);
-                }
-                updatedItems.add(allItem);
+            store.markUploaded(uploadedIds);
+            pendingIndex.markUploaded(uploadedIds);
+            UploadListener listener = uploadListener;
+            if (listener != null) {
+                listener.onItemsUploaded(eventId, Collections.unmodifiableSet(uploadedIds));
             }
-            store.saveAll(updatedItems);
+        }
+        if (store.needsCompaction()) {
+            // The index already holds the folded state, so compaction needs no re-read
+            store.saveAll(pendingIndex.allItems());
         }
 
         notifyPendingCountChanged();
@@ -432,6 +545,28 @@ public class BackgroundSyncManager {
         }
         PendingItemsStore store = new PendingItemsStore(eventId);
         store.appendItems(drained);
+        requireIndex(eventId).addAll(drained);
+    }
+
+    /**
+     * Load the pending index for the event. Runs ONLY on the sync thread.
+     */
+    private PendingItemsIndex loadIndex(String eventId) throws IOException {
+        PendingItemsIndex loaded = PendingItemsIndex.load(new PendingItemsStore(eventId));
+        index = loaded;
+        indexEventId = eventId;
+        return loaded;
+    }
+
+    /**
+     * Return the loaded index, loading it first if {@link #start(String)} has not done so yet.
+     */
+    private PendingItemsIndex requireIndex(String eventId) throws IOException {
+        PendingItemsIndex current = index;
+        if (current != null && eventId.equals(indexEventId)) {
+            return current;
+        }
+        return loadIndex(eventId);
     }
 
     private <T> T runOnSyncThread(Callable<T> task) throws IOException {
@@ -467,50 +602,15 @@ public class BackgroundSyncManager {
         return new IOException(throwable);
     }
 
-    private SoldItemsResponseClassifier.UploadOutcome uploadPurchaseGroupWithRetry(String eventId, List<V1SoldItem> purchaseItems) throws ApiException {
-        V1CreateSoldItemsResponse response = uploadItemsToApi(eventId, purchaseItems);
-        SoldItemsResponseClassifier.UploadOutcome outcome = SoldItemsResponseClassifier.classify(response);
-
-        List<se.goencoder.iloppis.model.V1RejectedItem> rejected = new ArrayList<>(outcome.rejectedItems());
-        HashSet<String> accepted = new HashSet<>(outcome.acceptedItemIds());
-        HashSet<String> duplicates = new HashSet<>(outcome.duplicateItemIds());
-
-        boolean hasInvalidSeller = rejected.stream().anyMatch(SoldItemsResponseClassifier::isInvalidSeller);
-        if (!hasInvalidSeller) {
-            return outcome;
-        }
-
-        HashSet<String> collateralIds = rejected.stream()
-                .filter(SoldItemsResponseClassifier::isCollateral)
-                .map(BackgroundSyncManager::getRejectedItemId)
-                .filter(itemId -> itemId != null && !itemId.isBlank())
-                .collect(Collectors.toCollection(HashSet::new));
-
-        if (collateralIds.isEmpty()) {
-            return outcome;
-        }
-
-        List<V1SoldItem> retryItems = purchaseItems.stream()
-                .filter(item -> item.getItemId() != null && collateralIds.contains(item.getItemId()))
-                .collect(Collectors.toList());
-
-        if (retryItems.isEmpty()) {
-            return outcome;
-        }
-
-        rejected.removeIf(rejectedItem -> {
-            String itemId = getRejectedItemId(rejectedItem);
-            return itemId != null && collateralIds.contains(itemId);
-        });
-
-        V1CreateSoldItemsResponse retryResponse = uploadItemsToApi(eventId, retryItems);
-        SoldItemsResponseClassifier.UploadOutcome retryOutcome = SoldItemsResponseClassifier.classify(retryResponse);
-
-        accepted.addAll(retryOutcome.acceptedItemIds());
-        duplicates.addAll(retryOutcome.duplicateItemIds());
-        rejected.addAll(retryOutcome.rejectedItems());
-
-        return new SoldItemsResponseClassifier.UploadOutcome(accepted, duplicates, rejected);
+    /**
+     * Upload one batch of whole purchases (runs on upload pipeline workers: API calls
+     * only, no file or index access). The batcher classifies per purchase and retries
+     * collateral items; the sync cycle only needs the combined outcome.
+     */
+    private SoldItemsResponseClassifier.UploadOutcome uploadBatch(String eventId, List<V1SoldItem> batch) throws ApiException {
+        Map<String, SoldItemsResponseClassifier.UploadOutcome> perPurchase =
+                uploadBatcher.upload(batch, items -> uploadItemsToApi(eventId, items));
+        return SoldItemUploadBatcher.mergeOutcomes(perPurchase.values());
     }
 
     private V1CreateSoldItemsResponse uploadItemsToApi(String eventId, List<V1SoldItem> items) throws ApiException {
@@ -522,9 +622,32 @@ public class BackgroundSyncManager {
             }
             requestBody.addItemsItem(apiItem);
         }
-        return ApiHelper.INSTANCE
-                .getSoldItemsServiceApi()
-                .soldItemsServiceCreateSoldItems(eventId, requestBody);
+        long start = System.nanoTime();
+        PurchaseUploadEvent event = new PurchaseUploadEvent();
+        event.begin();
+        boolean succeeded = false;
+        int statusCode = 0;
+        try {
+            V1CreateSoldItemsResponse response = ApiHelper.INSTANCE
+                    .getSoldItemsServiceApi()
+                    .soldItemsServiceCreateSoldItems(eventId, requestBody);
+            succeeded = true;
+            return response;
+        } catch (ApiException e) {
+            statusCode = e.getCode();
+            throw e;
+        } finally {
+            uploadMicros.recordSince(start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.eventId = eventId;
+                event.items = items.size();
+                event.purchases = (int) items.stream().map(V1SoldItem::getPurchaseId).distinct().count();
+                event.succeeded = succeeded;
+                event.statusCode = statusCode;
+                event.commit();
+            }
+        }
     }
 
     private static String getRejectedItemId(se.goencoder.iloppis.model.V1RejectedItem rejectedItem) {
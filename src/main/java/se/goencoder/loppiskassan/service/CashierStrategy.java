@@ -5,6 +5,7 @@ import se.goencoder.loppiskassan.V1SoldItem;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Strategy interface for cashier operations.
@@ -48,6 +49,22 @@ public interface CashierStrategy {
      * @throws Exception if a non-recoverable error occurs
      */
     boolean persistItems(List<V1SoldItem> items, String purchaseId, V1PaymentMethod paymentMethod, LocalDateTime soldTime) throws Exception;
+
+    /**
+     * Persists sold items after checkout without blocking the caller on disk.
+     * The default runs {@link #persistItems} on the calling thread.
+     *
+     * @return a future that completes with the result of the persist once it is durable,
+     *         or exceptionally if it failed
+     */
+    default CompletableFuture<Boolean> persistItemsAsync(List<V1SoldItem> items, String purchaseId,
+                                                         V1PaymentMethod paymentMethod, LocalDateTime soldTime) {
+        try {
+            return CompletableFuture.completedFuture(persistItems(items, purchaseId, paymentMethod, soldTime));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
     
     /**
      * Returns a description of this cashier mode for logging.
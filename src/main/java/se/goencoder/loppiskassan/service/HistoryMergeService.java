@@ -0,0 +1,194 @@
+package se.goencoder.loppiskassan.service;
+
+import se.goencoder.loppiskassan.V1SoldItem;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Merges sold items fetched from iLoppis into the local history.
+ * <p>
+ * Items matched by itemId get their paid-out time and upload flag from the
+ * backend. Unmatched items are added unless a local item looks like the same
+ * sale: same seller, same price and a sold time within the tolerance. That
+ * covers items sold offline and then uploaded under a different itemId.
+ * </p>
+ * The fuzzy check used to scan the whole history for every fetched item. Here the
+ * history is bucketed by (seller, price, sold-time window), with the window one
+ * second wider than the tolerance. A fetched item therefore only has to look at its
+ * own bucket and the two neighbours. The time comparison itself is unchanged.
+ * When only a handful of fetched items are unmatched, a plain scan is still used.
+ */
+public class HistoryMergeService {
+
+    /** Default sold-time tolerance for the duplicate check. */
+    public static final int SOLD_TIME_TOLERANCE_SECONDS = 60;
+
+    /**
+     * Below this many (unmatched x history) comparisons a plain scan is cheaper than
+     * building the bucket index (typical refresh: everything matches by itemId).
+     */
+    private static final long LINEAR_SCAN_MAX_COMPARISONS = 200_000;
+
+    private final long toleranceSeconds;
+    private final long windowSeconds;
+    private final long linearScanMaxComparisons;
+
+    /**
+     * @param updated    matched items whose paid-out time or upload flag changed
+     * @param added      fetched items added to the history
+     * @param duplicates fetched items skipped as lookalikes of a local sale
+     */
+    public record MergeResult(int updated, int added, int duplicates) {
+        public boolean changedHistory() {
+            return updated > 0 || added > 0;
+        }
+    }
+
+    private record BucketKey(int seller, int price, long window) {}
+
+    public HistoryMergeService() {
+        this(SOLD_TIME_TOLERANCE_SECONDS);
+    }
+
+    public HistoryMergeService(long toleranceSeconds) {
+        this(toleranceSeconds, LINEAR_SCAN_MAX_COMPARISONS);
+    }
+
+    HistoryMergeService(long toleranceSeconds, long linearScanMaxComparisons) {
+        if (toleranceSeconds < 0) {
+            throw new IllegalArgumentException("toleranceSeconds must be >= 0");
+        }
+        this.toleranceSeconds = toleranceSeconds;
+        // Two times that pass the check differ by less than tolerance + 1 seconds,
+        // so their epoch seconds differ by at most tolerance + 1: adjacent windows.
+        this.windowSeconds = toleranceSeconds + 1;
+        this.linearScanMaxComparisons = linearScanMaxComparisons;
+    }
+
+    /**
+     * Merge {@code fetchedItems} into {@code historyItems} in place. Items that are
+     * added also take part in the duplicate check for later fetched items, so two
+     * lookalike backend items are only added once.
+     */
+    public MergeResult merge(List<V1SoldItem> historyItems, Map<String, V1SoldItem> fetchedItems) {
+        Set<String> processedItems = new HashSet<>();
+        int updated = 0;
+
+        // First pass: update existing items
+        for (V1SoldItem existingItem : historyItems) {
+            V1SoldItem fetchedItem = fetchedItems.get(existingItem.getItemId());
+            if (fetchedItem != null) {
+                if (!Objects.equals(existingItem.getCollectedBySellerTime(), fetchedItem.getCollectedBySellerTime())
+                        || existingItem.isUploaded() != fetchedItem.isUploaded()) {
+                    existingItem.setCollectedBySellerTime(fetchedItem.getCollectedBySellerTime());
+                    existingItem.setUploaded(fetchedItem.isUploaded());
+                    updated++;
+                }
+                processedItems.add(existingItem.getItemId());
+            }
+        }
+        int unmatched = fetchedItems.size() - processedItems.size();
+        if (unmatched == 0) {
+            return new MergeResult(updated, 0, 0);
+        }
+
+        Map<BucketKey, List<V1SoldItem>> buckets = null;
+        if ((long) unmatched * historyItems.size() > linearScanMaxComparisons) {
+            buckets = new HashMap<>();
+            for (V1SoldItem existingItem : historyItems) {
+                index(buckets, existingItem);
+            }
+        }
+
+        // Second pass: add new items unless they look like an existing sale
+        int added = 0;
+        int duplicates = 0;
+        for (V1SoldItem fetchedItem : fetchedItems.values()) {
+            if (processedItems.contains(fetchedItem.getItemId())) {
+                continue;
+            }
+            boolean isDuplicate = buckets == null
+                    ? hasLookalike(historyItems, fetchedItem)
+                    : hasLookalike(buckets, fetchedItem);
+            if (isDuplicate) {
+                duplicates++;
+                continue;
+            }
+            historyItems.add(fetchedItem);
+            if (buckets != null) {
+                index(buckets, fetchedItem);
+            }
+            added++;
+        }
+        return new MergeResult(updated, added, duplicates);
+    }
+
+    /**
+     * @return true if the two sold times are within the tolerance (whole seconds,
+     *         as {@link Duration#getSeconds()} counts them); false if either is null
+     */
+    public boolean isSameTimeApproximately(LocalDateTime time1, LocalDateTime time2) {
+        if (time1 == null || time2 == null) {
+            return false;
+        }
+        long diffSeconds = Math.abs(Duration.between(time1, time2).getSeconds());
+        return diffSeconds <= toleranceSeconds;
+    }
+
+    private void index(Map<BucketKey, List<V1SoldItem>> buckets, V1SoldItem item) {
+        LocalDateTime soldTime = item.getSoldTime();
+        if (soldTime == null) {
+            // Never matches anything, no need to index it
+            return;
+        }
+        buckets.computeIfAbsent(keyFor(item, window(soldTime)), k -> new ArrayList<>(1)).add(item);
+    }
+
+    private boolean hasLookalike(Map<BucketKey, List<V1SoldItem>> buckets, V1SoldItem fetchedItem) {
+        LocalDateTime soldTime = fetchedItem.getSoldTime();
+        if (soldTime == null) {
+            return false;
+        }
+        long window = window(soldTime);
+        for (long w = window - 1; w <= window + 1; w++) {
+            List<V1SoldItem> candidates = buckets.get(keyFor(fetchedItem, w));
+            if (candidates == null) {
+                continue;
+            }
+            for (V1SoldItem candidate : candidates) {
+                if (isSameTimeApproximately(candidate.getSoldTime(), soldTime)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean hasLookalike(List<V1SoldItem> historyItems, V1SoldItem fetchedItem) {
+        for (V1SoldItem existingItem : historyItems) {
+            if (existingItem.getSeller() == fetchedItem.getSeller()
+                    && existingItem.getPrice() == fetchedItem.getPrice()
+                    && isSameTimeApproximately(existingItem.getSoldTime(), fetchedItem.getSoldTime())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long window(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), windowSeconds);
+    }
+
+    private static BucketKey keyFor(V1SoldItem item, long window) {
+        return new BucketKey(item.getSeller(), item.getPrice(), window);
+    }
+}
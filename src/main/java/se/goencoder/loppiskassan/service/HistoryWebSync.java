@@ -0,0 +1,180 @@
+package se.goencoder.loppiskassan.service;
+
+import se.goencoder.iloppis.invoker.ApiException;
+import se.goencoder.iloppis.model.V1ListSoldItemsResponse;
+import se.goencoder.iloppis.model.V1PaidFilter;
+import se.goencoder.iloppis.model.V1PaymentMethodFilter;
+import se.goencoder.loppiskassan.V1SoldItem;
+import se.goencoder.loppiskassan.rest.ApiHelper;
+import se.goencoder.loppiskassan.rest.PagedFetcher;
+import se.goencoder.loppiskassan.storage.HistorySyncCursor;
+import se.goencoder.loppiskassan.utils.SoldItemUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Downloads an event's sold items from iLoppis for the history tab, only the changes when it can.
+ * <p>
+ * The list endpoint has no "changed since" filter, so the cursor is the page token of the
+ * last page seen ({@link HistorySyncCursor}). An incremental download first asks for the
+ * item and paid-out counts (two one-item calls), then:
+ * <ul>
+ *   <li>reads from the resume token to the end, which covers items sold since;</li>
+ *   <li>reads the paid-out items only if the paid count grew, which covers payouts made
+ *       on the web or another till.</li>
+ * </ul>
+ * It falls back to a full download when there is no cursor, when counts went down
+ * (items archived or a payout undone), when the local history is smaller than the cursor
+ * claims, or when the backend no longer accepts the resume token.
+ * </p>
+ */
+public class HistoryWebSync {
+    private static final Logger log = Logger.getLogger(HistoryWebSync.class.getName());
+
+    static final int PAGE_SIZE = 500;
+
+    /**
+     * One call to the sold-items list endpoint for the event.
+     */
+    @FunctionalInterface
+    public interface SoldItemsLister {
+        V1ListSoldItemsResponse list(V1PaidFilter paidFilter, int pageSize, String pageToken,
+                                     boolean includeAggregates) throws ApiException;
+    }
+
+    /**
+     * @param items  downloaded items by itemId
+     * @param full   whether every item was downloaded
+     * @param cursor the cursor to store once the items are merged and saved
+     */
+    public record Download(Map<String, V1SoldItem> items, boolean full, HistorySyncCursor cursor) {
+    }
+
+    private record Counts(int items, int paid) {
+    }
+
+    private final SoldItemsLister lister;
+
+    public HistoryWebSync(String eventId) {
+        this((paidFilter, pageSize, pageToken, includeAggregates) ->
+                ApiHelper.INSTANCE.getSoldItemsServiceApi().soldItemsServiceListSoldItems(
+                        eventId,                  // eventId
+                        null,                     // purchaseId
+                        paidFilter.getValue(),    // paidFilter
+                        V1PaymentMethodFilter.PAYMENT_METHOD_FILTER_UNSPECIFIED.getValue(), // paymentMethodFilter
+                        null,                     // seller
+                        Boolean.FALSE,            // includeArchived
+                        pageSize,                 // pageSize
+                        pageToken,                // nextPageToken
+                        "",                       // prevPageToken
+                        includeAggregates));      // includeAggregates
+    }
+
+    HistoryWebSync(SoldItemsLister lister) {
+        this.lister = lister;
+    }
+
+    /**
+     * @param cursor         the stored cursor, or null
+     * @param localItemCount items in the local history the download is merged into
+     * @param forceFull      download everything regardless of the cursor
+     */
+    public Download download(HistorySyncCursor cursor, int localItemCount, boolean forceFull) throws ApiException {
+        return download(cursor, localItemCount, forceFull, () -> false);
+    }
+
+    /**
+     * As {@link #download(HistorySyncCursor, int, boolean)}, stopping with a
+     * {@link java.util.concurrent.CancellationException} once {@code cancelled} turns true.
+     */
+    public Download download(HistorySyncCursor cursor, int localItemCount, boolean forceFull,
+                             BooleanSupplier cancelled) throws ApiException {
+        if (forceFull || cursor == null || localItemCount < cursor.itemCount()) {
+            return downloadAll(cancelled);
+        }
+        Counts now = counts();
+        if (now != null && (now.items() < cursor.itemCount() || now.paid() < cursor.paidCount())) {
+            log.info("History sync: backend counts went down, downloading everything");
+            return downloadAll(cancelled);
+        }
+        Map<String, V1SoldItem> items = new HashMap<>();
+        String resumeToken;
+        try {
+            resumeToken = readPages(V1PaidFilter.PAID_FILTER_UNSPECIFIED, cursor.resumeToken(), items, cancelled);
+        } catch (ApiException e) {
+            if (ApiHelper.isLikelyNetworkError(e) || e.getCode() == 401 || e.getCode() == 403) {
+                throw e;
+            }
+            log.info("History sync: resume token rejected (" + e.getCode() + "), downloading everything");
+            return downloadAll(cancelled);
+        }
+        if (now == null || now.paid() > cursor.paidCount()) {
+            // Payouts change existing items, which the resume token does not cover
+            readPages(V1PaidFilter.ONLY_PAID, "", items, cancelled);
+        }
+        int itemCount = now == null ? Math.max(cursor.itemCount(), items.size()) : now.items();
+        int paidCount = now == null ? countPaid(items) : now.paid();
+        return new Download(items, false,
+                new HistorySyncCursor(resumeToken, itemCount, paidCount, System.currentTimeMillis()));
+    }
+
+    private Download downloadAll(BooleanSupplier cancelled) throws ApiException {
+        Map<String, V1SoldItem> items = new HashMap<>();
+        String resumeToken = readPages(V1PaidFilter.PAID_FILTER_UNSPECIFIED, "", items, cancelled);
+        return new Download(items, true,
+                new HistorySyncCursor(resumeToken, items.size(), countPaid(items), System.currentTimeMillis()));
+    }
+
+    /**
+     * Read from {@code pageToken} to the last page into {@code items}, converting each page
+     * while the next one downloads.
+     *
+     * @return the token of the last page read, where the next download resumes
+     */
+    private String readPages(V1PaidFilter paidFilter, String pageToken, Map<String, V1SoldItem> items,
+                             BooleanSupplier cancelled) throws ApiException {
+        PagedFetcher<V1ListSoldItemsResponse> pages = new PagedFetcher<>(
+                token -> lister.list(paidFilter, PAGE_SIZE, token, false),
+                V1ListSoldItemsResponse::getNextPageToken);
+        String start = pageToken == null ? "" : pageToken;
+        PagedFetcher.Summary summary = pages.forEach(start, page -> {
+            if (page.getItems() != null) {
+                page.getItems().forEach(item -> {
+                    V1SoldItem soldItem = SoldItemUtils.fromApiSoldItem(item, true);
+                    items.put(soldItem.getItemId(), soldItem);
+                });
+            }
+            return true;
+        }, cancelled);
+        return summary.pages() == 0 ? start : summary.lastPageToken();
+    }
+
+    /**
+     * @return the backend's item and paid-out counts, or null if it does not report them
+     */
+    private Counts counts() throws ApiException {
+        Integer items = total(lister.list(V1PaidFilter.PAID_FILTER_UNSPECIFIED, 1, "", true));
+        Integer paid = total(lister.list(V1PaidFilter.ONLY_PAID, 1, "", true));
+        return items == null || paid == null ? null : new Counts(items, paid);
+    }
+
+    private static Integer total(V1ListSoldItemsResponse response) {
+        if (response.getAggregates() != null && response.getAggregates().getTotalCount() != null) {
+            return response.getAggregates().getTotalCount();
+        }
+        return response.getTotal();
+    }
+
+    private static int countPaid(Map<String, V1SoldItem> items) {
+        int paid = 0;
+        for (V1SoldItem item : items.values()) {
+            if (item.isCollectedBySeller()) {
+                paid++;
+            }
+        }
+        return paid;
+    }
+}
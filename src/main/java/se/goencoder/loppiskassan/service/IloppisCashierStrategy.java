@@ -34,11 +34,11 @@ public class IloppisCashierStrategy implements CashierStrategy {
             return true;
         }
 
-        // Seller not found in cache - attempt auto-recovery by refreshing list
+        // Seller not found in cache - attempt auto-recovery (targeted lookup, coalesced with other misses)
         log.info(String.format("✗ Seller %d NOT in cached list - attempting auto-recovery", sellerId));
 
         String eventId = ILoppisConfigurationStore.getEventId();
-        boolean refreshSuccess = VendorRefreshHelper.refreshApprovedSellers(eventId);
+        boolean refreshSuccess = VendorRefreshHelper.refreshForSeller(eventId, sellerId);
         log.info(String.format("Auto-recovery refresh result: %s", refreshSuccess ? "SUCCESS" : "FAILED"));
 
         if (refreshSuccess) {
@@ -3,19 +3,21 @@ package se.goencoder.loppiskassan.service;
 import se.goencoder.loppiskassan.V1PaymentMethod;
 import se.goencoder.loppiskassan.V1SoldItem;
 import se.goencoder.loppiskassan.config.LocalConfigurationStore;
-import se.goencoder.loppiskassan.storage.JsonlHelper;
 import se.goencoder.loppiskassan.storage.LocalEventPaths;
+import se.goencoder.loppiskassan.storage.PendingItemsStore;
 
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
 /**
  * Cashier strategy for LOCAL mode (offline flea market).
  * 
  * - No seller approval needed (all sellers accepted)
- * - Items saved to local JSONL file only
+ * - Items saved to local JSONL file only, through the group-commit
+ *   {@link se.goencoder.loppiskassan.storage.PendingItemsWriter} at checkout
  * - No API calls
  */
 public class LocalCashierStrategy implements CashierStrategy {
@@ -42,11 +44,20 @@ public class LocalCashierStrategy implements CashierStrategy {
         log.info(() -> String.format("Local: Saving %d items to %s (purchase=%s)", 
             items.size(), pendingPath.getFileName(), purchaseId));
         
-        // Save to local JSONL file
-        JsonlHelper.appendItems(pendingPath, items);
+        // Save to local JSONL file (through the store so the sales summary stays current)
+        new PendingItemsStore(eventId).appendItems(items);
         
         return true;
     }
+
+    @Override
+    public CompletableFuture<Boolean> persistItemsAsync(List<V1SoldItem> items, String purchaseId,
+                                                        V1PaymentMethod paymentMethod, LocalDateTime soldTime) {
+        String eventId = LocalConfigurationStore.getEventId();
+        log.info(() -> String.format("Local: Queueing %d items for event %s (purchase=%s)",
+            items.size(), eventId, purchaseId));
+        return new PendingItemsStore(eventId).appendItemsDurably(items).thenApply(done -> true);
+    }
     
     @Override
     public String getModeDescription() {
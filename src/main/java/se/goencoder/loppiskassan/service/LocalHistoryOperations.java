@@ -12,7 +12,7 @@ import java.util.logging.Logger;
  * History operations for LOCAL mode.
  * 
  * Supports:
- * - Payout: Mark items as collected (file update)
+ * - Payout: Mark items as collected (journaled state change)
  * - Archive: Move paid items to archive file
  * - Sync: Import CSV data
  */
@@ -33,7 +33,7 @@ public class LocalHistoryOperations implements HistoryOperations {
         LocalDateTime now = LocalDateTime.now();
         filteredItems.forEach(item -> item.setCollectedBySellerTime(now));
         
-        callback.saveHistoryToFile();
+        callback.savePayoutToFile(filteredItems, now);
         callback.refreshView();
     }
     
@@ -78,6 +78,7 @@ public class LocalHistoryOperations implements HistoryOperations {
      */
     public interface LocalHistoryCallback {
         void saveHistoryToFile();
+        void savePayoutToFile(List<V1SoldItem> items, LocalDateTime paidOutTime);
         void archiveItemsToFile(List<V1SoldItem> items);
         void removeItems(List<V1SoldItem> items);
         void updateDistinctSellers();
@@ -0,0 +1,189 @@
+package se.goencoder.loppiskassan.service;
+
+import se.goencoder.iloppis.invoker.ApiException;
+import se.goencoder.iloppis.model.V1RejectedItem;
+import se.goencoder.loppiskassan.V1SoldItem;
+import se.goencoder.loppiskassan.rest.ApiHelper;
+import se.goencoder.loppiskassan.rest.AuthErrorHandler;
+import se.goencoder.loppiskassan.utils.SoldItemsResponseClassifier.UploadOutcome;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * Uploads purchase groups with bounded concurrency.
+ * <p>
+ * A group is one upload request: a single purchase, or a batch of whole purchases from
+ * {@link SoldItemUploadBatcher}. Each group is uploaded on its own virtual thread, with at most {@code concurrency}
+ * uploads in flight. Workers only talk to the API; they never touch the pending file.
+ * {@link #upload(String, Collection)} blocks until every dispatched group has finished and
+ * returns the merged outcome, so the caller (the sync thread) applies all state
+ * changes itself and stays the single writer.
+ * </p>
+ * <p>
+ * A group that fails with a network or server error is retried a few times with a
+ * short backoff. An auth error, or a group that is still failing after its retries,
+ * stops new dispatches: groups already in flight finish and are reported, the rest
+ * wait for the next sync cycle.
+ * </p>
+ */
+class PurchaseUploadPipeline {
+
+    private static final Logger log = Logger.getLogger(PurchaseUploadPipeline.class.getName());
+
+    /** Overrides the number of concurrent purchase uploads, e.g. {@code -Diloppis.sync.uploadConcurrency=8}. */
+    static final String CONCURRENCY_PROPERTY = "iloppis.sync.uploadConcurrency";
+    static final int DEFAULT_CONCURRENCY = 4;
+    static final int DEFAULT_MAX_ATTEMPTS = 3;
+    static final long DEFAULT_RETRY_BACKOFF_MS = 500;
+
+    /** Uploads one group (one request plus any collateral retry). */
+    @FunctionalInterface
+    interface GroupUploader {
+        UploadOutcome upload(String eventId, List<V1SoldItem> purchaseItems) throws ApiException;
+    }
+
+    /**
+     * Merged outcome of one pipeline run.
+     *
+     * @param failure      the error that stopped dispatching, or null if every group was attempted
+     * @param notUploaded  groups that were never dispatched or gave up because of {@code failure}
+     */
+    record Result(
+            Set<String> acceptedItemIds,
+            Set<String> duplicateItemIds,
+            List<V1RejectedItem> rejectedItems,
+            ApiException failure,
+            int notUploaded
+    ) {
+    }
+
+    private final GroupUploader uploader;
+    private final int concurrency;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+
+    PurchaseUploadPipeline(GroupUploader uploader) {
+        this(uploader, Math.max(1, Integer.getInteger(CONCURRENCY_PROPERTY, DEFAULT_CONCURRENCY)),
+                DEFAULT_MAX_ATTEMPTS, DEFAULT_RETRY_BACKOFF_MS);
+    }
+
+    PurchaseUploadPipeline(GroupUploader uploader, int concurrency, int maxAttempts, long retryBackoffMs) {
+        this.uploader = uploader;
+        this.concurrency = concurrency;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+    }
+
+    int concurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Upload all groups and wait for the ones that were dispatched.
+     * Must be called from the thread that will apply the result.
+     */
+    Result upload(String eventId, Collection<List<V1SoldItem>> purchaseGroups) {
+        Set<String> accepted = new HashSet<>();
+        Set<String> duplicates = new HashSet<>();
+        List<V1RejectedItem> rejected = new ArrayList<>();
+        AtomicReference<ApiException> failure = new AtomicReference<>();
+
+        Semaphore permits = new Semaphore(concurrency);
+        List<Future<UploadOutcome>> dispatched = new ArrayList<>();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (List<V1SoldItem> group : purchaseGroups) {
+                if (failure.get() != null) {
+                    break;
+                }
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                if (failure.get() != null) {
+                    permits.release();
+                    break;
+                }
+                dispatched.add(workers.submit(() -> {
+                    try {
+                        return uploadWithRetry(eventId, group, failure);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+        } // close() waits for the in-flight uploads
+
+        int notUploaded = purchaseGroups.size() - dispatched.size();
+        for (Future<UploadOutcome> future : dispatched) {
+            UploadOutcome outcome = outcomeOf(future);
+            if (outcome == null) {
+                notUploaded++;
+                continue;
+            }
+            accepted.addAll(outcome.acceptedItemIds());
+            duplicates.addAll(outcome.duplicateItemIds());
+            rejected.addAll(outcome.rejectedItems());
+        }
+        return new Result(accepted, duplicates, rejected, failure.get(), notUploaded);
+    }
+
+    /**
+     * @return the outcome, or null if the group gave up (the failure is recorded in {@code failure})
+     */
+    private UploadOutcome uploadWithRetry(String eventId, List<V1SoldItem> group, AtomicReference<ApiException> failure) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return uploader.upload(eventId, group);
+            } catch (ApiException e) {
+                if (attempt >= maxAttempts || !isRetryable(e) || failure.get() != null) {
+                    failure.compareAndSet(null, e);
+                    return null;
+                }
+                log.fine("Upload of purchase failed (attempt " + attempt + "), retrying: " + e.getMessage());
+                try {
+                    Thread.sleep(retryBackoffMs * attempt);
+                } catch (InterruptedException interrupted) {
+                    failure.compareAndSet(null, e);
+                    return null;
+                }
+                if (failure.get() != null) {
+                    // Another group hit a stopping error while we waited
+                    return null;
+                }
+            }
+        }
+    }
+
+    private static boolean isRetryable(ApiException e) {
+        if (AuthErrorHandler.isAuthError(e)) {
+            return false;
+        }
+        return ApiHelper.isLikelyNetworkError(e) || e.getCode() >= 500;
+    }
+
+    private static UploadOutcome outcomeOf(Future<UploadOutcome> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            // Unchecked failure in a worker: treat the group as not uploaded
+            log.warning("Background sync: Upload worker failed - " + e.getCause());
+            return null;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package se.goencoder.loppiskassan.service;
 
+import se.goencoder.loppiskassan.metrics.Gauge;
+import se.goencoder.loppiskassan.metrics.Metrics;
 import se.goencoder.loppiskassan.storage.RejectedItemsStore;
 
 import javax.swing.SwingUtilities;
@@ -13,6 +15,8 @@ public class RejectedItemsManager {
     }
 
     private static RejectedItemsManager instance;
+    /** Last rejected count read for any event, for the metrics export. */
+    private static final Gauge rejectedGauge = Metrics.gauge("queue.rejected");
     private RejectedCountListener rejectedCountListener;
 
     private RejectedItemsManager() {
@@ -33,7 +37,9 @@ public class RejectedItemsManager {
         if (eventId == null || eventId.isBlank()) {
             return 0;
         }
-        return new RejectedItemsStore(eventId).count();
+        int count = new RejectedItemsStore(eventId).count();
+        rejectedGauge.set(count);
+        return count;
     }
 
     public void notifyRejectedCountChanged(String eventId) {
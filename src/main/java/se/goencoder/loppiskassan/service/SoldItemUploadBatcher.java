@@ -0,0 +1,217 @@
+package se.goencoder.loppiskassan.service;
+
+import se.goencoder.iloppis.invoker.ApiException;
+import se.goencoder.iloppis.model.V1CreateSoldItemsResponse;
+import se.goencoder.iloppis.model.V1RejectedItem;
+import se.goencoder.loppiskassan.V1SoldItem;
+import se.goencoder.loppiskassan.storage.SoldItemJsonlCodec;
+import se.goencoder.loppiskassan.utils.SoldItemsResponseClassifier;
+import se.goencoder.loppiskassan.utils.SoldItemsResponseClassifier.UploadOutcome;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Packs several purchases into one create-sold-items request.
+ * <p>
+ * Purchases are never split: a batch holds whole purchases until adding the next one
+ * would exceed the item or byte budget (a single purchase over budget gets a batch of
+ * its own). The response for a batch is split back per purchase and each part is
+ * classified with {@link SoldItemsResponseClassifier}, so duplicates, rejections and
+ * the collateral retry work as they did with one request per purchase.
+ * </p>
+ */
+public class SoldItemUploadBatcher {
+
+    /** Overrides the item budget per request, e.g. {@code -Diloppis.sync.batchMaxItems=50}. */
+    public static final String MAX_ITEMS_PROPERTY = "iloppis.sync.batchMaxItems";
+    /** Overrides the (estimated) payload budget per request in bytes. */
+    public static final String MAX_BYTES_PROPERTY = "iloppis.sync.batchMaxBytes";
+    static final int DEFAULT_MAX_ITEMS = 100;
+    static final int DEFAULT_MAX_BYTES = 64 * 1024;
+
+    /** Sends one create-sold-items request with the given items. */
+    @FunctionalInterface
+    public interface Sender {
+        V1CreateSoldItemsResponse send(List<V1SoldItem> items) throws ApiException;
+    }
+
+    private final int maxItems;
+    private final int maxBytes;
+
+    public SoldItemUploadBatcher() {
+        this(Math.max(1, Integer.getInteger(MAX_ITEMS_PROPERTY, DEFAULT_MAX_ITEMS)),
+                Math.max(1, Integer.getInteger(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES)));
+    }
+
+    SoldItemUploadBatcher(int maxItems, int maxBytes) {
+        this.maxItems = maxItems;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Pack purchase groups into request batches, keeping the input order.
+     *
+     * @return one item list per request; every list holds whole purchases
+     */
+    public List<List<V1SoldItem>> pack(Collection<List<V1SoldItem>> purchaseGroups) {
+        List<List<V1SoldItem>> batches = new ArrayList<>();
+        List<V1SoldItem> current = new ArrayList<>();
+        int currentBytes = 0;
+        for (List<V1SoldItem> group : purchaseGroups) {
+            if (group.isEmpty()) {
+                continue;
+            }
+            int groupBytes = 0;
+            for (V1SoldItem item : group) {
+                groupBytes += estimateBytes(item);
+            }
+            if (!current.isEmpty()
+                    && (current.size() + group.size() > maxItems || currentBytes + groupBytes > maxBytes)) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentBytes = 0;
+            }
+            current.addAll(group);
+            currentBytes += groupBytes;
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    /**
+     * Upload one batch and classify the result per purchase. If any item was rejected
+     * for an invalid seller, the items rejected only as collateral are sent once more
+     * (in one request) and their outcome replaces the collateral rejection.
+     *
+     * @return outcome per purchaseId, in batch order
+     */
+    public Map<String, UploadOutcome> upload(List<V1SoldItem> batch, Sender sender) throws ApiException {
+        Map<String, UploadOutcome> outcomes = classifyPerPurchase(batch, sender.send(batch));
+
+        boolean hasInvalidSeller = outcomes.values().stream()
+                .flatMap(outcome -> outcome.rejectedItems().stream())
+                .anyMatch(SoldItemsResponseClassifier::isInvalidSeller);
+        if (!hasInvalidSeller) {
+            return outcomes;
+        }
+
+        Set<String> collateralIds = new HashSet<>();
+        for (UploadOutcome outcome : outcomes.values()) {
+            for (V1RejectedItem rejected : outcome.rejectedItems()) {
+                String itemId = itemIdOf(rejected);
+                if (SoldItemsResponseClassifier.isCollateral(rejected) && itemId != null && !itemId.isBlank()) {
+                    collateralIds.add(itemId);
+                }
+            }
+        }
+        List<V1SoldItem> retryItems = batch.stream()
+                .filter(item -> item.getItemId() != null && collateralIds.contains(item.getItemId()))
+                .toList();
+        if (retryItems.isEmpty()) {
+            return outcomes;
+        }
+
+        Map<String, UploadOutcome> retried = classifyPerPurchase(retryItems, sender.send(retryItems));
+        Map<String, UploadOutcome> merged = new LinkedHashMap<>();
+        for (Map.Entry<String, UploadOutcome> entry : outcomes.entrySet()) {
+            UploadOutcome first = entry.getValue();
+            List<V1RejectedItem> rejected = new ArrayList<>(first.rejectedItems());
+            rejected.removeIf(rejectedItem -> collateralIds.contains(itemIdOf(rejectedItem)));
+            UploadOutcome withoutCollateral = new UploadOutcome(first.acceptedItemIds(), first.duplicateItemIds(), rejected);
+            UploadOutcome retry = retried.get(entry.getKey());
+            merged.put(entry.getKey(), retry == null ? withoutCollateral : mergeOutcomes(List.of(withoutCollateral, retry)));
+        }
+        return merged;
+    }
+
+    /**
+     * Split a response for {@code sent} into one response per purchase. Items are matched
+     * on itemId; unknown items fall back to their own purchaseId, then to the first purchase.
+     * Every purchase in {@code sent} gets an entry, even if the server returned nothing for it.
+     */
+    public static Map<String, V1CreateSoldItemsResponse> splitByPurchase(List<V1SoldItem> sent,
+                                                                          V1CreateSoldItemsResponse response) {
+        Map<String, String> purchaseByItemId = new HashMap<>();
+        Map<String, V1CreateSoldItemsResponse> split = new LinkedHashMap<>();
+        for (V1SoldItem item : sent) {
+            if (item.getItemId() != null) {
+                purchaseByItemId.put(item.getItemId(), item.getPurchaseId());
+            }
+            split.computeIfAbsent(item.getPurchaseId(), id -> new V1CreateSoldItemsResponse()
+                    .acceptedItems(new ArrayList<>())
+                    .rejectedItems(new ArrayList<>()));
+        }
+        if (response == null || split.isEmpty()) {
+            return split;
+        }
+        String fallback = split.keySet().iterator().next();
+        if (response.getAcceptedItems() != null) {
+            for (se.goencoder.iloppis.model.V1SoldItem accepted : response.getAcceptedItems()) {
+                split.get(purchaseOf(accepted, purchaseByItemId, split, fallback)).addAcceptedItemsItem(accepted);
+            }
+        }
+        if (response.getRejectedItems() != null) {
+            for (V1RejectedItem rejected : response.getRejectedItems()) {
+                split.get(purchaseOf(rejected.getItem(), purchaseByItemId, split, fallback)).addRejectedItemsItem(rejected);
+            }
+        }
+        return split;
+    }
+
+    /**
+     * Combine several outcomes into one (used when the caller only needs totals).
+     */
+    public static UploadOutcome mergeOutcomes(Collection<UploadOutcome> outcomes) {
+        Set<String> accepted = new HashSet<>();
+        Set<String> duplicates = new HashSet<>();
+        List<V1RejectedItem> rejected = new ArrayList<>();
+        for (UploadOutcome outcome : outcomes) {
+            accepted.addAll(outcome.acceptedItemIds());
+            duplicates.addAll(outcome.duplicateItemIds());
+            rejected.addAll(outcome.rejectedItems());
+        }
+        return new UploadOutcome(accepted, duplicates, rejected);
+    }
+
+    private static Map<String, UploadOutcome> classifyPerPurchase(List<V1SoldItem> sent, V1CreateSoldItemsResponse response) {
+        Map<String, UploadOutcome> outcomes = new LinkedHashMap<>();
+        splitByPurchase(sent, response).forEach((purchaseId, part) ->
+                outcomes.put(purchaseId, SoldItemsResponseClassifier.classify(part)));
+        return outcomes;
+    }
+
+    private static String purchaseOf(se.goencoder.iloppis.model.V1SoldItem apiItem,
+                                     Map<String, String> purchaseByItemId,
+                                     Map<String, V1CreateSoldItemsResponse> split,
+                                     String fallback) {
+        if (apiItem == null) {
+            return fallback;
+        }
+        String purchaseId = apiItem.getItemId() == null ? null : purchaseByItemId.get(apiItem.getItemId());
+        if (purchaseId == null && split.containsKey(apiItem.getPurchaseId())) {
+            purchaseId = apiItem.getPurchaseId();
+        }
+        return purchaseId == null ? fallback : purchaseId;
+    }
+
+    private static String itemIdOf(V1RejectedItem rejectedItem) {
+        if (rejectedItem == null || rejectedItem.getItem() == null) {
+            return null;
+        }
+        return rejectedItem.getItem().getItemId();
+    }
+
+    // The local JSONL line carries the same fields as the wire item, so its length is a close estimate
+    private static int estimateBytes(V1SoldItem item) {
+        return SoldItemJsonlCodec.toJsonLine(item).length();
+    }
+}
@@ -0,0 +1,276 @@
+package se.goencoder.loppiskassan.service;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Decides when {@link BackgroundSyncManager} runs its next sync cycle.
+ * <p>
+ * Exactly one cycle is scheduled at a time, on the sync executor:
+ * <ul>
+ *   <li>Checkouts call {@link #requestSoon()}. Requests are debounced: the cycle runs
+ *       {@code debounceMs} after the latest request, but no later than {@code maxCoalesceMs}
+ *       after the first one, so a rush of checkouts becomes one upload micro-batch.</li>
+ *   <li>Manual actions call {@link #requestNow()}.</li>
+ *   <li>Without requests a cycle runs every {@code idleIntervalMs} (the old 30 s timer).</li>
+ *   <li>After a network error the next cycle backs off exponentially with jitter. Checkout
+ *       requests do not shorten a backoff; {@link #connectivityRestored()} and manual
+ *       requests do.</li>
+ * </ul>
+ * The current {@link Status} is published to a listener for the status bar.
+ * </p>
+ */
+public class SyncScheduler {
+
+    private static final Logger log = Logger.getLogger(SyncScheduler.class.getName());
+
+    static final long DEFAULT_DEBOUNCE_MS = 2_000;
+    static final long DEFAULT_MAX_COALESCE_MS = 10_000;
+    static final long DEFAULT_IDLE_INTERVAL_MS = 30_000;
+    static final long DEFAULT_BACKOFF_BASE_MS = 5_000;
+    static final long DEFAULT_BACKOFF_MAX_MS = 5 * 60_000;
+
+    public enum Phase {
+        /** Waiting for the next regular cycle. */
+        IDLE,
+        /** Checkout requests are being coalesced; a cycle runs shortly. */
+        PENDING,
+        /** A cycle is running. */
+        SYNCING,
+        /** The last cycle(s) hit network errors; waiting before the next attempt. */
+        BACKOFF,
+        /** Stopped; no more cycles will run. */
+        STOPPED
+    }
+
+    /**
+     * @param consecutiveNetworkFailures cycles in a row that ended with a network error
+     * @param nextRunAtMillis            wall-clock time of the next scheduled cycle, or 0 if none
+     */
+    public record Status(Phase phase, int consecutiveNetworkFailures, long nextRunAtMillis) {
+        public static final Status STOPPED = new Status(Phase.STOPPED, 0, 0);
+    }
+
+    /** One sync cycle; runs on the sync executor. */
+    @FunctionalInterface
+    interface Cycle {
+        BackgroundSyncManager.SyncResult run() throws IOException;
+    }
+
+    private final ScheduledExecutorService executor;
+    private final Cycle cycle;
+    private final long debounceMs;
+    private final long maxCoalesceMs;
+    private final long idleIntervalMs;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+    private final Random random;
+    private final LongSupplier clock;
+
+    private ScheduledFuture<?> next;
+    private long nextRunAt;
+    private Phase phase = Phase.IDLE;
+    private int failures;
+    /** A cycle is running on the sync thread. */
+    private boolean running;
+    /** Work was requested since {@link #firstRequestAt} and no cycle has started yet. */
+    private boolean requested;
+    /** The waiting request came from {@link #requestNow()}: no debouncing. */
+    private boolean urgent;
+    private long firstRequestAt;
+    private volatile Status status = new Status(Phase.IDLE, 0, 0);
+    private volatile Consumer<Status> listener;
+
+    SyncScheduler(ScheduledExecutorService executor, Cycle cycle) {
+        this(executor, cycle, DEFAULT_DEBOUNCE_MS, DEFAULT_MAX_COALESCE_MS, DEFAULT_IDLE_INTERVAL_MS,
+                DEFAULT_BACKOFF_BASE_MS, DEFAULT_BACKOFF_MAX_MS, new Random(), System::currentTimeMillis);
+    }
+
+    SyncScheduler(ScheduledExecutorService executor, Cycle cycle,
+                  long debounceMs, long maxCoalesceMs, long idleIntervalMs,
+                  long backoffBaseMs, long backoffMaxMs, Random random, LongSupplier clock) {
+        this.executor = executor;
+        this.cycle = cycle;
+        this.debounceMs = debounceMs;
+        this.maxCoalesceMs = maxCoalesceMs;
+        this.idleIntervalMs = idleIntervalMs;
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+        this.random = random;
+        this.clock = clock;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Set the status listener. It is called on the thread that changed the status.
+     */
+    public void setListener(Consumer<Status> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Debounced request, e.g. after a checkout. Does not shorten a network backoff.
+     */
+    public synchronized void requestSoon() {
+        if (phase == Phase.STOPPED || phase == Phase.BACKOFF) {
+            return;
+        }
+        long now = clock.getAsLong();
+        if (!requested) {
+            requested = true;
+            firstRequestAt = now;
+        }
+        if (running || urgent) {
+            // A running cycle picks the request up when it finishes; an urgent one is already due
+            return;
+        }
+        scheduleAt(coalescedRunAt(now), Phase.PENDING);
+    }
+
+    /**
+     * Run a cycle as soon as possible, ending any backoff.
+     */
+    public synchronized void requestNow() {
+        if (phase == Phase.STOPPED) {
+            return;
+        }
+        failures = 0;
+        if (!requested) {
+            requested = true;
+            firstRequestAt = clock.getAsLong();
+        }
+        urgent = true;
+        if (!running) {
+            scheduleAt(clock.getAsLong(), Phase.PENDING);
+        }
+    }
+
+    /**
+     * The backend was reported reachable again: retry right away if we are backing off.
+     */
+    public synchronized void connectivityRestored() {
+        if (phase == Phase.BACKOFF && !running) {
+            log.info("Background sync: Backend reachable again, ending backoff");
+            requestNow();
+        }
+    }
+
+    public synchronized void stop() {
+        if (next != null) {
+            next.cancel(false);
+            next = null;
+        }
+        phase = Phase.STOPPED;
+        publish();
+    }
+
+    /**
+     * Run one cycle on the calling thread (must be the sync thread) and schedule the next.
+     */
+    BackgroundSyncManager.SyncResult runCycle() throws IOException {
+        synchronized (this) {
+            if (phase == Phase.STOPPED) {
+                return BackgroundSyncManager.SyncResult.empty();
+            }
+            if (next != null) {
+                next.cancel(false);
+                next = null;
+            }
+            running = true;
+            requested = false;
+            urgent = false;
+            phase = Phase.SYNCING;
+            publish();
+        }
+        BackgroundSyncManager.SyncResult result = null;
+        try {
+            result = cycle.run();
+            return result;
+        } finally {
+            afterCycle(result != null && result.networkError());
+        }
+    }
+
+    private synchronized void afterCycle(boolean networkError) {
+        running = false;
+        if (phase == Phase.STOPPED) {
+            return;
+        }
+        long now = clock.getAsLong();
+        if (networkError) {
+            failures++;
+            requested = false;
+            urgent = false;
+            long delay = backoffDelay(failures);
+            log.info("Background sync: Network error, next attempt in " + delay + " ms");
+            scheduleAt(now + delay, Phase.BACKOFF);
+        } else if (requested) {
+            // Requests arrived while the cycle ran
+            failures = 0;
+            scheduleAt(urgent ? now : coalescedRunAt(now), Phase.PENDING);
+        } else {
+            failures = 0;
+            scheduleAt(now + idleIntervalMs, Phase.IDLE);
+        }
+    }
+
+    private long coalescedRunAt(long now) {
+        return Math.min(now + debounceMs, firstRequestAt + maxCoalesceMs);
+    }
+
+    /**
+     * Exponential backoff with equal jitter: half the delay is fixed, half is random,
+     * so tills that lost the network together do not retry in lockstep.
+     */
+    long backoffDelay(int failureCount) {
+        int shift = Math.min(failureCount - 1, 30);
+        long exponential = Math.min(backoffMaxMs, backoffBaseMs << shift);
+        long half = exponential / 2;
+        return half + (long) (random.nextDouble() * (exponential - half));
+    }
+
+    private void scheduleAt(long runAt, Phase newPhase) {
+        if (next != null) {
+            next.cancel(false);
+        }
+        phase = newPhase;
+        nextRunAt = runAt;
+        try {
+            long delay = Math.max(0, runAt - clock.getAsLong());
+            next = executor.schedule(this::runScheduled, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Executor shut down by BackgroundSyncManager.stop()
+            next = null;
+            phase = Phase.STOPPED;
+        }
+        publish();
+    }
+
+    private void runScheduled() {
+        try {
+            runCycle();
+        } catch (Exception e) {
+            log.warning("Background sync: Unexpected error - " + e.getMessage());
+        }
+    }
+
+    private void publish() {
+        Status current = new Status(phase, failures,
+                phase == Phase.SYNCING || phase == Phase.STOPPED ? 0 : nextRunAt);
+        status = current;
+        Consumer<Status> statusListener = listener;
+        if (statusListener != null) {
+            statusListener.accept(current);
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package se.goencoder.loppiskassan.storage;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * One index of every event's metadata under {@code ~/.loppiskassan/events/}.
+ * <p>
+ * {@link LocalEventRepository#loadAll()} and {@link OnlineEventCache#loadCachedEvents()}
+ * read from here instead of listing the directory and parsing each metadata file.
+ * The index is kept in {@code events/catalog.json}: each event's local and iLoppis
+ * metadata JSON together with the file's modification time. On first use the catalog
+ * is checked against the directory once by file time, and only changed files are parsed.
+ * After that it is kept current by the repositories, which report their own writes,
+ * and by a {@link WatchService} that marks events changed by anyone else; a later read
+ * refreshes only those events. If the platform has no watch service, every read
+ * checks the directory by file time.
+ * </p>
+ */
+public final class EventCatalog {
+
+    private static final Logger log = Logger.getLogger(EventCatalog.class.getName());
+
+    static final String CATALOG_FILE_NAME = "catalog.json";
+    private static final int FORMAT_VERSION = 1;
+    private static final long MISSING = -1;
+    private static final Set<String> METADATA_FILE_NAMES = Set.of(
+            LocalEventPaths.LOCAL_METADATA_FILE_NAME,
+            LocalEventPaths.LEGACY_METADATA_FILE_NAME,
+            OnlineEventCache.ILOPPIS_METADATA_FILENAME,
+            OnlineEventCache.LEGACY_CACHE_METADATA_FILENAME);
+
+    /** Metadata of one event directory; a null JSON means the file does not exist. */
+    private record Entry(String localJson, long localModified, String iloppisJson, long iloppisModified) {
+    }
+
+    /** Events directory the state below belongs to (user.home can change in tests). */
+    private static Path eventsDir;
+    private static final Map<String, Entry> entries = new TreeMap<>();
+    /** Event ids the watcher saw change since the last read. */
+    private static final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private static volatile boolean rescanAll;
+    private static WatchService watcher;
+
+    private EventCatalog() {}
+
+    /**
+     * @return the local metadata JSON of every event, ordered by event id
+     */
+    public static synchronized List<String> localMetadataJsons() throws IOException {
+        ensureCurrent();
+        List<String> result = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.localJson() != null) {
+                result.add(entry.localJson());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the cached iLoppis metadata JSON of every event, ordered by event id
+     */
+    public static synchronized List<String> iloppisMetadataJsons() throws IOException {
+        ensureCurrent();
+        List<String> result = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.iloppisJson() != null) {
+                result.add(entry.iloppisJson());
+            }
+        }
+        return result;
+    }
+
+    /** The local metadata of {@code eventId} was created or rewritten. */
+    public static void localMetadataWritten(String eventId) {
+        changed(eventId);
+    }
+
+    /** The iLoppis metadata of {@code eventId} was created, rewritten or removed. */
+    public static void iloppisMetadataWritten(String eventId) {
+        changed(eventId);
+    }
+
+    /** The directory of {@code eventId} was deleted. */
+    public static void eventRemoved(String eventId) {
+        changed(eventId);
+    }
+
+    /**
+     * Forget the in-memory state and stop the watcher; the next read starts over
+     * from {@code catalog.json}.
+     */
+    static synchronized void reset() {
+        closeWatcher();
+        entries.clear();
+        dirty.clear();
+        eventsDir = null;
+    }
+
+    private static synchronized void changed(String eventId) {
+        if (eventId == null || eventsDir == null || !eventsDir.equals(LocalEventPaths.getEventsDir())) {
+            // Not loaded yet (or loaded for another home): the first read reconciles anyway
+            return;
+        }
+        try {
+            if (refresh(eventId, true)) {
+                persist();
+            }
+        } catch (IOException e) {
+            log.warning("Event catalog: Failed to update " + eventId + " - " + e.getMessage());
+            dirty.add(eventId);
+        }
+    }
+
+    private static void ensureCurrent() throws IOException {
+        Path dir = LocalEventPaths.getEventsDir();
+        boolean changed;
+        if (!dir.equals(eventsDir)) {
+            reset();
+            LocalEventRepository.ensureBaseDirectories();
+            eventsDir = dir;
+            readCatalogFile();
+            startWatcher();
+            changed = reconcileAll();
+        } else if (watcher == null || rescanAll) {
+            rescanAll = false;
+            dirty.clear();
+            changed = reconcileAll();
+        } else {
+            changed = false;
+            for (String eventId : List.copyOf(dirty)) {
+                dirty.remove(eventId);
+                changed |= refresh(eventId, false);
+            }
+        }
+        if (changed) {
+            persist();
+        }
+    }
+
+    private static boolean reconcileAll() throws IOException {
+        Set<String> present = new HashSet<>();
+        try (Stream<Path> paths = Files.list(eventsDir)) {
+            paths.filter(Files::isDirectory).forEach(dir -> present.add(dir.getFileName().toString()));
+        }
+        boolean changed = entries.keySet().retainAll(present);
+        for (String eventId : present) {
+            changed |= refresh(eventId, false);
+        }
+        return changed;
+    }
+
+    /**
+     * Bring the entry of {@code eventId} up to date, parsing a metadata file only if its
+     * modification time moved (or {@code force}).
+     *
+     * @return true if the entry changed
+     */
+    private static boolean refresh(String eventId, boolean force) throws IOException {
+        Entry old = entries.get(eventId);
+        Path eventDir = LocalEventPaths.getEventDir(eventId);
+        if (!Files.isDirectory(eventDir)) {
+            return entries.remove(eventId) != null;
+        }
+        Path localPath = LocalEventRepository.resolveLocalMetadataPath(eventId);
+        Path iloppisPath = OnlineEventCache.resolveCachePath(eventDir);
+        long localModified = modifiedMillis(localPath);
+        long iloppisModified = modifiedMillis(iloppisPath);
+
+        String localJson = old != null && !force && old.localModified() == localModified
+                ? old.localJson() : readIfPresent(localPath, localModified);
+        String iloppisJson = old != null && !force && old.iloppisModified() == iloppisModified
+                ? old.iloppisJson() : readIfPresent(iloppisPath, iloppisModified);
+
+        if (localJson == null && iloppisJson == null) {
+            // Directory without metadata (e.g. still being created)
+            return entries.remove(eventId) != null;
+        }
+        Entry updated = new Entry(localJson, localModified, iloppisJson, iloppisModified);
+        if (updated.equals(old)) {
+            return false;
+        }
+        entries.put(eventId, updated);
+        return true;
+    }
+
+    private static long modifiedMillis(Path path) throws IOException {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (NoSuchFileException e) {
+            return MISSING;
+        }
+    }
+
+    private static String readIfPresent(Path path, long modified) throws IOException {
+        if (modified == MISSING) {
+            return null;
+        }
+        try {
+            return Files.readString(path, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static void readCatalogFile() {
+        Path path = eventsDir.resolve(CATALOG_FILE_NAME);
+        if (Files.notExists(path)) {
+            return;
+        }
+        try {
+            JSONObject root = new JSONObject(Files.readString(path, StandardCharsets.UTF_8));
+            if (root.optInt("version") != FORMAT_VERSION) {
+                return;
+            }
+            JSONArray events = root.getJSONArray("events");
+            for (int i = 0; i < events.length(); i++) {
+                JSONObject obj = events.getJSONObject(i);
+                entries.put(obj.getString("eventId"), new Entry(
+                        obj.isNull("local") ? null : obj.getString("local"),
+                        obj.getLong("localModified"),
+                        obj.isNull("iloppis") ? null : obj.getString("iloppis"),
+                        obj.getLong("iloppisModified")));
+            }
+        } catch (IOException | JSONException e) {
+            // A broken catalog is rebuilt from the event directories
+            log.warning("Event catalog: Ignoring unreadable " + path + " - " + e.getMessage());
+            entries.clear();
+        }
+    }
+
+    private static void persist() throws IOException {
+        JSONArray events = new JSONArray();
+        entries.forEach((eventId, entry) -> events.put(new JSONObject()
+                .put("eventId", eventId)
+                .put("local", entry.localJson() == null ? JSONObject.NULL : entry.localJson())
+                .put("localModified", entry.localModified())
+                .put("iloppis", entry.iloppisJson() == null ? JSONObject.NULL : entry.iloppisJson())
+                .put("iloppisModified", entry.iloppisModified())));
+        String json = new JSONObject()
+                .put("version", FORMAT_VERSION)
+                .put("events", events)
+                .toString();
+        Path path = eventsDir.resolve(CATALOG_FILE_NAME);
+        Path tmp = path.resolveSibling(CATALOG_FILE_NAME + ".tmp");
+        Files.writeString(tmp, json, StandardCharsets.UTF_8);
+        PendingItemsStore.moveIntoPlace(tmp, path);
+    }
+
+    private static void startWatcher() {
+        try {
+            WatchService service = eventsDir.getFileSystem().newWatchService();
+            register(service, eventsDir);
+            try (Stream<Path> paths = Files.list(eventsDir)) {
+                for (Path dir : paths.filter(Files::isDirectory).toList()) {
+                    register(service, dir);
+                }
+            }
+            watcher = service;
+            Thread thread = new Thread(() -> watch(service, eventsDir), "event-catalog-watcher");
+            thread.setDaemon(true);
+            thread.start();
+        } catch (IOException | UnsupportedOperationException e) {
+            log.info("Event catalog: No directory watcher, checking file times on every read - "
+                    + e.getMessage());
+            watcher = null;
+        }
+    }
+
+    private static void register(WatchService service, Path dir) throws IOException {
+        dir.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    /** Watcher thread: only marks events dirty; the next read does the work. */
+    private static void watch(WatchService service, Path root) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Path dir = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        rescanAll = true;
+                        continue;
+                    }
+                    Path name = (Path) event.context();
+                    if (dir.equals(root)) {
+                        if (name.toString().startsWith(CATALOG_FILE_NAME)) {
+                            continue;
+                        }
+                        Path child = root.resolve(name);
+                        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                            // Register before marking, so no write inside the new directory is missed
+                            try {
+                                register(service, child);
+                            } catch (IOException e) {
+                                // Deleted again already; the delete marks it dirty
+                            }
+                        }
+                        dirty.add(name.toString());
+                    } else if (METADATA_FILE_NAMES.contains(name.toString())) {
+                        dirty.add(dir.getFileName().toString());
+                    }
+                }
+                key.reset();
+            }
+        } catch (ClosedWatchServiceException e) {
+            // reset() or a new home directory
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void closeWatcher() {
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
+            watcher = null;
+        }
+    }
+}
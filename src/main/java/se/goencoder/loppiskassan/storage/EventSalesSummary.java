@@ -0,0 +1,143 @@
+package se.goencoder.loppiskassan.storage;
+
+import org.json.JSONObject;
+import se.goencoder.loppiskassan.V1PaymentMethod;
+import se.goencoder.loppiskassan.V1SoldItem;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Totals for one event's pending file: item count, amount, per-payment-method sums
+ * and the latest sale time.
+ * <p>
+ * {@link PendingItemsStore} keeps it in {@code pending_items.summary.json} and updates it
+ * on every append or rewrite, so screens that only show counts never parse the items.
+ * The stored copy carries a {@link Stamp} of the files it describes; if the files were
+ * changed behind the store's back, the stamp no longer matches and the summary is rebuilt.
+ * </p>
+ */
+public record EventSalesSummary(
+        int itemCount,
+        long totalAmount,
+        Map<V1PaymentMethod, Long> amountByPaymentMethod,
+        Map<V1PaymentMethod, Integer> countByPaymentMethod,
+        LocalDateTime lastSaleTime
+) {
+    private static final int FORMAT_VERSION = 1;
+
+    public static final EventSalesSummary EMPTY = new EventSalesSummary(
+            0, 0, Map.of(), Map.of(), null);
+
+    public EventSalesSummary {
+        amountByPaymentMethod = Map.copyOf(amountByPaymentMethod);
+        countByPaymentMethod = Map.copyOf(countByPaymentMethod);
+    }
+
+    /**
+     * Size and modification time of the pending file and size of the state journal
+     * when the summary was written.
+     */
+    public record Stamp(long pendingBytes, long pendingModifiedMillis, long journalBytes) {
+    }
+
+    public static EventSalesSummary of(Collection<V1SoldItem> items) {
+        return EMPTY.plus(items);
+    }
+
+    /**
+     * @return a summary that also covers {@code items}
+     */
+    public EventSalesSummary plus(Collection<V1SoldItem> items) {
+        if (items.isEmpty()) {
+            return this;
+        }
+        int count = itemCount;
+        long total = totalAmount;
+        Map<V1PaymentMethod, Long> amounts = new EnumMap<>(V1PaymentMethod.class);
+        Map<V1PaymentMethod, Integer> counts = new EnumMap<>(V1PaymentMethod.class);
+        amounts.putAll(amountByPaymentMethod);
+        counts.putAll(countByPaymentMethod);
+        LocalDateTime last = lastSaleTime;
+        for (V1SoldItem item : items) {
+            count++;
+            total += item.getPrice();
+            if (item.getPaymentMethod() != null) {
+                amounts.merge(item.getPaymentMethod(), (long) item.getPrice(), Long::sum);
+                counts.merge(item.getPaymentMethod(), 1, Integer::sum);
+            }
+            LocalDateTime soldTime = item.getSoldTime();
+            if (soldTime != null && (last == null || soldTime.isAfter(last))) {
+                last = soldTime;
+            }
+        }
+        return new EventSalesSummary(count, total, amounts, counts, last);
+    }
+
+    public long amountFor(V1PaymentMethod paymentMethod) {
+        return amountByPaymentMethod.getOrDefault(paymentMethod, 0L);
+    }
+
+    public int countFor(V1PaymentMethod paymentMethod) {
+        return countByPaymentMethod.getOrDefault(paymentMethod, 0);
+    }
+
+    String toJson(Stamp stamp) {
+        JSONObject amounts = new JSONObject();
+        JSONObject counts = new JSONObject();
+        for (V1PaymentMethod method : V1PaymentMethod.values()) {
+            amounts.put(method.name(), amountFor(method));
+            counts.put(method.name(), countFor(method));
+        }
+        return new JSONObject()
+                .put("version", FORMAT_VERSION)
+                .put("itemCount", itemCount)
+                .put("totalAmount", totalAmount)
+                .put("amountByPaymentMethod", amounts)
+                .put("countByPaymentMethod", counts)
+                .put("lastSaleTime", lastSaleTime == null ? JSONObject.NULL : lastSaleTime.toString())
+                .put("pendingBytes", stamp.pendingBytes())
+                .put("pendingModifiedMillis", stamp.pendingModifiedMillis())
+                .put("journalBytes", stamp.journalBytes())
+                .toString();
+    }
+
+    /**
+     * @return the summary, or null if it was written for different files than {@code current}
+     *         (or cannot be read)
+     */
+    static EventSalesSummary fromJson(String json, Stamp current) {
+        try {
+            JSONObject obj = new JSONObject(json);
+            if (obj.optInt("version") != FORMAT_VERSION) {
+                return null;
+            }
+            Stamp stamp = new Stamp(obj.getLong("pendingBytes"), obj.getLong("pendingModifiedMillis"),
+                    obj.getLong("journalBytes"));
+            if (!stamp.equals(current)) {
+                return null;
+            }
+            Map<V1PaymentMethod, Long> amounts = new EnumMap<>(V1PaymentMethod.class);
+            Map<V1PaymentMethod, Integer> counts = new EnumMap<>(V1PaymentMethod.class);
+            JSONObject amountJson = obj.getJSONObject("amountByPaymentMethod");
+            JSONObject countJson = obj.getJSONObject("countByPaymentMethod");
+            for (V1PaymentMethod method : V1PaymentMethod.values()) {
+                if (countJson.optInt(method.name()) > 0) {
+                    amounts.put(method, amountJson.optLong(method.name()));
+                    counts.put(method, countJson.optInt(method.name()));
+                }
+            }
+            String last = obj.optString("lastSaleTime", null);
+            return new EventSalesSummary(
+                    obj.getInt("itemCount"),
+                    obj.getLong("totalAmount"),
+                    amounts,
+                    counts,
+                    last == null || last.isBlank() || obj.isNull("lastSaleTime") ? null : LocalDateTime.parse(last));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package se.goencoder.loppiskassan.storage;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.logging.Logger;
+
+/**
+ * Where the last history download from iLoppis stopped, kept per event in
+ * {@code history_sync.json}.
+ * <p>
+ * {@code resumeToken} is the page token of the last page downloaded; the next incremental
+ * download starts there, so it re-reads at most one page of known items. The item and
+ * paid-out counts are the backend's counts at that time and tell whether items were removed
+ * or payouts made since. A missing or unreadable cursor means a full download.
+ * </p>
+ */
+public record HistorySyncCursor(String resumeToken, int itemCount, int paidCount, long syncedAtMillis) {
+    private static final Logger log = Logger.getLogger(HistorySyncCursor.class.getName());
+
+    private static final int FORMAT_VERSION = 1;
+    static final String FILE_NAME = "history_sync.json";
+
+    public static Path path(String eventId) {
+        return LocalEventPaths.getEventDir(eventId).resolve(FILE_NAME);
+    }
+
+    /**
+     * @return the event's cursor, or null if there is none or it cannot be read
+     */
+    public static HistorySyncCursor load(String eventId) {
+        try {
+            JSONObject obj = new JSONObject(Files.readString(path(eventId), StandardCharsets.UTF_8));
+            if (obj.optInt("version") != FORMAT_VERSION) {
+                return null;
+            }
+            return new HistorySyncCursor(
+                    obj.optString("resumeToken", ""),
+                    obj.getInt("itemCount"),
+                    obj.getInt("paidCount"),
+                    obj.optLong("syncedAtMillis"));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            log.warning("Ignoring unreadable history sync cursor for " + eventId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void save(String eventId) throws IOException {
+        Path path = path(eventId);
+        Files.createDirectories(path.getParent());
+        Path tmp = path.resolveSibling(FILE_NAME + ".tmp");
+        String json = new JSONObject()
+                .put("version", FORMAT_VERSION)
+                .put("resumeToken", resumeToken == null ? "" : resumeToken)
+                .put("itemCount", itemCount)
+                .put("paidCount", paidCount)
+                .put("syncedAtMillis", syncedAtMillis)
+                .toString();
+        Files.writeString(tmp, json, StandardCharsets.UTF_8);
+        PendingItemsStore.moveIntoPlace(tmp, path);
+    }
+
+    /**
+     * Forget the cursor so the next download is a full one.
+     */
+    public static void delete(String eventId) {
+        try {
+            Files.deleteIfExists(path(eventId));
+        } catch (IOException e) {
+            log.warning("Failed to remove history sync cursor for " + eventId + ": " + e.getMessage());
+        }
+    }
+}
@@ -1,26 +1,39 @@
 package se.goencoder.loppiskassan.storage;
 
-import org.json.JSONObject;
-import se.goencoder.loppiskassan.V1PaymentMethod;
 import se.goencoder.loppiskassan.V1SoldItem;
+import se.goencoder.loppiskassan.metrics.Counter;
+import se.goencoder.loppiskassan.metrics.Histogram;
+import se.goencoder.loppiskassan.metrics.Metrics;
+import se.goencoder.loppiskassan.metrics.PendingFileEvent;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.time.LocalDateTime;
-import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Stream;
 
+/**
+ * Read/write sold items as JSON Lines.
+ * Encoding and decoding are done by {@link SoldItemJsonlCodec}.
+ * Time spent and bytes moved are recorded in {@link Metrics} under {@code jsonl.*},
+ * and each operation is a {@link PendingFileEvent} for flight recordings.
+ */
 public final class JsonlHelper {
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+    private static final Histogram readMicros = Metrics.histogram("jsonl.read.micros");
+    private static final Counter readBytes = Metrics.counter("jsonl.read.bytes");
+    private static final Histogram writeMicros = Metrics.histogram("jsonl.write.micros");
+    private static final Counter writeBytes = Metrics.counter("jsonl.write.bytes");
 
     private JsonlHelper() {}
 
@@ -28,18 +41,22 @@ public final class JsonlHelper {
         if (items == null || items.isEmpty()) {
             return;
         }
+        long start = System.nanoTime();
+        PendingFileEvent event = new PendingFileEvent();
+        event.begin();
         if (path.getParent() != null) {
             Files.createDirectories(path.getParent());
         }
-        try (BufferedWriter writer = Files.newBufferedWriter(
+        CountingOutputStream out = new CountingOutputStream(Files.newOutputStream(
                 path,
-                StandardCharsets.UTF_8,
                 StandardOpenOption.CREATE,
-                StandardOpenOption.APPEND)) {
-            for (V1SoldItem item : items) {
-                writer.write(toJsonLine(item));
-                writer.newLine();
-            }
+                StandardOpenOption.APPEND));
+        try (BufferedWriter writer = writer(out)) {
+            writeLines(writer, items);
+        } finally {
+            writeBytes.add(out.count);
+            writeMicros.recordSince(start);
+            commit(event, PendingFileEvent.APPEND, path, items.size(), out.count);
         }
     }
 
@@ -47,105 +64,130 @@ public final class JsonlHelper {
         if (Files.notExists(path)) {
             return List.of();
         }
+        long start = System.nanoTime();
+        PendingFileEvent event = new PendingFileEvent();
+        event.begin();
         List<V1SoldItem> items = new ArrayList<>();
-        try (Stream<String> lines = Files.lines(path, StandardCharsets.UTF_8)) {
-            lines.filter(line -> !line.isBlank())
-                    .forEach(line -> items.add(fromJsonLine(line)));
+        CountingInputStream counted = new CountingInputStream(Files.newInputStream(path));
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(counted, StandardCharsets.UTF_8));
+             SoldItemJsonlCodec.ItemReader reader = new SoldItemJsonlCodec.ItemReader(in)) {
+            V1SoldItem item;
+            while ((item = reader.next()) != null) {
+                items.add(item);
+            }
         } catch (RuntimeException ex) {
             throw new IOException("Failed to parse JSONL file: " + path, ex);
+        } finally {
+            readBytes.add(counted.count);
+            readMicros.recordSince(start);
+            commit(event, PendingFileEvent.READ, path, items.size(), counted.count);
         }
         return items;
     }
 
     public static void writeItems(Path path, List<V1SoldItem> items) throws IOException {
+        long start = System.nanoTime();
+        PendingFileEvent event = new PendingFileEvent();
+        event.begin();
         if (path.getParent() != null) {
             Files.createDirectories(path.getParent());
         }
-        try (BufferedWriter writer = Files.newBufferedWriter(
+        CountingOutputStream out = new CountingOutputStream(Files.newOutputStream(
                 path,
-                StandardCharsets.UTF_8,
                 StandardOpenOption.CREATE,
                 StandardOpenOption.TRUNCATE_EXISTING,
-                StandardOpenOption.WRITE)) {
+                StandardOpenOption.WRITE));
+        try (BufferedWriter writer = writer(out)) {
             if (items == null || items.isEmpty()) {
                 return;
             }
-            for (V1SoldItem item : items) {
-                writer.write(toJsonLine(item));
-                writer.newLine();
-            }
+            writeLines(writer, items);
+        } finally {
+            writeBytes.add(out.count);
+            writeMicros.recordSince(start);
+            commit(event, PendingFileEvent.WRITE, path, items == null ? 0 : items.size(), out.count);
         }
     }
 
-    public static String toJsonLine(V1SoldItem item) {
-        JSONObject json = new JSONObject();
-        json.put("itemId", item.getItemId());
-        json.put("purchaseId", item.getPurchaseId());
-        json.put("seller", item.getSeller());
-        json.put("price", item.getPrice());
-        if (item.getPaymentMethod() != null) {
-            json.put("paymentMethod", item.getPaymentMethod().name());
-        }
-        json.put("soldTime", formatTime(item.getSoldTime()));
-        if (item.getCollectedBySellerTime() != null) {
-            json.put("paidOutTime", formatTime(item.getCollectedBySellerTime()));
+    /**
+     * End and commit a file event if a recording wants it; a flag check otherwise.
+     */
+    static void commit(PendingFileEvent event, String operation, Path path, int items, long bytes) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.path = path.toString();
+            event.items = items;
+            event.bytes = bytes;
+            event.commit();
         }
-        json.put("uploaded", item.isUploaded());
-        return json.toString();
+    }
+
+    public static String toJsonLine(V1SoldItem item) {
+        return SoldItemJsonlCodec.toJsonLine(item);
     }
 
     public static V1SoldItem fromJsonLine(String line) {
-        JSONObject obj = new JSONObject(line);
-        String purchaseId = obj.optString("purchaseId", obj.optString("purchase_id", ""));
-        String itemId = obj.optString("itemId", obj.optString("item_id", ""));
-        LocalDateTime soldTime = parseTime(obj.optString("soldTime", obj.optString("sold_time", "")));
-        int seller = obj.optInt("seller", 0);
-        int price = obj.optInt("price", 0);
-        String paidOutTime = obj.optString("paidOutTime", obj.optString("collectedBySellerTime", ""));
-        LocalDateTime collected = parseTime(paidOutTime);
-        V1PaymentMethod paymentMethod = parsePaymentMethod(obj.optString("paymentMethod", ""));
-        boolean uploaded = obj.optBoolean("uploaded", false);
-        if (soldTime == null) {
-            soldTime = LocalDateTime.now();
-        }
-        return new V1SoldItem(
-                purchaseId,
-                itemId,
-                soldTime,
-                seller,
-                price,
-                collected,
-                paymentMethod,
-                uploaded
-        );
+        return SoldItemJsonlCodec.fromJsonLine(line);
     }
 
-    private static String formatTime(LocalDateTime dateTime) {
-        if (dateTime == null) {
-            return "";
+    private static void writeLines(BufferedWriter writer, List<V1SoldItem> items) throws IOException {
+        StringBuilder line = new StringBuilder(192);
+        for (V1SoldItem item : items) {
+            line.setLength(0);
+            SoldItemJsonlCodec.appendJsonLine(line, item);
+            writer.append(line);
+            writer.newLine();
         }
-        return dateTime.atOffset(ZoneOffset.UTC).format(DATE_FORMATTER);
     }
 
-    private static LocalDateTime parseTime(String value) {
-        if (value == null || value.isBlank()) {
-            return null;
+    private static BufferedWriter writer(OutputStream out) {
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
         }
-        try {
-            return OffsetDateTime.parse(value, DATE_FORMATTER).toLocalDateTime();
-        } catch (DateTimeParseException ex) {
-            return null;
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
         }
     }
 
-    private static V1PaymentMethod parsePaymentMethod(String value) {
-        if (value == null || value.isBlank()) {
-            return V1PaymentMethod.Kontant;
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
         }
-        try {
-            return V1PaymentMethod.valueOf(value);
-        } catch (IllegalArgumentException ex) {
-            return V1PaymentMethod.Kontant;
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
         }
     }
 }
@@ -7,9 +7,11 @@ import java.nio.file.Path;
 public final class LocalEventPaths {
     private static final String EVENTS_DIR_NAME = "events";
     private static final String ARCHIVE_DIR_NAME = "archive";
-    private static final String LOCAL_METADATA_FILE_NAME = "local_metadata.json";
+    static final String LOCAL_METADATA_FILE_NAME = "local_metadata.json";
     private static final String ILOPPIS_METADATA_FILE_NAME = "iloppis_metadata.json";
     private static final String PENDING_ITEMS_FILE_NAME = "pending_items.jsonl";
+    private static final String PENDING_STATE_FILE_NAME = "pending_items.state.jsonl";
+    private static final String PENDING_SUMMARY_FILE_NAME = "pending_items.summary.json";
     private static final String SOLD_ITEMS_FILE_NAME = "sold_items.jsonl";
     private static final String REJECTED_PURCHASES_FILE_NAME = "rejected_purchases.jsonl";
 
@@ -45,6 +47,14 @@ public final class LocalEventPaths {
         return getEventDir(eventId).resolve(PENDING_ITEMS_FILE_NAME);
     }
 
+    public static Path getPendingStatePath(String eventId) {
+        return getEventDir(eventId).resolve(PENDING_STATE_FILE_NAME);
+    }
+
+    public static Path getPendingSummaryPath(String eventId) {
+        return getEventDir(eventId).resolve(PENDING_SUMMARY_FILE_NAME);
+    }
+
     public static Path getSoldItemsPath(String eventId) {
         return getEventDir(eventId).resolve(SOLD_ITEMS_FILE_NAME);
     }
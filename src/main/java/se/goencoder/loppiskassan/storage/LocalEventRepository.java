@@ -7,7 +7,6 @@ import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -49,6 +48,7 @@ public class LocalEventRepository {
         Path soldPath = LocalEventPaths.getSoldItemsPath(event.getEventId());
         Files.createFile(soldPath);
 
+        EventCatalog.localMetadataWritten(event.getEventId());
         return event;
     }
 
@@ -66,26 +66,21 @@ public class LocalEventRepository {
         Path metadataPath = resolveLocalMetadataPath(event.getEventId());
         Files.writeString(metadataPath, event.toJsonString(), StandardCharsets.UTF_8,
                 StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        EventCatalog.localMetadataWritten(event.getEventId());
     }
 
+    /**
+     * Load every event that has local metadata, ordered by event id.
+     * Served from {@link EventCatalog}, so only metadata changed since the last call is read from disk.
+     */
     public static List<LocalEvent> loadAll() throws IOException {
-        ensureBaseDirectories();
         List<LocalEvent> events = new ArrayList<>();
-        try (Stream<Path> paths = Files.list(LocalEventPaths.getEventsDir())) {
-            paths.filter(Files::isDirectory)
-                    .sorted(Comparator.comparing(Path::getFileName))
-                    .forEach(dir -> {
-                        String eventId = dir.getFileName().toString();
-                        Path metadataPath = resolveLocalMetadataPath(eventId);
-                        if (Files.exists(metadataPath)) {
-                            try {
-                                String json = Files.readString(metadataPath, StandardCharsets.UTF_8);
-                                events.add(LocalEvent.fromJsonString(json));
-                            } catch (IOException ignored) {
-                                // Skip invalid metadata entries
-                            }
-                        }
-                    });
+        for (String json : EventCatalog.localMetadataJsons()) {
+            try {
+                events.add(LocalEvent.fromJsonString(json));
+            } catch (IOException ignored) {
+                // Skip invalid metadata entries
+            }
         }
         return events;
     }
@@ -101,7 +96,11 @@ public class LocalEventRepository {
             return; // Already deleted
         }
         // Delete all files and subdirectories recursively
-        deleteRecursively(eventDir);
+        try {
+            deleteRecursively(eventDir);
+        } finally {
+            EventCatalog.eventRemoved(eventId);
+        }
     }
 
     private static void deleteRecursively(Path path) throws IOException {
@@ -115,7 +114,7 @@ public class LocalEventRepository {
         Files.deleteIfExists(path);
     }
 
-    private static Path resolveLocalMetadataPath(String eventId) {
+    static Path resolveLocalMetadataPath(String eventId) {
         Path newPath = LocalEventPaths.getLocalMetadataPath(eventId);
         if (Files.exists(newPath)) {
             return newPath;
@@ -11,7 +11,6 @@ import java.nio.file.StandardOpenOption;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Stream;
 
 /**
  * Persistent cache for iLoppis online events.
@@ -25,8 +24,8 @@ public class OnlineEventCache {
     // - Short enough to prevent severely outdated seller lists
     // - Aligns with typical flea market event durations
     public static final long CACHE_TTL_MS = 7 * 24 * 60 * 60 * 1000L; // 7 days
-    private static final String ILOPPIS_METADATA_FILENAME = "iloppis_metadata.json";
-    private static final String LEGACY_CACHE_METADATA_FILENAME = "online_cache_metadata.json";
+    static final String ILOPPIS_METADATA_FILENAME = "iloppis_metadata.json";
+    static final String LEGACY_CACHE_METADATA_FILENAME = "online_cache_metadata.json";
 
     /**
      * Cache an online event after successful register opening.
@@ -67,6 +66,7 @@ public class OnlineEventCache {
             Path cachePath = eventDir.resolve(ILOPPIS_METADATA_FILENAME);
             Files.writeString(cachePath, cached.toJsonString(), StandardCharsets.UTF_8,
                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            EventCatalog.iloppisMetadataWritten(event.getId());
 
         } catch (IOException e) {
             // Log warning but don't fail - app can continue without cache
@@ -77,6 +77,7 @@ public class OnlineEventCache {
     /**
      * Load all cached online events from disk.
      * Filters out entries older than CACHE_TTL_MS.
+     * Served from {@link EventCatalog}, so only caches changed since the last call are read.
      *
      * @return List of cached events, may be empty
      */
@@ -84,30 +85,18 @@ public class OnlineEventCache {
         List<CachedOnlineEvent> result = new ArrayList<>();
 
         try {
-            Path eventsDir = LocalEventPaths.getEventsDir();
-            if (Files.notExists(eventsDir)) {
-                return result;
-            }
+            for (String json : EventCatalog.iloppisMetadataJsons()) {
+                try {
+                    CachedOnlineEvent cached = CachedOnlineEvent.fromJsonString(json);
 
-            try (Stream<Path> paths = Files.list(eventsDir)) {
-                paths.filter(Files::isDirectory)
-                        .forEach(eventDir -> {
-                            Path cachePath = resolveCachePath(eventDir);
-                            if (Files.exists(cachePath)) {
-                                try {
-                                    String json = Files.readString(cachePath, StandardCharsets.UTF_8);
-                                    CachedOnlineEvent cached = CachedOnlineEvent.fromJsonString(json);
-
-                                    // Filter out expired entries
-                                    if (!cached.isExpired(CACHE_TTL_MS)) {
-                                        result.add(cached);
-                                    }
-                                } catch (IOException e) {
-                                    // Ignore corrupted cache files
-                                    System.err.println("Warning: Failed to load cached event from " + cachePath + ": " + e.getMessage());
-                                }
-                            }
-                        });
+                    // Filter out expired entries
+                    if (!cached.isExpired(CACHE_TTL_MS)) {
+                        result.add(cached);
+                    }
+                } catch (IOException e) {
+                    // Ignore corrupted cache files
+                    System.err.println("Warning: Failed to load a cached event: " + e.getMessage());
+                }
             }
         } catch (IOException e) {
             System.err.println("Warning: Failed to list cached events: " + e.getMessage());
@@ -162,6 +151,7 @@ public class OnlineEventCache {
             if (Files.exists(legacyPath)) {
                 Files.delete(legacyPath);
             }
+            EventCatalog.iloppisMetadataWritten(eventId);
         } catch (IOException e) {
             System.err.println("Warning: Failed to remove cache for event " + eventId + ": " + e.getMessage());
         }
@@ -235,6 +225,7 @@ public class OnlineEventCache {
             Path cachePath = eventDir.resolve(ILOPPIS_METADATA_FILENAME);
             Files.writeString(cachePath, updated.toJsonString(), StandardCharsets.UTF_8,
                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            EventCatalog.iloppisMetadataWritten(eventId);
 
         } catch (IOException e) {
             System.err.println("Warning: Failed to clear cached credentials for event " + eventId + ": " + e.getMessage());
@@ -282,6 +273,7 @@ public class OnlineEventCache {
 
                         Files.writeString(cachePath, updated.toJsonString(), StandardCharsets.UTF_8,
                                 StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+                        EventCatalog.iloppisMetadataWritten(event.getId());
                     }
                 } catch (IOException e) {
                     System.err.println("Warning: Failed to refresh cache for event " + event.getId() + ": " + e.getMessage());
@@ -290,7 +282,7 @@ public class OnlineEventCache {
         }
     }
 
-    private static Path resolveCachePath(Path eventDir) {
+    static Path resolveCachePath(Path eventDir) {
         Path newPath = eventDir.resolve(ILOPPIS_METADATA_FILENAME);
         if (Files.exists(newPath)) {
             return newPath;
@@ -0,0 +1,151 @@
+package se.goencoder.loppiskassan.storage;
+
+import se.goencoder.loppiskassan.V1SoldItem;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * In-memory view of an event's pending items (one entry per row, plus the rows not
+ * yet uploaded).
+ * <p>
+ * The index mirrors what {@link PendingItemsStore#readAll()} would return and is
+ * kept in step with every write, so the sync thread never has to re-parse the
+ * pending file. Rows are keyed by position, not by itemId, so rows without an id or
+ * with a repeated id are kept; like {@link PendingStateJournal#fold}, an itemId
+ * addresses the last row that carries it. It is NOT thread-safe: only the owning
+ * sync thread may mutate or iterate it. {@link #pendingCount()} and
+ * {@link #totalCount()} are safe to call from any thread.
+ * </p>
+ * Items are copied on the way in so that objects shared with the UI (cart,
+ * history table) can never be mutated behind the sync thread's back.
+ */
+public final class PendingItemsIndex {
+    private final Map<Integer, V1SoldItem> rows = new LinkedHashMap<>();
+    private final Map<String, Integer> rowById = new HashMap<>();
+    private final Set<Integer> pendingRows = new TreeSet<>();
+    private int nextRow;
+    private volatile int pendingCount;
+    private volatile int totalCount;
+
+    /**
+     * Build an index from the folded contents of the store.
+     */
+    public static PendingItemsIndex load(PendingItemsStore store) throws IOException {
+        PendingItemsIndex index = new PendingItemsIndex();
+        index.replaceAll(store.readAll());
+        return index;
+    }
+
+    public void replaceAll(Collection<V1SoldItem> items) {
+        rows.clear();
+        rowById.clear();
+        pendingRows.clear();
+        nextRow = 0;
+        addAll(items);
+    }
+
+    /**
+     * Append rows, as {@link PendingItemsStore#appendItems} does to the file.
+     */
+    public void addAll(Collection<V1SoldItem> items) {
+        for (V1SoldItem item : items) {
+            putRow(nextRow++, copyOf(item));
+        }
+        updateCounters();
+    }
+
+    /**
+     * Replace the row with the item's id, or append it if there is none.
+     */
+    public void upsert(V1SoldItem item) {
+        Integer row = item.getItemId() == null ? null : rowById.get(item.getItemId());
+        putRow(row == null ? nextRow++ : row, copyOf(item));
+        updateCounters();
+    }
+
+    public void markUploaded(Collection<String> itemIds) {
+        for (String itemId : itemIds) {
+            Integer row = rowById.get(itemId);
+            if (row != null) {
+                rows.get(row).setUploaded(true);
+                pendingRows.remove(row);
+            }
+        }
+        updateCounters();
+    }
+
+    public void remove(Collection<String> itemIds) {
+        for (String itemId : itemIds) {
+            Integer row = rowById.remove(itemId);
+            if (row != null) {
+                rows.remove(row);
+                pendingRows.remove(row);
+            }
+        }
+        updateCounters();
+    }
+
+    /**
+     * @return the live (not copied) items that are not yet uploaded, in file order
+     */
+    public List<V1SoldItem> pendingItems() {
+        List<V1SoldItem> result = new ArrayList<>(pendingRows.size());
+        for (Integer row : pendingRows) {
+            result.add(rows.get(row));
+        }
+        return result;
+    }
+
+    /**
+     * @return all items in file order (live objects)
+     */
+    public List<V1SoldItem> allItems() {
+        return new ArrayList<>(rows.values());
+    }
+
+    public int pendingCount() {
+        return pendingCount;
+    }
+
+    public int totalCount() {
+        return totalCount;
+    }
+
+    private void putRow(int row, V1SoldItem item) {
+        rows.put(row, item);
+        if (item.getItemId() != null) {
+            rowById.put(item.getItemId(), row);
+        }
+        if (item.isUploaded()) {
+            pendingRows.remove(row);
+        } else {
+            pendingRows.add(row);
+        }
+    }
+
+    private void updateCounters() {
+        pendingCount = pendingRows.size();
+        totalCount = rows.size();
+    }
+
+    private static V1SoldItem copyOf(V1SoldItem item) {
+        return new V1SoldItem(
+                item.getPurchaseId(),
+                item.getItemId(),
+                item.getSoldTime(),
+                item.getSeller(),
+                item.getPrice(),
+                item.getCollectedBySellerTime(),
+                item.getPaymentMethod(),
+                item.isUploaded()
+        );
+    }
+}
@@ -3,10 +3,37 @@ package se.goencoder.loppiskassan.storage;
 import se.goencoder.loppiskassan.V1SoldItem;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
 
+/**
+ * Pending items for one event.
+ * <p>
+ * Sales are appended to {@code pending_items.jsonl}; state changes (uploaded,
+ * rejected, paid out) are appended to a {@link PendingStateJournal} and folded
+ * back on read. {@link #compactIfNeeded()} periodically folds the journal into
+ * the pending file so it never grows unbounded.
+ * </p>
+ * <p>
+ * An {@link EventSalesSummary} is kept next to the pending file and updated on every
+ * append or rewrite, so {@link #readSummary()} is O(1) instead of a full parse.
+ * </p>
+ */
 public class PendingItemsStore {
+    private static final Logger log = Logger.getLogger(PendingItemsStore.class.getName());
+
+    /** Fold the journal into the pending file once it grows beyond this size. */
+    static final long COMPACTION_THRESHOLD_BYTES = 256 * 1024;
+
     private final String eventId;
 
     public PendingItemsStore(String eventId) {
@@ -15,12 +42,46 @@ public class PendingItemsStore {
 
     public void appendItems(List<V1SoldItem> items) throws IOException {
         Path path = LocalEventPaths.getPendingItemsPath(eventId);
+        EventSalesSummary before = currentSummary();
         JsonlHelper.appendItems(path, items);
+        summaryAfterAppend(before, items);
     }
 
+    /**
+     * Append through the {@link PendingItemsWriter}, which batches concurrent appends into
+     * one disk sync. Does not block.
+     *
+     * @return a future that completes once the items are durably on disk
+     */
+    public CompletableFuture<Void> appendItemsDurably(List<V1SoldItem> items) {
+        return PendingItemsWriter.getInstance().append(eventId, items);
+    }
+
+    /**
+     * Read all items with the state journal applied.
+     */
     public List<V1SoldItem> readAll() throws IOException {
         Path path = LocalEventPaths.getPendingItemsPath(eventId);
-        return JsonlHelper.readItems(path);
+        List<V1SoldItem> items = JsonlHelper.readItems(path);
+        return PendingStateJournal.fold(items, journal().readAll());
+    }
+
+    /**
+     * Item count and totals for {@link #readAll()}, without parsing the items when the
+     * stored summary is up to date. A stale or missing summary is rebuilt once.
+     */
+    public EventSalesSummary readSummary() throws IOException {
+        EventSalesSummary current = currentSummary();
+        if (current != null) {
+            return current;
+        }
+        EventSalesSummary.Stamp before = stamp();
+        EventSalesSummary rebuilt = EventSalesSummary.of(readAll());
+        // Only persist if nobody wrote while we were reading
+        if (before.equals(stamp())) {
+            writeSummary(rebuilt);
+        }
+        return rebuilt;
     }
 
     /**
@@ -34,10 +95,198 @@ public class PendingItemsStore {
     }
 
     /**
-     * Save all items back to the store (overwrites existing file)
+     * Save all items back to the store (overwrites existing file).
+     * The state journal is folded in by definition and therefore removed.
+     * Appends still queued on the {@link PendingItemsWriter} are written first, so
+     * callers should have read {@code items} after {@link PendingItemsWriter#flush()}.
      */
     public void saveAll(List<V1SoldItem> items) throws IOException {
         Path path = LocalEventPaths.getPendingItemsPath(eventId);
-        JsonlHelper.writeItems(path, items);
+        PendingItemsWriter.getInstance().exclusive(path, () -> {
+            replacePendingFile(items);
+            journal().delete();
+            writeSummary(EventSalesSummary.of(items));
+        });
+    }
+
+    /**
+     * Record that the given items were accepted by the backend.
+     */
+    public void markUploaded(Collection<String> itemIds) throws IOException {
+        List<PendingStateJournal.Entry> entries = new ArrayList<>();
+        for (String itemId : itemIds) {
+            entries.add(PendingStateJournal.Entry.uploaded(itemId));
+        }
+        appendKeepingSummary(entries);
+    }
+
+    /**
+     * Record that the given items were rejected; they disappear from {@link #readAll()}.
+     */
+    public void markRejected(Collection<String> itemIds) throws IOException {
+        List<PendingStateJournal.Entry> entries = new ArrayList<>();
+        for (String itemId : itemIds) {
+            entries.add(PendingStateJournal.Entry.rejected(itemId));
+        }
+        journal().append(entries);
+        // Rejected items drop out of the totals; recount on next read
+        invalidateSummary();
+    }
+
+    /**
+     * Record a payout for the given items.
+     */
+    public void markPaidOut(Collection<String> itemIds, LocalDateTime paidOutTime) throws IOException {
+        List<PendingStateJournal.Entry> entries = new ArrayList<>();
+        for (String itemId : itemIds) {
+            entries.add(PendingStateJournal.Entry.paidOut(itemId, paidOutTime));
+        }
+        appendKeepingSummary(entries);
+    }
+
+    /**
+     * Insert or replace a single item without rewriting the pending file.
+     */
+    public void upsert(V1SoldItem item) throws IOException {
+        journal().append(List.of(PendingStateJournal.Entry.put(item)));
+        // May replace an item with a different price; recount on next read
+        invalidateSummary();
+    }
+
+    /**
+     * Fold the journal into the pending file if it has grown past the threshold.
+     *
+     * @return true if a compaction was performed
+     */
+    public boolean compactIfNeeded() throws IOException {
+        if (!needsCompaction()) {
+            return false;
+        }
+        compact();
+        return true;
+    }
+
+    /**
+     * @return true if the journal has grown past the compaction threshold
+     */
+    public boolean needsCompaction() {
+        return journal().size() >= COMPACTION_THRESHOLD_BYTES;
+    }
+
+    /**
+     * Fold the journal into the pending file and remove the journal.
+     */
+    public void compact() throws IOException {
+        PendingStateJournal journal = journal();
+        if (!journal.exists()) {
+            return;
+        }
+        // Read and replace with no append in between, or the append would be lost
+        Path path = LocalEventPaths.getPendingItemsPath(eventId);
+        PendingItemsWriter.getInstance().exclusive(path, () -> {
+            List<V1SoldItem> items = readAll();
+            replacePendingFile(items);
+            journal.delete();
+            writeSummary(EventSalesSummary.of(items));
+        });
+    }
+
+    /**
+     * Bring the summary up to date after {@code items} were appended to the pending file.
+     *
+     * @param before the summary read before the append, or null if it was stale
+     */
+    void summaryAfterAppend(EventSalesSummary before, List<V1SoldItem> items) {
+        if (before != null) {
+            writeSummary(before.plus(items));
+        } else {
+            invalidateSummary();
+        }
+    }
+
+    /**
+     * Append journal entries that do not change the totals (upload and payout state).
+     */
+    private void appendKeepingSummary(List<PendingStateJournal.Entry> entries) throws IOException {
+        EventSalesSummary before = currentSummary();
+        journal().append(entries);
+        if (before != null) {
+            writeSummary(before);
+        }
+    }
+
+    /**
+     * @return the stored summary if it matches the files on disk, otherwise null
+     */
+    EventSalesSummary currentSummary() {
+        EventSalesSummary.Stamp stamp = stamp();
+        if (stamp.pendingBytes() == 0 && stamp.journalBytes() == 0) {
+            return EventSalesSummary.EMPTY;
+        }
+        Path path = LocalEventPaths.getPendingSummaryPath(eventId);
+        if (Files.notExists(path)) {
+            return null;
+        }
+        try {
+            return EventSalesSummary.fromJson(Files.readString(path, StandardCharsets.UTF_8), stamp);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private EventSalesSummary.Stamp stamp() {
+        Path pending = LocalEventPaths.getPendingItemsPath(eventId);
+        try {
+            long bytes = Files.exists(pending) ? Files.size(pending) : 0;
+            long modified = bytes == 0 ? 0 : Files.getLastModifiedTime(pending).toMillis();
+            return new EventSalesSummary.Stamp(bytes, modified, journal().size());
+        } catch (IOException e) {
+            // Unreadable stamp never matches, so the summary is rebuilt
+            return new EventSalesSummary.Stamp(-1, -1, -1);
+        }
+    }
+
+    private void writeSummary(EventSalesSummary summary) {
+        Path path = LocalEventPaths.getPendingSummaryPath(eventId);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.writeString(tmp, summary.toJson(stamp()), StandardCharsets.UTF_8);
+            moveIntoPlace(tmp, path);
+        } catch (IOException e) {
+            // The summary is only a cache; a missing one is rebuilt on the next read
+            log.warning("Failed to write sales summary for " + eventId + ": " + e.getMessage());
+            invalidateSummary();
+        }
+    }
+
+    private void invalidateSummary() {
+        try {
+            Files.deleteIfExists(LocalEventPaths.getPendingSummaryPath(eventId));
+        } catch (IOException e) {
+            log.warning("Failed to remove sales summary for " + eventId + ": " + e.getMessage());
+        }
+    }
+
+    private PendingStateJournal journal() {
+        return new PendingStateJournal(LocalEventPaths.getPendingStatePath(eventId));
+    }
+
+    /**
+     * Write to a temp file and move it into place so a crash never leaves a
+     * half-written pending file behind.
+     */
+    private void replacePendingFile(List<V1SoldItem> items) throws IOException {
+        Path path = LocalEventPaths.getPendingItemsPath(eventId);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        JsonlHelper.writeItems(tmp, items);
+        moveIntoPlace(tmp, path);
+    }
+
+    static void moveIntoPlace(Path tmp, Path path) throws IOException {
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
     }
 }
@@ -0,0 +1,355 @@
+package se.goencoder.loppiskassan.storage;
+
+import se.goencoder.loppiskassan.V1SoldItem;
+import se.goencoder.loppiskassan.metrics.Histogram;
+import se.goencoder.loppiskassan.metrics.Metrics;
+import se.goencoder.loppiskassan.metrics.PendingFileEvent;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Durable appends to pending files, done on one writer thread with group commit.
+ * <p>
+ * Callers get a future that completes once their items are on disk ({@link FileChannel#force}).
+ * The writer keeps the pending file open between appends, and every append queued while a
+ * write is in progress is written in the next round and shares one {@code force}, so a busy
+ * till pays for one disk sync per round instead of one open, sync and close per checkout.
+ * </p>
+ * <p>
+ * A pending file that is rewritten ({@link PendingItemsStore#saveAll}, compaction) is replaced
+ * by a new file. The writer notices that by the file key and reopens. Rewrites run through
+ * {@link #exclusive}, which closes the old handle up front and holds the writer back, so no
+ * append lands in the old file while it is being replaced. Readers that are about to rewrite
+ * what they read call {@link #flush} first.
+ * </p>
+ * <p>
+ * {@link #append} only enqueues and never waits for the writer, a disk sync or a rewrite, so
+ * a checkout on the EDT does not block on disk.
+ * </p>
+ */
+public final class PendingItemsWriter {
+    private static final Logger log = Logger.getLogger(PendingItemsWriter.class.getName());
+
+    /** Open pending files kept between rounds; a till normally writes to one event. */
+    private static final int MAX_OPEN_FILES = 4;
+
+    private static final Histogram roundMicros = Metrics.histogram("pending.writer.round.micros");
+    private static final Histogram roundAppends = Metrics.histogram("pending.writer.round.appends");
+
+    private static final PendingItemsWriter instance = new PendingItemsWriter();
+
+    private final BlockingQueue<Append> queue = new LinkedBlockingQueue<>();
+    /** Appends accepted by {@link #append} whose future has not completed yet. */
+    private final AtomicInteger unwritten = new AtomicInteger();
+    /** Used by the writer thread during a round, and by {@link #exclusive} while no round runs. */
+    private final Map<Path, OpenFile> openFiles = new LinkedHashMap<>(8, 0.75f, true);
+    /** Guarded by {@code this}: a round is being written. */
+    private boolean writing;
+    /** Guarded by {@code this}: the thread running {@link #exclusive}, or null. */
+    private Thread rewriter;
+
+    /** An append, or a {@link #flush} marker when {@code eventId} is null. */
+    private record Append(String eventId, List<V1SoldItem> items, CompletableFuture<Void> done) {
+        boolean isMarker() {
+            return eventId == null;
+        }
+    }
+
+    /** File work run by {@link #exclusive}. */
+    @FunctionalInterface
+    public interface IOAction {
+        void run() throws IOException;
+    }
+
+    private record OpenFile(FileChannel channel, Object fileKey) {
+    }
+
+    private PendingItemsWriter() {
+        Metrics.gauge("queue.pending.writer", queue::size);
+        Thread thread = new Thread(this::run, "pending-items-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public static PendingItemsWriter getInstance() {
+        return instance;
+    }
+
+    /**
+     * Queue {@code items} for the event's pending file.
+     *
+     * @return a future that completes when the items are durably written, or completes
+     *         exceptionally with the {@link IOException} that prevented it
+     */
+    public CompletableFuture<Void> append(String eventId, List<V1SoldItem> items) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (items == null || items.isEmpty()) {
+            done.complete(null);
+            return done;
+        }
+        unwritten.incrementAndGet();
+        queue.add(new Append(eventId, List.copyOf(items), done));
+        return done;
+    }
+
+    /**
+     * Wait until every append queued before this call has been written (or has failed).
+     * Inside {@link #exclusive} this returns at once: nothing is written until it ends.
+     */
+    public void flush() throws IOException {
+        if (isRewriter()) {
+            return;
+        }
+        CompletableFuture<Void> marker = new CompletableFuture<>();
+        queue.add(new Append(null, List.of(), marker));
+        try {
+            marker.get();
+        } catch (ExecutionException e) {
+            // The round failed; its appends were completed exceptionally, so nothing is queued ahead
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for pending appends");
+        }
+    }
+
+    /**
+     * Run {@code action} with no append queued or in progress, and hold the writer back until
+     * it returns; appends made meanwhile stay queued. Used to replace the pending file at
+     * {@code path} without losing appends; the writer reopens the file on its next round.
+     * Nested calls run directly.
+     */
+    public void exclusive(Path path, IOAction action) throws IOException {
+        if (isRewriter()) {
+            release(path);
+            action.run();
+            return;
+        }
+        while (!tryBeginRewrite()) {
+            flush();
+        }
+        try {
+            release(path);
+            action.run();
+        } finally {
+            endRewrite();
+        }
+    }
+
+    private synchronized boolean isRewriter() {
+        return rewriter == Thread.currentThread();
+    }
+
+    /**
+     * @return true if this thread now owns the rewrite; false while appends are unwritten
+     */
+    private synchronized boolean tryBeginRewrite() throws InterruptedIOException {
+        try {
+            while (rewriter != null) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a pending file rewrite");
+        }
+        if (writing || unwritten.get() > 0) {
+            return false;
+        }
+        rewriter = Thread.currentThread();
+        return true;
+    }
+
+    private synchronized void endRewrite() {
+        rewriter = null;
+        notifyAll();
+    }
+
+    /**
+     * Wait out a rewrite in progress, then mark a round as started.
+     */
+    private synchronized void beginRound() throws InterruptedException {
+        while (rewriter != null) {
+            wait();
+        }
+        writing = true;
+    }
+
+    private synchronized void endRound() {
+        writing = false;
+        notifyAll();
+    }
+
+    /**
+     * Close the handle for {@code path}, if open. Only while no round is being written.
+     */
+    private void release(Path path) {
+        OpenFile open = openFiles.remove(path);
+        if (open != null) {
+            closeQuietly(open);
+        }
+    }
+
+    private void run() {
+        List<Append> round = new ArrayList<>();
+        while (true) {
+            try {
+                round.add(queue.take());
+                beginRound();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            // Appends queued during a rewrite join this round
+            queue.drainTo(round);
+            long start = System.nanoTime();
+            try {
+                writeRound(round);
+                roundAppends.record(round.size());
+                roundMicros.recordSince(start);
+            } catch (RuntimeException e) {
+                log.severe("Pending items writer failed: " + e);
+                round.forEach(append -> fail(append, e));
+            } finally {
+                endRound();
+            }
+            round.clear();
+        }
+    }
+
+    /**
+     * Write one round: all appends for an event go out in one write and one force, then the
+     * event's sales summary is updated and the callers are released.
+     */
+    private void writeRound(List<Append> round) {
+        Map<String, List<Append>> byEvent = new LinkedHashMap<>();
+        List<Append> markers = new ArrayList<>();
+        for (Append append : round) {
+            if (append.isMarker()) {
+                markers.add(append);
+            } else {
+                byEvent.computeIfAbsent(append.eventId(), id -> new ArrayList<>()).add(append);
+            }
+        }
+        byEvent.forEach((eventId, appends) -> {
+            List<V1SoldItem> items = new ArrayList<>();
+            appends.forEach(append -> items.addAll(append.items()));
+            Path path = LocalEventPaths.getPendingItemsPath(eventId);
+            PendingItemsStore store = new PendingItemsStore(eventId);
+            PendingFileEvent event = new PendingFileEvent();
+            event.begin();
+            try {
+                EventSalesSummary before = store.currentSummary();
+                FileChannel channel = channelFor(path);
+                ByteBuffer bytes = encode(items);
+                int size = bytes.remaining();
+                writeFully(channel, bytes);
+                channel.force(false);
+                JsonlHelper.commit(event, PendingFileEvent.APPEND, path, items.size(), size);
+                store.summaryAfterAppend(before, items);
+            } catch (IOException e) {
+                log.warning("Failed to append " + items.size() + " items to " + path + ": " + e.getMessage());
+                release(path);
+                appends.forEach(append -> fail(append, e));
+                return;
+            }
+            appends.forEach(this::complete);
+        });
+        markers.forEach(this::complete);
+    }
+
+    private void complete(Append append) {
+        if (!append.done().isDone() && !append.isMarker()) {
+            unwritten.decrementAndGet();
+        }
+        append.done().complete(null);
+    }
+
+    private void fail(Append append, Throwable e) {
+        if (!append.done().isDone() && !append.isMarker()) {
+            unwritten.decrementAndGet();
+        }
+        append.done().completeExceptionally(e);
+    }
+
+    private FileChannel channelFor(Path path) throws IOException {
+        OpenFile open = openFiles.get(path);
+        if (open != null) {
+            if (open.channel().isOpen() && Objects.equals(open.fileKey(), currentFileKey(path))
+                    && (open.fileKey() != null || open.channel().size() == Files.size(path))) {
+                return open.channel();
+            }
+            release(path);
+        }
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        openFiles.put(path, new OpenFile(channel, currentFileKey(path)));
+        evictOldest();
+        return channel;
+    }
+
+    private void evictOldest() {
+        Iterator<OpenFile> it = openFiles.values().iterator();
+        while (openFiles.size() > MAX_OPEN_FILES && it.hasNext()) {
+            closeQuietly(it.next());
+            it.remove();
+        }
+    }
+
+    /**
+     * @return the file's identity (inode on Unix), null if the platform has none,
+     *         or a fresh object if the file is gone so it never matches
+     */
+    private static Object currentFileKey(Path path) throws IOException {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        } catch (NoSuchFileException e) {
+            return new Object();
+        }
+    }
+
+    private static ByteBuffer encode(List<V1SoldItem> items) {
+        StringBuilder lines = new StringBuilder(items.size() * 192);
+        for (V1SoldItem item : items) {
+            SoldItemJsonlCodec.appendJsonLine(lines, item);
+            lines.append(System.lineSeparator());
+        }
+        return StandardCharsets.UTF_8.encode(lines.toString());
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void closeQuietly(OpenFile open) {
+        try {
+            open.channel().close();
+        } catch (IOException e) {
+            log.fine("Failed to close pending file: " + e.getMessage());
+        }
+    }
+}
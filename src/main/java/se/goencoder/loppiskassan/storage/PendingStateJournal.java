@@ -0,0 +1,235 @@
+package se.goencoder.loppiskassan.storage;
+
+import org.json.JSONObject;
+import se.goencoder.loppiskassan.V1SoldItem;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Sidecar journal for state changes on items in {@code pending_items.jsonl}.
+ * <p>
+ * Sales are only ever appended to the pending file. Upload, rejection and payout
+ * changes are appended here instead ({@code pending_items.state.jsonl}) so that a
+ * sync cycle writes a few lines rather than rewriting the whole event. The journal
+ * is folded back onto the pending items on read and removed on compaction.
+ * </p>
+ * All operations are idempotent, so replaying a journal on an already compacted
+ * file (e.g. after a crash between compaction and journal removal) is harmless.
+ */
+public final class PendingStateJournal {
+    private static final Logger log = Logger.getLogger(PendingStateJournal.class.getName());
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+    public enum Op {
+        /** Item was accepted (or reported as duplicate) by the backend. */
+        UPLOADED,
+        /** Item was rejected by the backend and moved to the rejected file. */
+        REJECTED,
+        /** Item was paid out to the seller. */
+        PAID_OUT,
+        /** Item was inserted or replaced as a whole (e.g. edited rejected item). */
+        PUT
+    }
+
+    public record Entry(Op op, String itemId, LocalDateTime paidOutTime, V1SoldItem item) {
+        public static Entry uploaded(String itemId) {
+            return new Entry(Op.UPLOADED, itemId, null, null);
+        }
+
+        public static Entry rejected(String itemId) {
+            return new Entry(Op.REJECTED, itemId, null, null);
+        }
+
+        public static Entry paidOut(String itemId, LocalDateTime paidOutTime) {
+            return new Entry(Op.PAID_OUT, itemId, paidOutTime, null);
+        }
+
+        public static Entry put(V1SoldItem item) {
+            return new Entry(Op.PUT, item.getItemId(), null, item);
+        }
+    }
+
+    private final Path path;
+
+    public PendingStateJournal(Path path) {
+        this.path = path;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public boolean exists() {
+        return Files.exists(path);
+    }
+
+    /**
+     * @return journal size in bytes, or 0 if there is no journal
+     */
+    public long size() {
+        try {
+            return Files.exists(path) ? Files.size(path) : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    public void append(Collection<Entry> entries) throws IOException {
+        if (entries == null || entries.isEmpty()) {
+            return;
+        }
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(
+                path,
+                StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND)) {
+            for (Entry entry : entries) {
+                writer.write(toJsonLine(entry));
+                writer.newLine();
+            }
+        }
+    }
+
+    public List<Entry> readAll() throws IOException {
+        if (Files.notExists(path)) {
+            return List.of();
+        }
+        List<Entry> entries = new ArrayList<>();
+        try (Stream<String> lines = Files.lines(path, StandardCharsets.UTF_8)) {
+            lines.filter(line -> !line.isBlank()).forEach(line -> {
+                try {
+                    entries.add(fromJsonLine(line));
+                } catch (RuntimeException ex) {
+                    // A torn last line after a crash must not make the event unreadable
+                    log.warning("Skipping unreadable state journal entry: " + ex.getMessage());
+                }
+            });
+        }
+        return entries;
+    }
+
+    public void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Apply journal entries, in order, onto items read from the pending file.
+     * Item order is preserved; {@link Op#PUT} of an unknown item appends it.
+     */
+    public static List<V1SoldItem> fold(List<V1SoldItem> items, List<Entry> entries) {
+        if (entries == null || entries.isEmpty()) {
+            return items;
+        }
+        List<V1SoldItem> result = new ArrayList<>(items);
+        Map<String, Integer> indexById = new HashMap<>();
+        for (int i = 0; i < result.size(); i++) {
+            String itemId = result.get(i).getItemId();
+            if (itemId != null) {
+                indexById.put(itemId, i);
+            }
+        }
+
+        Set<Integer> removed = new HashSet<>();
+        for (Entry entry : entries) {
+            if (entry.itemId() == null) {
+                continue;
+            }
+            Integer index = indexById.get(entry.itemId());
+            switch (entry.op()) {
+                case UPLOADED -> {
+                    if (index != null && !removed.contains(index)) {
+                        result.get(index).setUploaded(true);
+                    }
+                }
+                case PAID_OUT -> {
+                    if (index != null && !removed.contains(index)) {
+                        result.get(index).setCollectedBySellerTime(entry.paidOutTime());
+                    }
+                }
+                case REJECTED -> {
+                    if (index != null) {
+                        removed.add(index);
+                    }
+                }
+                case PUT -> {
+                    if (index != null) {
+                        result.set(index, entry.item());
+                        removed.remove(index);
+                    } else {
+                        indexById.put(entry.itemId(), result.size());
+                        result.add(entry.item());
+                    }
+                }
+            }
+        }
+
+        if (removed.isEmpty()) {
+            return result;
+        }
+        List<V1SoldItem> kept = new ArrayList<>(result.size() - removed.size());
+        for (int i = 0; i < result.size(); i++) {
+            if (!removed.contains(i)) {
+                kept.add(result.get(i));
+            }
+        }
+        return kept;
+    }
+
+    static String toJsonLine(Entry entry) {
+        JSONObject json = new JSONObject();
+        json.put("op", entry.op().name());
+        json.put("itemId", entry.itemId());
+        if (entry.op() == Op.PAID_OUT && entry.paidOutTime() != null) {
+            json.put("paidOutTime", entry.paidOutTime().atOffset(ZoneOffset.UTC).format(DATE_FORMATTER));
+        }
+        if (entry.op() == Op.PUT) {
+            json.put("item", new JSONObject(JsonlHelper.toJsonLine(entry.item())));
+        }
+        return json.toString();
+    }
+
+    static Entry fromJsonLine(String line) {
+        JSONObject obj = new JSONObject(line);
+        Op op = Op.valueOf(obj.getString("op"));
+        String itemId = obj.optString("itemId", null);
+        return switch (op) {
+            case UPLOADED -> Entry.uploaded(itemId);
+            case REJECTED -> Entry.rejected(itemId);
+            case PAID_OUT -> Entry.paidOut(itemId, parseTime(obj.optString("paidOutTime", "")));
+            case PUT -> Entry.put(JsonlHelper.fromJsonLine(obj.getJSONObject("item").toString()));
+        };
+    }
+
+    private static LocalDateTime parseTime(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(value, DATE_FORMATTER).toLocalDateTime();
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+}
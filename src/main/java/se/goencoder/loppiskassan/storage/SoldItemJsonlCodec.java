@@ -0,0 +1,719 @@
+package se.goencoder.loppiskassan.storage;
+
+import org.json.JSONObject;
+import se.goencoder.loppiskassan.V1PaymentMethod;
+import se.goencoder.loppiskassan.V1SoldItem;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * Streaming JSONL codec for the fixed {@link V1SoldItem} schema.
+ * <p>
+ * Reads fields straight from a character buffer without building an
+ * {@code org.json} DOM per line, and writes lines byte-for-byte identical to
+ * what {@code JSONObject.toString()} produced (same key order, same escaping).
+ * Legacy key names ({@code purchase_id}, {@code item_id}, {@code sold_time},
+ * {@code collectedBySellerTime}) are still accepted with the same precedence as
+ * before. Lines the strict parser does not understand fall back to {@code org.json}.
+ * </p>
+ */
+public final class SoldItemJsonlCodec {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+    // Field slots, in the order JSONObject (HashMap) emitted them
+    private static final int F_SELLER = 0;
+    private static final int F_ITEM_ID = 1;
+    private static final int F_PRICE = 2;
+    private static final int F_PURCHASE_ID = 3;
+    private static final int F_UPLOADED = 4;
+    private static final int F_PAYMENT_METHOD = 5;
+    private static final int F_PAID_OUT_TIME = 6;
+    private static final int F_SOLD_TIME = 7;
+    // Legacy aliases
+    private static final int F_PURCHASE_ID_LEGACY = 8;
+    private static final int F_ITEM_ID_LEGACY = 9;
+    private static final int F_SOLD_TIME_LEGACY = 10;
+    private static final int F_COLLECTED_TIME_LEGACY = 11;
+    private static final int FIELD_COUNT = 12;
+
+    private static final String[] FIELD_NAMES = {
+            "seller", "itemId", "price", "purchaseId", "uploaded", "paymentMethod", "paidOutTime", "soldTime",
+            "purchase_id", "item_id", "sold_time", "collectedBySellerTime"
+    };
+
+    private SoldItemJsonlCodec() {}
+
+    // ---------------------------------------------------------------------
+    // Writing
+    // ---------------------------------------------------------------------
+
+    public static String toJsonLine(V1SoldItem item) {
+        StringBuilder out = new StringBuilder(192);
+        appendJsonLine(out, item);
+        return out.toString();
+    }
+
+    /**
+     * Append one item as a JSON object (without line terminator).
+     */
+    public static void appendJsonLine(StringBuilder out, V1SoldItem item) {
+        out.append('{');
+        out.append("\"seller\":").append(item.getSeller());
+        if (item.getItemId() != null) {
+            out.append(",\"itemId\":");
+            appendQuoted(out, item.getItemId());
+        }
+        out.append(",\"price\":").append(item.getPrice());
+        if (item.getPurchaseId() != null) {
+            out.append(",\"purchaseId\":");
+            appendQuoted(out, item.getPurchaseId());
+        }
+        out.append(",\"uploaded\":").append(item.isUploaded());
+        if (item.getPaymentMethod() != null) {
+            out.append(",\"paymentMethod\":");
+            appendQuoted(out, item.getPaymentMethod().name());
+        }
+        if (item.getCollectedBySellerTime() != null) {
+            out.append(",\"paidOutTime\":");
+            appendTime(out, item.getCollectedBySellerTime());
+        }
+        out.append(",\"soldTime\":");
+        appendTime(out, item.getSoldTime());
+        out.append('}');
+    }
+
+    /**
+     * Same escaping rules as {@code JSONObject.quote}.
+     */
+    private static void appendQuoted(StringBuilder out, String value) {
+        out.append('"');
+        char previous = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\', '"' -> out.append('\\').append(c);
+                case '/' -> {
+                    if (previous == '<') {
+                        out.append('\\');
+                    }
+                    out.append(c);
+                }
+                case '\b' -> out.append("\\b");
+                case '\t' -> out.append("\\t");
+                case '\n' -> out.append("\\n");
+                case '\f' -> out.append("\\f");
+                case '\r' -> out.append("\\r");
+                default -> {
+                    if (c < ' ' || (c >= 0x80 && c < 0xa0) || (c >= 0x2000 && c < 0x2100)) {
+                        String hex = Integer.toHexString(c);
+                        out.append("\\u");
+                        out.append("0000", 0, 4 - hex.length());
+                        out.append(hex);
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+            previous = c;
+        }
+        out.append('"');
+    }
+
+    /**
+     * Same output as {@code dateTime.atOffset(UTC).format(ISO_OFFSET_DATE_TIME)}.
+     */
+    private static void appendTime(StringBuilder out, LocalDateTime dateTime) {
+        if (dateTime == null) {
+            out.append("\"\"");
+            return;
+        }
+        int year = dateTime.getYear();
+        if (year < 0 || year > 9999) {
+            appendQuoted(out, dateTime.atOffset(ZoneOffset.UTC).format(DATE_FORMATTER));
+            return;
+        }
+        out.append('"');
+        appendDigits(out, year, 4);
+        out.append('-');
+        appendDigits(out, dateTime.getMonthValue(), 2);
+        out.append('-');
+        appendDigits(out, dateTime.getDayOfMonth(), 2);
+        out.append('T');
+        appendDigits(out, dateTime.getHour(), 2);
+        out.append(':');
+        appendDigits(out, dateTime.getMinute(), 2);
+        out.append(':');
+        appendDigits(out, dateTime.getSecond(), 2);
+        int nano = dateTime.getNano();
+        if (nano != 0) {
+            int digits = 9;
+            while (nano % 10 == 0) {
+                nano /= 10;
+                digits--;
+            }
+            out.append('.');
+            appendDigits(out, nano, digits);
+        }
+        out.append("Z\"");
+    }
+
+    private static void appendDigits(StringBuilder out, int value, int width) {
+        int divisor = 1;
+        for (int i = 1; i < width; i++) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            out.append((char) ('0' + (value / divisor) % 10));
+            divisor /= 10;
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Reading
+    // ---------------------------------------------------------------------
+
+    public static V1SoldItem fromJsonLine(String line) {
+        char[] chars = line.toCharArray();
+        return parseLine(chars, 0, chars.length, new LineState());
+    }
+
+    /**
+     * Pull-style reader that parses items directly from a {@link Reader}'s buffer.
+     * Blank lines are skipped.
+     */
+    public static final class ItemReader implements Closeable {
+        private final Reader in;
+        private final LineState state = new LineState();
+        private char[] buf = new char[16 * 1024];
+        private int pos;
+        private int limit;
+        private boolean eof;
+        private int lineNumber;
+
+        public ItemReader(Reader in) {
+            this.in = in;
+        }
+
+        /**
+         * @return the next item, or null at end of input
+         * @throws IllegalArgumentException if a line cannot be parsed
+         */
+        public V1SoldItem next() throws IOException {
+            while (true) {
+                int lineEnd = findLineEnd();
+                if (lineEnd < 0) {
+                    return null;
+                }
+                int start = pos;
+                pos = lineEnd < limit ? lineEnd + 1 : lineEnd;
+                lineNumber++;
+                if (isBlank(buf, start, lineEnd)) {
+                    continue;
+                }
+                try {
+                    return parseLine(buf, start, lineEnd, state);
+                } catch (RuntimeException ex) {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": " + ex.getMessage(), ex);
+                }
+            }
+        }
+
+        /**
+         * Locate the end of the current line, refilling the buffer as needed.
+         * @return index of the terminator (or of {@code limit} for a final unterminated line), -1 at EOF
+         */
+        private int findLineEnd() throws IOException {
+            int scan = pos;
+            while (true) {
+                for (; scan < limit; scan++) {
+                    char c = buf[scan];
+                    if (c == '\n' || c == '\r') {
+                        return scan;
+                    }
+                }
+                if (eof) {
+                    return pos < limit ? limit : -1;
+                }
+                int consumed = scan - pos;
+                fill();
+                scan = pos + consumed;
+            }
+        }
+
+        private void fill() throws IOException {
+            if (pos > 0) {
+                System.arraycopy(buf, pos, buf, 0, limit - pos);
+                limit -= pos;
+                pos = 0;
+            }
+            if (limit == buf.length) {
+                char[] grown = new char[buf.length * 2];
+                System.arraycopy(buf, 0, grown, 0, limit);
+                buf = grown;
+            }
+            int read = in.read(buf, limit, buf.length - limit);
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /** Per-reader scratch space so parsing one line allocates only the field values. */
+    private static final class LineState {
+        final String[] strings = new String[FIELD_COUNT];
+        final boolean[] present = new boolean[FIELD_COUNT];
+        final StringBuilder scratch = new StringBuilder(64);
+        char[] buf;
+        int pos;
+        int end;
+
+        void reset(char[] buf, int start, int end) {
+            this.buf = buf;
+            this.pos = start;
+            this.end = end;
+            Arrays.fill(strings, null);
+            Arrays.fill(present, false);
+        }
+    }
+
+    private static V1SoldItem parseLine(char[] buf, int start, int end, LineState s) {
+        s.reset(buf, start, end);
+        try {
+            parseObject(s);
+        } catch (MalformedLineException ex) {
+            // Anything outside the strict subset: let org.json decide, exactly as before
+            return fromJsonObject(new JSONObject(new String(buf, start, end - start)));
+        }
+
+        String purchaseId = pick(s, F_PURCHASE_ID, F_PURCHASE_ID_LEGACY);
+        String itemId = pick(s, F_ITEM_ID, F_ITEM_ID_LEGACY);
+        LocalDateTime soldTime = parseTime(pick(s, F_SOLD_TIME, F_SOLD_TIME_LEGACY));
+        int seller = toInt(s, F_SELLER);
+        int price = toInt(s, F_PRICE);
+        LocalDateTime collected = parseTime(pick(s, F_PAID_OUT_TIME, F_COLLECTED_TIME_LEGACY));
+        V1PaymentMethod paymentMethod = parsePaymentMethod(
+                s.present[F_PAYMENT_METHOD] ? s.strings[F_PAYMENT_METHOD] : "");
+        boolean uploaded = toBoolean(s, F_UPLOADED);
+        if (soldTime == null) {
+            soldTime = LocalDateTime.now();
+        }
+        return new V1SoldItem(purchaseId, itemId, soldTime, seller, price, collected, paymentMethod, uploaded);
+    }
+
+    /**
+     * Legacy-compatible lookup: the primary key wins whenever present, even if empty.
+     */
+    private static String pick(LineState s, int primary, int legacy) {
+        if (s.present[primary]) {
+            return s.strings[primary];
+        }
+        if (s.present[legacy]) {
+            return s.strings[legacy];
+        }
+        return "";
+    }
+
+    private static int toInt(LineState s, int field) {
+        if (!s.present[field]) {
+            return 0;
+        }
+        String raw = s.strings[field];
+        try {
+            if (raw.indexOf('.') < 0 && raw.indexOf('e') < 0 && raw.indexOf('E') < 0) {
+                return (int) Long.parseLong(raw);
+            }
+            return (int) Double.parseDouble(raw);
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    private static boolean toBoolean(LineState s, int field) {
+        return s.present[field] && "true".equalsIgnoreCase(s.strings[field]);
+    }
+
+    /** Signals input outside the strict JSON subset handled by the fast path. */
+    private static final class MalformedLineException extends Exception {
+        MalformedLineException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final MalformedLineException MALFORMED = new MalformedLineException();
+
+    private static void parseObject(LineState s) throws MalformedLineException {
+        skipWhitespace(s);
+        expect(s, '{');
+        skipWhitespace(s);
+        if (peek(s) == '}') {
+            s.pos++;
+            return;
+        }
+        while (true) {
+            skipWhitespace(s);
+            int field = parseKey(s);
+            skipWhitespace(s);
+            expect(s, ':');
+            skipWhitespace(s);
+            if (field < 0) {
+                skipValue(s, 0);
+            } else {
+                parseScalar(s, field);
+            }
+            skipWhitespace(s);
+            char c = next(s);
+            if (c == '}') {
+                return;
+            }
+            if (c != ',') {
+                throw MALFORMED;
+            }
+        }
+    }
+
+    private static int parseKey(LineState s) throws MalformedLineException {
+        expect(s, '"');
+        int start = s.pos;
+        while (s.pos < s.end) {
+            char c = s.buf[s.pos];
+            if (c == '\\') {
+                s.pos = start - 1;
+                return fieldIndex(parseString(s));
+            }
+            if (c == '"') {
+                int field = fieldIndex(s.buf, start, s.pos - start);
+                s.pos++;
+                return field;
+            }
+            s.pos++;
+        }
+        throw MALFORMED;
+    }
+
+    private static int fieldIndex(char[] buf, int start, int length) {
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            String name = FIELD_NAMES[i];
+            if (name.length() != length) {
+                continue;
+            }
+            int j = 0;
+            while (j < length && name.charAt(j) == buf[start + j]) {
+                j++;
+            }
+            if (j == length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int fieldIndex(String key) {
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            if (FIELD_NAMES[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Read a scalar into its slot using {@code optString} semantics: strings as-is,
+     * numbers and booleans as their literal text, {@code null} as absent.
+     */
+    private static void parseScalar(LineState s, int field) throws MalformedLineException {
+        char c = peek(s);
+        if (c == '"') {
+            s.strings[field] = parseString(s);
+            s.present[field] = true;
+        } else if (c == 'n') {
+            expectLiteral(s, "null");
+            s.strings[field] = null;
+            s.present[field] = false;
+        } else if (c == 't' || c == 'f' || c == '-' || (c >= '0' && c <= '9')) {
+            int start = s.pos;
+            while (s.pos < s.end) {
+                char d = s.buf[s.pos];
+                if (d == ',' || d == '}' || d == ' ' || d == '\t') {
+                    break;
+                }
+                s.pos++;
+            }
+            String literal = new String(s.buf, start, s.pos - start);
+            if (c == 't' && !literal.equals("true") || c == 'f' && !literal.equals("false")) {
+                throw MALFORMED;
+            }
+            s.strings[field] = literal;
+            s.present[field] = true;
+        } else {
+            // Nested structures on known keys are not part of the schema
+            throw MALFORMED;
+        }
+    }
+
+    private static String parseString(LineState s) throws MalformedLineException {
+        expect(s, '"');
+        int start = s.pos;
+        // Fast path: no escapes
+        while (s.pos < s.end) {
+            char c = s.buf[s.pos];
+            if (c == '"') {
+                String value = new String(s.buf, start, s.pos - start);
+                s.pos++;
+                return value;
+            }
+            if (c == '\\') {
+                break;
+            }
+            s.pos++;
+        }
+        StringBuilder sb = s.scratch;
+        sb.setLength(0);
+        sb.append(s.buf, start, s.pos - start);
+        while (s.pos < s.end) {
+            char c = s.buf[s.pos++];
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (s.pos >= s.end) {
+                throw MALFORMED;
+            }
+            char e = s.buf[s.pos++];
+            switch (e) {
+                case '"', '\\', '/' -> sb.append(e);
+                case 'b' -> sb.append('\b');
+                case 't' -> sb.append('\t');
+                case 'n' -> sb.append('\n');
+                case 'f' -> sb.append('\f');
+                case 'r' -> sb.append('\r');
+                case 'u' -> {
+                    if (s.pos + 4 > s.end) {
+                        throw MALFORMED;
+                    }
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(s.buf[s.pos++], 16);
+                        if (digit < 0) {
+                            throw MALFORMED;
+                        }
+                        code = (code << 4) | digit;
+                    }
+                    sb.append((char) code);
+                }
+                default -> throw MALFORMED;
+            }
+        }
+        throw MALFORMED;
+    }
+
+    private static void skipValue(LineState s, int depth) throws MalformedLineException {
+        if (depth > 32) {
+            throw MALFORMED;
+        }
+        char c = peek(s);
+        if (c == '"') {
+            parseString(s);
+        } else if (c == '{' || c == '[') {
+            char close = c == '{' ? '}' : ']';
+            s.pos++;
+            skipWhitespace(s);
+            if (peek(s) == close) {
+                s.pos++;
+                return;
+            }
+            while (true) {
+                skipWhitespace(s);
+                if (c == '{') {
+                    parseString(s);
+                    skipWhitespace(s);
+                    expect(s, ':');
+                    skipWhitespace(s);
+                }
+                skipValue(s, depth + 1);
+                skipWhitespace(s);
+                char n = next(s);
+                if (n == close) {
+                    return;
+                }
+                if (n != ',') {
+                    throw MALFORMED;
+                }
+            }
+        } else {
+            int start = s.pos;
+            while (s.pos < s.end) {
+                char d = s.buf[s.pos];
+                if (d == ',' || d == '}' || d == ']' || d == ' ' || d == '\t') {
+                    break;
+                }
+                s.pos++;
+            }
+            if (s.pos == start) {
+                throw MALFORMED;
+            }
+        }
+    }
+
+    private static void skipWhitespace(LineState s) {
+        while (s.pos < s.end) {
+            char c = s.buf[s.pos];
+            if (c != ' ' && c != '\t') {
+                return;
+            }
+            s.pos++;
+        }
+    }
+
+    private static char peek(LineState s) throws MalformedLineException {
+        if (s.pos >= s.end) {
+            throw MALFORMED;
+        }
+        return s.buf[s.pos];
+    }
+
+    private static char next(LineState s) throws MalformedLineException {
+        if (s.pos >= s.end) {
+            throw MALFORMED;
+        }
+        return s.buf[s.pos++];
+    }
+
+    private static void expect(LineState s, char expected) throws MalformedLineException {
+        if (next(s) != expected) {
+            throw MALFORMED;
+        }
+    }
+
+    private static void expectLiteral(LineState s, String literal) throws MalformedLineException {
+        for (int i = 0; i < literal.length(); i++) {
+            expect(s, literal.charAt(i));
+        }
+    }
+
+    private static boolean isBlank(char[] buf, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(buf[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The previous DOM-based mapping, kept for lines outside the strict subset.
+     */
+    private static V1SoldItem fromJsonObject(JSONObject obj) {
+        String purchaseId = obj.optString("purchaseId", obj.optString("purchase_id", ""));
+        String itemId = obj.optString("itemId", obj.optString("item_id", ""));
+        LocalDateTime soldTime = parseTime(obj.optString("soldTime", obj.optString("sold_time", "")));
+        int seller = obj.optInt("seller", 0);
+        int price = obj.optInt("price", 0);
+        String paidOutTime = obj.optString("paidOutTime", obj.optString("collectedBySellerTime", ""));
+        LocalDateTime collected = parseTime(paidOutTime);
+        V1PaymentMethod paymentMethod = parsePaymentMethod(obj.optString("paymentMethod", ""));
+        boolean uploaded = obj.optBoolean("uploaded", false);
+        if (soldTime == null) {
+            soldTime = LocalDateTime.now();
+        }
+        return new V1SoldItem(purchaseId, itemId, soldTime, seller, price, collected, paymentMethod, uploaded);
+    }
+
+    /**
+     * Parse an ISO offset date-time into its local fields. The common
+     * {@code yyyy-MM-ddTHH:mm:ss[.fffffffff]Z} shape is decoded by hand;
+     * everything else goes through {@link OffsetDateTime#parse}.
+     */
+    static LocalDateTime parseTime(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        LocalDateTime fast = parseTimeFast(value);
+        if (fast != null) {
+            return fast;
+        }
+        try {
+            return OffsetDateTime.parse(value, DATE_FORMATTER).toLocalDateTime();
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    private static LocalDateTime parseTimeFast(String v) {
+        int len = v.length();
+        if (len < 20 || v.charAt(4) != '-' || v.charAt(7) != '-' || v.charAt(10) != 'T'
+                || v.charAt(13) != ':' || v.charAt(16) != ':' || v.charAt(len - 1) != 'Z') {
+            return null;
+        }
+        int year = digits(v, 0, 4);
+        int month = digits(v, 5, 2);
+        int day = digits(v, 8, 2);
+        int hour = digits(v, 11, 2);
+        int minute = digits(v, 14, 2);
+        int second = digits(v, 17, 2);
+        if ((year | month | day | hour | minute | second) < 0) {
+            return null;
+        }
+        int nano = 0;
+        int fractionEnd = len - 1;
+        if (fractionEnd > 19) {
+            int fractionDigits = fractionEnd - 20;
+            if (v.charAt(19) != '.' || fractionDigits < 1 || fractionDigits > 9) {
+                return null;
+            }
+            nano = digits(v, 20, fractionDigits);
+            if (nano < 0) {
+                return null;
+            }
+            for (int i = fractionDigits; i < 9; i++) {
+                nano *= 10;
+            }
+        }
+        try {
+            return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+        } catch (DateTimeException ex) {
+            return null;
+        }
+    }
+
+    private static int digits(String v, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = v.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static V1PaymentMethod parsePaymentMethod(String value) {
+        if (value == null || value.isBlank()) {
+            return V1PaymentMethod.Kontant;
+        }
+        try {
+            return V1PaymentMethod.valueOf(value);
+        } catch (IllegalArgumentException ex) {
+            return V1PaymentMethod.Kontant;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import se.goencoder.loppiskassan.config.AppModeManager;
 import se.goencoder.loppiskassan.controller.CashierTabController;
 import se.goencoder.loppiskassan.localization.LocalizationAware;
 import se.goencoder.loppiskassan.localization.LocalizationManager;
+import se.goencoder.loppiskassan.rest.ConnectivityMonitor;
 import se.goencoder.loppiskassan.service.BackgroundSyncManager;
 import se.goencoder.loppiskassan.service.RejectedItemsManager;
 import se.goencoder.loppiskassan.storage.PendingItemsStore;
@@ -56,7 +57,10 @@ public class AppShellFrame extends JFrame implements LocalizationAware {
             BackgroundSyncManager.getInstance().setPendingCountListener(count -> {
                 statusbar.setPendingStatus(count);
             });
+            BackgroundSyncManager.getInstance().setSyncStatusListener(statusbar::setSyncStatus);
             RejectedItemsManager.getInstance().setRejectedCountListener(statusbar::setRejectedStatus);
+            ConnectivityMonitor.getInstance().addListener(online ->
+                    SwingUtilities.invokeLater(() -> statusbar.setConnectivity(online)));
 
             statusbar.setPendingClickListener(() ->
                     PendingItemsDialog.show(this, AppModeManager.getEventId()));
@@ -101,10 +105,15 @@ public class AppShellFrame extends JFrame implements LocalizationAware {
         }
 
         int pendingCount = 0;
-        try {
-            pendingCount = new PendingItemsStore(eventId).readPending().size();
-        } catch (Exception ignored) {
-            pendingCount = 0;
+        BackgroundSyncManager syncManager = BackgroundSyncManager.getInstance();
+        if (syncManager.isRunningFor(eventId)) {
+            pendingCount = syncManager.getPendingCount();
+        } else {
+            try {
+                pendingCount = new PendingItemsStore(eventId).readPending().size();
+            } catch (Exception ignored) {
+                pendingCount = 0;
+            }
         }
         statusbar.setPendingStatus(pendingCount);
         statusbar.setRejectedStatus(RejectedItemsManager.getInstance().getRejectedCount(eventId));
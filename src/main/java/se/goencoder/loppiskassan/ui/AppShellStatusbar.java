@@ -3,13 +3,16 @@ package se.goencoder.loppiskassan.ui;
 import se.goencoder.loppiskassan.config.AppModeManager;
 import se.goencoder.loppiskassan.localization.LocalizationAware;
 import se.goencoder.loppiskassan.localization.LocalizationManager;
+import se.goencoder.loppiskassan.service.SyncScheduler;
 import se.goencoder.loppiskassan.util.SwedishDateFormatter;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 /**
  * Statusrad för App Shell.
@@ -22,6 +25,8 @@ public class AppShellStatusbar extends JPanel implements LocalizationAware {
     private final JLabel timestampLabel;
     private int pendingCount;
     private int rejectedCount;
+    private boolean backendReachable = true;
+    private SyncScheduler.Status syncStatus = SyncScheduler.Status.STOPPED;
     private Runnable pendingClickListener;
     private Runnable rejectedClickListener;
     
@@ -77,9 +82,11 @@ public class AppShellStatusbar extends JPanel implements LocalizationAware {
             statusLabel.setCursor(Cursor.getDefaultCursor());
         } else {
             if (pendingCount > 0) {
-                setStatusChip(statusLabel, AppColors.WARNING,
-                        LocalizationManager.tr("status.offline_pending", pendingCount));
+                setStatusChip(statusLabel, AppColors.WARNING, pendingText());
                 statusLabel.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+            } else if (!backendReachable) {
+                setStatusChip(statusLabel, AppColors.WARNING, LocalizationManager.tr("status.offline_mode"));
+                statusLabel.setCursor(Cursor.getDefaultCursor());
             } else {
                 setStatusChip(statusLabel, AppColors.SUCCESS, LocalizationManager.tr("status.online_mode"));
                 statusLabel.setCursor(Cursor.getDefaultCursor());
@@ -87,6 +94,16 @@ public class AppShellStatusbar extends JPanel implements LocalizationAware {
         }
     }
     
+    private String pendingText() {
+        return switch (syncStatus.phase()) {
+            case SYNCING -> LocalizationManager.tr("status.syncing_pending", pendingCount);
+            case BACKOFF -> LocalizationManager.tr("status.offline_retry", pendingCount,
+                    SwedishDateFormatter.formatTime(LocalDateTime.ofInstant(
+                            Instant.ofEpochMilli(syncStatus.nextRunAtMillis()), ZoneId.systemDefault())));
+            default -> LocalizationManager.tr("status.offline_pending", pendingCount);
+        };
+    }
+
     /**
      * Uppdaterar tidstämpeln för senaste åtgärd.
      */
@@ -107,6 +124,22 @@ public class AppShellStatusbar extends JPanel implements LocalizationAware {
         updateStatus();
     }
 
+    /**
+     * Visar synkschemaläggarens läge (synkar, väntar efter nätverksfel) i iLoppis-läge.
+     */
+    public void setSyncStatus(SyncScheduler.Status syncStatus) {
+        this.syncStatus = syncStatus == null ? SyncScheduler.Status.STOPPED : syncStatus;
+        updateStatus();
+    }
+
+    /**
+     * Visar om iLoppis går att nå när inga poster väntar (iLoppis-läge).
+     */
+    public void setConnectivity(boolean backendReachable) {
+        this.backendReachable = backendReachable;
+        updateStatus();
+    }
+
     public void setRejectedStatus(int rejectedCount) {
         this.rejectedCount = rejectedCount;
         if (rejectedCount > 0 && !AppModeManager.isLocalMode()) {
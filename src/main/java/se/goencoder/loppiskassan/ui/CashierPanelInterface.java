@@ -38,6 +38,14 @@ public interface CashierPanelInterface extends SelectabableTab, UiComponent {
      */
     void addSoldItem(V1SoldItem item);
 
+    /**
+     * Remove one sold item from the running list in the UI.
+     * Implementations should update totals and relevant counters.
+     *
+     * @param itemId id of the item to remove
+     */
+    void removeSoldItem(String itemId);
+
     /**
      * Update the entered cash amount used for change calculation.
      *
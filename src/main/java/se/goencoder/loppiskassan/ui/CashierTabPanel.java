@@ -495,11 +495,7 @@ public class CashierTabPanel extends JPanel implements CashierPanelInterface, Lo
     private void updateSummary() {
         SoldItemsTableModel model = getTableModel();
         itemsCount = model.getRowCount();
-        int total = 0;
-        for (V1SoldItem item : model.getItems()) {
-            total += item.getPrice();
-        }
-        sumValue = total;
+        sumValue = model.getTotal();
         Locale locale = new Locale(LocalizationManager.getLanguage());
         
         // Update item count label
@@ -531,6 +527,11 @@ public class CashierTabPanel extends JPanel implements CashierPanelInterface, Lo
         getTableModel().addItem(item);
     }
 
+    @Override
+    public void removeSoldItem(String itemId) {
+        getTableModel().removeItem(itemId);
+    }
+
     @Override
     public void setPaidAmount(int amount) {
         payedCashField.setText(String.valueOf(amount));
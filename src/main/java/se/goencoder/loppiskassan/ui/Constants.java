@@ -11,6 +11,7 @@ public class Constants {
      */
     public static final String BUTTON_ERASE = "button.erase";
     public static final String BUTTON_IMPORT = "button.import";
+    public static final String BUTTON_FULL_RESYNC = "button.full_resync";
     public static final String BUTTON_PAY_OUT = "button.pay_out";
     public static final String BUTTON_COPY_TO_CLIPBOARD = "button.copy_to_clipboard";
     public static final String BUTTON_ARCHIVE = "button.archive";
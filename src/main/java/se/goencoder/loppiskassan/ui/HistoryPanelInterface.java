@@ -25,6 +25,21 @@ public interface HistoryPanelInterface extends SelectabableTab, UiComponent {
      */
     void updateHistoryTable(List<V1SoldItem> items);
 
+    /**
+     * Use {@code index} for the free-text search. Called when the history list is loaded or
+     * items were removed from it; the index covers the whole list, not only the shown rows.
+     *
+     * @param index search index built over the history list
+     */
+    void setSearchIndex(HistorySearchIndex index);
+
+    /**
+     * Add items that were appended to the history list (import, web merge) to the search index.
+     *
+     * @param items the appended items
+     */
+    void addToSearchIndex(List<V1SoldItem> items);
+
     /**
      * Update the formatted sum display shown in the history view.
      *
@@ -0,0 +1,228 @@
+package se.goencoder.loppiskassan.ui;
+
+import se.goencoder.loppiskassan.V1PaymentMethod;
+import se.goencoder.loppiskassan.V1SoldItem;
+import se.goencoder.loppiskassan.localization.LocalizationManager;
+import se.goencoder.loppiskassan.util.SwedishDateFormatter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Free-text search over the history table, answered from a token index instead of
+ * lower-casing every cell of every row on each keystroke.
+ * <p>
+ * The index covers the whole history list: it is built once per load ({@link #of}), grows
+ * with imported or merged items ({@link #addAll}) and is replaced when items are removed
+ * (clear, archive) or another event is loaded. Filter changes only change which ordinals
+ * {@link #search} may return. Each item gets an ordinal, and the lower-case tokens of its
+ * fixed cells (seller, price, sold time) point to it. The sold time is tokenized from its
+ * fields as the table shows it ("8 feb 10:12"), with the hour and minute as tokens of their
+ * own, so nothing is formatted per item. Items are told apart by identity, so items without
+ * an itemId or with a repeated one are all kept.
+ * </p>
+ * <p>
+ * A query is split into words. Like the plain cell filter it replaces, every word matches
+ * anywhere inside one of the row's tokens ("23" finds seller 123, "4:0" finds 14:05), or
+ * inside a label the row shows (paid out yes/no, payment method, currency). Words are
+ * looked up among the distinct tokens, a few thousand at most, not among the rows. Labels
+ * are checked against the item's current state, so payouts and language changes need no
+ * re-indexing.
+ * </p>
+ */
+public final class HistorySearchIndex {
+
+    private final Map<V1SoldItem, Integer> ordinalByItem = new IdentityHashMap<>();
+    private final List<V1SoldItem> items = new ArrayList<>();
+    private final Map<String, Postings> tokens = new HashMap<>();
+
+    /** Month names as the sold-time column shows them, e.g. "feb". */
+    private static final String[] MONTHS = new String[12];
+
+    static {
+        for (int month = 1; month <= 12; month++) {
+            String[] shortDate = words(SwedishDateFormatter.formatShortDate(LocalDateTime.of(2000, month, 1, 0, 0)));
+            MONTHS[month - 1] = shortDate[shortDate.length - 1];
+        }
+    }
+
+    /** A match set for one query. */
+    public final class Matches {
+        private final BitSet ordinals;
+
+        private Matches(BitSet ordinals) {
+            this.ordinals = ordinals;
+        }
+
+        public boolean contains(V1SoldItem item) {
+            Integer ordinal = ordinalByItem.get(item);
+            return ordinal != null && ordinals.get(ordinal);
+        }
+
+        public int size() {
+            return ordinals.cardinality();
+        }
+    }
+
+    private static final class Postings {
+        int[] ordinals = new int[2];
+        int size;
+
+        void add(int ordinal) {
+            if (size > 0 && ordinals[size - 1] == ordinal) {
+                return;
+            }
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+    }
+
+    public static HistorySearchIndex of(Collection<V1SoldItem> items) {
+        HistorySearchIndex index = new HistorySearchIndex();
+        index.addAll(items);
+        return index;
+    }
+
+    /**
+     * Index the items not indexed yet; cheap for items already indexed.
+     */
+    public void addAll(Collection<V1SoldItem> added) {
+        for (V1SoldItem item : added) {
+            if (ordinalByItem.containsKey(item)) {
+                continue;
+            }
+            int ordinal = items.size();
+            items.add(item);
+            ordinalByItem.put(item, ordinal);
+            addToken(String.valueOf(item.getSeller()), ordinal);
+            addToken(String.valueOf(item.getPrice()), ordinal);
+            LocalDateTime soldTime = item.getSoldTime();
+            if (soldTime != null) {
+                String hour = twoDigits(soldTime.getHour());
+                String minute = twoDigits(soldTime.getMinute());
+                addToken(String.valueOf(soldTime.getDayOfMonth()), ordinal);
+                addToken(MONTHS[soldTime.getMonthValue() - 1], ordinal);
+                addToken(hour + ":" + minute, ordinal);
+                addToken(hour, ordinal);
+                addToken(minute, ordinal);
+            }
+        }
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * Map table rows to ordinals, indexing rows not seen yet, for {@link #search}.
+     */
+    public BitSet ordinals(Collection<V1SoldItem> rows) {
+        addAll(rows);
+        BitSet ordinals = new BitSet(items.size());
+        for (V1SoldItem row : rows) {
+            ordinals.set(ordinalByItem.get(row));
+        }
+        return ordinals;
+    }
+
+    /**
+     * @param rows ordinals of the rows shown (see {@link #ordinals}); only these can match
+     * @return the shown items matching every word of {@code query}, or null for a blank query
+     */
+    public Matches search(String query, BitSet rows) {
+        if (query == null || query.isBlank()) {
+            return null;
+        }
+        BitSet result = null;
+        for (String word : words(query)) {
+            BitSet wordMatches = matchWord(word, rows);
+            if (result == null) {
+                result = wordMatches;
+            } else {
+                result.and(wordMatches);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return new Matches(result == null ? new BitSet() : result);
+    }
+
+    private BitSet matchWord(String word, BitSet rows) {
+        BitSet matches = new BitSet(items.size());
+        for (Map.Entry<String, Postings> token : tokens.entrySet()) {
+            if (token.getKey().contains(word)) {
+                Postings postings = token.getValue();
+                for (int i = 0; i < postings.size; i++) {
+                    matches.set(postings.ordinals[i]);
+                }
+            }
+        }
+        matches.and(rows);
+        Predicate<V1SoldItem> labelMatch = labelMatch(word);
+        if (labelMatch != null) {
+            for (int ordinal = rows.nextSetBit(0); ordinal >= 0; ordinal = rows.nextSetBit(ordinal + 1)) {
+                if (labelMatch.test(items.get(ordinal))) {
+                    matches.set(ordinal);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @return a test for rows whose label cells contain {@code word}, or null if no label does
+     */
+    private static Predicate<V1SoldItem> labelMatch(String word) {
+        Predicate<V1SoldItem> match = null;
+        if (containsWord(LocalizationManager.tr("currency.sek"), word)) {
+            return item -> true;
+        }
+        if (containsWord(LocalizationManager.tr("common.yes"), word)) {
+            match = V1SoldItem::isCollectedBySeller;
+        }
+        if (containsWord(LocalizationManager.tr("common.no"), word)) {
+            match = or(match, item -> !item.isCollectedBySeller());
+        }
+        if (containsWord(LocalizationManager.tr("payment.cash"), word)) {
+            match = or(match, item -> item.getPaymentMethod() == V1PaymentMethod.Kontant);
+        }
+        if (containsWord(LocalizationManager.tr("payment.swish"), word)) {
+            // The table shows every non-cash item as Swish
+            match = or(match, item -> item.getPaymentMethod() != V1PaymentMethod.Kontant);
+        }
+        return match;
+    }
+
+    private static Predicate<V1SoldItem> or(Predicate<V1SoldItem> first, Predicate<V1SoldItem> second) {
+        return first == null ? second : first.or(second);
+    }
+
+    private static boolean containsWord(String label, String word) {
+        return label.toLowerCase(Locale.ROOT).contains(word);
+    }
+
+    private void addToken(String token, int ordinal) {
+        tokens.computeIfAbsent(token, t -> new Postings()).add(ordinal);
+    }
+
+    private static String twoDigits(int value) {
+        return value < 10 ? "0" + value : String.valueOf(value);
+    }
+
+    private static String[] words(String text) {
+        String trimmed = text.trim().toLowerCase(Locale.ROOT);
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("\\s+");
+    }
+}
@@ -7,18 +7,16 @@ import se.goencoder.loppiskassan.controller.HistoryTabController;
 import se.goencoder.loppiskassan.localization.LocalizationManager;
 import se.goencoder.loppiskassan.localization.LocalizationAware;
 import se.goencoder.loppiskassan.config.AppModeManager;
-import se.goencoder.loppiskassan.util.SwedishDateFormatter;
 
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.Dimension;
 import java.awt.Insets;
-import java.time.LocalDateTime;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Set;
 
@@ -35,6 +33,7 @@ public class HistoryTabPanel extends JPanel implements HistoryPanelInterface, Lo
     private JButton eraseAllDataButton;
     private JButton archiveFilteredButton;
     private JButton importDataButton;
+    private JButton fullResyncButton;
     private JButton payoutButton;
     private JButton toClipboardButton;
 
@@ -60,7 +59,23 @@ public class HistoryTabPanel extends JPanel implements HistoryPanelInterface, Lo
     private Integer filteredSeller = null;
 
     // Table filtering/sorting
-    private TableRowSorter<DefaultTableModel> sorter;
+    private HistoryTableModel tableModel;
+    /** Search index over the whole history list, handed over by the controller; EDT only. */
+    private HistorySearchIndex searchIndex = new HistorySearchIndex();
+    /** Rows in the table; {@link #shownRows} are their search ordinals, mapped on demand. */
+    private List<V1SoldItem> shownItems = List.of();
+    private BitSet shownRows;
+    /** Current search result; null when the search field is empty. */
+    private HistorySearchIndex.Matches searchMatches;
+    private Timer searchDebounce;
+    private static final int SEARCH_DEBOUNCE_MS = 150;
+    private final RowFilter<HistoryTableModel, Integer> searchFilter = new RowFilter<>() {
+        @Override public boolean include(Entry<? extends HistoryTableModel, ? extends Integer> entry) {
+            HistorySearchIndex.Matches matches = searchMatches;
+            return matches == null || matches.contains(entry.getModel().getItem(entry.getIdentifier()));
+        }
+    };
+    private TableRowSorter<HistoryTableModel> sorter;
 
     // Controller to manage business logic for this panel
     private final HistoryControllerInterface controller = HistoryTabController.getInstance();
@@ -109,20 +124,9 @@ public class HistoryTabPanel extends JPanel implements HistoryPanelInterface, Lo
      * @return The initialized JTable.
      */
     private JTable initializeTable() {
-        // Define column names for the table
-        String[] columnNames = {
-                LocalizationManager.tr("history.table.seller"),
-                LocalizationManager.tr("history.table.price"),
-                LocalizationManager.tr("history.table.sold"),
-                LocalizationManager.tr("history.table.paid_out"),
-                LocalizationManager.tr("history.table.payment_method")
-        };
-        DefaultTableModel model = new DefaultTableModel(null, columnNames);
-
-        // Create the table with a non-editable model
-        historyTable = new JTable(model) {
-            @Override public boolean isCellEditable(int r, int c) { return false; }
-        };
+        // Model wraps the filtered list; cells are formatted on demand
+        tableModel = new HistoryTableModel();
+        historyTable = new JTable(tableModel);
         historyTable.setAutoResizeMode(JTable.AUTO_RESIZE_SUBSEQUENT_COLUMNS);
         historyTable.setRowHeight(26);
         historyTable.putClientProperty("Table.alternateRowColor", Boolean.TRUE);
@@ -130,10 +134,10 @@ public class HistoryTabPanel extends JPanel implements HistoryPanelInterface, Lo
         // Right-align price column; center the date-time column for readability
         DefaultTableCellRenderer right = new DefaultTableCellRenderer();
         right.setHorizontalAlignment(SwingConstants.RIGHT);
-        historyTable.getColumnModel().getColumn(1).setCellRenderer(right);
+        historyTable.getColumnModel().getColumn(HistoryTableModel.COLUMN_PRICE).setCellRenderer(right);
         DefaultTableCellRenderer center = new DefaultTableCellRenderer();
         center.setHorizontalAlignment(SwingConstants.CENTER);
-        historyTable.getColumnModel().getColumn(2).setCellRenderer(center);
+        historyTable.getColumnModel().getColumn(HistoryTableModel.COLUMN_SOLD).setCellRenderer(center);
 
         // Set sensible column widths to reduce crowding and let the table fill the viewport
         int[] widths = {70, 90, 200, 80, 120};
@@ -142,7 +146,7 @@ public class HistoryTabPanel extends JPanel implements HistoryPanelInterface, Lo
         }
 
         // Sorter (also used for the Search filter)
-        sorter = new TableRowSorter<>(model);
+        sorter = new TableRowSorter<>(tableModel);
         historyTable.setRowSorter(sorter);
 
         return historyTable;
@@ -211,26 +215,19 @@ public class HistoryTabPanel extends JPanel implements HistoryPanelInterface, Lo
         // Synchronize a common width for all filter fields (combos + search)
         syncFilterFieldWidths();
 
-        // Live RowFilter over current table contents (non-destructive; complements controller filtering)
+        // Live RowFilter over current table contents (non-destructive; complements controller filtering).
+        // Keystrokes are debounced; the filter itself is a lookup in the search index's match set.
+        searchDebounce = new Timer(SEARCH_DEBOUNCE_MS, e -> applySearch());
+        searchDebounce.setRepeats(false);
         searchField.getDocument().addDocumentListener(new DocumentListener() {
             private void update() {
-                if (sorter == null) return;
                 String q = searchField.getText();
                 if (q == null || q.isBlank()) {
-                    sorter.setRowFilter(null);
+                    // Clearing the search should be immediate
+                    searchDebounce.stop();
+                    applySearch();
                 } else {
-                    final String needle = q.trim().toLowerCase(java.util.Locale.ROOT);
-                    sorter.setRowFilter(new RowFilter<DefaultTableModel, Integer>() {
-                        @Override public boolean include(Entry<? extends DefaultTableModel, ? extends Integer> entry) {
-                            for (int i = 0; i < entry.getValueCount(); i++) {
-                                Object v = entry.getValue(i);
-                                if (v != null && v.toString().toLowerCase(java.util.Locale.ROOT).contains(needle)) {
-                                    return true;
-                                }
-                            }
-                            return false;
-                        }
-                    });
+                    searchDebounce.restart();
                 }
             }
             @Override public void insertUpdate(DocumentEvent e) { update(); }
@@ -321,20 +318,24 @@ public class HistoryTabPanel extends JPanel implements HistoryPanelInterface, Lo
         eraseAllDataButton = createButton("", buttonSize.width, buttonSize.height);
         archiveFilteredButton = createButton("", buttonSize.width, buttonSize.height);
         importDataButton = createButton("", buttonSize.width, buttonSize.height);
+        fullResyncButton = createButton("", buttonSize.width, buttonSize.height);
 
         // Add buttons to the panel
         managementButtonsPanel.add(createFlowRightPanel(eraseAllDataButton));
         managementButtonsPanel.add(createFlowRightPanel(archiveFilteredButton));
         managementButtonsPanel.add(createFlowRightPanel(importDataButton));
+        managementButtonsPanel.add(createFlowRightPanel(fullResyncButton));
 
         // Add action listeners for buttons
         eraseAllDataButton.addActionListener(e -> controller.buttonAction(BUTTON_ERASE));
         archiveFilteredButton.addActionListener(e -> controller.buttonAction(BUTTON_ARCHIVE));
         importDataButton.addActionListener(e -> controller.buttonAction(BUTTON_IMPORT));
+        fullResyncButton.addActionListener(e -> controller.buttonAction(BUTTON_FULL_RESYNC));
 
             // Initial visibility: mode-aware controls
             boolean isLocal = AppModeManager.isLocalMode();
             importDataButton.setVisible(!isLocal);
+            fullResyncButton.setVisible(!isLocal);
             archiveFilteredButton.setVisible(isLocal);
 
         // Wrap the panel for better layout
@@ -409,15 +410,13 @@ public class HistoryTabPanel extends JPanel implements HistoryPanelInterface, Lo
 
     @Override
     public void reloadTexts() {
-        // Table headers
-        DefaultTableModel model = (DefaultTableModel) historyTable.getModel();
-        model.setColumnIdentifiers(new String[]{
-                LocalizationManager.tr("history.table.seller"),
-                LocalizationManager.tr("history.table.price"),
-                LocalizationManager.tr("history.table.sold"),
-                LocalizationManager.tr("history.table.paid_out"),
-                LocalizationManager.tr("history.table.payment_method")
-        });
+        // Table headers and cell labels; the columns themselves (renderers, widths) are kept
+        tableModel.reloadTexts();
+        for (int i = 0; i < historyTable.getColumnCount(); i++) {
+            javax.swing.table.TableColumn column = historyTable.getColumnModel().getColumn(i);
+            column.setHeaderValue(tableModel.getColumnName(column.getModelIndex()));
+        }
+        historyTable.getTableHeader().repaint();
 
         // Filters
         int paidIndex = paidFilterDropdown.getSelectedIndex();
@@ -470,6 +469,8 @@ public class HistoryTabPanel extends JPanel implements HistoryPanelInterface, Lo
             importDataButton.putClientProperty("JButton.buttonType", "default");
         }
         archiveFilteredButton.setVisible(isLocal);
+        fullResyncButton.setText(LocalizationManager.tr(BUTTON_FULL_RESYNC));
+        fullResyncButton.setVisible(!isLocal);
 
         payoutButton.setText(LocalizationManager.tr(BUTTON_PAY_OUT));
         payoutButton.setVisible(isLocal);
@@ -488,6 +489,10 @@ public class HistoryTabPanel extends JPanel implements HistoryPanelInterface, Lo
         }
         // Re-sync widths after locale change so selected values remain visible
         syncFilterFieldWidths();
+        // Paid-out and payment labels are searchable and just changed language
+        if (searchMatches != null) {
+            applySearch();
+        }
     }
 
     // Implementations of HistoryPanelInterface methods
@@ -499,35 +504,58 @@ public class HistoryTabPanel extends JPanel implements HistoryPanelInterface, Lo
             return;
         }
 
-        // Get current table model
-        DefaultTableModel model = (DefaultTableModel) historyTable.getModel();
+        // The index already covers the list; only the shown rows change. Re-run an active
+        // search before the sorter re-filters the new rows
+        shownItems = items == null ? List.of() : items;
+        shownRows = null;
+        if (searchMatches != null) {
+            searchMatches = searchIndex.search(searchField.getText(), shownRows());
+        }
 
-        // Clear the model safely
-        model.setRowCount(0);
+        // One data-changed event; rows are formatted when painted
+        tableModel.setItems(items);
+    }
 
-        // Only add rows if we have items
-        if (items != null && !items.isEmpty()) {
-            // Add data in batches to improve performance
-            for (V1SoldItem item : items) {
-                // Format sold time using Swedish date formatter
-                LocalDateTime soldTime = item.getSoldTime();
-                String formattedTime = soldTime != null ? 
-                    SwedishDateFormatter.formatDateWithTime(soldTime) : "";
-                
-                model.addRow(new Object[]{
-                        item.getSeller(),
-                        item.getPrice() + " " + LocalizationManager.tr("currency.sek"),
-                        formattedTime,
-                        item.isCollectedBySeller() ? LocalizationManager.tr("common.yes") : LocalizationManager.tr("common.no"),
-                        LocalizationManager.tr(item.getPaymentMethod() == V1PaymentMethod.Kontant ?
-                                "payment.cash" : "payment.swish")
-                });
-            }
+    @Override
+    public void setSearchIndex(HistorySearchIndex index) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(() -> setSearchIndex(index));
+            return;
         }
+        searchIndex = index;
+        shownRows = null;
+    }
 
-        // Force UI update
-        historyTable.revalidate();
-        historyTable.repaint();
+    @Override
+    public void addToSearchIndex(List<V1SoldItem> items) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(() -> addToSearchIndex(items));
+            return;
+        }
+        searchIndex.addAll(items);
+    }
+
+    private BitSet shownRows() {
+        if (shownRows == null) {
+            shownRows = searchIndex.ordinals(shownItems);
+        }
+        return shownRows;
+    }
+
+    /**
+     * Run the search field's query against the index and filter the table with the result.
+     */
+    private void applySearch() {
+        if (sorter == null) return;
+        searchMatches = searchIndex.search(searchField.getText(), shownRows());
+        if (searchMatches == null) {
+            sorter.setRowFilter(null);
+        } else if (sorter.getRowFilter() == searchFilter) {
+            // Same filter object: tell the sorter the result changed
+            sorter.allRowsChanged();
+        } else {
+            sorter.setRowFilter(searchFilter);
+        }
     }
 
     @Override
@@ -621,6 +649,10 @@ public class HistoryTabPanel extends JPanel implements HistoryPanelInterface, Lo
         switch (buttonName) {
             case BUTTON_ERASE -> eraseAllDataButton.setEnabled(enable);
             case BUTTON_IMPORT -> importDataButton.setEnabled(enable);
+            case BUTTON_FULL_RESYNC -> {
+                fullResyncButton.setEnabled(enable);
+                fullResyncButton.setVisible(!AppModeManager.isLocalMode());
+            }
             case BUTTON_PAY_OUT -> {
                 payoutButton.setEnabled(enable);
                 payoutButton.setVisible(AppModeManager.isLocalMode());
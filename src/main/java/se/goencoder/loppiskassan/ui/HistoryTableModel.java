@@ -0,0 +1,127 @@
+package se.goencoder.loppiskassan.ui;
+
+import se.goencoder.loppiskassan.V1PaymentMethod;
+import se.goencoder.loppiskassan.V1SoldItem;
+import se.goencoder.loppiskassan.localization.LocalizationManager;
+import se.goencoder.loppiskassan.util.SwedishDateFormatter;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.List;
+
+/**
+ * Read-only table model for the history tab that wraps the filtered item list as is.
+ * <p>
+ * Cells are formatted when the table asks for them, so only visible rows cost anything,
+ * and replacing the list fires one {@code fireTableDataChanged}. Localized labels are
+ * looked up once per language instead of once per row.
+ * </p>
+ */
+public final class HistoryTableModel extends AbstractTableModel {
+    public static final int COLUMN_SELLER         = 0;
+    public static final int COLUMN_PRICE          = 1;
+    public static final int COLUMN_SOLD           = 2;
+    public static final int COLUMN_PAID_OUT       = 3;
+    public static final int COLUMN_PAYMENT_METHOD = 4;
+
+    private static final String[] COLUMN_KEYS = {
+            "history.table.seller",
+            "history.table.price",
+            "history.table.sold",
+            "history.table.paid_out",
+            "history.table.payment_method"
+    };
+
+    private List<V1SoldItem> items = List.of();
+    /** Sold-time text per row, formatted on first use (sorting asks for it repeatedly). */
+    private String[] soldTimes = new String[0];
+
+    private final String[] columnNames = new String[COLUMN_KEYS.length];
+    private String currencySuffix;
+    private String yes;
+    private String no;
+    private String cash;
+    private String swish;
+
+    public HistoryTableModel() {
+        loadLabels();
+    }
+
+    /**
+     * Show {@code items}. The list is used directly and must not be modified afterwards.
+     */
+    public void setItems(List<V1SoldItem> items) {
+        this.items = items == null ? List.of() : items;
+        this.soldTimes = new String[this.items.size()];
+        fireTableDataChanged();
+    }
+
+    public V1SoldItem getItem(int rowIndex) {
+        return items.get(rowIndex);
+    }
+
+    /**
+     * Re-read column names and cell labels after a language change.
+     * Only cells are repainted; the column setup (renderers, widths) is kept, so the caller
+     * updates header values on the existing columns.
+     */
+    public void reloadTexts() {
+        loadLabels();
+        if (!items.isEmpty()) {
+            fireTableRowsUpdated(0, items.size() - 1);
+        }
+    }
+
+    private void loadLabels() {
+        for (int i = 0; i < COLUMN_KEYS.length; i++) {
+            columnNames[i] = LocalizationManager.tr(COLUMN_KEYS[i]);
+        }
+        currencySuffix = " " + LocalizationManager.tr("currency.sek");
+        yes = LocalizationManager.tr("common.yes");
+        no = LocalizationManager.tr("common.no");
+        cash = LocalizationManager.tr("payment.cash");
+        swish = LocalizationManager.tr("payment.swish");
+    }
+
+    @Override
+    public int getRowCount() {
+        return items.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        V1SoldItem item = items.get(rowIndex);
+        return switch (columnIndex) {
+            case COLUMN_SELLER         -> item.getSeller();
+            case COLUMN_PRICE          -> item.getPrice() + currencySuffix;
+            case COLUMN_SOLD           -> soldTime(rowIndex, item);
+            case COLUMN_PAID_OUT       -> item.isCollectedBySeller() ? yes : no;
+            case COLUMN_PAYMENT_METHOD -> item.getPaymentMethod() == V1PaymentMethod.Kontant ? cash : swish;
+            default                    -> null;
+        };
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return false;
+    }
+
+    private String soldTime(int rowIndex, V1SoldItem item) {
+        String formatted = soldTimes[rowIndex];
+        if (formatted == null) {
+            formatted = item.getSoldTime() != null
+                    ? SwedishDateFormatter.formatDateWithTime(item.getSoldTime()) : "";
+            soldTimes[rowIndex] = formatted;
+        }
+        return formatted;
+    }
+}
@@ -743,7 +743,7 @@ public class LocalDiscoveryTabPanel extends JPanel implements DiscoveryPanelInte
                 ? sales + " " + LocalizationManager.tr("discovery.card.sales")
                 : LocalizationManager.tr("discovery.card.no_sales");
             
-            String status = LocalEventUtils.getLocalEventStatusText(ev.getId(), false);
+            String status = LocalEventUtils.getLocalEventStatusText(sales, false);
             boolean hasExport = sales > 0;
             
             // Format date using SwedishDateFormatter
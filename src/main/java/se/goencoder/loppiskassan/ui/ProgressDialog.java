@@ -1,15 +1,30 @@
 package se.goencoder.loppiskassan.ui;
 
+import se.goencoder.loppiskassan.localization.LocalizationManager;
+
 import javax.swing.*;
 import java.awt.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 
 public class ProgressDialog {
     private final JDialog dialog;
     private final JProgressBar progressBar;
 
+    /** A background task that stops early once {@code cancelled} turns true. */
+    @FunctionalInterface
+    public interface CancellableTask<T> {
+        T call(BooleanSupplier cancelled) throws Exception;
+    }
+
     private ProgressDialog(Frame parent, String title, String message) {
+        this(parent, title, message, null);
+    }
+
+    private ProgressDialog(Frame parent, String title, String message, Runnable onCancel) {
         dialog = new JDialog(parent, title, true /* modal */);
         dialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
         dialog.setLayout(new BorderLayout(10, 10));
@@ -24,6 +39,16 @@ public class ProgressDialog {
 
         panel.add(label, BorderLayout.NORTH);
         panel.add(progressBar, BorderLayout.CENTER);
+        if (onCancel != null) {
+            JButton cancelButton = new JButton(LocalizationManager.tr("button.cancel"));
+            cancelButton.addActionListener(e -> {
+                cancelButton.setEnabled(false);
+                onCancel.run();
+            });
+            JPanel buttons = new JPanel(new FlowLayout(FlowLayout.CENTER, 0, 0));
+            buttons.add(cancelButton);
+            panel.add(buttons, BorderLayout.SOUTH);
+        }
 
         dialog.add(panel, BorderLayout.CENTER);
         dialog.pack();
@@ -53,8 +78,15 @@ public class ProgressDialog {
                 ? (Frame) parent
                 : (Frame) SwingUtilities.getWindowAncestor(parent);
 
-        ProgressDialog pd = new ProgressDialog(frame, title, message);
+        runWithDialog(new ProgressDialog(frame, title, message), task, onSuccess, onFailure);
+    }
 
+    private static <T> void runWithDialog(
+            ProgressDialog pd,
+            Callable<T> task,
+            Consumer<T> onSuccess,
+            Consumer<Throwable> onFailure
+    ) {
         SwingWorker<T, Void> worker = new SwingWorker<>() {
             private Throwable thrown;
 
@@ -94,6 +126,48 @@ public class ProgressDialog {
         pd.dialog.setVisible(true);
     }
 
+    /**
+     * As {@link #runTask}, with a cancel button. Cancelling tells the task through its
+     * {@code cancelled} supplier and interrupts it; the task then typically ends with a
+     * {@link java.util.concurrent.CancellationException}, which is passed to {@code onFailure}.
+     */
+    public static <T> void runCancellableTask(
+            Component parent,
+            String title,
+            String message,
+            CancellableTask<T> task,
+            Consumer<T> onSuccess,
+            Consumer<Throwable> onFailure
+    ) {
+        Frame frame = (parent instanceof Frame)
+                ? (Frame) parent
+                : (Frame) SwingUtilities.getWindowAncestor(parent);
+
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicReference<Thread> worker = new AtomicReference<>();
+        ProgressDialog pd = new ProgressDialog(frame, title, message, () -> {
+            cancelled.set(true);
+            synchronized (worker) {
+                Thread running = worker.get();
+                if (running != null) {
+                    running.interrupt();
+                }
+            }
+        });
+        runWithDialog(pd, () -> {
+            worker.set(Thread.currentThread());
+            try {
+                return task.call(cancelled::get);
+            } finally {
+                synchronized (worker) {
+                    worker.set(null);
+                    // Do not leak the interrupt into the worker pool
+                    Thread.interrupted();
+                }
+            }
+        }, onSuccess, onFailure);
+    }
+
     private void closeDialog() {
         dialog.dispose();
     }
@@ -5,10 +5,12 @@ import se.goencoder.loppiskassan.V1SoldItem;
 import javax.swing.*;
 import javax.swing.table.AbstractTableModel;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Table model for sold items, with typed columns and no cell editing.
+ * Changes are row-level events, and the price total is kept as a running sum.
  */
 public final class SoldItemsTableModel extends AbstractTableModel {
     /** Column indices (model indices) for safer cross-file use. */
@@ -19,6 +21,7 @@ public final class SoldItemsTableModel extends AbstractTableModel {
 
     private String[] columns;
     private final List<V1SoldItem> items = new ArrayList<>();
+    private int total;
 
     public SoldItemsTableModel(String[] columnNames) {
         this.columns = columnNames;
@@ -75,18 +78,40 @@ public final class SoldItemsTableModel extends AbstractTableModel {
      */
     public void addItem(V1SoldItem item) {
         items.add(0, item);
+        total += item.getPrice();
         fireTableRowsInserted(0, 0);
     }
 
+    /**
+     * Remove the item with {@code itemId}, if shown.
+     */
+    public void removeItem(String itemId) {
+        for (int row = 0; row < items.size(); row++) {
+            if (items.get(row).getItemId().equals(itemId)) {
+                total -= items.remove(row).getPrice();
+                fireTableRowsDeleted(row, row);
+                return;
+            }
+        }
+    }
+
     public void clear() {
         int size = items.size();
         if (size > 0) {
             items.clear();
+            total = 0;
             fireTableRowsDeleted(0, size - 1);
         }
     }
 
+    /**
+     * @return sum of the prices of all rows
+     */
+    public int getTotal() {
+        return total;
+    }
+
     public List<V1SoldItem> getItems() {
-        return items;
+        return Collections.unmodifiableList(items);
     }
 }
@@ -3,10 +3,12 @@ package se.goencoder.loppiskassan.ui.dialogs;
 import se.goencoder.loppiskassan.config.AppModeManager;
 import se.goencoder.loppiskassan.localization.LocalizationAware;
 import se.goencoder.loppiskassan.localization.LocalizationManager;
+import se.goencoder.loppiskassan.metrics.FlightRecording;
 import se.goencoder.loppiskassan.storage.LocalEventPaths;
 import se.goencoder.loppiskassan.ui.AppButton;
 import se.goencoder.loppiskassan.ui.AppColors;
 import se.goencoder.loppiskassan.ui.Popup;
+import se.goencoder.loppiskassan.ui.ProgressDialog;
 import se.goencoder.loppiskassan.util.AppPaths;
 
 import javax.swing.BorderFactory;
@@ -41,6 +43,7 @@ public final class SettingsDialog extends JDialog implements LocalizationAware {
     private final JTable table;
     private final JLabel subtitleLabel;
     private final JLabel hintLabel;
+    private final JButton recordingButton;
 
     public static void show(Component parent) {
         SettingsDialog dialog = new SettingsDialog(parent);
@@ -117,6 +120,12 @@ public final class SettingsDialog extends JDialog implements LocalizationAware {
                 AppButton.Size.MEDIUM);
         copyButton.addActionListener(evt -> copySelectedPath());
 
+        recordingButton = AppButton.create(
+                LocalizationManager.tr("settings.save_recording"),
+                AppButton.Variant.SECONDARY,
+                AppButton.Size.MEDIUM);
+        recordingButton.addActionListener(evt -> saveFlightRecording());
+
         JButton closeButton = AppButton.create(
                 LocalizationManager.tr("button.close"),
                 AppButton.Variant.SECONDARY,
@@ -126,6 +135,7 @@ public final class SettingsDialog extends JDialog implements LocalizationAware {
         JPanel footer = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 12));
         footer.setBackground(AppColors.WHITE);
         footer.setBorder(BorderFactory.createEmptyBorder(0, 16, 8, 16));
+        footer.add(recordingButton);
         footer.add(copyButton);
         footer.add(closeButton);
         add(footer, BorderLayout.SOUTH);
@@ -221,6 +231,23 @@ public final class SettingsDialog extends JDialog implements LocalizationAware {
                 LocalizationManager.tr("settings.copy_success.message"));
     }
 
+    /**
+     * Dump the flight recording to the logs directory, for a developer to open in JDK Mission Control.
+     */
+    private void saveFlightRecording() {
+        ProgressDialog.runTask(
+                this,
+                LocalizationManager.tr("settings.save_recording"),
+                LocalizationManager.tr("settings.save_recording.progress"),
+                FlightRecording::dumpToLogs,
+                path -> Popup.INFORMATION.showAndWait(
+                        LocalizationManager.tr("settings.save_recording.success.title"),
+                        LocalizationManager.tr("settings.save_recording.success.message", path)),
+                error -> Popup.ERROR.showAndWait(
+                        LocalizationManager.tr("settings.save_recording.error.title"),
+                        error.getMessage()));
+    }
+
     private String[] buildColumnNames() {
         return new String[]{
                 LocalizationManager.tr("settings.table.label"),
@@ -232,6 +259,7 @@ public final class SettingsDialog extends JDialog implements LocalizationAware {
     public void reloadTexts() {
         setTitle(LocalizationManager.tr("settings.dialog.title"));
         subtitleLabel.setText(LocalizationManager.tr("settings.dialog.subtitle"));
+        recordingButton.setText(LocalizationManager.tr("settings.save_recording"));
         tableModel.setColumnIdentifiers(buildColumnNames());
         loadRows();
     }
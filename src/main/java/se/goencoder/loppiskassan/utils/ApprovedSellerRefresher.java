@@ -0,0 +1,127 @@
+package se.goencoder.loppiskassan.utils;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Coalesces approved-seller refreshes triggered by cache misses in the cashier.
+ * <p>
+ * At most one refresh runs at a time. Every miss that arrives while a refresh is
+ * running joins a single follow-up batch, so a burst of unknown seller numbers
+ * costs two refreshes at most, not one per miss. A batch of a few sellers uses a
+ * targeted (delta) lookup when a full list for the event is already cached. Larger
+ * batches, a missing baseline or a failed delta lookup fall back to the full sweep.
+ * </p>
+ */
+public class ApprovedSellerRefresher {
+
+    private static final Logger log = Logger.getLogger(ApprovedSellerRefresher.class.getName());
+
+    /** Above this many missed sellers in one batch, a full sweep is cheaper. */
+    static final int MAX_DELTA_SELLERS = 5;
+
+    /**
+     * Where refreshes go. Both methods update the cached approved-seller list.
+     */
+    public interface Source {
+        /** @return true if a full approved list for {@code eventId} is cached to apply deltas to */
+        boolean hasBaseline(String eventId);
+
+        /** Fetch only the given sellers and add the approved ones to the cache. */
+        void lookupSellers(String eventId, Collection<Integer> sellerIds) throws Exception;
+
+        /** Fetch the complete approved list and replace the cache. */
+        void fullRefresh(String eventId) throws Exception;
+    }
+
+    private static final class Batch {
+        final String eventId;
+        final Set<Integer> sellerIds = new LinkedHashSet<>();
+        final CompletableFuture<Boolean> done = new CompletableFuture<>();
+
+        Batch(String eventId) {
+            this.eventId = eventId;
+        }
+    }
+
+    private final Source source;
+    private final Object lock = new Object();
+    private final ReentrantLock runLock = new ReentrantLock();
+    private Batch open;
+
+    public ApprovedSellerRefresher(Source source) {
+        this.source = source;
+    }
+
+    /**
+     * Refresh the cached approved list so that {@code sellerId} is up to date, joining
+     * an already queued refresh when possible. Blocks until that refresh is done.
+     *
+     * @return true if the refresh succeeded (the caller should re-check the cache)
+     */
+    public boolean refresh(String eventId, int sellerId) {
+        Batch batch;
+        boolean leader = false;
+        synchronized (lock) {
+            if (open == null || !open.eventId.equals(eventId)) {
+                // A batch for another event (event switch) is left to finish on its own
+                open = new Batch(eventId);
+                leader = true;
+            }
+            open.sellerIds.add(sellerId);
+            batch = open;
+        }
+        if (leader) {
+            runBatch(batch);
+        }
+        return batch.done.join();
+    }
+
+    /** @return sellers waiting for the next refresh (for tests) */
+    int queuedSellerCount() {
+        synchronized (lock) {
+            return open == null ? 0 : open.sellerIds.size();
+        }
+    }
+
+    private void runBatch(Batch batch) {
+        runLock.lock();
+        try {
+            synchronized (lock) {
+                // Close the batch: misses from now on queue up for the next refresh
+                if (open == batch) {
+                    open = null;
+                }
+            }
+            batch.done.complete(execute(batch.eventId, Set.copyOf(batch.sellerIds)));
+        } catch (RuntimeException e) {
+            batch.done.complete(false);
+            throw e;
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    private boolean execute(String eventId, Set<Integer> sellerIds) {
+        if (sellerIds.size() <= MAX_DELTA_SELLERS && source.hasBaseline(eventId)) {
+            try {
+                source.lookupSellers(eventId, sellerIds);
+                log.info(() -> "Delta seller refresh done for " + sellerIds);
+                return true;
+            } catch (Exception e) {
+                log.warning("Delta seller refresh failed, falling back to full refresh: " + e.getMessage());
+            }
+        }
+        try {
+            source.fullRefresh(eventId);
+            return true;
+        } catch (Exception e) {
+            log.warning("Failed to refresh approved sellers: " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -1,12 +1,11 @@
 package se.goencoder.loppiskassan.utils;
 
 import se.goencoder.loppiskassan.V1SoldItem;
-import se.goencoder.loppiskassan.storage.JsonlHelper;
-import se.goencoder.loppiskassan.storage.LocalEventPaths;
 import se.goencoder.loppiskassan.storage.LocalEventRepository;
+import se.goencoder.loppiskassan.storage.PendingItemsStore;
 
 import java.io.IOException;
-import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public class FileUtils {
@@ -16,8 +15,7 @@ public class FileUtils {
      */
     public static void saveSoldItems(String eventId, List<V1SoldItem> items) throws IOException {
         LocalEventRepository.ensureEventStorage(eventId);
-        Path path = LocalEventPaths.getPendingItemsPath(eventId);
-        JsonlHelper.writeItems(path, items);
+        new PendingItemsStore(eventId).saveAll(items);
     }
 
     /**
@@ -26,8 +24,18 @@ public class FileUtils {
      */
     public static void appendSoldItems(String eventId, List<V1SoldItem> items) throws IOException {
         LocalEventRepository.ensureEventStorage(eventId);
-        Path path = LocalEventPaths.getPendingItemsPath(eventId);
-        JsonlHelper.appendItems(path, items);
+        new PendingItemsStore(eventId).appendItems(items);
+    }
+
+    /**
+     * Record a payout for the given items.
+     * Only the state change is journaled; the JSONL file itself is not rewritten.
+     */
+    public static void markSoldItemsPaidOut(String eventId, List<V1SoldItem> items, LocalDateTime paidOutTime)
+            throws IOException {
+        LocalEventRepository.ensureEventStorage(eventId);
+        List<String> itemIds = items.stream().map(V1SoldItem::getItemId).toList();
+        new PendingItemsStore(eventId).markPaidOut(itemIds, paidOutTime);
     }
 
 
@@ -1,6 +1,8 @@
 package se.goencoder.loppiskassan.utils;
 
+import se.goencoder.loppiskassan.V1PaymentMethod;
 import se.goencoder.loppiskassan.V1SoldItem;
+import se.goencoder.loppiskassan.metrics.HistoryFilterEvent;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -18,6 +20,8 @@ public class FilterUtils {
                 if (items == null || items.isEmpty()) {
                         return new FilterResult(List.of(), 0);
                 }
+                HistoryFilterEvent event = new HistoryFilterEvent();
+                event.begin();
 
                 Boolean paid = paidFilter == null ? null : Boolean.parseBoolean(paidFilter);
                 Integer seller = sellerFilter == null ? null : Integer.parseInt(sellerFilter);
@@ -44,6 +48,43 @@ public class FilterUtils {
                         total += item.getPrice();
                 }
 
+                commit(event, false, items.size(), filtered.size(), paidFilter, sellerFilter, paymentMethodFilter);
                 return new FilterResult(filtered, total);
     }
+
+        /**
+         * Same filters as {@link #applyFiltersWithSum(List, String, String, String)}, answered
+         * from a {@link HistoryIndex} instead of a scan.
+         */
+        public static FilterResult applyFiltersWithSum(
+                        HistoryIndex index, String paidFilter, String sellerFilter, String paymentMethodFilter) {
+                HistoryFilterEvent event = new HistoryFilterEvent();
+                event.begin();
+                Boolean paid = paidFilter == null ? null : Boolean.parseBoolean(paidFilter);
+                Integer seller = sellerFilter == null ? null : Integer.parseInt(sellerFilter);
+                V1PaymentMethod payment = null;
+                if (paymentMethodFilter != null) {
+                        try {
+                                payment = V1PaymentMethod.valueOf(paymentMethodFilter);
+                        } catch (IllegalArgumentException e) {
+                                // Unknown method matches nothing, as in the scan
+                                return new FilterResult(List.of(), 0);
+                        }
+                }
+                FilterResult result = index.filter(paid, seller, payment);
+                commit(event, true, index.size(), result.items().size(), paidFilter, sellerFilter, paymentMethodFilter);
+                return result;
+        }
+
+        private static void commit(HistoryFilterEvent event, boolean indexed, int inputItems, int matches,
+                                   String paidFilter, String sellerFilter, String paymentMethodFilter) {
+                event.end();
+                if (event.shouldCommit()) {
+                        event.indexed = indexed;
+                        event.inputItems = inputItems;
+                        event.matches = matches;
+                        event.filters = "paid=" + paidFilter + " seller=" + sellerFilter + " payment=" + paymentMethodFilter;
+                        event.commit();
+                }
+        }
 }
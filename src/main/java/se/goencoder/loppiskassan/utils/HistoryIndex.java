@@ -0,0 +1,248 @@
+package se.goencoder.loppiskassan.utils;
+
+import se.goencoder.loppiskassan.V1PaymentMethod;
+import se.goencoder.loppiskassan.V1SoldItem;
+import se.goencoder.loppiskassan.utils.FilterUtils.FilterResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Filter index over the history list, so a dropdown change does not scan every item.
+ * <p>
+ * Items are numbered by their position in the list. The index keeps:
+ * <ul>
+ *   <li>a posting list (ascending positions) per seller,</li>
+ *   <li>a bitset of paid-out positions and one bitset per payment method,</li>
+ *   <li>item counts and price sums per (paid, payment method) cell, overall and per seller.</li>
+ * </ul>
+ * A filter is a walk over the seller's posting list, or a bitset intersection when no
+ * seller is chosen. The total comes from the pre-aggregated sums.
+ * </p>
+ * The index must be told about every change to the list: {@link #append} for added items,
+ * {@link #refresh} when items' paid-out state changed, and a new index ({@link #of}) after
+ * removals or bulk rewrites. {@link #covers} is a cheap sanity check for callers.
+ */
+public final class HistoryIndex {
+
+    /** Cells: paid (0/1) x payment slot (Swish, Kontant, none). */
+    private static final int METHOD_SLOTS = 3;
+    private static final int CELLS = 2 * METHOD_SLOTS;
+
+    private final List<V1SoldItem> items = new ArrayList<>();
+    /** Built on the first {@link #refresh}; most indexes are only filtered. */
+    private Map<String, Integer> positionById;
+    private final BitSet paid = new BitSet();
+    private final Map<V1PaymentMethod, BitSet> byMethod = new EnumMap<>(V1PaymentMethod.class);
+    private final Map<Integer, Seller> sellers = new HashMap<>();
+    private final Totals totals = new Totals();
+
+    private static final class Totals {
+        final int[] counts = new int[CELLS];
+        final long[] sums = new long[CELLS];
+
+        void add(int cell, int price, int sign) {
+            counts[cell] += sign;
+            sums[cell] += (long) sign * price;
+        }
+    }
+
+    private static final class Seller {
+        int[] positions = new int[4];
+        int size;
+        final Totals totals = new Totals();
+
+        void add(int position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+    }
+
+    private HistoryIndex() {
+        for (V1PaymentMethod method : V1PaymentMethod.values()) {
+            byMethod.put(method, new BitSet());
+        }
+    }
+
+    public static HistoryIndex of(List<V1SoldItem> items) {
+        HistoryIndex index = new HistoryIndex();
+        index.append(items);
+        return index;
+    }
+
+    /**
+     * Index items that were added to the end of the list.
+     */
+    public void append(Collection<V1SoldItem> added) {
+        for (V1SoldItem item : added) {
+            int position = items.size();
+            items.add(item);
+            if (positionById != null) {
+                positionById.put(item.getItemId(), position);
+            }
+            if (item.getPaymentMethod() != null) {
+                byMethod.get(item.getPaymentMethod()).set(position);
+            }
+            Seller seller = sellers.computeIfAbsent(item.getSeller(), s -> new Seller());
+            seller.add(position);
+            if (item.isCollectedBySeller()) {
+                paid.set(position);
+            }
+            int cell = cell(item.isCollectedBySeller(), item.getPaymentMethod());
+            totals.add(cell, item.getPrice(), 1);
+            seller.totals.add(cell, item.getPrice(), 1);
+        }
+    }
+
+    /**
+     * Re-read the paid-out state of {@code changed} (e.g. after a payout).
+     * Items that are not in the index are ignored.
+     */
+    public void refresh(Collection<V1SoldItem> changed) {
+        if (positionById == null) {
+            positionById = new HashMap<>(items.size() * 2);
+            for (int i = 0; i < items.size(); i++) {
+                positionById.put(items.get(i).getItemId(), i);
+            }
+        }
+        for (V1SoldItem item : changed) {
+            Integer position = positionById.get(item.getItemId());
+            if (position == null) {
+                continue;
+            }
+            boolean nowPaid = items.get(position).isCollectedBySeller();
+            if (nowPaid == paid.get(position)) {
+                continue;
+            }
+            V1SoldItem indexed = items.get(position);
+            Seller seller = sellers.get(indexed.getSeller());
+            int before = cell(!nowPaid, indexed.getPaymentMethod());
+            int after = cell(nowPaid, indexed.getPaymentMethod());
+            totals.add(before, indexed.getPrice(), -1);
+            totals.add(after, indexed.getPrice(), 1);
+            seller.totals.add(before, indexed.getPrice(), -1);
+            seller.totals.add(after, indexed.getPrice(), 1);
+            paid.set(position, nowPaid);
+        }
+    }
+
+    /**
+     * @return true if this index was built for {@code list} as it is now (same size and
+     *         same first and last item); not a full check
+     */
+    public boolean covers(List<V1SoldItem> list) {
+        if (list == null || list.size() != items.size()) {
+            return false;
+        }
+        return list.isEmpty()
+                || (list.get(0) == items.get(0) && list.get(list.size() - 1) == items.get(items.size() - 1));
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public int paidCount() {
+        return paid.cardinality();
+    }
+
+    public Set<String> distinctSellers() {
+        Set<String> result = new TreeSet<>();
+        sellers.forEach((seller, entry) -> {
+            if (entry.size > 0) {
+                result.add(String.valueOf(seller));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @param paidFilter    true/false to keep only paid-out/unpaid items, or null for all
+     * @param sellerFilter  seller number, or null for all
+     * @param paymentMethod payment method, or null for all
+     * @return matching items in list order and their price sum
+     */
+    public FilterResult filter(Boolean paidFilter, Integer sellerFilter, V1PaymentMethod paymentMethod) {
+        Totals source = totals;
+        Seller seller = null;
+        if (sellerFilter != null) {
+            seller = sellers.get(sellerFilter);
+            if (seller == null) {
+                return new FilterResult(List.of(), 0);
+            }
+            source = seller.totals;
+        }
+
+        int count = 0;
+        long sum = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (cellMatches(cell, paidFilter, paymentMethod)) {
+                count += source.counts[cell];
+                sum += source.sums[cell];
+            }
+        }
+
+        List<V1SoldItem> result = new ArrayList<>(count);
+        if (count == 0) {
+            return new FilterResult(result, 0);
+        }
+        BitSet methodBits = paymentMethod == null ? null : byMethod.get(paymentMethod);
+        if (seller != null) {
+            for (int i = 0; i < seller.size; i++) {
+                int position = seller.positions[i];
+                if ((paidFilter == null || paid.get(position) == paidFilter)
+                        && (methodBits == null || methodBits.get(position))) {
+                    result.add(items.get(position));
+                }
+            }
+        } else if (paidFilter == null && methodBits == null) {
+            result.addAll(items);
+        } else {
+            BitSet matches;
+            if (methodBits != null) {
+                matches = (BitSet) methodBits.clone();
+            } else {
+                matches = new BitSet(items.size());
+                matches.set(0, items.size());
+            }
+            if (Boolean.TRUE.equals(paidFilter)) {
+                matches.and(paid);
+            } else if (Boolean.FALSE.equals(paidFilter)) {
+                matches.andNot(paid);
+            }
+            for (int position = matches.nextSetBit(0); position >= 0; position = matches.nextSetBit(position + 1)) {
+                result.add(items.get(position));
+            }
+        }
+        return new FilterResult(result, (int) sum);
+    }
+
+    private static int cell(boolean isPaid, V1PaymentMethod method) {
+        return (isPaid ? METHOD_SLOTS : 0) + slot(method);
+    }
+
+    private static int slot(V1PaymentMethod method) {
+        if (method == null) {
+            return 2;
+        }
+        return method == V1PaymentMethod.Swish ? 0 : 1;
+    }
+
+    private static boolean cellMatches(int cell, Boolean paidFilter, V1PaymentMethod paymentMethod) {
+        boolean cellPaid = cell >= METHOD_SLOTS;
+        if (paidFilter != null && paidFilter != cellPaid) {
+            return false;
+        }
+        return paymentMethod == null || slot(paymentMethod) == cell % METHOD_SLOTS;
+    }
+}
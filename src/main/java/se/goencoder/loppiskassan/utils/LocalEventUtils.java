@@ -1,13 +1,12 @@
 package se.goencoder.loppiskassan.utils;
 
-import se.goencoder.loppiskassan.V1SoldItem;
-import se.goencoder.loppiskassan.storage.JsonlHelper;
+import se.goencoder.loppiskassan.storage.EventSalesSummary;
 import se.goencoder.loppiskassan.storage.LocalEventPaths;
+import se.goencoder.loppiskassan.storage.PendingItemsStore;
 import se.goencoder.loppiskassan.localization.LocalizationManager;
 
 import java.io.IOException;
 import java.nio.file.Files;
-import java.util.List;
 
 /**
  * Utility class for working with local event data.
@@ -18,28 +17,38 @@ public final class LocalEventUtils {
     
     /**
      * Count the number of sales for a local event.
+     * Reads the event's sales summary; the items are only parsed if it is stale.
      * 
      * @param eventId the event ID to count sales for
      * @return number of sales (items), or 0 if no sales or error
      */
     public static int getSalesCount(String eventId) {
+        return getSalesSummary(eventId).itemCount();
+    }
+
+    /**
+     * Sales totals for a local event (count, amount, per payment method, last sale).
+     *
+     * @param eventId the event ID
+     * @return the summary, or {@link EventSalesSummary#EMPTY} if no sales or error
+     */
+    public static EventSalesSummary getSalesSummary(String eventId) {
         try {
             if (eventId == null || !eventId.startsWith("local-")) {
-                return 0;
+                return EventSalesSummary.EMPTY;
             }
             
             var pendingPath = LocalEventPaths.getPendingItemsPath(eventId);
             if (Files.notExists(pendingPath)) {
-                return 0;
+                return EventSalesSummary.EMPTY;
             }
             
-            List<V1SoldItem> items = JsonlHelper.readItems(pendingPath);
-            return items.size();
+            return new PendingItemsStore(eventId).readSummary();
             
         } catch (IOException e) {
-            // Log error but don't fail - just return 0
+            // Log error but don't fail - just return empty
             System.err.println("Failed to count sales for event " + eventId + ": " + e.getMessage());
-            return 0;
+            return EventSalesSummary.EMPTY;
         }
     }
     
@@ -71,8 +80,13 @@ public final class LocalEventUtils {
      * @return formatted string like "🟢 Active (5 sales)" or "📭 Empty"
      */
     public static String getLocalEventStatusText(String eventId, boolean isClosed) {
-        int salesCount = getSalesCount(eventId);
-        
+        return getLocalEventStatusText(getSalesCount(eventId), isClosed);
+    }
+
+    /**
+     * Same as {@link #getLocalEventStatusText(String, boolean)} for a sales count the caller already has.
+     */
+    public static String getLocalEventStatusText(int salesCount, boolean isClosed) {
         if (isClosed) {
             return LocalizationManager.tr("export.local_event.closed", String.valueOf(salesCount));
         } else if (salesCount == 0) {
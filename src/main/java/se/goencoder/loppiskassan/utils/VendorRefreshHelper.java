@@ -10,10 +10,14 @@ import se.goencoder.iloppis.model.V1Vendor;
 import se.goencoder.iloppis.model.V1VendorFilter;
 import se.goencoder.iloppis.model.VendorServiceFilterVendorsBody;
 import se.goencoder.loppiskassan.config.ILoppisConfigurationStore;
+import se.goencoder.loppiskassan.metrics.VendorRefreshPageEvent;
 import se.goencoder.loppiskassan.rest.ApiHelper;
+import se.goencoder.loppiskassan.rest.PagedFetcher;
 
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 /**
@@ -24,11 +28,37 @@ import java.util.logging.Logger;
  * 
  * This avoids issues with the vendorServiceListVendors endpoint which can
  * return inconsistent data.
+ * 
+ * A cashier miss on an unknown seller goes through {@link #refreshForSeller}. That
+ * call looks up just the missed seller numbers (the backend has no "changed since"
+ * filter, so the delta is the missed sellers). Concurrent misses are coalesced.
+ * The full sweep is only used when no complete list for the event is cached yet.
  */
 public class VendorRefreshHelper {
     
     private static final Logger log = Logger.getLogger(VendorRefreshHelper.class.getName());
-    private static final int PAGE_SIZE = 100;
+    private static final int PAGE_SIZE = 500;
+    
+    /** Event whose complete approved list was last fetched by this process. */
+    private static volatile String fullRefreshEventId;
+    
+    private static final ApprovedSellerRefresher REFRESHER = new ApprovedSellerRefresher(
+            new ApprovedSellerRefresher.Source() {
+                @Override
+                public boolean hasBaseline(String eventId) {
+                    return hasDeltaBaseline(eventId);
+                }
+                
+                @Override
+                public void lookupSellers(String eventId, Collection<Integer> sellerIds) throws ApiException {
+                    lookupApprovedSellers(eventId, sellerIds);
+                }
+                
+                @Override
+                public void fullRefresh(String eventId) throws ApiException {
+                    fetchAllApprovedSellers(eventId);
+                }
+            });
     
     /**
      * Refresh approved sellers from API and update configuration store.
@@ -46,90 +76,8 @@ public class VendorRefreshHelper {
         }
         
         try {
-            log.info("=== VendorRefresh START === event: " + eventId);
-            
-            VendorServiceApi api = ApiHelper.INSTANCE.getVendorServiceApi();
-            Set<Integer> approvedSellers = new HashSet<>();
-            String nextPageToken = "";
-            int pageCount = 0;
-            Integer totalApproved = null;
-            int expectedPages = -1;
-            String previousPageToken = null;
-            
-            // Use vendors:filter with status="approved" (same endpoint as Android/Frontend)
-            do {
-                pageCount++;
-                log.info(String.format("Fetching page %d (filter: status=approved), pageToken='%s'", pageCount, nextPageToken));
-                
-                V1VendorFilter filter = new V1VendorFilter();
-                filter.setStatus("approved");
-                
-                V1Pagination pagination = new V1Pagination();
-                pagination.setPageSize(PAGE_SIZE);
-                if (!nextPageToken.isEmpty()) {
-                    pagination.setPageToken(nextPageToken);
-                }
-                
-                VendorServiceFilterVendorsBody body = new VendorServiceFilterVendorsBody();
-                body.setFilter(filter);
-                body.setPagination(pagination);
-                
-                V1FilterVendorsResponse response = api.vendorServiceFilterVendors(eventId, body);
-                if (response.getTotal() != null && totalApproved == null) {
-                    totalApproved = response.getTotal();
-                    expectedPages = (int) Math.ceil(totalApproved / (double) PAGE_SIZE);
-                }
-                
-                int pageApproved = 0;
-                if (response.getVendors() != null) {
-                    for (V1Vendor vendor : response.getVendors()) {
-                        approvedSellers.add(vendor.getSellerNumber());
-                        pageApproved++;
-                    }
-                }
-                if (response.getVendors() == null || response.getVendors().isEmpty()) {
-                    log.warning("No vendors returned on this page; stopping pagination.");
-                    break;
-                }
-                
-                log.info(String.format("Page %d: %d vendors, %d approved cumulative", 
-                    pageCount, pageApproved, approvedSellers.size()));
-                
-                nextPageToken = response.getNextPageToken();
-                if (nextPageToken != null && !nextPageToken.isEmpty()) {
-                    if (nextPageToken.equals(previousPageToken)) {
-                        log.warning("Pagination token did not advance; stopping to avoid infinite loop.");
-                        break;
-                    }
-                    if (expectedPages > 0 && pageCount >= expectedPages) {
-                        log.warning("Reached expected page count from total; stopping pagination.");
-                        break;
-                    }
-                    if (totalApproved != null && approvedSellers.size() >= totalApproved) {
-                        log.info("Loaded all approved sellers; stopping pagination.");
-                        break;
-                    }
-                    log.info("More pages available, continuing...");
-                }
-                previousPageToken = nextPageToken;
-                
-            } while (nextPageToken != null && !nextPageToken.isEmpty());
-            
-            log.info(String.format("=== VendorRefresh END === %d pages, %d APPROVED sellers", 
-                pageCount, approvedSellers.size()));
-            
-            // Debug: Log all approved seller numbers if small enough
-            if (approvedSellers.size() <= 20) {
-                log.info("Approved sellers: " + approvedSellers);
-            }
-            
-            // Update configuration store
-            JSONObject jsonObject = new JSONObject();
-            jsonObject.put("approvedSellers", new JSONArray(approvedSellers));
-            ILoppisConfigurationStore.setApprovedSellers(jsonObject.toString());
-            
+            fetchAllApprovedSellers(eventId);
             return true;
-            
         } catch (ApiException e) {
             log.warning("Failed to refresh approved sellers: " + e.getMessage());
             return false;
@@ -140,25 +88,179 @@ public class VendorRefreshHelper {
     }
     
     /**
-     * Check if a seller is in the approved sellers list (cached version).
+     * Refresh after a cache miss on {@code sellerId}: one targeted round trip when a
+     * full list for the event is cached, otherwise a full sweep. Misses that arrive
+     * while a refresh is running share a single follow-up refresh.
      * 
-     * @param sellerId the seller number to check
-     * @return true if seller is approved, false otherwise
+     * @return true if refresh succeeded (re-check {@link #isSellerApproved})
      */
-    public static boolean isSellerApproved(int sellerId) {
-        String approvedSellersJson = ILoppisConfigurationStore.getApprovedSellers();
-        if (approvedSellersJson == null || approvedSellersJson.isBlank()) {
+    public static boolean refreshForSeller(String eventId, int sellerId) {
+        if (eventId == null || eventId.isBlank()) {
+            log.warning("Cannot refresh sellers: eventId is null or blank");
             return false;
         }
+        return REFRESHER.refresh(eventId, sellerId);
+    }
+    
+    /**
+     * Fetch the complete approved list (all pages) and store it in the configuration store.
+     * Shared by login, event discovery and the cashier's fallback path.
+     */
+    public static void fetchAllApprovedSellers(String eventId) throws ApiException {
+        log.info("=== VendorRefresh START === event: " + eventId);
         
-        try {
-            return new JSONObject(approvedSellersJson)
-                    .getJSONArray("approvedSellers")
-                    .toList()
-                    .contains(sellerId);
-        } catch (Exception e) {
-            log.warning("Failed to parse approved sellers JSON: " + e.getMessage());
-            return false;
+        VendorServiceApi api = ApiHelper.INSTANCE.getVendorServiceApi();
+        Set<Integer> approvedSellers = new HashSet<>();
+        AtomicInteger requested = new AtomicInteger();
+        AtomicInteger consumed = new AtomicInteger();
+        AtomicInteger totalApproved = new AtomicInteger(-1);
+        
+        // Use vendors:filter with status="approved" (same endpoint as Android/Frontend);
+        // the next page is requested while this one is read
+        PagedFetcher<V1FilterVendorsResponse> pages = new PagedFetcher<>(
+                pageToken -> fetchPage(api, eventId, approvedPage(pageToken), requested.incrementAndGet()),
+                V1FilterVendorsResponse::getNextPageToken);
+        PagedFetcher.Summary summary = pages.forEach("", response -> {
+            int page = consumed.incrementAndGet();
+            if (response.getTotal() != null && totalApproved.get() < 0) {
+                totalApproved.set(response.getTotal());
+            }
+            if (response.getVendors() == null || response.getVendors().isEmpty()) {
+                log.warning("No vendors returned on this page; stopping pagination.");
+                return false;
+            }
+            for (V1Vendor vendor : response.getVendors()) {
+                approvedSellers.add(vendor.getSellerNumber());
+            }
+            log.info(String.format("Page %d: %d vendors, %d approved cumulative",
+                    page, response.getVendors().size(), approvedSellers.size()));
+            int total = totalApproved.get();
+            if (total >= 0 && approvedSellers.size() >= total) {
+                log.info("Loaded all approved sellers; stopping pagination.");
+                return false;
+            }
+            if (total > 0 && page >= Math.ceil(total / (double) PAGE_SIZE)) {
+                log.warning("Reached expected page count from total; stopping pagination.");
+                return false;
+            }
+            return true;
+        }, () -> false);
+        
+        log.info(String.format("=== VendorRefresh END === %d pages, %d APPROVED sellers", 
+            summary.pages(), approvedSellers.size()));
+        
+        // Debug: Log all approved seller numbers if small enough
+        if (approvedSellers.size() <= 20) {
+            log.info("Approved sellers: " + approvedSellers);
+        }
+        
+        // Update configuration store
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("approvedSellers", new JSONArray(approvedSellers));
+        ILoppisConfigurationStore.setApprovedSellers(jsonObject.toString());
+        fullRefreshEventId = eventId;
+    }
+    
+    private static VendorServiceFilterVendorsBody approvedPage(String pageToken) {
+        V1VendorFilter filter = new V1VendorFilter();
+        filter.setStatus("approved");
+        
+        V1Pagination pagination = new V1Pagination();
+        pagination.setPageSize(PAGE_SIZE);
+        if (!pageToken.isEmpty()) {
+            pagination.setPageToken(pageToken);
+        }
+        
+        VendorServiceFilterVendorsBody body = new VendorServiceFilterVendorsBody();
+        body.setFilter(filter);
+        body.setPagination(pagination);
+        return body;
+    }
+    
+    /**
+     * Delta refresh: look up only the given seller numbers (status=approved) and add the
+     * approved ones to the cached list. One request per seller, page size 1.
+     */
+    public static void lookupApprovedSellers(String eventId, Collection<Integer> sellerIds) throws ApiException {
+        VendorServiceApi api = ApiHelper.INSTANCE.getVendorServiceApi();
+        Set<Integer> found = new HashSet<>();
+        for (Integer sellerId : sellerIds) {
+            V1VendorFilter filter = new V1VendorFilter();
+            filter.setStatus("approved");
+            filter.setSellerNumber(sellerId);
+            
+            V1Pagination pagination = new V1Pagination();
+            pagination.setPageSize(1);
+            
+            VendorServiceFilterVendorsBody body = new VendorServiceFilterVendorsBody();
+            body.setFilter(filter);
+            body.setPagination(pagination);
+            
+            V1FilterVendorsResponse response = fetchPage(api, eventId, body, 0);
+            if (response.getVendors() != null) {
+                for (V1Vendor vendor : response.getVendors()) {
+                    // Guard against a backend that ignores the sellerNumber filter
+                    if (sellerId.equals(vendor.getSellerNumber())) {
+                        found.add(sellerId);
+                    }
+                }
+            }
         }
+        log.info(String.format("Delta seller lookup: %d requested, %d approved", sellerIds.size(), found.size()));
+        if (found.isEmpty()) {
+            return;
+        }
+        
+        Set<Integer> approvedSellers = new HashSet<>(found);
+        for (int seller : ILoppisConfigurationStore.getApprovedSellerSet().toArray()) {
+            approvedSellers.add(seller);
+        }
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("approvedSellers", new JSONArray(approvedSellers));
+        ILoppisConfigurationStore.setApprovedSellers(jsonObject.toString());
+    }
+    
+    /**
+     * One vendors:filter call, recorded as a {@link VendorRefreshPageEvent}.
+     *
+     * @param page 1-based page of a full sweep, or 0 for a targeted lookup
+     */
+    private static V1FilterVendorsResponse fetchPage(VendorServiceApi api, String eventId,
+                                                     VendorServiceFilterVendorsBody body, int page) throws ApiException {
+        VendorRefreshPageEvent event = new VendorRefreshPageEvent();
+        event.begin();
+        V1FilterVendorsResponse response = api.vendorServiceFilterVendors(eventId, body);
+        event.end();
+        if (event.shouldCommit()) {
+            event.eventId = eventId;
+            event.page = page;
+            event.vendors = response.getVendors() == null ? 0 : response.getVendors().size();
+            event.commit();
+        }
+        return response;
+    }
+    
+    /**
+     * @return true if the cached list is a complete list for {@code eventId} that deltas can
+     *         be applied to: fetched by this process, or cached together with the configured event
+     */
+    static boolean hasDeltaBaseline(String eventId) {
+        if (eventId.equals(fullRefreshEventId)) {
+            return true;
+        }
+        return eventId.equals(ILoppisConfigurationStore.getEventId())
+                && !ILoppisConfigurationStore.getApprovedSellerSet().isEmpty();
+    }
+    
+    /**
+     * Check if a seller is in the approved sellers list (cached version).
+     * Backed by {@link ILoppisConfigurationStore#getApprovedSellerSet()}, so this is
+     * an O(1) lookup without JSON parsing.
+     * 
+     * @param sellerId the seller number to check
+     * @return true if seller is approved, false otherwise
+     */
+    public static boolean isSellerApproved(int sellerId) {
+        return ILoppisConfigurationStore.getApprovedSellerSet().contains(sellerId);
     }
 }
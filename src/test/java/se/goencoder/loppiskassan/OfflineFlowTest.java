@@ -7,13 +7,13 @@ import se.goencoder.loppiskassan.config.LocalConfigurationStore;
 import se.goencoder.loppiskassan.controller.CashierTabController;
 import se.goencoder.loppiskassan.controller.HistoryTabController;
 import se.goencoder.loppiskassan.localization.LocalizationManager;
-import se.goencoder.loppiskassan.storage.JsonlHelper;
-import se.goencoder.loppiskassan.storage.LocalEventPaths;
 import se.goencoder.loppiskassan.storage.LocalEventRepository;
+import se.goencoder.loppiskassan.storage.PendingItemsStore;
 import se.goencoder.loppiskassan.V1PaymentMethod;
 import se.goencoder.loppiskassan.V1SoldItem;
 import se.goencoder.loppiskassan.ui.CashierPanelInterface;
 import se.goencoder.loppiskassan.ui.HistoryPanelInterface;
+import se.goencoder.loppiskassan.ui.HistorySearchIndex;
 
 import java.awt.Component;
 import java.nio.file.Files;
@@ -31,6 +31,7 @@ public class OfflineFlowTest {
         @Override public void setFocusToSellerField() {}
         @Override public void enableCheckoutButtons(boolean enable) {}
         @Override public void addSoldItem(V1SoldItem item) {}
+        @Override public void removeSoldItem(String itemId) {}
         @Override public void setPaidAmount(int amount) {}
         @Override public void setChange(int amount) {}
         @Override public Map<Integer, Integer[]> getAndClearSellerPrices() { return Map.of(); }
@@ -45,6 +46,8 @@ public class OfflineFlowTest {
         String paymentMethodFilter;
         String paidFilter;
         @Override public void updateHistoryTable(List<V1SoldItem> items) {}
+        @Override public void setSearchIndex(HistorySearchIndex index) {}
+        @Override public void addToSearchIndex(List<V1SoldItem> items) {}
         @Override public void updateSumLabel(String sum) {}
         @Override public void updateNoItemsLabel(String noItems) {}
         @Override public String getSellerFilter() { return sellerFilter; }
@@ -81,10 +84,10 @@ public class OfflineFlowTest {
             int price = 10 + i;
             cashier.addItem(sellerId, new Integer[]{price});
             V1PaymentMethod pm = sellerId == 1 ? V1PaymentMethod.Swish : V1PaymentMethod.Kontant;
-            cashier.checkout(pm);
+            cashier.checkout(pm).join();
         }
 
-        List<V1SoldItem> items = JsonlHelper.readItems(LocalEventPaths.getPendingItemsPath("local-test"));
+        List<V1SoldItem> items = new PendingItemsStore("local-test").readAll();
         assertEquals(100, items.size());
 
         HistoryTabController history = HistoryTabController.getInstance();
@@ -102,7 +105,7 @@ public class OfflineFlowTest {
         historyView.paidFilter = "false";
         history.buttonAction(BUTTON_PAY_OUT);
 
-        List<V1SoldItem> updated = JsonlHelper.readItems(LocalEventPaths.getPendingItemsPath("local-test"));
+        List<V1SoldItem> updated = new PendingItemsStore("local-test").readAll();
 
         long seller1SwishPaid = updated.stream()
                 .filter(i -> i.getSeller() == 1 && i.getPaymentMethod() == V1PaymentMethod.Swish && i.isCollectedBySeller())
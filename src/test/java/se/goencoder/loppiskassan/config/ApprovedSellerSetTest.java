@@ -0,0 +1,65 @@
+package se.goencoder.loppiskassan.config;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ApprovedSellerSetTest {
+
+    @Test
+    void parsesCachedJson() {
+        ApprovedSellerSet set = ApprovedSellerSet.fromJson("{\"approvedSellers\":[1,5,64,5,\"7\",2.5]}");
+
+        assertEquals(3, set.size());
+        assertTrue(set.contains(1));
+        assertTrue(set.contains(5));
+        assertTrue(set.contains(64));
+        assertFalse(set.contains(7));
+        assertFalse(set.contains(0));
+        assertFalse(set.contains(65));
+        assertFalse(set.contains(1_000_000));
+    }
+
+    @Test
+    void blankOrBrokenJsonIsEmpty() {
+        assertTrue(ApprovedSellerSet.fromJson(null).isEmpty());
+        assertTrue(ApprovedSellerSet.fromJson("  ").isEmpty());
+        assertTrue(ApprovedSellerSet.fromJson("{\"approvedSellers\":").isEmpty());
+        assertTrue(ApprovedSellerSet.fromJson("{}").isEmpty());
+    }
+
+    @Test
+    void matchesHashSetForAnyIntRange() {
+        Random random = new Random(5);
+        Set<Integer> expected = new HashSet<>();
+        JSONArray sellers = new JSONArray();
+        for (int i = 0; i < 5_000; i++) {
+            int seller = switch (i % 4) {
+                case 0 -> random.nextInt(2_000);
+                case 1 -> -random.nextInt(1_000_000);
+                case 2 -> random.nextInt();
+                default -> Integer.MIN_VALUE + random.nextInt(3);
+            };
+            expected.add(seller);
+            sellers.put(seller);
+        }
+        ApprovedSellerSet set = ApprovedSellerSet.fromJson(new JSONObject().put("approvedSellers", sellers).toString());
+
+        assertEquals(expected.size(), set.size());
+        for (int seller : expected) {
+            assertTrue(set.contains(seller), "missing " + seller);
+        }
+        for (int i = 0; i < 100_000; i++) {
+            int probe = i % 2 == 0 ? random.nextInt(4_000) - 2_000 : random.nextInt();
+            assertEquals(expected.contains(probe), set.contains(probe), "probe " + probe);
+        }
+    }
+}
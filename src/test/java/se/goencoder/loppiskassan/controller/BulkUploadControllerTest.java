@@ -0,0 +1,73 @@
+package se.goencoder.loppiskassan.controller;
+
+import org.junit.jupiter.api.Test;
+import se.goencoder.iloppis.model.V1CreateSoldItemsResponse;
+import se.goencoder.iloppis.model.V1RejectedItem;
+import se.goencoder.iloppis.model.V1SoldItemErrorCode;
+import se.goencoder.loppiskassan.V1PaymentMethod;
+import se.goencoder.loppiskassan.V1SoldItem;
+import se.goencoder.loppiskassan.model.BulkUploadResult;
+import se.goencoder.loppiskassan.service.SoldItemUploadBatcher;
+import se.goencoder.loppiskassan.utils.SoldItemUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkUploadControllerTest {
+
+    @Test
+    void invalidSellerInOnePurchaseDoesNotFailTheRestOfTheBatch() throws Exception {
+        List<V1SoldItem> batch = new ArrayList<>();
+        batch.add(item("a", "a-0", 999));
+        batch.add(item("a", "a-1", 1));
+        batch.add(item("b", "b-0", 2));
+        batch.add(item("b", "b-1", 3));
+        batch.add(item("c", "c-0", 4));
+        List<List<String>> requests = new ArrayList<>();
+        BulkUploadResult result = new BulkUploadResult();
+
+        BulkUploadController.uploadGroupAttempt(new SoldItemUploadBatcher(), batch, items -> {
+            requests.add(items.stream().map(V1SoldItem::getItemId).toList());
+            V1CreateSoldItemsResponse response = new V1CreateSoldItemsResponse();
+            for (V1SoldItem item : items) {
+                if (item.getSeller() == 999) {
+                    response.addRejectedItemsItem(rejected(item, V1SoldItemErrorCode.INVALID_SELLER, "unknown seller"));
+                } else if (item.getItemId().equals("c-0")) {
+                    response.addRejectedItemsItem(rejected(item, V1SoldItemErrorCode.DUPLICATE_RECEIPT, "already stored"));
+                } else if (requests.size() == 1) {
+                    // The server rejects the rest of the request as collateral
+                    response.addRejectedItemsItem(rejected(item, V1SoldItemErrorCode.UNSPECIFIED, null));
+                } else {
+                    response.addAcceptedItemsItem(SoldItemUtils.toApiSoldItem(item));
+                }
+            }
+            return response;
+        }, result);
+
+        assertEquals(2, requests.size(), "collateral items are retried once");
+        assertEquals(Set.of("a-1", "b-0", "b-1"),
+                result.acceptedItems.stream().map(V1SoldItem::getItemId).collect(Collectors.toSet()));
+        assertTrue(result.acceptedItems.stream().allMatch(V1SoldItem::isUploaded));
+        assertEquals(List.of("c-0"), itemIds(result.duplicateItems));
+        assertEquals(List.of("a-0"), itemIds(result.failedItems), "only the invalid seller is rejected");
+    }
+
+    private static List<String> itemIds(List<V1RejectedItem> rejected) {
+        return rejected.stream().map(r -> r.getItem().getItemId()).toList();
+    }
+
+    private static V1SoldItem item(String purchaseId, String itemId, int seller) {
+        return new V1SoldItem(purchaseId, itemId, LocalDateTime.of(2026, 2, 8, 12, 0),
+                seller, 10, null, V1PaymentMethod.Kontant, false);
+    }
+
+    private static V1RejectedItem rejected(V1SoldItem item, V1SoldItemErrorCode code, String reason) {
+        return new V1RejectedItem().item(SoldItemUtils.toApiSoldItem(item)).errorCode(code).reason(reason);
+    }
+}
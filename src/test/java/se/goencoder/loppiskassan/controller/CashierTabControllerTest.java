@@ -18,28 +18,53 @@ import static org.junit.jupiter.api.Assertions.*;
 class CashierTabControllerTest {
     static class StubView implements CashierPanelInterface {
         int change;
+        int paidAmount;
+        int added;
+        int removed;
+        int cleared;
         @Override public void setFocusToSellerField() {}
         @Override public void enableCheckoutButtons(boolean enable) {}
-        @Override public void addSoldItem(V1SoldItem item) {}
-        @Override public void setPaidAmount(int amount) {}
+        @Override public void addSoldItem(V1SoldItem item) { added++; }
+        @Override public void removeSoldItem(String itemId) { removed++; }
+        @Override public void setPaidAmount(int amount) { this.paidAmount = amount; }
         @Override public void setChange(int amount) { this.change = amount; }
         @Override public Map<Integer, Integer[]> getAndClearSellerPrices() { return Map.of(); }
-        @Override public void clearView() {}
+        @Override public void clearView() { cleared++; }
         @Override public void showCheckoutSuccess(se.goencoder.loppiskassan.V1PaymentMethod paymentMethod, int totalAmount) {}
         @Override public void selected() {}
         @Override public Component getComponent() { return null; }
     }
 
     @Test
-    void calculateChange() {
-        try {
-            Path tempDir = Files.createTempDirectory("loppiskassan-test");
-            System.setProperty("user.home", tempDir.toString());
-            AppModeManager.setMode(AppMode.LOCAL);
-            LocalConfigurationStore.setEventId("local-test");
-            LocalEventRepository.ensureEventStorage("local-test");
-        } catch (Exception ignored) {
+    void addAndDeleteSendRowChangesNotRebuilds() {
+        useLocalEvent();
+        CashierTabController controller = (CashierTabController) CashierTabController.getInstance();
+        StubView view = new StubView();
+        controller.registerView(view);
+        controller.cancelCheckout();
+        int clearsBefore = view.cleared;
+
+        for (int i = 1; i <= 60; i++) {
+            controller.addItem(1, new Integer[]{i});
         }
+        assertEquals(60, view.added);
+        assertEquals(clearsBefore, view.cleared);
+        assertEquals(1830, controller.getState().getTotalSum());
+        assertEquals(1900, view.paidAmount);
+
+        String firstItemId = controller.getState().getItems().get(0).getItemId();
+        controller.deleteItem(firstItemId);
+        controller.deleteItem("no-such-item");
+        assertEquals(1, view.removed);
+        assertEquals(59, controller.getState().getItemCount());
+        assertEquals(1829, controller.getState().getTotalSum());
+        assertEquals(clearsBefore, view.cleared);
+        controller.cancelCheckout();
+    }
+
+    @Test
+    void calculateChange() {
+        useLocalEvent();
         CashierTabController controller = (CashierTabController) CashierTabController.getInstance();
         StubView view = new StubView();
         controller.registerView(view);
@@ -49,4 +74,15 @@ class CashierTabControllerTest {
         assertEquals(50, view.change);
         controller.cancelCheckout();
     }
+
+    private static void useLocalEvent() {
+        try {
+            Path tempDir = Files.createTempDirectory("loppiskassan-test");
+            System.setProperty("user.home", tempDir.toString());
+            AppModeManager.setMode(AppMode.LOCAL);
+            LocalConfigurationStore.setEventId("local-test");
+            LocalEventRepository.ensureEventStorage("local-test");
+        } catch (Exception ignored) {
+        }
+    }
 }
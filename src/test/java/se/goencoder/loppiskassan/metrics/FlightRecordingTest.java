@@ -0,0 +1,63 @@
+package se.goencoder.loppiskassan.metrics;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.goencoder.loppiskassan.V1PaymentMethod;
+import se.goencoder.loppiskassan.V1SoldItem;
+import se.goencoder.loppiskassan.storage.JsonlHelper;
+import se.goencoder.loppiskassan.utils.FilterUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FlightRecordingTest {
+
+    private String originalHome;
+    private Path home;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        originalHome = System.getProperty("user.home");
+        home = Files.createTempDirectory("loppiskassan-jfr");
+        System.setProperty("user.home", home.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setProperty("user.home", originalHome);
+    }
+
+    @Test
+    void dumpContainsTheAppsEvents() throws Exception {
+        FlightRecording.start();
+        Path items = home.resolve("items.jsonl");
+        List<V1SoldItem> sold = List.of(
+                new V1SoldItem("p1", "i1", LocalDateTime.of(2026, 2, 8, 10, 0), 4, 50, null, V1PaymentMethod.Swish, false),
+                new V1SoldItem("p1", "i2", LocalDateTime.of(2026, 2, 8, 10, 0), 5, 20, null, V1PaymentMethod.Swish, false));
+        JsonlHelper.appendItems(items, sold);
+        JsonlHelper.readItems(items);
+        FilterUtils.applyFiltersWithSum(sold, null, "4", null);
+
+        Path dump = FlightRecording.dumpToLogs();
+        assertEquals(home.resolve(".loppiskassan/logs"), dump.getParent());
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        List<RecordedEvent> fileEvents = events.stream()
+                .filter(e -> e.getEventType().getName().equals("se.goencoder.loppiskassan.PendingFile"))
+                .filter(e -> items.toString().equals(e.getString("path")))
+                .toList();
+        assertEquals(List.of("append", "read"), fileEvents.stream().map(e -> e.getString("operation")).toList());
+        assertTrue(fileEvents.get(0).getLong("bytes") > 0);
+        assertEquals(fileEvents.get(0).getLong("bytes"), fileEvents.get(1).getLong("bytes"));
+        assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("se.goencoder.loppiskassan.HistoryFilter")
+                && e.getInt("matches") == 1 && e.getInt("inputItems") == 2));
+    }
+}
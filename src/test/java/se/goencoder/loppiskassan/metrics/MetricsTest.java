@@ -0,0 +1,83 @@
+package se.goencoder.loppiskassan.metrics;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsTest {
+
+    private String originalHome;
+
+    @AfterEach
+    void tearDown() {
+        MetricsExporter.stopServer();
+        if (originalHome != null) {
+            System.setProperty("user.home", originalHome);
+        }
+    }
+
+    @Test
+    void histogramPercentilesAreWithinABucket() {
+        Histogram histogram = Metrics.histogram("test.latency.micros");
+        for (int value = 1; value <= 10_000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(10_000, histogram.count());
+        assertEquals(10_000, histogram.max());
+        assertEquals(5_000.5, histogram.mean(), 0.001);
+        assertWithin(5_000, histogram.percentile(0.50));
+        assertWithin(9_900, histogram.percentile(0.99));
+        assertEquals(10_000, histogram.percentile(1.0));
+
+        for (long value : new long[]{0, 7, 8, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = Histogram.bucket(value);
+            assertTrue(Histogram.upperBound(bucket) >= value, "upper bound of " + value);
+            assertTrue(bucket == 0 || Histogram.upperBound(bucket - 1) < value, "lower bound of " + value);
+        }
+    }
+
+    @Test
+    void snapshotIsWrittenToTheLogsDirAndServedOnLoopback() throws Exception {
+        originalHome = System.getProperty("user.home");
+        Path home = Files.createTempDirectory("loppiskassan-metrics");
+        System.setProperty("user.home", home.toString());
+
+        Metrics.counter("test.calls").add(3);
+        Metrics.gauge("test.depth").set(7);
+        Metrics.gauge("test.supplied", () -> 42);
+        Metrics.gauge("test.broken", () -> {
+            throw new IllegalStateException("not ready");
+        });
+        Metrics.histogram("test.micros").record(250);
+
+        Path file = MetricsExporter.export();
+        JSONObject written = new JSONObject(Files.readString(file));
+        assertEquals(home.resolve(".loppiskassan/logs/metrics.json"), file);
+        assertEquals(3, written.getJSONObject("counters").getLong("test.calls"));
+        assertEquals(7, written.getJSONObject("gauges").getLong("test.depth"));
+        assertEquals(42, written.getJSONObject("gauges").getLong("test.supplied"));
+        assertTrue(!written.getJSONObject("gauges").has("test.broken"));
+        assertEquals(1, written.getJSONObject("histograms").getJSONObject("test.micros").getLong("count"));
+
+        int port = MetricsExporter.startServer(0);
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/metrics")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals(3, new JSONObject(response.body()).getJSONObject("counters").getLong("test.calls"));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected * 1.125, expected + " ~ " + actual);
+    }
+}
@@ -0,0 +1,52 @@
+package se.goencoder.loppiskassan.model.cashier;
+
+import org.junit.jupiter.api.Test;
+import se.goencoder.loppiskassan.V1SoldItem;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CashierCartTest {
+
+    @Test
+    void totalFollowsAddRemoveAndClear() {
+        CashierCart cart = new CashierCart();
+        V1SoldItem first = item("a", 100);
+        V1SoldItem second = item("b", 45);
+        cart.add(first);
+        cart.add(second);
+        cart.add(item("c", 10));
+        assertEquals(155, cart.getTotal());
+        assertEquals(200, cart.getRoundedTotal());
+
+        assertSame(second, cart.remove("b"));
+        assertNull(cart.remove("b"));
+        assertEquals(110, cart.getTotal());
+        assertEquals(2, cart.size());
+        assertSame(first, cart.getItems().get(0));
+
+        cart.clear();
+        assertTrue(cart.isEmpty());
+        assertEquals(0, cart.getTotal());
+        assertEquals(0, cart.getRoundedTotal());
+    }
+
+    @Test
+    void itemsViewIsLiveButReadOnly() {
+        CashierCart cart = new CashierCart();
+        var items = cart.getItems();
+        cart.add(item("a", 300));
+        assertEquals(1, items.size());
+        assertEquals(300, cart.getRoundedTotal());
+        assertThrows(UnsupportedOperationException.class, () -> items.add(item("b", 1)));
+    }
+
+    private static V1SoldItem item(String itemId, int price) {
+        return new V1SoldItem("p", itemId, LocalDateTime.of(2026, 2, 8, 10, 0), 1, price, null, null, false);
+    }
+}
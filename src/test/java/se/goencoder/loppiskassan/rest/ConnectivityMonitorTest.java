@@ -0,0 +1,84 @@
+package se.goencoder.loppiskassan.rest;
+
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConnectivityMonitorTest {
+
+    @Test
+    void verdictIsCachedForTheTtlAndListenersSeeTransitionsOnly() {
+        AtomicLong now = new AtomicLong(1_000);
+        AtomicBoolean reachable = new AtomicBoolean(true);
+        AtomicInteger probes = new AtomicInteger();
+        ConnectivityMonitor monitor = new ConnectivityMonitor(() -> {
+            probes.incrementAndGet();
+            return reachable.get();
+        }, now::get);
+        List<Boolean> transitions = new ArrayList<>();
+        monitor.addListener(transitions::add);
+
+        assertTrue(monitor.isOnline());
+        reachable.set(false);
+        now.addAndGet(ConnectivityMonitor.VERDICT_TTL_MS - 1);
+        assertTrue(monitor.isOnline(), "still within the TTL");
+        assertEquals(1, probes.get());
+
+        now.addAndGet(1);
+        assertFalse(monitor.isOnline());
+        assertEquals(2, probes.get());
+
+        monitor.reportUnreachable();
+        monitor.reportReachable();
+        assertTrue(monitor.isOnline(), "a passive report refreshes the verdict");
+        assertEquals(2, probes.get());
+        assertEquals(List.of(true, false, true), transitions);
+    }
+
+    @Test
+    void realCallsUpdateTheVerdictPassively() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+        });
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/events:filter";
+        ConnectivityMonitor monitor = new ConnectivityMonitor(() -> {
+            throw new AssertionError("no probe expected");
+        }, System::currentTimeMillis);
+        List<Boolean> transitions = new ArrayList<>();
+        monitor.addListener(transitions::add);
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(monitor.passiveInterceptor())
+                .build();
+        try {
+            try (Response response = client.newCall(new Request.Builder().url(url).build()).execute()) {
+                assertEquals(503, response.code());
+            }
+            assertTrue(monitor.isOnline(), "any HTTP answer means the backend is reachable");
+        } finally {
+            server.stop(0);
+        }
+
+        assertThrows(IOException.class, () -> client.newCall(new Request.Builder().url(url).build()).execute());
+        assertFalse(monitor.isOnline());
+        assertEquals(List.of(true, false), transitions);
+    }
+}
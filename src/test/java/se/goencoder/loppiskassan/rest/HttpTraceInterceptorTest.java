@@ -0,0 +1,82 @@
+package se.goencoder.loppiskassan.rest;
+
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HttpTraceInterceptorTest {
+
+    @Test
+    void secretsAreRedactedAndLongBodiesCapped() {
+        String body = "{\"alias\":\"kassa-1\",\"apiKey\":\"s3cr3t\", \"code\" : \"ABC-123\",\"items\":[]}";
+        assertEquals("{\"alias\":\"kassa-1\",\"apiKey\":\"***\", \"code\" : \"***\",\"items\":[]}",
+                HttpTraceInterceptor.redact(body));
+
+        String longBody = "x".repeat(HttpTraceInterceptor.MAX_CAPTURED_CHARS + 10);
+        String capped = HttpTraceInterceptor.redact(longBody);
+        assertTrue(capped.endsWith("... (10 more chars)"), capped);
+        assertEquals(HttpTraceInterceptor.MAX_CAPTURED_CHARS + "... (10 more chars)".length(), capped.length());
+    }
+
+    @Test
+    void sampledCallsAreTracedAndFailuresAlways() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/v1/ok", exchange -> {
+            byte[] reply = "{\"token\":\"t0p\",\"ok\":true}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, reply.length);
+            exchange.getResponseBody().write(reply);
+            exchange.close();
+        });
+        server.createContext("/v1/fail", exchange -> {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+        });
+        server.start();
+        List<String> lines = new ArrayList<>();
+        Handler capture = new Handler() {
+            @Override public void publish(LogRecord record) { lines.add(record.getMessage()); }
+            @Override public void flush() {}
+            @Override public void close() {}
+        };
+        Logger logger = Logger.getLogger(HttpTraceInterceptor.class.getName());
+        logger.addHandler(capture);
+        try {
+            OkHttpClient client = new OkHttpClient.Builder()
+                    .addInterceptor(new HttpTraceInterceptor(HttpTraceInterceptor.Level.BODY, 2))
+                    .build();
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            RequestBody body = RequestBody.create("{\"apiKey\":\"k\"}", MediaType.get("application/json"));
+            for (int i = 0; i < 4; i++) {
+                try (Response response = client.newCall(new Request.Builder().url(base + "/v1/ok").post(body).build()).execute()) {
+                    assertEquals("{\"token\":\"t0p\",\"ok\":true}", response.body().string());
+                }
+            }
+            client.newCall(new Request.Builder().url(base + "/v1/fail").build()).execute().close();
+
+            assertEquals(3, lines.size(), lines.toString());
+            assertTrue(lines.get(0).startsWith("[HTTP] POST /v1/ok 200 "), lines.get(0));
+            assertTrue(lines.get(0).contains("request: {\"apiKey\":\"***\"}"), lines.get(0));
+            assertTrue(lines.get(0).contains("response: {\"token\":\"***\",\"ok\":true}"), lines.get(0));
+            assertTrue(lines.get(2).startsWith("[HTTP] GET /v1/fail 503 "), lines.get(2));
+        } finally {
+            logger.removeHandler(capture);
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package se.goencoder.loppiskassan.rest;
+
+import org.junit.jupiter.api.Test;
+import se.goencoder.iloppis.invoker.ApiException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PagedFetcherTest {
+
+    /** Page n holds the number n; tokens are page numbers, "" is page 0. */
+    private record Page(int number, String next) {
+    }
+
+    private static Page page(String token, int lastPage) {
+        int n = token.isEmpty() ? 0 : Integer.parseInt(token);
+        return new Page(n, n < lastPage ? String.valueOf(n + 1) : "");
+    }
+
+    @Test
+    void nextPageIsFetchedWhileThisOneIsConsumedAndAheadIsBounded() throws Exception {
+        AtomicInteger requested = new AtomicInteger();
+        CountDownLatch secondRequested = new CountDownLatch(1);
+        PagedFetcher<Page> fetcher = new PagedFetcher<>(token -> {
+            if (requested.incrementAndGet() == 2) {
+                secondRequested.countDown();
+            }
+            return page(token, 9);
+        }, Page::next, 2);
+
+        List<Integer> seen = new ArrayList<>();
+        int[] maxAhead = {0};
+        PagedFetcher.Summary summary = fetcher.forEach("", page -> {
+            if (page.number() == 0) {
+                assertTrue(await(secondRequested), "page 1 requested during page 0");
+            }
+            seen.add(page.number());
+            maxAhead[0] = Math.max(maxAhead[0], requested.get() - seen.size());
+            return true;
+        }, () -> false);
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), seen);
+        assertEquals(new PagedFetcher.Summary(10, "9"), summary);
+        assertTrue(maxAhead[0] <= 3, "prefetch 2 plus one request in flight, was " + maxAhead[0]);
+    }
+
+    /** Wait for the latch, then give the fetcher time to run into the full queue. */
+    private static boolean await(CountDownLatch latch) {
+        try {
+            boolean reached = latch.await(5, TimeUnit.SECONDS);
+            Thread.sleep(100);
+            return reached;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Test
+    void stopsOnConsumerCancelAndFailure() throws Exception {
+        AtomicInteger requested = new AtomicInteger();
+        PagedFetcher<Page> fetcher = new PagedFetcher<>(token -> {
+            requested.incrementAndGet();
+            return page(token, 1_000);
+        }, Page::next);
+
+        PagedFetcher.Summary stopped = fetcher.forEach("", page -> page.number() < 3, () -> false);
+        assertEquals(new PagedFetcher.Summary(4, "3"), stopped);
+
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicInteger consumed = new AtomicInteger();
+        assertThrows(CancellationException.class, () -> fetcher.forEach("", page -> {
+            if (consumed.incrementAndGet() == 5) {
+                cancelled.set(true);
+            }
+            return true;
+        }, cancelled::get));
+        assertEquals(5, consumed.get());
+        int requestedAtCancel = requested.get();
+        Thread.sleep(100);
+        assertTrue(requested.get() - requestedAtCancel <= 1, "the fetcher stops after a cancel");
+
+        PagedFetcher<Page> failing = new PagedFetcher<>(token -> {
+            if (token.equals("2")) {
+                throw new ApiException(503, null, "unavailable");
+            }
+            return page(token, 5);
+        }, Page::next);
+        List<Integer> seen = new ArrayList<>();
+        ApiException error = assertThrows(ApiException.class, () -> failing.forEach("", page -> seen.add(page.number()), () -> false));
+        assertEquals(503, error.getCode());
+        assertEquals(List.of(0, 1), seen);
+    }
+}
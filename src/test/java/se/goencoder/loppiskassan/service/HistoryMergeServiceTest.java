@@ -0,0 +1,153 @@
+package se.goencoder.loppiskassan.service;
+
+import org.junit.jupiter.api.Test;
+import se.goencoder.loppiskassan.V1PaymentMethod;
+import se.goencoder.loppiskassan.V1SoldItem;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HistoryMergeServiceTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 2, 8, 12, 0);
+    private static final HistoryMergeService ALWAYS_BUCKETED = new HistoryMergeService(60, 0);
+    private static final HistoryMergeService ALWAYS_LINEAR = new HistoryMergeService(60, Long.MAX_VALUE);
+
+    @Test
+    void matchedItemsAreUpdatedInPlace() {
+        V1SoldItem local = item("a", 1, 100, BASE);
+        List<V1SoldItem> history = new ArrayList<>(List.of(local));
+        V1SoldItem fetched = item("a", 1, 100, BASE);
+        fetched.setUploaded(true);
+        fetched.setCollectedBySellerTime(BASE.plusHours(2));
+
+        HistoryMergeService.MergeResult result = new HistoryMergeService().merge(history, Map.of("a", fetched));
+
+        assertEquals(new HistoryMergeService.MergeResult(1, 0, 0), result);
+        assertSame(local, history.get(0));
+        assertTrue(local.isUploaded());
+        assertEquals(BASE.plusHours(2), local.getCollectedBySellerTime());
+    }
+
+    @Test
+    void toleranceBoundaryMatchesDurationSeconds() {
+        assertBoundarySemantics(ALWAYS_BUCKETED);
+        assertBoundarySemantics(ALWAYS_LINEAR);
+    }
+
+    private static void assertBoundarySemantics(HistoryMergeService service) {
+        // Duration.getSeconds() floors, so +60.9s matches but -60.5s does not
+        assertTrue(service.isSameTimeApproximately(BASE, BASE.plusSeconds(60).plusNanos(900_000_000)));
+        assertFalse(service.isSameTimeApproximately(BASE, BASE.minusSeconds(60).minusNanos(500_000_000)));
+        assertFalse(service.isSameTimeApproximately(BASE, BASE.plusSeconds(61)));
+
+        List<V1SoldItem> history = new ArrayList<>(List.of(item("local", 5, 50, BASE)));
+        Map<String, V1SoldItem> fetched = new LinkedHashMap<>();
+        fetched.put("near", item("near", 5, 50, BASE.plusSeconds(60).plusNanos(900_000_000)));
+        fetched.put("far", item("far", 5, 50, BASE.minusSeconds(60).minusNanos(500_000_000)));
+        fetched.put("nullTime", item("nullTime", 5, 50, null));
+
+        HistoryMergeService.MergeResult result = service.merge(history, fetched);
+
+        assertEquals(new HistoryMergeService.MergeResult(0, 2, 1), result);
+        assertEquals(List.of("local", "far", "nullTime"), history.stream().map(V1SoldItem::getItemId).toList());
+    }
+
+    @Test
+    void addedItemsTakePartInLaterDuplicateChecks() {
+        for (HistoryMergeService service : List.of(ALWAYS_BUCKETED, ALWAYS_LINEAR)) {
+            List<V1SoldItem> history = new ArrayList<>();
+            Map<String, V1SoldItem> fetched = new LinkedHashMap<>();
+            fetched.put("x1", item("x1", 7, 30, BASE));
+            fetched.put("x2", item("x2", 7, 30, BASE.plusSeconds(30)));
+
+            service.merge(history, fetched);
+
+            assertEquals(1, history.size());
+            assertEquals("x1", history.get(0).getItemId());
+        }
+    }
+
+    @Test
+    void matchesLinearScanOnRandomData() {
+        Random random = new Random(11);
+        for (int round = 0; round < 50; round++) {
+            List<V1SoldItem> local = new ArrayList<>();
+            Map<String, V1SoldItem> fetched = new LinkedHashMap<>();
+            for (int i = 0; i < 300; i++) {
+                local.add(randomItem(random, "L" + round + "-" + i));
+            }
+            for (int i = 0; i < 300; i++) {
+                V1SoldItem item = random.nextInt(3) == 0
+                        ? copy(local.get(random.nextInt(local.size())))
+                        : randomItem(random, "F" + round + "-" + i);
+                fetched.put(item.getItemId(), item);
+            }
+
+            List<V1SoldItem> expected = linearScanMerge(copyAll(local), fetched);
+            for (HistoryMergeService service : List.of(ALWAYS_BUCKETED, new HistoryMergeService())) {
+                List<V1SoldItem> actual = copyAll(local);
+                service.merge(actual, fetched);
+
+                assertEquals(expected.stream().map(V1SoldItem::getItemId).toList(),
+                        actual.stream().map(V1SoldItem::getItemId).toList());
+            }
+        }
+    }
+
+    // Reference: the O(local x remote) merge the service replaced
+    private static List<V1SoldItem> linearScanMerge(List<V1SoldItem> history, Map<String, V1SoldItem> fetchedItems) {
+        Set<String> processed = new HashSet<>();
+        for (V1SoldItem existing : history) {
+            if (fetchedItems.containsKey(existing.getItemId())) {
+                processed.add(existing.getItemId());
+            }
+        }
+        for (V1SoldItem fetched : fetchedItems.values()) {
+            if (processed.contains(fetched.getItemId())) {
+                continue;
+            }
+            boolean duplicate = history.stream().anyMatch(existing ->
+                    existing.getSeller() == fetched.getSeller()
+                            && existing.getPrice() == fetched.getPrice()
+                            && existing.getSoldTime() != null && fetched.getSoldTime() != null
+                            && Math.abs(Duration.between(existing.getSoldTime(), fetched.getSoldTime()).getSeconds()) <= 60);
+            if (!duplicate) {
+                history.add(fetched);
+            }
+        }
+        return history;
+    }
+
+    private static V1SoldItem randomItem(Random random, String itemId) {
+        // Few sellers/prices and a narrow time range so lookalikes are common
+        LocalDateTime soldTime = random.nextInt(30) == 0
+                ? null
+                : BASE.plusNanos(random.nextLong(600_000_000_000L) - 300_000_000_000L);
+        return item(itemId, 1 + random.nextInt(3), 10 * (1 + random.nextInt(3)), soldTime);
+    }
+
+    private static List<V1SoldItem> copyAll(List<V1SoldItem> items) {
+        return new ArrayList<>(items.stream().map(HistoryMergeServiceTest::copy).toList());
+    }
+
+    private static V1SoldItem copy(V1SoldItem item) {
+        return item(item.getItemId(), item.getSeller(), item.getPrice(), item.getSoldTime());
+    }
+
+    private static V1SoldItem item(String itemId, int seller, int price, LocalDateTime soldTime) {
+        return new V1SoldItem("purchase-" + itemId, itemId, soldTime, seller, price, null, V1PaymentMethod.Kontant, false);
+    }
+}
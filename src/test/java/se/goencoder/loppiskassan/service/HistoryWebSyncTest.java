@@ -0,0 +1,120 @@
+package se.goencoder.loppiskassan.service;
+
+import org.junit.jupiter.api.Test;
+import se.goencoder.iloppis.invoker.ApiException;
+import se.goencoder.iloppis.model.V1Aggregates;
+import se.goencoder.iloppis.model.V1ListSoldItemsResponse;
+import se.goencoder.iloppis.model.V1PaidFilter;
+import se.goencoder.iloppis.model.V1PaymentMethod;
+import se.goencoder.iloppis.model.V1SoldItem;
+import se.goencoder.loppiskassan.storage.HistorySyncCursor;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistoryWebSyncTest {
+
+    private static final OffsetDateTime BASE = OffsetDateTime.of(2026, 5, 16, 10, 0, 0, 0, ZoneOffset.UTC);
+
+    /** Offset-token backend over a list in creation order. */
+    private static final class FakeBackend implements HistoryWebSync.SoldItemsLister {
+        final List<V1SoldItem> items = new ArrayList<>();
+        final List<String> calls = new ArrayList<>();
+        int sold;
+
+        void sell(int count) {
+            for (int i = 0; i < count; i++) {
+                int n = sold++;
+                items.add(new V1SoldItem()
+                        .itemId("item-" + n)
+                        .purchaseId("p-" + n)
+                        .seller(1 + n % 40)
+                        .price(10 + n % 90)
+                        .paymentMethod(V1PaymentMethod.SWISH)
+                        .soldTime(BASE.plusSeconds(n)));
+            }
+        }
+
+        void payOut(int index) {
+            items.get(index).collectedBySeller(true).collectedTime(BASE.plusHours(6));
+        }
+
+        @Override
+        public V1ListSoldItemsResponse list(V1PaidFilter paidFilter, int pageSize, String pageToken,
+                                            boolean includeAggregates) throws ApiException {
+            calls.add(paidFilter + " " + pageToken + " " + pageSize);
+            if (!pageToken.isEmpty() && !pageToken.chars().allMatch(Character::isDigit)) {
+                throw new ApiException(400, Collections.emptyMap(), "invalid page token");
+            }
+            List<V1SoldItem> matching = items.stream()
+                    .filter(item -> paidFilter != V1PaidFilter.ONLY_PAID || Boolean.TRUE.equals(item.getCollectedBySeller()))
+                    .toList();
+            int from = pageToken.isEmpty() ? 0 : Integer.parseInt(pageToken);
+            int to = Math.min(matching.size(), from + pageSize);
+            V1ListSoldItemsResponse response = new V1ListSoldItemsResponse()
+                    .items(new ArrayList<>(matching.subList(from, to)))
+                    .nextPageToken(to < matching.size() ? String.valueOf(to) : "");
+            if (includeAggregates) {
+                response.aggregates(new V1Aggregates().totalCount(matching.size()));
+            }
+            return response;
+        }
+    }
+
+    @Test
+    void laterDownloadsOnlyFetchNewItemsAndPayouts() throws Exception {
+        FakeBackend backend = new FakeBackend();
+        backend.sell(1200);
+        HistoryWebSync sync = new HistoryWebSync(backend);
+
+        HistoryWebSync.Download first = sync.download(null, 0, false);
+        assertTrue(first.full());
+        assertEquals(1200, first.items().size());
+        assertEquals(new HistorySyncCursor("1000", 1200, 0, first.cursor().syncedAtMillis()), first.cursor());
+
+        backend.sell(10);
+        backend.calls.clear();
+        HistoryWebSync.Download second = sync.download(first.cursor(), 1200, false);
+        assertFalse(second.full());
+        assertEquals(210, second.items().size(), "the resumed page plus the new items");
+        assertNotNull(second.items().get("item-1209"));
+        assertEquals(3, backend.calls.size(), "two count probes and one page: " + backend.calls);
+        assertEquals(1210, second.cursor().itemCount());
+
+        backend.payOut(5);
+        backend.calls.clear();
+        HistoryWebSync.Download third = sync.download(second.cursor(), 1210, false);
+        assertFalse(third.full());
+        assertTrue(third.items().get("item-5").isCollectedBySeller());
+        assertTrue(backend.calls.contains("ONLY_PAID  500"), backend.calls.toString());
+        assertEquals(1, third.cursor().paidCount());
+    }
+
+    @Test
+    void fallsBackToAFullDownload() throws Exception {
+        FakeBackend backend = new FakeBackend();
+        backend.sell(600);
+        HistoryWebSync sync = new HistoryWebSync(backend);
+        HistorySyncCursor cursor = sync.download(null, 0, false).cursor();
+
+        assertTrue(sync.download(cursor, 600, true).full(), "on demand");
+        assertTrue(sync.download(cursor, 599, false).full(), "local history lost items");
+
+        backend.items.remove(0);
+        assertTrue(sync.download(cursor, 600, false).full(), "items archived on the backend");
+
+        backend.sell(1);
+        HistorySyncCursor stale = new HistorySyncCursor("expired", 600, 0, cursor.syncedAtMillis());
+        HistoryWebSync.Download rejected = sync.download(stale, 600, false);
+        assertTrue(rejected.full(), "resume token no longer accepted");
+        assertEquals(600, rejected.items().size());
+    }
+}
@@ -0,0 +1,121 @@
+package se.goencoder.loppiskassan.service;
+
+import org.junit.jupiter.api.Test;
+import se.goencoder.iloppis.invoker.ApiException;
+import se.goencoder.loppiskassan.V1PaymentMethod;
+import se.goencoder.loppiskassan.V1SoldItem;
+import se.goencoder.loppiskassan.utils.SoldItemsResponseClassifier.UploadOutcome;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PurchaseUploadPipelineTest {
+
+    @Test
+    void uploadsAllGroupsWithinConcurrencyLimit() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        PurchaseUploadPipeline pipeline = new PurchaseUploadPipeline((eventId, items) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return accepted(items);
+        }, 3, 1, 0);
+
+        PurchaseUploadPipeline.Result result = pipeline.upload("event", groups(20));
+
+        assertEquals(40, result.acceptedItemIds().size());
+        assertNull(result.failure());
+        assertEquals(0, result.notUploaded());
+        assertTrue(maxInFlight.get() <= 3, "max in flight " + maxInFlight.get());
+    }
+
+    @Test
+    void transientFailuresAreRetriedPerGroup() {
+        ConcurrentHashMap<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        PurchaseUploadPipeline pipeline = new PurchaseUploadPipeline((eventId, items) -> {
+            int attempt = attempts.computeIfAbsent(items.get(0).getPurchaseId(), k -> new AtomicInteger()).incrementAndGet();
+            if (attempt == 1) {
+                throw new ApiException(503, "unavailable");
+            }
+            return accepted(items);
+        }, 2, 3, 0);
+
+        PurchaseUploadPipeline.Result result = pipeline.upload("event", groups(5));
+
+        assertEquals(10, result.acceptedItemIds().size());
+        assertNull(result.failure());
+        attempts.values().forEach(count -> assertEquals(2, count.get()));
+    }
+
+    @Test
+    void authErrorStopsNewDispatches() {
+        ApiException unauthorized = new ApiException(401, "unauthorized");
+        AtomicInteger calls = new AtomicInteger();
+        PurchaseUploadPipeline pipeline = new PurchaseUploadPipeline((eventId, items) -> {
+            calls.incrementAndGet();
+            if (items.get(0).getPurchaseId().equals("p2")) {
+                throw unauthorized;
+            }
+            return accepted(items);
+        }, 1, 3, 0);
+
+        PurchaseUploadPipeline.Result result = pipeline.upload("event", groups(10));
+
+        // One permit: p0 and p1 went through, p2 failed once (no retry), nothing after it started
+        assertSame(unauthorized, result.failure());
+        assertEquals(3, calls.get());
+        assertEquals(Set.of("p0-0", "p0-1", "p1-0", "p1-1"), result.acceptedItemIds());
+        assertEquals(8, result.notUploaded());
+    }
+
+    @Test
+    void networkErrorGivesUpAfterMaxAttempts() {
+        AtomicInteger calls = new AtomicInteger();
+        PurchaseUploadPipeline pipeline = new PurchaseUploadPipeline((eventId, items) -> {
+            calls.incrementAndGet();
+            throw new ApiException("connection refused");
+        }, 1, 3, 0);
+
+        PurchaseUploadPipeline.Result result = pipeline.upload("event", groups(4));
+
+        assertEquals(0, result.failure().getCode());
+        assertEquals(3, calls.get());
+        assertEquals(4, result.notUploaded());
+        assertTrue(result.acceptedItemIds().isEmpty());
+    }
+
+    private static UploadOutcome accepted(List<V1SoldItem> items) {
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        items.forEach(item -> ids.add(item.getItemId()));
+        return new UploadOutcome(ids, Set.of(), List.of());
+    }
+
+    /** {@code count} purchases p0..pN, two items each. */
+    private static List<List<V1SoldItem>> groups(int count) {
+        List<List<V1SoldItem>> groups = new ArrayList<>();
+        for (int p = 0; p < count; p++) {
+            String purchaseId = "p" + p;
+            groups.add(List.of(item(purchaseId, purchaseId + "-0"), item(purchaseId, purchaseId + "-1")));
+        }
+        return groups;
+    }
+
+    private static V1SoldItem item(String purchaseId, String itemId) {
+        return new V1SoldItem(purchaseId, itemId, LocalDateTime.of(2026, 2, 8, 12, 0), 1, 10, null, V1PaymentMethod.Kontant, false);
+    }
+}
@@ -0,0 +1,114 @@
+package se.goencoder.loppiskassan.service;
+
+import org.junit.jupiter.api.Test;
+import se.goencoder.iloppis.model.V1CreateSoldItemsResponse;
+import se.goencoder.iloppis.model.V1RejectedItem;
+import se.goencoder.iloppis.model.V1SoldItemErrorCode;
+import se.goencoder.loppiskassan.V1PaymentMethod;
+import se.goencoder.loppiskassan.V1SoldItem;
+import se.goencoder.loppiskassan.storage.SoldItemJsonlCodec;
+import se.goencoder.loppiskassan.utils.SoldItemUtils;
+import se.goencoder.loppiskassan.utils.SoldItemsResponseClassifier.UploadOutcome;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SoldItemUploadBatcherTest {
+
+    @Test
+    void packKeepsPurchasesWholeWithinItemBudget() {
+        SoldItemUploadBatcher batcher = new SoldItemUploadBatcher(5, Integer.MAX_VALUE);
+
+        List<List<V1SoldItem>> batches = batcher.pack(List.of(
+                purchase("a", 2), purchase("b", 2), purchase("c", 2), purchase("d", 7), purchase("e", 1)));
+
+        assertEquals(List.of(List.of("a", "b"), List.of("c"), List.of("d"), List.of("e")),
+                batches.stream().map(SoldItemUploadBatcherTest::purchaseIds).toList());
+    }
+
+    @Test
+    void packRespectsByteBudget() {
+        int itemBytes = SoldItemJsonlCodec.toJsonLine(purchase("a", 1).get(0)).length();
+        SoldItemUploadBatcher batcher = new SoldItemUploadBatcher(1000, itemBytes * 3);
+
+        List<List<V1SoldItem>> batches = batcher.pack(List.of(purchase("a", 2), purchase("b", 2), purchase("c", 1)));
+
+        assertEquals(List.of(List.of("a"), List.of("b", "c")),
+                batches.stream().map(SoldItemUploadBatcherTest::purchaseIds).toList());
+    }
+
+    @Test
+    void responseIsSplitPerPurchase() {
+        List<V1SoldItem> batch = new ArrayList<>(purchase("a", 2));
+        batch.addAll(purchase("b", 1));
+        V1CreateSoldItemsResponse response = new V1CreateSoldItemsResponse()
+                .addAcceptedItemsItem(api(batch.get(0)))
+                .addRejectedItemsItem(rejected(batch.get(1), V1SoldItemErrorCode.DUPLICATE_RECEIPT, "dup"));
+
+        Map<String, V1CreateSoldItemsResponse> split = SoldItemUploadBatcher.splitByPurchase(batch, response);
+
+        assertEquals(List.of("a", "b"), List.copyOf(split.keySet()));
+        assertEquals(1, split.get("a").getAcceptedItems().size());
+        assertEquals(1, split.get("a").getRejectedItems().size());
+        assertTrue(split.get("b").getAcceptedItems().isEmpty());
+        assertTrue(split.get("b").getRejectedItems().isEmpty());
+    }
+
+    @Test
+    void collateralFromOtherPurchasesIsRetried() throws Exception {
+        List<V1SoldItem> batch = new ArrayList<>(purchase("a", 2));
+        batch.addAll(purchase("b", 2));
+        V1SoldItem invalid = batch.get(0);
+        List<List<String>> requests = new ArrayList<>();
+
+        Map<String, UploadOutcome> outcomes = new SoldItemUploadBatcher(100, Integer.MAX_VALUE).upload(batch, items -> {
+            requests.add(items.stream().map(V1SoldItem::getItemId).toList());
+            V1CreateSoldItemsResponse response = new V1CreateSoldItemsResponse();
+            for (V1SoldItem item : items) {
+                if (item == invalid) {
+                    response.addRejectedItemsItem(rejected(item, V1SoldItemErrorCode.INVALID_SELLER, "unknown seller"));
+                } else if (requests.size() == 1) {
+                    // Server rejects the whole request, including the other purchase
+                    response.addRejectedItemsItem(rejected(item, V1SoldItemErrorCode.UNSPECIFIED, null));
+                } else {
+                    response.addAcceptedItemsItem(api(item));
+                }
+            }
+            return response;
+        });
+
+        assertEquals(2, requests.size());
+        assertEquals(List.of("a-1", "b-0", "b-1"), requests.get(1));
+        assertEquals(Set.of("a-1"), outcomes.get("a").acceptedItemIds());
+        assertEquals(Set.of("a-0"), outcomes.get("a").rejectedItemIds());
+        assertEquals(Set.of("b-0", "b-1"), outcomes.get("b").acceptedItemIds());
+        assertTrue(outcomes.get("b").rejectedItems().isEmpty());
+    }
+
+    private static List<String> purchaseIds(List<V1SoldItem> batch) {
+        return batch.stream().map(V1SoldItem::getPurchaseId).distinct().toList();
+    }
+
+    private static List<V1SoldItem> purchase(String purchaseId, int items) {
+        List<V1SoldItem> purchase = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            purchase.add(new V1SoldItem(purchaseId, purchaseId + "-" + i, LocalDateTime.of(2026, 2, 8, 12, 0),
+                    1, 10, null, V1PaymentMethod.Kontant, false));
+        }
+        return purchase;
+    }
+
+    private static se.goencoder.iloppis.model.V1SoldItem api(V1SoldItem item) {
+        return SoldItemUtils.toApiSoldItem(item);
+    }
+
+    private static V1RejectedItem rejected(V1SoldItem item, V1SoldItemErrorCode code, String reason) {
+        return new V1RejectedItem().item(api(item)).errorCode(code).reason(reason);
+    }
+}
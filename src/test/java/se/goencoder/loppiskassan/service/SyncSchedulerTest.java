@@ -0,0 +1,109 @@
+package se.goencoder.loppiskassan.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SyncSchedulerTest {
+
+    private static final BackgroundSyncManager.SyncResult OK = BackgroundSyncManager.SyncResult.empty();
+    private static final BackgroundSyncManager.SyncResult OFFLINE =
+            new BackgroundSyncManager.SyncResult(0, 0, 0, true, false, false);
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void checkoutRequestsAreDebouncedUpToTheCoalescingLimit() {
+        SyncScheduler scheduler = scheduler(() -> OK);
+        long start = clock.get();
+
+        scheduler.requestSoon();
+        assertEquals(SyncScheduler.Phase.PENDING, scheduler.getStatus().phase());
+        assertEquals(start + 2_000, scheduler.getStatus().nextRunAtMillis());
+
+        clock.addAndGet(1_500);
+        scheduler.requestSoon();
+        assertEquals(start + 3_500, scheduler.getStatus().nextRunAtMillis());
+
+        clock.set(start + 9_000);
+        scheduler.requestSoon();
+        assertEquals(start + 10_000, scheduler.getStatus().nextRunAtMillis());
+    }
+
+    @Test
+    void successfulCycleReturnsToIdleInterval() throws Exception {
+        SyncScheduler scheduler = scheduler(() -> OK);
+
+        scheduler.runCycle();
+
+        assertEquals(SyncScheduler.Phase.IDLE, scheduler.getStatus().phase());
+        assertEquals(clock.get() + 30_000, scheduler.getStatus().nextRunAtMillis());
+    }
+
+    @Test
+    void networkErrorsBackOffWithJitterAndIgnoreCheckouts() throws Exception {
+        SyncScheduler scheduler = scheduler(() -> OFFLINE);
+        long now = clock.get();
+
+        scheduler.runCycle();
+        long first = scheduler.getStatus().nextRunAtMillis() - now;
+        assertEquals(SyncScheduler.Phase.BACKOFF, scheduler.getStatus().phase());
+        assertTrue(first >= 2_500 && first <= 5_000, "first delay " + first);
+
+        scheduler.runCycle();
+        long second = scheduler.getStatus().nextRunAtMillis() - now;
+        assertEquals(2, scheduler.getStatus().consecutiveNetworkFailures());
+        assertTrue(second >= 5_000 && second <= 10_000, "second delay " + second);
+
+        scheduler.requestSoon();
+        assertEquals(now + second, scheduler.getStatus().nextRunAtMillis());
+
+        for (int i = 0; i < 20; i++) {
+            scheduler.runCycle();
+        }
+        long capped = scheduler.getStatus().nextRunAtMillis() - now;
+        assertTrue(capped >= 150_000 && capped <= 300_000, "capped delay " + capped);
+    }
+
+    @Test
+    void connectivityRestoredEndsBackoff() throws Exception {
+        AtomicBoolean online = new AtomicBoolean(false);
+        CountDownLatch ranAfterRestore = new CountDownLatch(1);
+        SyncScheduler scheduler = scheduler(() -> {
+            if (online.get()) {
+                ranAfterRestore.countDown();
+                return OK;
+            }
+            return OFFLINE;
+        });
+
+        scheduler.runCycle();
+        assertEquals(SyncScheduler.Phase.BACKOFF, scheduler.getStatus().phase());
+
+        online.set(true);
+        scheduler.connectivityRestored();
+
+        assertTrue(ranAfterRestore.await(5, TimeUnit.SECONDS));
+    }
+
+    private SyncScheduler scheduler(SyncScheduler.Cycle cycle) {
+        return new SyncScheduler(executor, cycle, 2_000, 10_000, 30_000, 5_000, 300_000,
+                new Random(7), clock::get);
+    }
+}
@@ -0,0 +1,102 @@
+package se.goencoder.loppiskassan.storage;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.goencoder.iloppis.model.V1Event;
+import se.goencoder.iloppis.model.V1RevenueSplit;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EventCatalogTest {
+
+    private String originalHome;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        originalHome = System.getProperty("user.home");
+        Path tempHome = Files.createTempDirectory("loppiskassan-catalog");
+        System.setProperty("user.home", tempHome.toString());
+        EventCatalog.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        EventCatalog.reset();
+        System.setProperty("user.home", originalHome);
+    }
+
+    @Test
+    void repositoryWritesAreVisibleImmediately() throws Exception {
+        LocalEventRepository.create(localEvent("local-b", "B"));
+        LocalEventRepository.create(localEvent("local-a", "A"));
+        assertEquals(List.of("local-a", "local-b"), ids(LocalEventRepository.loadAll()));
+
+        LocalEvent renamed = localEvent("local-a", "A2");
+        LocalEventRepository.save(renamed);
+        assertEquals("A2", LocalEventRepository.loadAll().get(0).getName());
+
+        LocalEventRepository.delete("local-b");
+        assertEquals(List.of("local-a"), ids(LocalEventRepository.loadAll()));
+
+        OnlineEventCache.cacheEvent(new V1Event().id("online-1").name("Online"), "key", "", null);
+        assertEquals(1, OnlineEventCache.loadCachedEvents().size());
+        OnlineEventCache.removeCache("online-1");
+        assertTrue(OnlineEventCache.loadCachedEvents().isEmpty());
+    }
+
+    @Test
+    void catalogFileSurvivesRestartAndIsReconciled() throws Exception {
+        LocalEventRepository.create(localEvent("local-a", "A"));
+        LocalEventRepository.loadAll();
+        Path catalogPath = LocalEventPaths.getEventsDir().resolve(EventCatalog.CATALOG_FILE_NAME);
+        assertEquals(1, new JSONObject(Files.readString(catalogPath)).getJSONArray("events").length());
+
+        // Changed while the app was not running
+        EventCatalog.reset();
+        Files.writeString(LocalEventPaths.getLocalMetadataPath("local-a"),
+                localEvent("local-a", "Offline edit").toJsonString(), StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(LocalEventPaths.getLocalMetadataPath("local-a"),
+                java.nio.file.attribute.FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+
+        assertEquals("Offline edit", LocalEventRepository.loadAll().get(0).getName());
+    }
+
+    @Test
+    void externalChangesArePickedUpByTheWatcher() throws Exception {
+        assertTrue(LocalEventRepository.loadAll().isEmpty());
+
+        Path eventDir = LocalEventPaths.getEventDir("local-external");
+        Files.createDirectories(eventDir);
+        Files.writeString(eventDir.resolve("local_metadata.json"),
+                localEvent("local-external", "External").toJsonString(), StandardCharsets.UTF_8);
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        List<LocalEvent> events = LocalEventRepository.loadAll();
+        while (events.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            events = LocalEventRepository.loadAll();
+        }
+        assertEquals(List.of("local-external"), ids(events));
+    }
+
+    private static List<String> ids(List<LocalEvent> events) {
+        return events.stream().map(LocalEvent::getEventId).toList();
+    }
+
+    private static LocalEvent localEvent(String eventId, String name) {
+        return new LocalEvent(eventId, LocalEventType.LOCAL, name, "", "", "",
+                OffsetDateTime.of(2026, 2, 8, 10, 0, 0, 0, ZoneOffset.UTC),
+                new V1RevenueSplit().marketOwnerPercentage(10.0f).vendorPercentage(85.0f)
+                        .platformProviderPercentage(5.0f).charityPercentage(0.0f));
+    }
+}
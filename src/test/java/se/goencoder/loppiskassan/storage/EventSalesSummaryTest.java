@@ -0,0 +1,104 @@
+package se.goencoder.loppiskassan.storage;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.goencoder.loppiskassan.V1PaymentMethod;
+import se.goencoder.loppiskassan.V1SoldItem;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EventSalesSummaryTest {
+
+    private static final String EVENT_ID = "local-summary-test";
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 2, 8, 12, 0);
+    private String originalHome;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        originalHome = System.getProperty("user.home");
+        Path tempHome = Files.createTempDirectory("loppiskassan-summary");
+        System.setProperty("user.home", tempHome.toString());
+        LocalEventRepository.ensureEventStorage(EVENT_ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setProperty("user.home", originalHome);
+    }
+
+    @Test
+    void appendsUpdateTheStoredSummaryIncrementally() throws Exception {
+        PendingItemsStore store = new PendingItemsStore(EVENT_ID);
+        store.appendItems(List.of(item("a", 100, V1PaymentMethod.Kontant, 0), item("b", 50, V1PaymentMethod.Swish, 5)));
+        store.appendItems(List.of(item("c", 25, V1PaymentMethod.Kontant, 2)));
+
+        JSONObject stored = new JSONObject(Files.readString(LocalEventPaths.getPendingSummaryPath(EVENT_ID)));
+        assertEquals(3, stored.getInt("itemCount"));
+
+        EventSalesSummary summary = store.readSummary();
+        assertEquals(3, summary.itemCount());
+        assertEquals(175, summary.totalAmount());
+        assertEquals(125, summary.amountFor(V1PaymentMethod.Kontant));
+        assertEquals(2, summary.countFor(V1PaymentMethod.Kontant));
+        assertEquals(50, summary.amountFor(V1PaymentMethod.Swish));
+        assertEquals(BASE.plusMinutes(5), summary.lastSaleTime());
+        assertEquals(EventSalesSummary.of(store.readAll()), summary);
+    }
+
+    @Test
+    void stateChangesKeepOrRecountTheSummary() throws Exception {
+        PendingItemsStore store = new PendingItemsStore(EVENT_ID);
+        store.appendItems(List.of(item("a", 100, V1PaymentMethod.Kontant, 0), item("b", 50, V1PaymentMethod.Swish, 1)));
+
+        store.markPaidOut(Set.of("a"), BASE.plusHours(3));
+        store.markUploaded(Set.of("b"));
+        assertTrue(Files.exists(LocalEventPaths.getPendingSummaryPath(EVENT_ID)));
+        assertEquals(2, store.readSummary().itemCount());
+
+        store.markRejected(Set.of("b"));
+        assertEquals(EventSalesSummary.of(store.readAll()), store.readSummary());
+        assertEquals(1, store.readSummary().itemCount());
+
+        store.compact();
+        assertEquals(100, store.readSummary().totalAmount());
+    }
+
+    @Test
+    void writesBehindTheStoresBackAreDetected() throws Exception {
+        PendingItemsStore store = new PendingItemsStore(EVENT_ID);
+        store.appendItems(List.of(item("a", 100, V1PaymentMethod.Kontant, 0)));
+        assertEquals(1, store.readSummary().itemCount());
+
+        JsonlHelper.appendItems(LocalEventPaths.getPendingItemsPath(EVENT_ID),
+                List.of(item("b", 10, V1PaymentMethod.Swish, 1)));
+
+        assertEquals(2, store.readSummary().itemCount());
+        assertEquals(110, store.readSummary().totalAmount());
+    }
+
+    @Test
+    void staleOrForeignSummaryIsRejected() {
+        EventSalesSummary summary = EventSalesSummary.of(List.of(item("a", 100, V1PaymentMethod.Kontant, 0)));
+        EventSalesSummary.Stamp stamp = new EventSalesSummary.Stamp(120, 1_000, 0);
+        String json = summary.toJson(stamp);
+
+        assertEquals(summary, EventSalesSummary.fromJson(json, stamp));
+        assertEquals(null, EventSalesSummary.fromJson(json, new EventSalesSummary.Stamp(121, 1_000, 0)));
+        assertEquals(null, EventSalesSummary.fromJson("not json", stamp));
+        assertFalse(EventSalesSummary.EMPTY.equals(summary));
+    }
+
+    private static V1SoldItem item(String itemId, int price, V1PaymentMethod method, int minute) {
+        return new V1SoldItem("purchase-" + itemId, itemId, BASE.plusMinutes(minute), 1, price, null, method, false);
+    }
+}
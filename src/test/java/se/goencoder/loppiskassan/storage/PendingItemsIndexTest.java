@@ -0,0 +1,77 @@
+package se.goencoder.loppiskassan.storage;
+
+import org.junit.jupiter.api.Test;
+import se.goencoder.loppiskassan.V1PaymentMethod;
+import se.goencoder.loppiskassan.V1SoldItem;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class PendingItemsIndexTest {
+
+    @Test
+    void countersFollowWrites() {
+        PendingItemsIndex index = new PendingItemsIndex();
+        index.addAll(List.of(item("a", false), item("b", false), item("c", true)));
+        assertEquals(3, index.totalCount());
+        assertEquals(2, index.pendingCount());
+
+        index.markUploaded(Set.of("a"));
+        assertEquals(1, index.pendingCount());
+        assertEquals("b", index.pendingItems().get(0).getItemId());
+
+        index.remove(Set.of("b"));
+        assertEquals(0, index.pendingCount());
+        assertEquals(2, index.totalCount());
+
+        index.upsert(item("c", false));
+        assertEquals(1, index.pendingCount());
+        assertEquals(2, index.totalCount());
+    }
+
+    @Test
+    void itemsAreCopiedOnInsert() {
+        PendingItemsIndex index = new PendingItemsIndex();
+        V1SoldItem shared = item("a", false);
+        index.addAll(List.of(shared));
+
+        index.markUploaded(Set.of("a"));
+
+        assertFalse(shared.isUploaded());
+    }
+
+    @Test
+    void rowsWithoutOrWithRepeatedIdsAreKept() {
+        PendingItemsIndex index = new PendingItemsIndex();
+        // A missing itemId is read back from the file as ""
+        index.replaceAll(List.of(item("", false), item("", false), item("a", true), item("a", false)));
+        assertEquals(4, index.totalCount());
+        assertEquals(3, index.pendingCount());
+
+        // Like the journal fold, an id addresses the last row that carries it
+        index.markUploaded(Set.of("a"));
+        assertEquals(2, index.pendingCount());
+        index.upsert(item("", true));
+        assertEquals(1, index.pendingCount());
+
+        // Compaction rewrites the file from allItems(), so every row must be there
+        assertEquals(List.of("", "", "a", "a"), index.allItems().stream().map(V1SoldItem::getItemId).toList());
+    }
+
+    private static V1SoldItem item(String itemId, boolean uploaded) {
+        return new V1SoldItem(
+                "purchase-" + itemId,
+                itemId,
+                LocalDateTime.of(2026, 2, 8, 12, 0),
+                1,
+                100,
+                null,
+                V1PaymentMethod.Kontant,
+                uploaded
+        );
+    }
+}
@@ -0,0 +1,116 @@
+package se.goencoder.loppiskassan.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.goencoder.loppiskassan.V1PaymentMethod;
+import se.goencoder.loppiskassan.V1SoldItem;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PendingItemsStoreTest {
+
+    private static final String EVENT_ID = "store-test";
+    private String originalHome;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        originalHome = System.getProperty("user.home");
+        Path tempHome = Files.createTempDirectory("loppiskassan-store");
+        System.setProperty("user.home", tempHome.toString());
+        LocalEventRepository.ensureEventStorage(EVENT_ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setProperty("user.home", originalHome);
+    }
+
+    @Test
+    void stateChangesAreJournaledWithoutRewritingPendingFile() throws Exception {
+        PendingItemsStore store = new PendingItemsStore(EVENT_ID);
+        store.appendItems(List.of(item("a", 1), item("b", 2), item("c", 3)));
+        Path pendingPath = LocalEventPaths.getPendingItemsPath(EVENT_ID);
+        String before = Files.readString(pendingPath);
+
+        LocalDateTime paidOut = LocalDateTime.of(2026, 2, 8, 15, 0);
+        store.markUploaded(Set.of("a"));
+        store.markRejected(Set.of("b"));
+        store.markPaidOut(Set.of("c"), paidOut);
+
+        assertEquals(before, Files.readString(pendingPath));
+        assertTrue(Files.exists(LocalEventPaths.getPendingStatePath(EVENT_ID)));
+
+        List<V1SoldItem> all = store.readAll();
+        assertEquals(2, all.size());
+        assertEquals("a", all.get(0).getItemId());
+        assertTrue(all.get(0).isUploaded());
+        assertEquals("c", all.get(1).getItemId());
+        assertEquals(paidOut, all.get(1).getCollectedBySellerTime());
+        assertEquals(1, store.readPending().size());
+    }
+
+    @Test
+    void upsertReplacesExistingAndRevivesRejectedItems() throws Exception {
+        PendingItemsStore store = new PendingItemsStore(EVENT_ID);
+        store.appendItems(List.of(item("a", 1), item("b", 2)));
+        store.markRejected(Set.of("b"));
+
+        store.upsert(item("b", 20));
+        store.upsert(item("new", 5));
+
+        List<V1SoldItem> all = store.readAll();
+        assertEquals(3, all.size());
+        assertEquals(20, all.get(1).getSeller());
+        assertEquals("new", all.get(2).getItemId());
+    }
+
+    @Test
+    void compactionFoldsJournalIntoPendingFile() throws Exception {
+        PendingItemsStore store = new PendingItemsStore(EVENT_ID);
+        store.appendItems(List.of(item("a", 1), item("b", 2)));
+        store.markUploaded(Set.of("a", "b"));
+        store.markRejected(Set.of("b"));
+
+        store.compact();
+
+        assertFalse(Files.exists(LocalEventPaths.getPendingStatePath(EVENT_ID)));
+        List<V1SoldItem> raw = JsonlHelper.readItems(LocalEventPaths.getPendingItemsPath(EVENT_ID));
+        assertEquals(1, raw.size());
+        assertTrue(raw.get(0).isUploaded());
+        assertEquals(raw.size(), store.readAll().size());
+    }
+
+    @Test
+    void saveAllDiscardsJournal() throws Exception {
+        PendingItemsStore store = new PendingItemsStore(EVENT_ID);
+        store.appendItems(List.of(item("a", 1)));
+        store.markRejected(Set.of("a"));
+
+        store.saveAll(List.of(item("a", 1)));
+
+        assertFalse(Files.exists(LocalEventPaths.getPendingStatePath(EVENT_ID)));
+        assertEquals(1, store.readAll().size());
+    }
+
+    private static V1SoldItem item(String itemId, int seller) {
+        return new V1SoldItem(
+                "purchase-" + itemId,
+                itemId,
+                LocalDateTime.of(2026, 2, 8, 12, 0),
+                seller,
+                100,
+                null,
+                V1PaymentMethod.Kontant,
+                false
+        );
+    }
+}
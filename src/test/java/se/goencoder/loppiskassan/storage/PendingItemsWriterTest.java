@@ -0,0 +1,157 @@
+package se.goencoder.loppiskassan.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.goencoder.loppiskassan.V1PaymentMethod;
+import se.goencoder.loppiskassan.V1SoldItem;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PendingItemsWriterTest {
+
+    private static final String EVENT_ID = "writer-test";
+    private String originalHome;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        originalHome = System.getProperty("user.home");
+        Path tempHome = Files.createTempDirectory("loppiskassan-writer");
+        System.setProperty("user.home", tempHome.toString());
+        LocalEventRepository.ensureEventStorage(EVENT_ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setProperty("user.home", originalHome);
+    }
+
+    @Test
+    void concurrentAppendsAreAllDurableAndCounted() throws Exception {
+        PendingItemsStore store = new PendingItemsStore(EVENT_ID);
+        List<CompletableFuture<Void>> done = new ArrayList<>();
+        for (int purchase = 0; purchase < 200; purchase++) {
+            int p = purchase;
+            done.add(CompletableFuture.supplyAsync(() -> List.of(item("p" + p + "a", 10), item("p" + p + "b", 5)))
+                    .thenCompose(store::appendItemsDurably));
+        }
+        CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).join();
+
+        List<V1SoldItem> all = store.readAll();
+        assertEquals(400, all.size());
+        Set<String> ids = new HashSet<>();
+        all.forEach(item -> ids.add(item.getItemId()));
+        assertEquals(400, ids.size());
+        EventSalesSummary summary = store.readSummary();
+        assertEquals(400, summary.itemCount());
+        assertEquals(3000, summary.totalAmount());
+    }
+
+    @Test
+    void appendsAfterARewriteGoToTheNewFile() throws Exception {
+        PendingItemsStore store = new PendingItemsStore(EVENT_ID);
+        store.appendItemsDurably(List.of(item("a", 1), item("b", 2))).join();
+
+        store.saveAll(List.of(item("a", 1)));
+        store.appendItemsDurably(List.of(item("c", 3))).join();
+
+        Files.delete(LocalEventPaths.getPendingItemsPath(EVENT_ID));
+        store.appendItemsDurably(List.of(item("d", 4))).join();
+
+        List<V1SoldItem> all = store.readAll();
+        assertEquals(List.of("d"), all.stream().map(V1SoldItem::getItemId).toList());
+
+        store.saveAll(List.of());
+        store.appendItemsDurably(List.of(item("e", 5))).join();
+        assertEquals(List.of("e"), store.readAll().stream().map(V1SoldItem::getItemId).toList());
+    }
+
+    @Test
+    void flushWaitsForQueuedAppends() throws Exception {
+        PendingItemsStore store = new PendingItemsStore(EVENT_ID);
+        for (int i = 0; i < 100; i++) {
+            store.appendItemsDurably(List.of(item("q" + i, 1)));
+        }
+
+        PendingItemsWriter.getInstance().flush();
+
+        assertEquals(100, store.readAll().size());
+    }
+
+    @Test
+    void rewritesDoNotLoseConcurrentAppends() throws Exception {
+        PendingItemsStore store = new PendingItemsStore(EVENT_ID);
+        store.appendItemsDurably(List.of(item("first", 1))).join();
+        CompletableFuture<Void> appends = CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 300; i++) {
+                store.appendItemsDurably(List.of(item("c" + i, 1))).join();
+            }
+        });
+
+        int rewrites = 0;
+        while (!appends.isDone() || rewrites < 20) {
+            store.markUploaded(Set.of("first"));
+            store.compact();
+            rewrites++;
+        }
+        appends.join();
+
+        List<V1SoldItem> all = store.readAll();
+        assertEquals(301, all.size());
+        assertEquals(301, store.readSummary().itemCount());
+    }
+
+    @Test
+    void appendDoesNotWaitForARewrite() throws Exception {
+        PendingItemsStore store = new PendingItemsStore(EVENT_ID);
+        Path path = LocalEventPaths.getPendingItemsPath(EVENT_ID);
+        CountDownLatch rewriting = new CountDownLatch(1);
+        CountDownLatch finishRewrite = new CountDownLatch(1);
+        CompletableFuture<Void> rewrite = CompletableFuture.runAsync(() -> {
+            try {
+                PendingItemsWriter.getInstance().exclusive(path, () -> {
+                    rewriting.countDown();
+                    try {
+                        finishRewrite.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        assertTrue(rewriting.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<CompletableFuture<Void>> appended = CompletableFuture.supplyAsync(
+                () -> store.appendItemsDurably(List.of(item("during", 7))));
+        CompletableFuture<Void> written = appended.get(1, TimeUnit.SECONDS);
+        Thread.sleep(50);
+        assertFalse(written.isDone(), "the writer holds the append until the rewrite ends");
+
+        finishRewrite.countDown();
+        rewrite.join();
+        written.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("during"), store.readAll().stream().map(V1SoldItem::getItemId).toList());
+    }
+
+    private static V1SoldItem item(String itemId, int price) {
+        return new V1SoldItem("purchase-" + itemId, itemId, LocalDateTime.of(2026, 2, 8, 10, 0),
+                1, price, null, V1PaymentMethod.Kontant, false);
+    }
+}
@@ -0,0 +1,199 @@
+package se.goencoder.loppiskassan.storage;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import se.goencoder.loppiskassan.V1PaymentMethod;
+import se.goencoder.loppiskassan.V1SoldItem;
+
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SoldItemJsonlCodecTest {
+
+    @Test
+    void writerIsByteCompatibleWithOrgJson() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2_000; i++) {
+            V1SoldItem item = randomItem(random, i);
+            assertEquals(orgJsonLine(item), SoldItemJsonlCodec.toJsonLine(item));
+        }
+    }
+
+    @Test
+    void writerEscapesLikeOrgJson() {
+        String tricky = "a\"b\\c</d\u0001\u0085\u2028åäö\t\r\n";
+        V1SoldItem item = new V1SoldItem(tricky, tricky, LocalDateTime.of(2026, 2, 8, 12, 0),
+                1, 2, null, V1PaymentMethod.Swish, false);
+
+        String line = SoldItemJsonlCodec.toJsonLine(item);
+
+        assertEquals(orgJsonLine(item), line);
+        assertEquals(tricky, SoldItemJsonlCodec.fromJsonLine(line).getItemId());
+    }
+
+    @Test
+    void readerMatchesOrgJsonForWrittenLines() {
+        Random random = new Random(7);
+        for (int i = 0; i < 2_000; i++) {
+            String line = orgJsonLine(randomItem(random, i));
+            assertSameItem(orgJsonItem(line), SoldItemJsonlCodec.fromJsonLine(line));
+        }
+    }
+
+    @Test
+    void readerAcceptsLegacyKeysWithSamePrecedence() {
+        String legacy = "{ \"purchase_id\" : \"p1\", \"item_id\":\"i1\", \"sold_time\":\"2025-06-01T10:15:30+02:00\","
+                + " \"collectedBySellerTime\":\"2025-06-01T11:00:00Z\", \"seller\":\"12\", \"price\":99.0,"
+                + " \"uploaded\":\"TRUE\", \"extra\":{\"nested\":[1,2,{\"x\":null}]} }";
+        assertSameItem(orgJsonItem(legacy), SoldItemJsonlCodec.fromJsonLine(legacy));
+
+        String both = "{\"purchaseId\":\"\",\"purchase_id\":\"legacy\",\"itemId\":null,\"item_id\":\"i2\","
+                + "\"soldTime\":\"2025-06-01T10:15:30.5Z\",\"paymentMethod\":\"Bitcoin\"}";
+        assertSameItem(orgJsonItem(both), SoldItemJsonlCodec.fromJsonLine(both));
+    }
+
+    @Test
+    void streamingReaderSkipsBlankLinesAndHandlesCrLf() throws Exception {
+        Random random = new Random(3);
+        List<V1SoldItem> expected = new ArrayList<>();
+        StringBuilder file = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            String line = orgJsonLine(randomItem(random, i));
+            expected.add(orgJsonItem(line));
+            file.append(line).append(i % 3 == 0 ? "\r\n" : "\n");
+            if (i % 50 == 0) {
+                file.append("   \n");
+            }
+        }
+
+        List<V1SoldItem> read = new ArrayList<>();
+        try (SoldItemJsonlCodec.ItemReader reader =
+                     new SoldItemJsonlCodec.ItemReader(new StringReader(file.toString()))) {
+            V1SoldItem item;
+            while ((item = reader.next()) != null) {
+                read.add(item);
+            }
+        }
+
+        assertEquals(expected.size(), read.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameItem(expected.get(i), read.get(i));
+        }
+    }
+
+    @Test
+    void malformedLineFailsWithLineNumber() {
+        String file = SoldItemJsonlCodec.toJsonLine(randomItem(new Random(1), 1)) + "\n{\"seller\":\n";
+        SoldItemJsonlCodec.ItemReader reader = new SoldItemJsonlCodec.ItemReader(new StringReader(file));
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> {
+            while (reader.next() != null) {
+                // drain
+            }
+        });
+        assertEquals(true, ex.getMessage().startsWith("Line 2"));
+    }
+
+    @Test
+    void unparseableTimeIsTreatedAsMissing() {
+        assertNull(SoldItemJsonlCodec.parseTime("2025-13-01T10:00:00Z"));
+        assertNull(SoldItemJsonlCodec.parseTime("yesterday"));
+        assertEquals(LocalDateTime.of(2025, 1, 2, 3, 4, 5, 600_000_000),
+                SoldItemJsonlCodec.parseTime("2025-01-02T03:04:05.6Z"));
+    }
+
+    private static V1SoldItem randomItem(Random random, int i) {
+        LocalDateTime soldTime = LocalDateTime.of(2020 + random.nextInt(10), 1 + random.nextInt(12),
+                1 + random.nextInt(28), random.nextInt(24), random.nextInt(60), random.nextInt(60),
+                random.nextInt(4) == 0 ? 0 : random.nextInt(1_000_000_000));
+        LocalDateTime paidOut = random.nextBoolean() ? soldTime.plusMinutes(random.nextInt(600)) : null;
+        V1PaymentMethod method = switch (random.nextInt(3)) {
+            case 0 -> V1PaymentMethod.Swish;
+            case 1 -> V1PaymentMethod.Kontant;
+            default -> null;
+        };
+        return new V1SoldItem(
+                random.nextInt(20) == 0 ? null : "P" + Long.toHexString(random.nextLong()),
+                "I" + i + "-" + Long.toHexString(random.nextLong()),
+                soldTime,
+                random.nextInt(500) - 5,
+                random.nextInt(100_000),
+                paidOut,
+                method,
+                random.nextBoolean()
+        );
+    }
+
+    private static void assertSameItem(V1SoldItem expected, V1SoldItem actual) {
+        assertEquals(expected.getItemId(), actual.getItemId());
+        assertEquals(expected.getPurchaseId(), actual.getPurchaseId());
+        assertEquals(expected.getSeller(), actual.getSeller());
+        assertEquals(expected.getPrice(), actual.getPrice());
+        assertEquals(expected.getPaymentMethod(), actual.getPaymentMethod());
+        assertEquals(expected.getSoldTime(), actual.getSoldTime());
+        assertEquals(expected.getCollectedBySellerTime(), actual.getCollectedBySellerTime());
+        assertEquals(expected.isUploaded(), actual.isUploaded());
+    }
+
+    // Reference: the org.json based mapping the codec replaced
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+    private static String orgJsonLine(V1SoldItem item) {
+        JSONObject json = new JSONObject();
+        json.put("itemId", item.getItemId());
+        json.put("purchaseId", item.getPurchaseId());
+        json.put("seller", item.getSeller());
+        json.put("price", item.getPrice());
+        if (item.getPaymentMethod() != null) {
+            json.put("paymentMethod", item.getPaymentMethod().name());
+        }
+        json.put("soldTime", item.getSoldTime() == null ? "" : item.getSoldTime().atOffset(ZoneOffset.UTC).format(FORMATTER));
+        if (item.getCollectedBySellerTime() != null) {
+            json.put("paidOutTime", item.getCollectedBySellerTime().atOffset(ZoneOffset.UTC).format(FORMATTER));
+        }
+        json.put("uploaded", item.isUploaded());
+        return json.toString();
+    }
+
+    private static V1SoldItem orgJsonItem(String line) {
+        JSONObject obj = new JSONObject(line);
+        V1PaymentMethod method;
+        try {
+            method = V1PaymentMethod.valueOf(obj.optString("paymentMethod", ""));
+        } catch (IllegalArgumentException ex) {
+            method = V1PaymentMethod.Kontant;
+        }
+        return new V1SoldItem(
+                obj.optString("purchaseId", obj.optString("purchase_id", "")),
+                obj.optString("itemId", obj.optString("item_id", "")),
+                referenceTime(obj.optString("soldTime", obj.optString("sold_time", ""))),
+                obj.optInt("seller", 0),
+                obj.optInt("price", 0),
+                referenceTime(obj.optString("paidOutTime", obj.optString("collectedBySellerTime", ""))),
+                method,
+                obj.optBoolean("uploaded", false)
+        );
+    }
+
+    private static LocalDateTime referenceTime(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(value, FORMATTER).toLocalDateTime();
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+}
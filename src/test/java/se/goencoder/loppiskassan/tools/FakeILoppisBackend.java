@@ -0,0 +1,561 @@
+package se.goencoder.loppiskassan.tools;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONObject;
+import se.goencoder.iloppis.invoker.JSON;
+import se.goencoder.iloppis.model.SoldItemsServiceCreateSoldItemsBody;
+import se.goencoder.iloppis.model.V1Aggregates;
+import se.goencoder.iloppis.model.V1CreateSoldItemsResponse;
+import se.goencoder.iloppis.model.V1Event;
+import se.goencoder.iloppis.model.V1EventLifecycleState;
+import se.goencoder.iloppis.model.V1FilterEventsResponse;
+import se.goencoder.iloppis.model.V1FilterVendorsResponse;
+import se.goencoder.iloppis.model.V1GetApiKeyResponse;
+import se.goencoder.iloppis.model.V1ListSoldItemsResponse;
+import se.goencoder.iloppis.model.V1Pagination;
+import se.goencoder.iloppis.model.V1RejectedItem;
+import se.goencoder.iloppis.model.V1SoldItem;
+import se.goencoder.iloppis.model.V1SoldItemErrorCode;
+import se.goencoder.iloppis.model.V1Vendor;
+import se.goencoder.iloppis.model.V1VendorFilter;
+import se.goencoder.iloppis.model.VendorServiceFilterVendorsBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for the iLoppis endpoints the cashier uses, for benchmarking sync and
+ * bulk upload without a backend, docker or network.
+ * <p>
+ * Serves one event on loopback: sold-items create and list, vendors:filter, events:filter
+ * and the api-key alias lookup, with request and response bodies in the generated client's
+ * own JSON. Sellers 1..sellerCount are approved. Created items are kept in memory; an item id
+ * seen before is rejected as DUPLICATE_RECEIPT, an unapproved seller as INVALID_SELLER and a
+ * non-positive price as UNSPECIFIED, as the real backend does per item.
+ * </p>
+ * <p>
+ * {@link Faults} adds latency, 503s, 429s with Retry-After, and lost acknowledgements (the
+ * items are stored but the client sees a 503, so its retry meets duplicate detection). Faults
+ * are drawn from a seeded random, so a run with the same seed and request order repeats.
+ * Any non-blank bearer token is accepted; {@link #apiKeyFor(String)} is what alias lookups hand out.
+ * </p>
+ * Not part of the application; use {@link #start} from a test or tool, or run {@link #main}
+ * and point {@code ILOPPIS_API_URL} at it (see tools/README.md).
+ */
+public final class FakeILoppisBackend implements AutoCloseable {
+
+    private static final Pattern SOLD_ITEMS = Pattern.compile("/v1/events/([^/:]+)/sold-items");
+    private static final Pattern VENDORS_FILTER = Pattern.compile("/v1/events/([^/:]+)/vendors:filter");
+    private static final Pattern API_KEY_ALIAS = Pattern.compile("/v1/events/([^/:]+)/api-keys/alias/([^/]+)");
+    private static final String EVENTS_FILTER = "/v1/events:filter";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * Per-request fault injection. Rates are probabilities in [0, 1].
+     *
+     * @param latencyMs         added to every request
+     * @param jitterMs          uniform extra latency in [0, jitterMs]
+     * @param errorRate         answer 503 without doing anything
+     * @param throttleRate      answer 429 with {@code Retry-After: retryAfterSeconds}
+     * @param retryAfterSeconds sent with 429s
+     * @param lostAckRate       store created items, then answer 503
+     */
+    public record Faults(long latencyMs, long jitterMs, double errorRate, double throttleRate,
+                         int retryAfterSeconds, double lostAckRate) {
+        public static final Faults NONE = new Faults(0, 0, 0, 0, 1, 0);
+
+        public Faults withLatency(long latencyMs, long jitterMs) {
+            return new Faults(latencyMs, jitterMs, errorRate, throttleRate, retryAfterSeconds, lostAckRate);
+        }
+
+        public Faults withErrors(double errorRate, double throttleRate, double lostAckRate) {
+            return new Faults(latencyMs, jitterMs, errorRate, throttleRate, retryAfterSeconds, lostAckRate);
+        }
+
+        /**
+         * FAKE_LATENCY_MS, FAKE_JITTER_MS, FAKE_ERROR_RATE, FAKE_THROTTLE_RATE,
+         * FAKE_RETRY_AFTER_SECONDS and FAKE_LOST_ACK_RATE, each defaulting to no fault.
+         */
+        static Faults fromEnv() {
+            return new Faults(
+                    Long.parseLong(envOr("FAKE_LATENCY_MS", "0")),
+                    Long.parseLong(envOr("FAKE_JITTER_MS", "0")),
+                    Double.parseDouble(envOr("FAKE_ERROR_RATE", "0")),
+                    Double.parseDouble(envOr("FAKE_THROTTLE_RATE", "0")),
+                    Integer.parseInt(envOr("FAKE_RETRY_AFTER_SECONDS", "1")),
+                    Double.parseDouble(envOr("FAKE_LOST_ACK_RATE", "0")));
+        }
+
+        public JSONObject toJson() {
+            return new JSONObject()
+                    .put("latencyMs", latencyMs)
+                    .put("jitterMs", jitterMs)
+                    .put("errorRate", errorRate)
+                    .put("throttleRate", throttleRate)
+                    .put("retryAfterSeconds", retryAfterSeconds)
+                    .put("lostAckRate", lostAckRate);
+        }
+    }
+
+    /**
+     * Counters since start, for reporting next to a benchmark's own numbers.
+     */
+    public record Stats(long requests, long served503, long served429, long lostAcks,
+                        long acceptedItems, long duplicateItems, long rejectedItems) {
+
+        public JSONObject toJson() {
+            return new JSONObject()
+                    .put("requests", requests)
+                    .put("served503", served503)
+                    .put("served429", served429)
+                    .put("lostAcks", lostAcks)
+                    .put("acceptedItems", acceptedItems)
+                    .put("duplicateItems", duplicateItems)
+                    .put("rejectedItems", rejectedItems);
+        }
+    }
+
+    private final String eventId;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Random random;
+    private final Set<Integer> approvedSellers = ConcurrentHashMap.newKeySet();
+    private volatile Faults faults = Faults.NONE;
+
+    // Guarded by this; insertion order is the list order, like creation order on the backend
+    private final Map<String, V1SoldItem> soldItems = new LinkedHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong served503 = new AtomicLong();
+    private final AtomicLong served429 = new AtomicLong();
+    private final AtomicLong lostAcks = new AtomicLong();
+    private final AtomicLong acceptedItems = new AtomicLong();
+    private final AtomicLong duplicateItems = new AtomicLong();
+    private final AtomicLong rejectedItems = new AtomicLong();
+
+    private FakeILoppisBackend(String eventId, int sellerCount, long seed, int port) throws IOException {
+        this.eventId = eventId;
+        this.random = new Random(seed);
+        for (int seller = 1; seller <= sellerCount; seller++) {
+            approvedSellers.add(seller);
+        }
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        // Latency is a sleep per request, so every request gets its own virtual thread
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * @param port 0 for any free port
+     */
+    public static FakeILoppisBackend start(String eventId, int sellerCount, long seed, int port) throws IOException {
+        return new FakeILoppisBackend(eventId, sellerCount, seed, port);
+    }
+
+    public String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    public String eventId() {
+        return eventId;
+    }
+
+    public Faults faults() {
+        return faults;
+    }
+
+    public void setFaults(Faults faults) {
+        this.faults = faults == null ? Faults.NONE : faults;
+    }
+
+    public void approveSeller(int seller) {
+        approvedSellers.add(seller);
+    }
+
+    public void revokeSeller(int seller) {
+        approvedSellers.remove(seller);
+    }
+
+    public static String apiKeyFor(String alias) {
+        return "fake-" + alias.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return copies of the stored items in creation order
+     */
+    public synchronized List<V1SoldItem> soldItems() {
+        List<V1SoldItem> copy = new ArrayList<>(soldItems.size());
+        for (V1SoldItem item : soldItems.values()) {
+            copy.add(copyOf(item));
+        }
+        return copy;
+    }
+
+    /**
+     * Mark a stored item as paid out, as a payout made on the web would.
+     */
+    public synchronized void payOut(String itemId) {
+        V1SoldItem item = soldItems.get(itemId);
+        if (item != null) {
+            item.collectedBySeller(true).collectedTime(OffsetDateTime.now(ZoneOffset.UTC));
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(requests.get(), served503.get(), served429.get(), lostAcks.get(),
+                acceptedItems.get(), duplicateItems.get(), rejectedItems.get());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            Faults current = faults;
+            double errorDraw;
+            double throttleDraw;
+            double lostAckDraw;
+            long jitter;
+            synchronized (random) {
+                errorDraw = random.nextDouble();
+                throttleDraw = random.nextDouble();
+                lostAckDraw = random.nextDouble();
+                jitter = current.jitterMs() > 0 ? (long) (random.nextDouble() * (current.jitterMs() + 1)) : 0;
+            }
+            sleep(current.latencyMs() + jitter);
+
+            if (throttleDraw < current.throttleRate()) {
+                served429.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(current.retryAfterSeconds()));
+                sendStatus(exchange, 429, 8, "rate limited");
+                return;
+            }
+            if (errorDraw < current.errorRate()) {
+                served503.incrementAndGet();
+                sendStatus(exchange, 503, 14, "injected failure");
+                return;
+            }
+            try {
+                route(exchange, lostAckDraw < current.lostAckRate());
+            } catch (RuntimeException e) {
+                // Unparseable body or parameter
+                sendStatus(exchange, 400, 3, String.valueOf(e.getMessage()));
+            }
+        }
+    }
+
+    private void route(HttpExchange exchange, boolean loseAck) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+
+        if (path.equals(EVENTS_FILTER) && method.equals("POST")) {
+            sendJson(exchange, JSON.serialize(new V1FilterEventsResponse()
+                    .events(List.of(event()))
+                    .nextPageToken("")
+                    .total(1)));
+            return;
+        }
+        Matcher apiKey = API_KEY_ALIAS.matcher(path);
+        if (apiKey.matches() && method.equals("GET")) {
+            if (unknownEvent(exchange, apiKey.group(1))) {
+                return;
+            }
+            String alias = apiKey.group(2);
+            sendJson(exchange, JSON.serialize(new V1GetApiKeyResponse()
+                    .alias(alias)
+                    .apiKey(apiKeyFor(alias))
+                    .isActive(true)));
+            return;
+        }
+        Matcher vendors = VENDORS_FILTER.matcher(path);
+        if (vendors.matches() && method.equals("POST")) {
+            if (unknownEvent(exchange, vendors.group(1)) || unauthorized(exchange)) {
+                return;
+            }
+            filterVendors(exchange);
+            return;
+        }
+        Matcher soldItemsPath = SOLD_ITEMS.matcher(path);
+        if (soldItemsPath.matches()) {
+            if (unknownEvent(exchange, soldItemsPath.group(1)) || unauthorized(exchange)) {
+                return;
+            }
+            if (method.equals("POST")) {
+                createSoldItems(exchange, loseAck);
+                return;
+            }
+            if (method.equals("GET")) {
+                listSoldItems(exchange);
+                return;
+            }
+        }
+        sendStatus(exchange, 404, 5, "no fake for " + method + " " + path);
+    }
+
+    private void createSoldItems(HttpExchange exchange, boolean loseAck) throws IOException {
+        SoldItemsServiceCreateSoldItemsBody body = JSON.getGson().fromJson(
+                readBody(exchange), SoldItemsServiceCreateSoldItemsBody.class);
+        List<V1SoldItem> accepted = new ArrayList<>();
+        List<V1RejectedItem> rejected = new ArrayList<>();
+        synchronized (this) {
+            for (V1SoldItem item : body.getItems() == null ? List.<V1SoldItem>of() : body.getItems()) {
+                V1RejectedItem rejection = validate(item);
+                if (rejection != null) {
+                    rejected.add(rejection);
+                    continue;
+                }
+                V1SoldItem stored = copyOf(item).collectedBySeller(false);
+                soldItems.put(stored.getItemId(), stored);
+                accepted.add(copyOf(stored));
+            }
+        }
+        acceptedItems.addAndGet(accepted.size());
+        if (loseAck) {
+            lostAcks.incrementAndGet();
+            sendStatus(exchange, 503, 14, "response lost after commit");
+            return;
+        }
+        sendJson(exchange, JSON.serialize(new V1CreateSoldItemsResponse()
+                .acceptedItems(accepted)
+                .rejectedItems(rejected)));
+    }
+
+    // Called holding this
+    private V1RejectedItem validate(V1SoldItem item) {
+        if (item.getItemId() == null || item.getItemId().isBlank()) {
+            rejectedItems.incrementAndGet();
+            return rejection(item, V1SoldItemErrorCode.UNSPECIFIED, "itemId is required");
+        }
+        if (soldItems.containsKey(item.getItemId())) {
+            duplicateItems.incrementAndGet();
+            return rejection(item, V1SoldItemErrorCode.DUPLICATE_RECEIPT, "item already registered");
+        }
+        if (item.getSeller() == null || !approvedSellers.contains(item.getSeller())) {
+            rejectedItems.incrementAndGet();
+            return rejection(item, V1SoldItemErrorCode.INVALID_SELLER, "seller " + item.getSeller() + " is not approved");
+        }
+        if (item.getPrice() == null || item.getPrice() <= 0) {
+            rejectedItems.incrementAndGet();
+            return rejection(item, V1SoldItemErrorCode.UNSPECIFIED, "price must be positive");
+        }
+        return null;
+    }
+
+    private static V1RejectedItem rejection(V1SoldItem item, V1SoldItemErrorCode code, String reason) {
+        return new V1RejectedItem().item(item).errorCode(code).reason(reason);
+    }
+
+    private void listSoldItems(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange.getRequestURI());
+        String paidFilter = query.getOrDefault("paidFilter", "");
+        String paymentFilter = query.getOrDefault("paymentMethodFilter", "");
+        String purchaseId = query.get("purchaseId");
+        Integer seller = query.containsKey("seller") ? Integer.valueOf(query.get("seller")) : null;
+        int pageSize = query.containsKey("pageSize") ? Integer.parseInt(query.get("pageSize")) : DEFAULT_PAGE_SIZE;
+        String token = query.getOrDefault("nextPageToken", "");
+        if (!token.isEmpty() && !token.chars().allMatch(Character::isDigit)) {
+            sendStatus(exchange, 400, 3, "invalid page token");
+            return;
+        }
+
+        List<V1SoldItem> matching = new ArrayList<>();
+        synchronized (this) {
+            for (V1SoldItem item : soldItems.values()) {
+                boolean paid = Boolean.TRUE.equals(item.getCollectedBySeller());
+                if (paidFilter.equals("ONLY_PAID") && !paid || paidFilter.equals("ONLY_UNPAID") && paid) {
+                    continue;
+                }
+                if (paymentFilter.equals("ONLY_SWISH") && !"SWISH".equals(String.valueOf(item.getPaymentMethod()))
+                        || paymentFilter.equals("ONLY_KONTANT") && !"KONTANT".equals(String.valueOf(item.getPaymentMethod()))) {
+                    continue;
+                }
+                if (purchaseId != null && !purchaseId.equals(item.getPurchaseId())
+                        || seller != null && !seller.equals(item.getSeller())) {
+                    continue;
+                }
+                matching.add(copyOf(item));
+            }
+        }
+        int from = Math.min(token.isEmpty() ? 0 : Integer.parseInt(token), matching.size());
+        int to = Math.min(matching.size(), from + Math.max(1, pageSize));
+        V1ListSoldItemsResponse response = new V1ListSoldItemsResponse()
+                .items(new ArrayList<>(matching.subList(from, to)))
+                .total(matching.size())
+                .nextPageToken(to < matching.size() ? String.valueOf(to) : "")
+                .prevPageToken(from > 0 ? String.valueOf(Math.max(0, from - pageSize)) : "");
+        if (Boolean.parseBoolean(query.getOrDefault("includeAggregates", "false"))) {
+            int totalPrice = matching.stream().mapToInt(item -> item.getPrice() == null ? 0 : item.getPrice()).sum();
+            response.aggregates(new V1Aggregates().totalCount(matching.size()).totalPrice(totalPrice));
+        }
+        sendJson(exchange, JSON.serialize(response));
+    }
+
+    private void filterVendors(HttpExchange exchange) throws IOException {
+        VendorServiceFilterVendorsBody body = JSON.getGson().fromJson(
+                readBody(exchange), VendorServiceFilterVendorsBody.class);
+        V1VendorFilter filter = body.getFilter();
+        V1Pagination pagination = body.getPagination();
+        Integer sellerNumber = filter == null ? null : filter.getSellerNumber();
+        String status = filter == null ? null : filter.getStatus();
+
+        List<Integer> sellers = new ArrayList<>();
+        if (status == null || status.isBlank() || status.equals("approved")) {
+            approvedSellers.stream().sorted()
+                    .filter(seller -> sellerNumber == null || sellerNumber.equals(seller))
+                    .forEach(sellers::add);
+        }
+        int pageSize = pagination == null || pagination.getPageSize() == null ? DEFAULT_PAGE_SIZE : pagination.getPageSize();
+        String token = pagination == null || pagination.getPageToken() == null ? "" : pagination.getPageToken();
+        int from = Math.min(token.isEmpty() ? 0 : Integer.parseInt(token), sellers.size());
+        int to = Math.min(sellers.size(), from + Math.max(1, pageSize));
+        List<V1Vendor> page = new ArrayList<>();
+        for (int seller : sellers.subList(from, to)) {
+            page.add(new V1Vendor()
+                    .vendorId("vendor-" + seller)
+                    .eventId(eventId)
+                    .sellerNumber(seller)
+                    .email("vendor" + seller + "@fake.local")
+                    .status("approved"));
+        }
+        sendJson(exchange, JSON.serialize(new V1FilterVendorsResponse()
+                .vendors(page)
+                .total(sellers.size())
+                .nextPageToken(to < sellers.size() ? String.valueOf(to) : "")));
+    }
+
+    private V1Event event() {
+        OffsetDateTime today = OffsetDateTime.now(ZoneOffset.UTC).withHour(8).withMinute(0).withSecond(0).withNano(0);
+        return new V1Event()
+                .id(eventId)
+                .marketId("fake-market")
+                .name("Fake event " + eventId)
+                .addressCity("Localhost")
+                .startTime(today)
+                .endTime(today.plusHours(8))
+                .lifecycleState(V1EventLifecycleState.OPEN);
+    }
+
+    private boolean unknownEvent(HttpExchange exchange, String requested) throws IOException {
+        if (eventId.equals(requested)) {
+            return false;
+        }
+        sendStatus(exchange, 404, 5, "event " + requested + " not found");
+        return true;
+    }
+
+    private static boolean unauthorized(HttpExchange exchange) throws IOException {
+        String auth = exchange.getRequestHeaders().getFirst("Authorization");
+        if (auth != null && auth.startsWith("Bearer ") && !auth.substring(7).isBlank()) {
+            return false;
+        }
+        sendStatus(exchange, 401, 16, "missing api key");
+        return true;
+    }
+
+    private static V1SoldItem copyOf(V1SoldItem item) {
+        return JSON.getGson().fromJson(JSON.serialize(item), V1SoldItem.class);
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        return new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        String raw = uri.getRawQuery();
+        if (raw == null || raw.isEmpty()) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    private static void sendJson(HttpExchange exchange, String json) throws IOException {
+        send(exchange, 200, json);
+    }
+
+    /**
+     * Errors in the google.rpc.Status shape the gateway uses.
+     */
+    private static void sendStatus(HttpExchange exchange, int httpStatus, int rpcCode, String message) throws IOException {
+        send(exchange, httpStatus, new JSONObject().put("code", rpcCode).put("message", message).toString());
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String envOr(String key, String defaultValue) {
+        String val = System.getenv(key);
+        return val == null || val.isBlank() ? defaultValue : val;
+    }
+
+    /**
+     * Serve until killed. EVENT_ID (default fake-event), SELLER_COUNT (100), FAKE_PORT (8099),
+     * FAKE_SEED (1) and the {@link Faults#fromEnv()} variables.
+     */
+    public static void main(String[] args) throws Exception {
+        FakeILoppisBackend backend = start(
+                envOr("EVENT_ID", "fake-event"),
+                Integer.parseInt(envOr("SELLER_COUNT", "100")),
+                Long.parseLong(envOr("FAKE_SEED", "1")),
+                Integer.parseInt(envOr("FAKE_PORT", "8099")));
+        backend.setFaults(Faults.fromEnv());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            backend.close();
+            System.out.println("Fake backend stopped: " + backend.stats());
+        }));
+        System.out.printf("Fake iLoppis backend on %s, event %s, faults %s%n",
+                backend.baseUrl(), backend.eventId(), backend.faults());
+        Thread.currentThread().join();
+    }
+}
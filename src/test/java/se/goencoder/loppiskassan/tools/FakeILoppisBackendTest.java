@@ -0,0 +1,154 @@
+package se.goencoder.loppiskassan.tools;
+
+import org.junit.jupiter.api.Test;
+import se.goencoder.iloppis.api.ApiKeyServiceApi;
+import se.goencoder.iloppis.api.SoldItemsServiceApi;
+import se.goencoder.iloppis.api.VendorServiceApi;
+import se.goencoder.iloppis.invoker.ApiException;
+import se.goencoder.iloppis.model.SoldItemsServiceCreateSoldItemsBody;
+import se.goencoder.iloppis.model.V1CreateSoldItemsResponse;
+import se.goencoder.iloppis.model.V1FilterVendorsResponse;
+import se.goencoder.iloppis.model.V1ListSoldItemsResponse;
+import se.goencoder.iloppis.model.V1Pagination;
+import se.goencoder.iloppis.model.V1PaymentMethod;
+import se.goencoder.iloppis.model.V1SoldItem;
+import se.goencoder.iloppis.model.V1SoldItemErrorCode;
+import se.goencoder.iloppis.model.V1VendorFilter;
+import se.goencoder.iloppis.model.VendorServiceFilterVendorsBody;
+import se.goencoder.loppiskassan.rest.FixedApiClient;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FakeILoppisBackendTest {
+
+    private static FixedApiClient client(FakeILoppisBackend backend, String apiKey) {
+        FixedApiClient client = new FixedApiClient();
+        client.setBasePath(backend.baseUrl());
+        if (apiKey != null) {
+            client.addDefaultHeader("Authorization", "Bearer " + apiKey);
+        }
+        return client;
+    }
+
+    private static SoldItemsServiceCreateSoldItemsBody purchase(String purchaseId, int... sellers) {
+        SoldItemsServiceCreateSoldItemsBody body = new SoldItemsServiceCreateSoldItemsBody();
+        for (int i = 0; i < sellers.length; i++) {
+            body.addItemsItem(new V1SoldItem()
+                    .itemId(purchaseId + "-" + i)
+                    .purchaseId(purchaseId)
+                    .seller(sellers[i])
+                    .price(50)
+                    .paymentMethod(V1PaymentMethod.SWISH)
+                    .soldTime(OffsetDateTime.of(2026, 5, 16, 10, 0, i, 0, ZoneOffset.UTC)));
+        }
+        return body;
+    }
+
+    private static V1ListSoldItemsResponse list(SoldItemsServiceApi api, String eventId, String paidFilter,
+                                                int pageSize, String token) throws ApiException {
+        return api.soldItemsServiceListSoldItems(eventId, null, paidFilter, "PAYMENT_METHOD_FILTER_UNSPECIFIED",
+                null, false, pageSize, token, "", true);
+    }
+
+    @Test
+    void servesTheCashierEndpointsWithPerItemRejections() throws Exception {
+        try (FakeILoppisBackend backend = FakeILoppisBackend.start("ev-1", 10, 1, 0)) {
+            String apiKey = new ApiKeyServiceApi(client(backend, null))
+                    .apiKeyServiceGetApiKey("ev-1", "ABC-123", null).getApiKey();
+            assertEquals(FakeILoppisBackend.apiKeyFor("ABC-123"), apiKey);
+
+            SoldItemsServiceApi soldItems = new SoldItemsServiceApi(client(backend, apiKey));
+            V1CreateSoldItemsResponse first = soldItems.soldItemsServiceCreateSoldItems("ev-1", purchase("p1", 1, 2, 11));
+            assertEquals(2, first.getAcceptedItems().size());
+            assertEquals(V1SoldItemErrorCode.INVALID_SELLER, first.getRejectedItems().getFirst().getErrorCode());
+
+            V1CreateSoldItemsResponse again = soldItems.soldItemsServiceCreateSoldItems("ev-1", purchase("p1", 1, 2));
+            assertEquals(0, again.getAcceptedItems().size());
+            assertTrue(again.getRejectedItems().stream()
+                    .allMatch(rejected -> rejected.getErrorCode() == V1SoldItemErrorCode.DUPLICATE_RECEIPT));
+
+            for (int p = 2; p <= 4; p++) {
+                soldItems.soldItemsServiceCreateSoldItems("ev-1", purchase("p" + p, 3, 4));
+            }
+            backend.payOut("p3-0");
+            List<String> ids = new ArrayList<>();
+            String token = "";
+            do {
+                V1ListSoldItemsResponse page = list(soldItems, "ev-1", "PAID_FILTER_UNSPECIFIED", 3, token);
+                assertEquals(8, page.getAggregates().getTotalCount());
+                assertEquals(400, page.getAggregates().getTotalPrice());
+                page.getItems().forEach(item -> ids.add(item.getItemId()));
+                token = page.getNextPageToken();
+            } while (!token.isEmpty());
+            assertEquals(List.of("p1-0", "p1-1", "p2-0", "p2-1", "p3-0", "p3-1", "p4-0", "p4-1"), ids);
+            assertEquals(1, list(soldItems, "ev-1", "ONLY_PAID", 10, "").getItems().size());
+            assertEquals(400, assertThrows(ApiException.class,
+                    () -> list(soldItems, "ev-1", "PAID_FILTER_UNSPECIFIED", 3, "stale")).getCode());
+
+            VendorServiceApi vendors = new VendorServiceApi(client(backend, apiKey));
+            VendorServiceFilterVendorsBody approved = new VendorServiceFilterVendorsBody()
+                    .filter(new V1VendorFilter().status("approved"))
+                    .pagination(new V1Pagination().pageSize(4));
+            V1FilterVendorsResponse vendorPage = vendors.vendorServiceFilterVendors("ev-1", approved);
+            assertEquals(4, vendorPage.getVendors().size());
+            assertEquals(10, vendorPage.getTotal());
+            assertEquals("4", vendorPage.getNextPageToken());
+
+            assertEquals(401, assertThrows(ApiException.class,
+                    () -> new SoldItemsServiceApi(client(backend, null))
+                            .soldItemsServiceCreateSoldItems("ev-1", purchase("p9", 1))).getCode());
+            assertEquals(404, assertThrows(ApiException.class,
+                    () -> soldItems.soldItemsServiceCreateSoldItems("other", purchase("p9", 1))).getCode());
+        }
+    }
+
+    @Test
+    void faultsAreSeededAndALostAckSurfacesAsDuplicatesOnRetry() throws Exception {
+        try (FakeILoppisBackend backend = FakeILoppisBackend.start("ev-1", 10, 7, 0)) {
+            SoldItemsServiceApi api = new SoldItemsServiceApi(client(backend, "key"));
+
+            backend.setFaults(FakeILoppisBackend.Faults.NONE.withErrors(0, 1, 0));
+            ApiException throttled = assertThrows(ApiException.class,
+                    () -> api.soldItemsServiceCreateSoldItems("ev-1", purchase("p1", 1)));
+            assertEquals(429, throttled.getCode());
+            assertEquals(List.of("1"), throttled.getResponseHeaders().get("retry-after"));
+
+            backend.setFaults(FakeILoppisBackend.Faults.NONE.withErrors(0, 0, 1));
+            assertEquals(503, assertThrows(ApiException.class,
+                    () -> api.soldItemsServiceCreateSoldItems("ev-1", purchase("p1", 1, 2))).getCode());
+            backend.setFaults(FakeILoppisBackend.Faults.NONE.withLatency(30, 0));
+            long start = System.nanoTime();
+            V1CreateSoldItemsResponse retried = api.soldItemsServiceCreateSoldItems("ev-1", purchase("p1", 1, 2));
+            assertTrue(System.nanoTime() - start >= 30_000_000L, "latency is applied");
+            assertEquals(2, retried.getRejectedItems().size(), "the lost ack stored the items");
+            assertEquals(new FakeILoppisBackend.Stats(3, 0, 1, 1, 2, 2, 0), backend.stats());
+        }
+
+        assertEquals(failurePattern(42), failurePattern(42), "same seed, same faults");
+    }
+
+    private static List<Integer> failurePattern(long seed) throws Exception {
+        List<Integer> codes = new ArrayList<>();
+        try (FakeILoppisBackend backend = FakeILoppisBackend.start("ev-1", 10, seed, 0)) {
+            backend.setFaults(FakeILoppisBackend.Faults.NONE.withErrors(0.3, 0.2, 0));
+            SoldItemsServiceApi api = new SoldItemsServiceApi(client(backend, "key"));
+            for (int i = 0; i < 20; i++) {
+                try {
+                    api.soldItemsServiceCreateSoldItems("ev-1", purchase("p" + i, 1));
+                    codes.add(200);
+                } catch (ApiException e) {
+                    codes.add(e.getCode());
+                }
+            }
+        }
+        assertTrue(codes.contains(200) && codes.stream().anyMatch(code -> code != 200), codes.toString());
+        return codes;
+    }
+}
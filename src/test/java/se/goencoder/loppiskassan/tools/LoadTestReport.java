@@ -0,0 +1,224 @@
+package se.goencoder.loppiskassan.tools;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import se.goencoder.loppiskassan.metrics.Histogram;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Result of one {@link LoadTestRunner} run, written so runs can be compared across versions.
+ * <p>
+ * {@link #writeTo(Path)} writes three files to the output directory:
+ * <ul>
+ *   <li>{@code <stamp>-<label>.json}: configuration, totals, latency percentiles and extras
+ *       (app metrics, fake backend counters);</li>
+ *   <li>{@code <stamp>-<label>-timeline.csv}: throughput and backlog per sample interval;</li>
+ *   <li>{@code runs.csv}: one summary row per run, appended, for comparing runs in a spreadsheet.</li>
+ * </ul>
+ * Latencies are in microseconds; percentiles are within the 12.5% resolution of {@link Histogram}.
+ * </p>
+ *
+ * @param durable  checkout until the strategy reported the purchase durable
+ * @param uploaded checkout until the backend held the item, or null when nothing is uploaded
+ * @param extra    anything else worth keeping with the run
+ */
+public record LoadTestReport(
+        String label,
+        String mode,
+        int tills,
+        long startedAtMillis,
+        long durationMillis,
+        long checkouts,
+        long items,
+        long amount,
+        long failures,
+        long uploadedItems,
+        long notUploadedItems,
+        Histogram durable,
+        Histogram uploaded,
+        List<Sample> timeline,
+        JSONObject extra
+) {
+
+    static final String RUNS_FILE = "runs.csv";
+    private static final String RUNS_HEADER = "started,label,mode,tills,duration_s,checkouts,items,failures,"
+            + "checkouts_per_s,items_per_s,durable_p50_us,durable_p95_us,durable_p99_us,durable_max_us,"
+            + "uploaded_items,not_uploaded_items,uploaded_p50_us,uploaded_p95_us,uploaded_p99_us,uploaded_max_us";
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+    /**
+     * Cumulative counts at {@code elapsedMillis} into the run.
+     */
+    public record Sample(long elapsedMillis, long checkouts, long items, long uploadedItems, int pendingItems) {
+    }
+
+    public double checkoutsPerSecond() {
+        return perSecond(checkouts);
+    }
+
+    public double itemsPerSecond() {
+        return perSecond(items);
+    }
+
+    private double perSecond(long count) {
+        return durationMillis <= 0 ? 0 : count * 1000.0 / durationMillis;
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject()
+                .put("label", label)
+                .put("mode", mode)
+                .put("tills", tills)
+                .put("started", Instant.ofEpochMilli(startedAtMillis).toString())
+                .put("durationMillis", durationMillis)
+                .put("checkouts", checkouts)
+                .put("items", items)
+                .put("amount", amount)
+                .put("failures", failures)
+                .put("checkoutsPerSecond", round(checkoutsPerSecond()))
+                .put("itemsPerSecond", round(itemsPerSecond()))
+                .put("checkoutToDurableMicros", latency(durable));
+        if (uploaded != null) {
+            json.put("uploadedItems", uploadedItems)
+                    .put("notUploadedItems", notUploadedItems)
+                    .put("checkoutToUploadedMicros", latency(uploaded));
+        }
+        JSONArray samples = new JSONArray();
+        for (Sample sample : timeline) {
+            samples.put(new JSONObject()
+                    .put("elapsedMillis", sample.elapsedMillis())
+                    .put("checkouts", sample.checkouts())
+                    .put("items", sample.items())
+                    .put("uploadedItems", sample.uploadedItems())
+                    .put("pendingItems", sample.pendingItems()));
+        }
+        json.put("timeline", samples);
+        if (extra != null) {
+            json.put("extra", extra);
+        }
+        return json;
+    }
+
+    /**
+     * @return the JSON report's path
+     */
+    public Path writeTo(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        String base = STAMP.format(Instant.ofEpochMilli(startedAtMillis)) + "-" + fileSafe(label);
+        Path json = dir.resolve(base + ".json");
+        Files.writeString(json, toJson().toString(2), StandardCharsets.UTF_8);
+        Files.writeString(dir.resolve(base + "-timeline.csv"), timelineCsv(), StandardCharsets.UTF_8);
+
+        Path runs = dir.resolve(RUNS_FILE);
+        String row = runsRow() + "\n";
+        if (Files.notExists(runs)) {
+            row = RUNS_HEADER + "\n" + row;
+        }
+        Files.writeString(runs, row, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        return json;
+    }
+
+    /**
+     * One line per sample with the rates over the interval before it.
+     */
+    String timelineCsv() {
+        StringBuilder csv = new StringBuilder("elapsed_s,checkouts,items,uploaded_items,pending_items,"
+                + "checkouts_per_s,items_per_s,uploaded_items_per_s\n");
+        Sample previous = new Sample(0, 0, 0, 0, 0);
+        for (Sample sample : timeline) {
+            double seconds = Math.max(1, sample.elapsedMillis() - previous.elapsedMillis()) / 1000.0;
+            csv.append(String.format(Locale.ROOT, "%.1f,%d,%d,%d,%d,%.1f,%.1f,%.1f%n",
+                    sample.elapsedMillis() / 1000.0,
+                    sample.checkouts(),
+                    sample.items(),
+                    sample.uploadedItems(),
+                    sample.pendingItems(),
+                    (sample.checkouts() - previous.checkouts()) / seconds,
+                    (sample.items() - previous.items()) / seconds,
+                    (sample.uploadedItems() - previous.uploadedItems()) / seconds));
+            previous = sample;
+        }
+        return csv.toString();
+    }
+
+    String runsRow() {
+        return String.join(",",
+                Instant.ofEpochMilli(startedAtMillis).toString(),
+                csvField(label),
+                mode,
+                String.valueOf(tills),
+                String.format(Locale.ROOT, "%.1f", durationMillis / 1000.0),
+                String.valueOf(checkouts),
+                String.valueOf(items),
+                String.valueOf(failures),
+                String.format(Locale.ROOT, "%.1f", checkoutsPerSecond()),
+                String.format(Locale.ROOT, "%.1f", itemsPerSecond()),
+                String.valueOf(durable.percentile(0.50)),
+                String.valueOf(durable.percentile(0.95)),
+                String.valueOf(durable.percentile(0.99)),
+                String.valueOf(durable.max()),
+                uploaded == null ? "" : String.valueOf(uploadedItems),
+                uploaded == null ? "" : String.valueOf(notUploadedItems),
+                uploaded == null ? "" : String.valueOf(uploaded.percentile(0.50)),
+                uploaded == null ? "" : String.valueOf(uploaded.percentile(0.95)),
+                uploaded == null ? "" : String.valueOf(uploaded.percentile(0.99)),
+                uploaded == null ? "" : String.valueOf(uploaded.max()));
+    }
+
+    /**
+     * Console summary.
+     */
+    public String summary() {
+        StringBuilder text = new StringBuilder(String.format(Locale.ROOT,
+                "%s, %d till(s), %.1f s: %d checkouts (%.1f/s), %d items (%.1f/s), %d failed%n",
+                mode, tills, durationMillis / 1000.0, checkouts, checkoutsPerSecond(), items, itemsPerSecond(), failures));
+        text.append(latencyLine("checkout -> durable ", durable));
+        if (uploaded != null) {
+            text.append(latencyLine("checkout -> uploaded", uploaded));
+            text.append(String.format("%d items uploaded, %d not uploaded%n", uploadedItems, notUploadedItems));
+        }
+        return text.toString();
+    }
+
+    private static String latencyLine(String name, Histogram histogram) {
+        return String.format(Locale.ROOT, "%s  p50=%s p95=%s p99=%s max=%s (n=%d)%n", name,
+                millis(histogram.percentile(0.50)), millis(histogram.percentile(0.95)),
+                millis(histogram.percentile(0.99)), millis(histogram.max()), histogram.count());
+    }
+
+    private static String millis(long micros) {
+        return String.format(Locale.ROOT, "%.1fms", micros / 1000.0);
+    }
+
+    private static JSONObject latency(Histogram histogram) {
+        return new JSONObject()
+                .put("count", histogram.count())
+                .put("mean", Math.round(histogram.mean()))
+                .put("p50", histogram.percentile(0.50))
+                .put("p95", histogram.percentile(0.95))
+                .put("p99", histogram.percentile(0.99))
+                .put("max", histogram.max());
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+
+    private static String fileSafe(String value) {
+        return value.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    private static String csvField(String value) {
+        return value.contains(",") || value.contains("\"") ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+    }
+}
@@ -0,0 +1,61 @@
+package se.goencoder.loppiskassan.tools;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import se.goencoder.loppiskassan.metrics.Histogram;
+import se.goencoder.loppiskassan.metrics.Metrics;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoadTestReportTest {
+
+    private static LoadTestReport report(String label, long startedAtMillis, Histogram durable, Histogram uploaded) {
+        return new LoadTestReport(label, "FAKE", 4, startedAtMillis, 2_000, 40, 600, 30_000, 1,
+                590, 10, durable, uploaded,
+                List.of(new LoadTestReport.Sample(1_000, 10, 150, 0, 150),
+                        new LoadTestReport.Sample(2_000, 40, 600, 590, 10)),
+                new JSONObject().put("note", "test"));
+    }
+
+    @Test
+    void reportsPercentilesRatesAndOneRunsRowPerRun() throws Exception {
+        Histogram durable = Metrics.histogram("test.loadtest.durable.micros");
+        Histogram uploaded = Metrics.histogram("test.loadtest.uploaded.micros");
+        for (int i = 1; i <= 100; i++) {
+            durable.record(i * 100L);
+            uploaded.record(i * 10_000L);
+        }
+        Path dir = Files.createTempDirectory("load-test-report");
+
+        Path json = report("v2.1 rc", 1_780_000_000_000L, durable, uploaded).writeTo(dir);
+        JSONObject written = new JSONObject(Files.readString(json, StandardCharsets.UTF_8));
+        assertEquals(20.0, written.getDouble("checkoutsPerSecond"));
+        assertEquals(300.0, written.getDouble("itemsPerSecond"));
+        JSONObject durableJson = written.getJSONObject("checkoutToDurableMicros");
+        assertEquals(10_000, durableJson.getLong("max"));
+        assertTrue(Math.abs(durableJson.getLong("p95") - 9_500) <= 9_500 / 8, durableJson.toString());
+        assertEquals(10, written.getLong("notUploadedItems"));
+        assertEquals(2, written.getJSONArray("timeline").length());
+        assertTrue(json.getFileName().toString().endsWith("-v2.1_rc.json"));
+
+        String timeline = Files.readString(Path.of(json.toString().replace(".json", "-timeline.csv")));
+        assertEquals(List.of(
+                "elapsed_s,checkouts,items,uploaded_items,pending_items,checkouts_per_s,items_per_s,uploaded_items_per_s",
+                "1.0,10,150,0,150,10.0,150.0,0.0",
+                "2.0,40,600,590,10,30.0,450.0,590.0"), timeline.lines().toList());
+
+        report("local", 1_780_000_100_000L, durable, null).writeTo(dir);
+        List<String> runs = Files.readAllLines(dir.resolve(LoadTestReport.RUNS_FILE));
+        assertEquals(3, runs.size(), "header once, then a row per run");
+        assertTrue(runs.get(0).startsWith("started,label,mode,tills"));
+        assertTrue(runs.get(1).contains(",v2.1 rc,FAKE,4,2.0,40,600,1,20.0,300.0,"), runs.get(1));
+        assertTrue(runs.get(2).endsWith(",,,,,,"), "no upload columns without uploads: " + runs.get(2));
+        assertEquals("test", written.getJSONObject("extra").getString("note"));
+    }
+}
@@ -1,40 +1,59 @@
 package se.goencoder.loppiskassan.tools;
 
-import se.goencoder.iloppis.api.ApiKeyServiceApi;
-import se.goencoder.iloppis.api.SoldItemsServiceApi;
-import se.goencoder.iloppis.invoker.ApiException;
-import se.goencoder.iloppis.model.SoldItemsServiceCreateSoldItemsBody;
-import se.goencoder.iloppis.model.V1CreateSoldItemsResponse;
+import org.json.JSONObject;
 import se.goencoder.loppiskassan.V1PaymentMethod;
 import se.goencoder.loppiskassan.V1SoldItem;
 import se.goencoder.loppiskassan.config.AppMode;
 import se.goencoder.loppiskassan.config.AppModeManager;
+import se.goencoder.loppiskassan.config.ILoppisConfigurationStore;
 import se.goencoder.loppiskassan.config.LocalConfigurationStore;
-import se.goencoder.loppiskassan.rest.FixedApiClient;
-import se.goencoder.loppiskassan.storage.JsonlHelper;
-import se.goencoder.loppiskassan.storage.LocalEventPaths;
+import se.goencoder.loppiskassan.metrics.Histogram;
+import se.goencoder.loppiskassan.metrics.Metrics;
+import se.goencoder.loppiskassan.rest.ApiHelper;
+import se.goencoder.loppiskassan.service.BackgroundSyncManager;
+import se.goencoder.loppiskassan.service.CashierStrategy;
+import se.goencoder.loppiskassan.service.IloppisCashierStrategy;
+import se.goencoder.loppiskassan.service.LocalCashierStrategy;
 import se.goencoder.loppiskassan.storage.LocalEventRepository;
-import se.goencoder.loppiskassan.utils.SoldItemUtils;
 import se.goencoder.loppiskassan.utils.UlidGenerator;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
-import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.util.Objects;
-import java.util.Random;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Manual load generator for local or iLoppis modes.
+ * Manual load generator for local, iLoppis or fake (embedded {@link FakeILoppisBackend}) modes.
  * Not part of automated test suite; invoke via make load-test with an env file.
+ * <p>
+ * {@code TILLS} virtual threads check out purchases concurrently through the app's own
+ * {@link CashierStrategy#persistItemsAsync} (local-first write, then {@link BackgroundSyncManager}
+ * uploads in iLoppis and fake modes). Each checkout's time until it is durable, and each
+ * item's time until the backend holds it, go into histograms; throughput and backlog are
+ * sampled every {@code SAMPLE_INTERVAL_SECONDS}. The report is written as JSON and CSV to
+ * {@code OUTPUT_DIR} (see {@link LoadTestReport}).
+ * </p>
+ * <p>
+ * The tills share this process's sync manager, so against one backend this is N tills' worth
+ * of load on one sync thread: an upper bound for a single till and N times the traffic of one.
+ * </p>
  */
 public final class LoadTestRunner {
 
-    private enum Mode { LOCAL, ILOPPIS }
+    private enum Mode { LOCAL, ILOPPIS, FAKE }
+
+    /** Between manual sync triggers while waiting for the last uploads. */
+    private static final long DRAIN_NUDGE_MS = 2_000;
 
     private record Config(
             Mode mode,
@@ -47,11 +66,19 @@ public final class LoadTestRunner {
             int maxPrice,
             int minItemsPerPurchase,
             int maxItemsPerPurchase,
-            long targetTotal
+            long targetTotal,
+            int tills,
+            long thinkTimeMs,
+            long durationSeconds,
+            long sampleIntervalSeconds,
+            long drainSeconds,
+            Path outputDir,
+            String label,
+            String home
     ) {
         static Config fromEnv() {
             Mode mode = Mode.valueOf(envOr("MODE", "LOCAL").toUpperCase(Locale.ROOT));
-            String eventId = requireEnv("EVENT_ID");
+            String eventId = mode == Mode.FAKE ? envOr("EVENT_ID", "fake-event") : requireEnv("EVENT_ID");
             String apiBaseUrl = envOr("API_BASE_URL", "http://127.0.0.1:8080");
             String apiKey = envOrNull("API_KEY");
             String cashierCode = envOrNull("CASHIER_CODE");
@@ -62,6 +89,15 @@ public final class LoadTestRunner {
             int minItems = parseInt(envOr("MIN_ITEMS_PER_PURCHASE", "10"));
             int maxItems = parseInt(envOr("MAX_ITEMS_PER_PURCHASE", "20"));
             long targetTotal = parseLong(envOr("TARGET_TOTAL", "500000"));
+            int tills = parseInt(envOr("TILLS", "1"));
+            long thinkTimeMs = parseLong(envOr("THINK_TIME_MS", "0"));
+            long durationSeconds = parseLong(envOr("DURATION_SECONDS", "0"));
+            long sampleIntervalSeconds = parseLong(envOr("SAMPLE_INTERVAL_SECONDS", "5"));
+            long drainSeconds = parseLong(envOr("DRAIN_SECONDS", "60"));
+            Path outputDir = Path.of(envOr("OUTPUT_DIR", "target/load-test"));
+            String label = envOr("RUN_LABEL", "unlabelled");
+            // Fake mode points the iLoppis config at a throwaway backend, so it gets a throwaway home too
+            String home = envOr("LOAD_TEST_HOME", mode == Mode.FAKE ? "temp" : null);
 
             if (minPrice <= 0 || maxPrice < minPrice) {
                 throw new IllegalArgumentException("Invalid price range");
@@ -75,6 +111,9 @@ public final class LoadTestRunner {
             if (targetTotal <= 0) {
                 throw new IllegalArgumentException("Target total must be positive");
             }
+            if (tills <= 0 || sampleIntervalSeconds <= 0) {
+                throw new IllegalArgumentException("Tills and sample interval must be positive");
+            }
             if (mode == Mode.ILOPPIS && (isBlank(apiKey) && isBlank(cashierCode))) {
                 throw new IllegalArgumentException("ILOPPIS mode requires API_KEY or CASHIER_CODE");
             }
@@ -90,142 +129,248 @@ public final class LoadTestRunner {
                     maxPrice,
                     minItems,
                     maxItems,
-                    targetTotal
+                    targetTotal,
+                    tills,
+                    thinkTimeMs,
+                    durationSeconds,
+                    sampleIntervalSeconds,
+                    drainSeconds,
+                    outputDir,
+                    label,
+                    home
             );
         }
+
+        /** This config in iLoppis mode against the embedded backend, logging in as a cashier would. */
+        Config against(FakeILoppisBackend backend) {
+            return new Config(Mode.ILOPPIS, eventId, backend.baseUrl(), null, "LOAD-TEST",
+                    sellerCount, minPrice, maxPrice, minItemsPerPurchase, maxItemsPerPurchase, targetTotal,
+                    tills, thinkTimeMs, durationSeconds, sampleIntervalSeconds, drainSeconds, outputDir, label, home);
+        }
     }
 
+    private final Histogram durable = Metrics.histogram("loadtest.checkout.durable.micros");
+    private final Histogram uploaded = Metrics.histogram("loadtest.checkout.uploaded.micros");
+    /** Checkout start by itemId, for items not uploaded yet. */
+    private final Map<String, Long> awaitingUpload = new ConcurrentHashMap<>();
+    private final AtomicLong checkouts = new AtomicLong();
+    private final AtomicLong items = new AtomicLong();
+    private final AtomicLong amount = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong uploadedItems = new AtomicLong();
+    private final AtomicBoolean stop = new AtomicBoolean();
+    private boolean tracksUploads;
+
     public static void main(String[] args) throws Exception {
         Config cfg = Config.fromEnv();
+        useHome(cfg.home);
         LoadTestRunner runner = new LoadTestRunner();
-        runner.run(cfg);
-    }
-
-    private void run(Config cfg) throws Exception {
-        LoadSink sink = cfg.mode == Mode.LOCAL ? new LocalSink(cfg) : new IloppisSink(cfg);
-        try {
-            long total = 0;
-            int purchases = 0;
-            int items = 0;
-            Random random = ThreadLocalRandom.current();
-            while (total < cfg.targetTotal) {
-                int itemCount = nextItemCount(cfg, random);
-                String purchaseId = UlidGenerator.generate();
-                List<V1SoldItem> batch = new ArrayList<>(itemCount);
-                for (int i = 0; i < itemCount && total < cfg.targetTotal; i++) {
-                    int price = nextPrice(cfg, random);
-                    int seller = 1 + ((purchases * itemCount + i) % cfg.sellerCount);
-                    V1PaymentMethod payment = random.nextBoolean() ? V1PaymentMethod.Kontant : V1PaymentMethod.Swish;
-                    String itemId = UlidGenerator.generate();
-                    OffsetDateTime soldTime = OffsetDateTime.now(ZoneOffset.UTC);
-                    batch.add(new V1SoldItem(
-                            purchaseId,
-                            itemId,
-                            soldTime.toLocalDateTime(),
-                            seller,
-                            price,
-                            null,
-                            payment,
-                            false
-                    ));
-                    total += price;
-                }
-                sink.submit(batch);
-                purchases++;
-                items += batch.size();
-                if (purchases % 10 == 0 || total >= cfg.targetTotal) {
-                    System.out.printf("Progress: purchases=%d items=%d total=%d/%d%n", purchases, items, total, cfg.targetTotal);
-                }
+        LoadTestReport report;
+        if (cfg.mode != Mode.FAKE) {
+            report = runner.run(cfg, cfg.mode.name(), new JSONObject());
+        } else {
+            try (FakeILoppisBackend backend = FakeILoppisBackend.start(
+                    cfg.eventId, cfg.sellerCount, Long.parseLong(envOr("FAKE_SEED", "1")), 0)) {
+                backend.setFaults(FakeILoppisBackend.Faults.fromEnv());
+                JSONObject extra = new JSONObject().put("fakeFaults", backend.faults().toJson());
+                report = runner.run(cfg.against(backend), Mode.FAKE.name(), extra);
+                extra.put("fakeBackend", backend.stats().toJson());
+                System.out.printf("Fake backend: %s%n", backend.stats());
             }
-            System.out.printf("Done: purchases=%d items=%d total=%d%n", purchases, items, total);
-        } finally {
-            sink.close();
         }
+        System.out.print(report.summary());
+        System.out.printf("Report: %s%n", report.writeTo(cfg.outputDir));
+        // Failed checkouts fail the make target
+        System.exit(report.failures() == 0 ? 0 : 1);
     }
 
-    private int nextItemCount(Config cfg, Random random) {
-        if (cfg.minItemsPerPurchase == cfg.maxItemsPerPurchase) {
-            return cfg.minItemsPerPurchase;
+    /**
+     * The app keeps config and event data under user.home; "temp" means a new temporary directory.
+     */
+    private static void useHome(String home) throws Exception {
+        if (isBlank(home)) {
+            return;
         }
-        return cfg.minItemsPerPurchase + random.nextInt(cfg.maxItemsPerPurchase - cfg.minItemsPerPurchase + 1);
+        Path dir = home.equals("temp") ? Files.createTempDirectory("loppiskassan-load-test") : Path.of(home);
+        System.setProperty("user.home", dir.toAbsolutePath().toString());
+        System.out.printf("App data under %s%n", dir);
     }
 
-    private int nextPrice(Config cfg, Random random) {
-        if (cfg.minPrice == cfg.maxPrice) {
-            return cfg.minPrice;
+    private LoadTestReport run(Config cfg, String modeName, JSONObject extra) throws Exception {
+        CashierStrategy strategy = cfg.mode == Mode.LOCAL ? setUpLocal(cfg) : setUpIloppis(cfg);
+        tracksUploads = cfg.mode != Mode.LOCAL;
+        long startedAt = System.currentTimeMillis();
+        long start = System.nanoTime();
+        long deadline = cfg.durationSeconds > 0 ? start + TimeUnit.SECONDS.toNanos(cfg.durationSeconds) : Long.MAX_VALUE;
+
+        List<LoadTestReport.Sample> timeline = new ArrayList<>();
+        Thread sampler = Thread.ofVirtual().name("load-test-sampler").start(() -> sample(cfg, start, timeline));
+        try (ExecutorService tills = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int till = 0; till < cfg.tills; till++) {
+                tills.submit(() -> runTill(cfg, strategy, deadline));
+            }
         }
-        return cfg.minPrice + random.nextInt(cfg.maxPrice - cfg.minPrice + 1);
+        if (tracksUploads) {
+            drain(cfg);
+        }
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        sampler.interrupt();
+        sampler.join();
+        synchronized (timeline) {
+            LoadTestReport.Sample last = sampleNow(start);
+            LoadTestReport.Sample previous = timeline.isEmpty() ? null : timeline.getLast();
+            // The drain may have added uploads since the sampler's last tick
+            if (previous == null || previous.checkouts() != last.checkouts()
+                    || previous.uploadedItems() != last.uploadedItems()) {
+                timeline.add(last);
+            }
+        }
+        if (tracksUploads) {
+            BackgroundSyncManager.getInstance().setUploadListener(null);
+            BackgroundSyncManager.getInstance().stop();
+        }
+        extra.put("metrics", Metrics.snapshot());
+        return new LoadTestReport(cfg.label, modeName, cfg.tills, startedAt, durationMillis,
+                checkouts.get(), items.get(), amount.get(), failures.get(),
+                uploadedItems.get(), awaitingUpload.size(),
+                durable, tracksUploads ? uploaded : null, List.copyOf(timeline), extra);
     }
 
-    private interface LoadSink {
-        void submit(List<V1SoldItem> items) throws Exception;
-        default void close() throws Exception {}
+    private static CashierStrategy setUpLocal(Config cfg) throws Exception {
+        AppModeManager.setMode(AppMode.LOCAL);
+        LocalConfigurationStore.setEventId(cfg.eventId);
+        LocalEventRepository.ensureEventStorage(cfg.eventId);
+        System.out.printf("Local mode: event %s, %d till(s)%n", cfg.eventId, cfg.tills);
+        return new LocalCashierStrategy();
     }
 
-    private static final class LocalSink implements LoadSink {
-        private final String eventId;
-        private final Path pendingPath;
+    private CashierStrategy setUpIloppis(Config cfg) throws Exception {
+        // Before ApiHelper is first used, which reads the base URL once
+        ILoppisConfigurationStore.setApiBaseUrl(cfg.apiBaseUrl);
+        ILoppisConfigurationStore.setEventId(cfg.eventId);
+        AppModeManager.setMode(AppMode.ILOPPIS);
+        LocalEventRepository.ensureEventStorage(cfg.eventId);
 
-        LocalSink(Config cfg) throws Exception {
-            this.eventId = cfg.eventId;
-            AppModeManager.setMode(AppMode.LOCAL);
-            LocalConfigurationStore.setEventId(eventId);
-            LocalEventRepository.ensureEventStorage(eventId);
-            this.pendingPath = LocalEventPaths.getPendingItemsPath(eventId);
-            System.out.printf("Local mode: writing to %s%n", pendingPath);
+        String token = cfg.apiKey;
+        if (isBlank(token)) {
+            token = ApiHelper.INSTANCE.getApiKeyServiceApi()
+                    .apiKeyServiceGetApiKey(cfg.eventId, cfg.cashierCode, null).getApiKey();
         }
+        ILoppisConfigurationStore.setApiKey(token);
+        ApiHelper.INSTANCE.setCurrentApiKey(token);
 
-        @Override
-        public void submit(List<V1SoldItem> items) throws Exception {
-            JsonlHelper.appendItems(pendingPath, items);
-        }
+        BackgroundSyncManager sync = BackgroundSyncManager.getInstance();
+        sync.setUploadListener((eventId, itemIds) -> {
+            long now = System.nanoTime();
+            for (String itemId : itemIds) {
+                Long checkoutStart = awaitingUpload.remove(itemId);
+                if (checkoutStart != null) {
+                    uploaded.record(TimeUnit.NANOSECONDS.toMicros(now - checkoutStart));
+                    uploadedItems.incrementAndGet();
+                }
+            }
+        });
+        sync.start(cfg.eventId);
+        System.out.printf("iLoppis mode: base=%s event=%s, %d till(s)%n",
+                ILoppisConfigurationStore.getApiBaseUrl(), cfg.eventId, cfg.tills);
+        return new IloppisCashierStrategy();
     }
 
-    private static final class IloppisSink implements LoadSink {
-        private final String eventId;
-        private final SoldItemsServiceApi soldItemsApi;
-
-        IloppisSink(Config cfg) throws Exception {
-            this.eventId = cfg.eventId;
-            FixedApiClient client = new FixedApiClient();
-            client.setBasePath(cfg.apiBaseUrl);
-            client.setUserAgent("LoppisKassan/2.0.0 load-test");
+    /**
+     * One till: check out purchases back to back (plus think time) until the target total
+     * or the duration is reached.
+     */
+    private void runTill(Config cfg, CashierStrategy strategy, long deadline) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (!stop.get() && System.nanoTime() < deadline) {
+            int itemCount = between(random, cfg.minItemsPerPurchase, cfg.maxItemsPerPurchase);
+            V1PaymentMethod payment = random.nextBoolean() ? V1PaymentMethod.Kontant : V1PaymentMethod.Swish;
+            String purchaseId = UlidGenerator.generate();
+            LocalDateTime now = LocalDateTime.now();
+            List<V1SoldItem> purchase = new ArrayList<>(itemCount);
+            int purchaseTotal = 0;
+            for (int i = 0; i < itemCount; i++) {
+                int price = between(random, cfg.minPrice, cfg.maxPrice);
+                purchase.add(new V1SoldItem(purchaseId, UlidGenerator.generate(), now,
+                        1 + random.nextInt(cfg.sellerCount), price, null, payment, false));
+                purchaseTotal += price;
+            }
 
-            String token = cfg.apiKey;
-            if (isBlank(token)) {
-                ApiKeyServiceApi apiKeyApi = new ApiKeyServiceApi(client);
-                token = apiKeyApi.apiKeyServiceGetApiKey(cfg.eventId, cfg.cashierCode, null).getApiKey();
+            long start = System.nanoTime();
+            if (tracksUploads) {
+                // Before the persist: the upload may finish before the persist call returns
+                purchase.forEach(item -> awaitingUpload.put(item.getItemId(), start));
+            }
+            try {
+                strategy.persistItemsAsync(purchase, purchaseId, payment, now).join();
+                durable.recordSince(start);
+                checkouts.incrementAndGet();
+                items.addAndGet(itemCount);
+                if (amount.addAndGet(purchaseTotal) >= cfg.targetTotal) {
+                    stop.set(true);
+                }
+            } catch (RuntimeException e) {
+                failures.incrementAndGet();
+                purchase.forEach(item -> awaitingUpload.remove(item.getItemId()));
+                System.out.printf("Checkout failed: %s%n", e);
+            }
+            if (cfg.thinkTimeMs > 0) {
+                try {
+                    Thread.sleep(cfg.thinkTimeMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
             }
-            client.addDefaultHeader("Authorization", "Bearer " + token);
-            this.soldItemsApi = new SoldItemsServiceApi(client);
-            System.out.printf("iLoppis mode: base=%s event=%s%n", cfg.apiBaseUrl, cfg.eventId);
         }
+    }
 
-        @Override
-        public void submit(List<V1SoldItem> items) throws Exception {
-            SoldItemsServiceCreateSoldItemsBody body = new SoldItemsServiceCreateSoldItemsBody();
-            for (V1SoldItem item : items) {
-                se.goencoder.iloppis.model.V1SoldItem apiItem = new se.goencoder.iloppis.model.V1SoldItem();
-                apiItem.setItemId(item.getItemId());
-                apiItem.setPurchaseId(item.getPurchaseId());
-                apiItem.setSeller(item.getSeller());
-                apiItem.setPrice(item.getPrice());
-                apiItem.setPaymentMethod(
-                        item.getPaymentMethod() == V1PaymentMethod.Kontant
-                                ? se.goencoder.iloppis.model.V1PaymentMethod.KONTANT
-                                : se.goencoder.iloppis.model.V1PaymentMethod.SWISH
-                );
-                apiItem.setSoldTime(item.getSoldTime().atOffset(ZoneOffset.UTC));
-                body.addItemsItem(apiItem);
+    /**
+     * Wait for the uploads still in flight, nudging the sync manager as a cashier pressing
+     * sync would, so a failed cycle does not wait for the idle timer.
+     */
+    private void drain(Config cfg) throws InterruptedException {
+        long until = System.nanoTime() + TimeUnit.SECONDS.toNanos(cfg.drainSeconds);
+        long nextNudge = 0;
+        while (!awaitingUpload.isEmpty() && System.nanoTime() < until) {
+            if (System.nanoTime() >= nextNudge) {
+                BackgroundSyncManager.getInstance().triggerSyncNow();
+                nextNudge = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DRAIN_NUDGE_MS);
             }
-            V1CreateSoldItemsResponse response = soldItemsApi.soldItemsServiceCreateSoldItems(eventId, body);
-            int rejected = response.getRejectedItems() == null ? 0 : response.getRejectedItems().size();
-            if (rejected > 0) {
-                System.out.printf("Warning: %d items rejected for purchase %s%n", rejected, items.getFirst().getPurchaseId());
+            Thread.sleep(50);
+        }
+        if (!awaitingUpload.isEmpty()) {
+            System.out.printf("Gave up waiting after %d s: %d items not uploaded%n", cfg.drainSeconds, awaitingUpload.size());
+        }
+    }
+
+    private void sample(Config cfg, long start, List<LoadTestReport.Sample> timeline) {
+        try {
+            while (true) {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(cfg.sampleIntervalSeconds));
+                LoadTestReport.Sample sample = sampleNow(start);
+                synchronized (timeline) {
+                    timeline.add(sample);
+                }
+                System.out.printf("Progress: %.0fs checkouts=%d items=%d uploaded=%d pending=%d total=%d/%d%n",
+                        sample.elapsedMillis() / 1000.0, sample.checkouts(), sample.items(),
+                        sample.uploadedItems(), sample.pendingItems(), amount.get(), cfg.targetTotal);
             }
+        } catch (InterruptedException e) {
+            // Run finished
         }
     }
 
+    private LoadTestReport.Sample sampleNow(long start) {
+        return new LoadTestReport.Sample(
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                checkouts.get(), items.get(), uploadedItems.get(),
+                tracksUploads ? BackgroundSyncManager.getInstance().getPendingCount() : 0);
+    }
+
+    private static int between(ThreadLocalRandom random, int min, int max) {
+        return min == max ? min : min + random.nextInt(max - min + 1);
+    }
+
     private static String envOr(String key, String defaultValue) {
         String val = System.getenv(key);
         return isBlank(val) ? defaultValue : val;
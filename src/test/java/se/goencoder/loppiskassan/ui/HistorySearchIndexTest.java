@@ -0,0 +1,137 @@
+package se.goencoder.loppiskassan.ui;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.goencoder.loppiskassan.V1PaymentMethod;
+import se.goencoder.loppiskassan.V1SoldItem;
+import se.goencoder.loppiskassan.localization.LocalizationManager;
+import se.goencoder.loppiskassan.util.SwedishDateFormatter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistorySearchIndexTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 2, 8, 10, 12);
+
+    @BeforeEach
+    void swedish() {
+        LocalizationManager.setLanguage("sv");
+    }
+
+    @Test
+    void wordsMatchInsideTokens() {
+        V1SoldItem seller12 = item("a", 12, 50, V1PaymentMethod.Kontant);
+        V1SoldItem seller120 = item("b", 120, 75, V1PaymentMethod.Swish);
+        V1SoldItem seller3 = item("c", 3, 120, V1PaymentMethod.Swish);
+        HistorySearchIndex index = HistorySearchIndex.of(List.of(seller12, seller120, seller3));
+        BitSet all = index.ordinals(List.of(seller12, seller120, seller3));
+
+        HistorySearchIndex.Matches matches = index.search("12", all);
+        assertTrue(matches.contains(seller12));
+        assertTrue(matches.contains(seller120));
+        assertTrue(matches.contains(seller3), "price 120 contains 12");
+        assertTrue(index.search("20", all).contains(seller120), "seller 120 contains 20");
+
+        matches = index.search(" 12  75 ", all);
+        assertEquals(1, matches.size());
+        assertTrue(matches.contains(seller120));
+
+        assertNull(index.search("   ", all));
+        assertEquals(0, index.search("999", all).size());
+    }
+
+    @Test
+    void soldTimeMatchesAsTheTableShowsIt() {
+        V1SoldItem morning = new V1SoldItem("p-a", "a", LocalDateTime.of(2026, 10, 18, 14, 5), 123, 40, null,
+                V1PaymentMethod.Swish, false);
+        V1SoldItem evening = new V1SoldItem("p-b", "b", LocalDateTime.of(2026, 10, 3, 9, 30), 4, 60, null,
+                V1PaymentMethod.Swish, false);
+        List<V1SoldItem> items = List.of(morning, evening);
+        HistorySearchIndex index = HistorySearchIndex.of(items);
+        BitSet all = index.ordinals(items);
+
+        String shown = SwedishDateFormatter.formatDateWithTime(morning.getSoldTime());
+        assertEquals(1, index.search(shown, all).size(), shown);
+        assertTrue(index.search(shown, all).contains(morning));
+        assertTrue(index.search("14:05", all).contains(morning));
+        assertTrue(index.search("4:0", all).contains(morning));
+        assertTrue(index.search("23", all).contains(morning), "seller 123");
+        assertEquals(2, index.search(shown.split(" ")[1], all).size(), "both sold in the same month");
+        assertTrue(index.search("09", all).contains(evening), "hour on its own");
+        assertFalse(index.search("18", all).contains(evening));
+    }
+
+    @Test
+    void labelsFollowTheItemsCurrentState() {
+        V1SoldItem cash = item("a", 1, 10, V1PaymentMethod.Kontant);
+        V1SoldItem swish = item("b", 2, 10, V1PaymentMethod.Swish);
+        HistorySearchIndex index = HistorySearchIndex.of(List.of(cash, swish));
+        BitSet all = index.ordinals(List.of(cash, swish));
+
+        String cashWord = LocalizationManager.tr("payment.cash").toLowerCase();
+        HistorySearchIndex.Matches matches = index.search(cashWord, all);
+        assertTrue(matches.contains(cash));
+        assertFalse(matches.contains(swish));
+
+        String yes = LocalizationManager.tr("common.yes");
+        assertEquals(0, index.search(yes, all).size());
+        swish.setCollectedBySellerTime(BASE.plusHours(1));
+        assertTrue(index.search(yes, all).contains(swish));
+    }
+
+    @Test
+    void searchIsLimitedToTheShownRows() {
+        List<V1SoldItem> many = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            many.add(item("i" + i, i % 300, 10 + i % 500, V1PaymentMethod.Swish));
+        }
+        HistorySearchIndex index = HistorySearchIndex.of(many);
+
+        // A seller filter shows a few rows; the index is not rebuilt for it
+        List<V1SoldItem> seller7 = many.stream().filter(item -> item.getSeller() == 7).toList();
+        BitSet shown = index.ordinals(seller7);
+        assertEquals(50_000, index.size());
+        HistorySearchIndex.Matches matches = index.search("17", shown);
+        assertTrue(matches.contains(many.get(7)));
+        assertFalse(matches.contains(many.get(17)), "seller 17 is not shown");
+        assertEquals(seller7.size(), index.search(LocalizationManager.tr("currency.sek"), shown).size(),
+                "labels are checked on shown rows only");
+
+        // Appended after the load (import, merge): indexed without a rebuild
+        V1SoldItem imported = item("new", 7, 999, V1PaymentMethod.Kontant);
+        index.addAll(List.of(imported));
+        List<V1SoldItem> shownAfterImport = new ArrayList<>(seller7);
+        shownAfterImport.add(imported);
+        assertTrue(index.search("999", index.ordinals(shownAfterImport)).contains(imported));
+        assertEquals(50_001, index.size());
+    }
+
+    @Test
+    void rowsWithoutOrWithRepeatedIdsAreAllIndexed() {
+        V1SoldItem noId = item("", 4, 10, V1PaymentMethod.Swish);
+        V1SoldItem alsoNoId = item("", 5, 20, V1PaymentMethod.Kontant);
+        V1SoldItem first = item("dup", 6, 30, V1PaymentMethod.Swish);
+        V1SoldItem second = item("dup", 7, 40, V1PaymentMethod.Swish);
+        List<V1SoldItem> items = List.of(noId, alsoNoId, first, second);
+        HistorySearchIndex index = HistorySearchIndex.of(items);
+        BitSet all = index.ordinals(items);
+
+        assertEquals(4, index.size());
+        assertTrue(index.search("5", all).contains(alsoNoId));
+        assertFalse(index.search("5", all).contains(noId));
+        assertTrue(index.search("40", all).contains(second));
+        assertFalse(index.search("40", all).contains(first));
+    }
+
+    private static V1SoldItem item(String itemId, int seller, int price, V1PaymentMethod method) {
+        return new V1SoldItem("p-" + itemId, itemId, BASE, seller, price, null, method, false);
+    }
+}
@@ -0,0 +1,65 @@
+package se.goencoder.loppiskassan.ui;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import se.goencoder.loppiskassan.V1PaymentMethod;
+import se.goencoder.loppiskassan.V1SoldItem;
+import se.goencoder.loppiskassan.localization.LocalizationManager;
+import se.goencoder.loppiskassan.util.SwedishDateFormatter;
+
+import javax.swing.event.TableModelEvent;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HistoryTableModelTest {
+
+    @AfterEach
+    void restoreLanguage() {
+        LocalizationManager.setLanguage("sv");
+    }
+
+    @Test
+    void setItemsFiresOneEventAndFormatsCellsOnDemand() {
+        HistoryTableModel model = new HistoryTableModel();
+        List<TableModelEvent> events = new ArrayList<>();
+        model.addTableModelListener(events::add);
+
+        List<V1SoldItem> items = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            items.add(new V1SoldItem("p" + i, "i" + i, LocalDateTime.of(2026, 2, 8, 10, 12), i % 40,
+                    100, i % 3 == 0 ? LocalDateTime.of(2026, 2, 8, 18, 0) : null,
+                    i % 2 == 0 ? V1PaymentMethod.Kontant : V1PaymentMethod.Swish, false));
+        }
+        model.setItems(items);
+
+        assertEquals(1, events.size());
+        assertEquals(50_000, model.getRowCount());
+        assertEquals(1, model.getValueAt(1, HistoryTableModel.COLUMN_SELLER));
+        assertEquals("100 " + LocalizationManager.tr("currency.sek"), model.getValueAt(1, HistoryTableModel.COLUMN_PRICE));
+        assertEquals(SwedishDateFormatter.formatDateWithTime(LocalDateTime.of(2026, 2, 8, 10, 12)),
+                model.getValueAt(1, HistoryTableModel.COLUMN_SOLD));
+        assertEquals(LocalizationManager.tr("common.yes"), model.getValueAt(0, HistoryTableModel.COLUMN_PAID_OUT));
+        assertEquals(LocalizationManager.tr("payment.swish"), model.getValueAt(1, HistoryTableModel.COLUMN_PAYMENT_METHOD));
+    }
+
+    @Test
+    void reloadTextsSwitchesLabelsWithoutReplacingColumns() {
+        LocalizationManager.setLanguage("sv");
+        HistoryTableModel model = new HistoryTableModel();
+        model.setItems(List.of(new V1SoldItem("p", "i", LocalDateTime.of(2026, 2, 8, 10, 12), 1,
+                10, null, V1PaymentMethod.Kontant, false)));
+        List<TableModelEvent> events = new ArrayList<>();
+        model.addTableModelListener(events::add);
+
+        LocalizationManager.setLanguage("en");
+        model.reloadTexts();
+
+        assertEquals(1, events.size());
+        assertEquals(0, events.get(0).getFirstRow());
+        assertEquals(LocalizationManager.tr("history.table.seller"), model.getColumnName(HistoryTableModel.COLUMN_SELLER));
+        assertEquals(LocalizationManager.tr("payment.cash"), model.getValueAt(0, HistoryTableModel.COLUMN_PAYMENT_METHOD));
+    }
+}
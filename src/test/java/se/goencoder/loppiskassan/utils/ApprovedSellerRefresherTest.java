@@ -0,0 +1,139 @@
+package se.goencoder.loppiskassan.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ApprovedSellerRefresherTest {
+
+    @Test
+    void singleMissUsesDeltaLookupWhenBaselineExists() {
+        FakeSource source = new FakeSource(true);
+        ApprovedSellerRefresher refresher = new ApprovedSellerRefresher(source);
+
+        assertTrue(refresher.refresh("event", 42));
+
+        assertEquals(List.of(Set.of(42)), source.lookups);
+        assertEquals(0, source.fullRefreshes);
+    }
+
+    @Test
+    void missingBaselineOrFailedLookupFallsBackToFullRefresh() {
+        FakeSource noBaseline = new FakeSource(false);
+        assertTrue(new ApprovedSellerRefresher(noBaseline).refresh("event", 1));
+        assertEquals(1, noBaseline.fullRefreshes);
+        assertTrue(noBaseline.lookups.isEmpty());
+
+        FakeSource failing = new FakeSource(true);
+        failing.failLookup = true;
+        assertTrue(new ApprovedSellerRefresher(failing).refresh("event", 1));
+        assertEquals(1, failing.fullRefreshes);
+
+        FakeSource down = new FakeSource(false);
+        down.failFull = true;
+        assertFalse(new ApprovedSellerRefresher(down).refresh("event", 1));
+    }
+
+    @Test
+    void concurrentMissesAreCoalesced() throws Exception {
+        FakeSource source = new FakeSource(true);
+        missWhileFirstLookupIsInFlight(source, 2, 3, 4, 5);
+
+        assertEquals(2, source.lookups.size());
+        assertEquals(Set.of(1), source.lookups.get(0));
+        assertEquals(Set.of(2, 3, 4, 5), source.lookups.get(1));
+        assertEquals(0, source.fullRefreshes);
+    }
+
+    @Test
+    void largeCoalescedBatchUsesFullRefresh() throws Exception {
+        FakeSource source = new FakeSource(true);
+        missWhileFirstLookupIsInFlight(source, 2, 3, 4, 5, 6, 7);
+
+        assertEquals(1, source.lookups.size());
+        assertEquals(1, source.fullRefreshes);
+    }
+
+    /**
+     * Miss on seller 1, hold its lookup until all {@code followers} have queued up,
+     * then let everything finish.
+     */
+    private static void missWhileFirstLookupIsInFlight(FakeSource source, int... followers) throws Exception {
+        source.firstCallGate = new CountDownLatch(1);
+        ApprovedSellerRefresher refresher = new ApprovedSellerRefresher(source);
+        ExecutorService pool = Executors.newFixedThreadPool(followers.length + 1);
+        try {
+            Future<Boolean> first = pool.submit(() -> refresher.refresh("event", 1));
+            assertTrue(source.firstCallStarted.await(5, TimeUnit.SECONDS));
+
+            List<Future<Boolean>> waiting = new ArrayList<>();
+            for (int seller : followers) {
+                waiting.add(pool.submit(() -> refresher.refresh("event", seller)));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (refresher.queuedSellerCount() < followers.length && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(followers.length, refresher.queuedSellerCount());
+            source.firstCallGate.countDown();
+
+            assertTrue(first.get(5, TimeUnit.SECONDS));
+            for (Future<Boolean> future : waiting) {
+                assertTrue(future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static final class FakeSource implements ApprovedSellerRefresher.Source {
+        private final boolean baseline;
+        final List<Set<Integer>> lookups = new ArrayList<>();
+        int fullRefreshes;
+        boolean failLookup;
+        boolean failFull;
+        CountDownLatch firstCallGate;
+        final CountDownLatch firstCallStarted = new CountDownLatch(1);
+
+        FakeSource(boolean baseline) {
+            this.baseline = baseline;
+        }
+
+        @Override
+        public boolean hasBaseline(String eventId) {
+            return baseline;
+        }
+
+        @Override
+        public synchronized void lookupSellers(String eventId, Collection<Integer> sellerIds) throws Exception {
+            lookups.add(Set.copyOf(sellerIds));
+            if (firstCallGate != null && lookups.size() == 1) {
+                firstCallStarted.countDown();
+                firstCallGate.await(5, TimeUnit.SECONDS);
+            }
+            if (failLookup) {
+                throw new Exception("lookup failed");
+            }
+        }
+
+        @Override
+        public synchronized void fullRefresh(String eventId) throws Exception {
+            fullRefreshes++;
+            if (failFull) {
+                throw new Exception("offline");
+            }
+        }
+    }
+}
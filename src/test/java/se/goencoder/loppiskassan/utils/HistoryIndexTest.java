@@ -0,0 +1,96 @@
+package se.goencoder.loppiskassan.utils;
+
+import org.junit.jupiter.api.Test;
+import se.goencoder.loppiskassan.V1PaymentMethod;
+import se.goencoder.loppiskassan.V1SoldItem;
+import se.goencoder.loppiskassan.utils.FilterUtils.FilterResult;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HistoryIndexTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 2, 8, 10, 0);
+    private static final String[] PAID = {null, "true", "false"};
+    private static final String[] SELLERS = {null, "1", "7", "99"};
+    private static final String[] METHODS = {null, "Swish", "Kontant", "Bitcoin"};
+
+    @Test
+    void matchesTheLinearScanForEveryFilterCombination() {
+        List<V1SoldItem> items = randomItems(2_000, new Random(3));
+        assertSameAsScan(items, HistoryIndex.of(items));
+    }
+
+    @Test
+    void payoutAndAppendKeepTheIndexInStep() {
+        Random random = new Random(11);
+        List<V1SoldItem> items = randomItems(500, random);
+        HistoryIndex index = HistoryIndex.of(items);
+
+        List<V1SoldItem> seller7Unpaid = index.filter(false, 7, null).items();
+        seller7Unpaid.forEach(item -> item.setCollectedBySellerTime(BASE.plusHours(5)));
+        index.refresh(seller7Unpaid);
+        assertEquals(0, index.filter(false, 7, null).items().size());
+
+        List<V1SoldItem> added = randomItems(100, random);
+        items.addAll(added);
+        index.append(added);
+        assertTrue(index.covers(items));
+
+        assertSameAsScan(items, index);
+        assertEquals(items.stream().filter(V1SoldItem::isCollectedBySeller).count(), index.paidCount());
+    }
+
+    @Test
+    void coversDetectsAListChangedBehindItsBack() {
+        List<V1SoldItem> items = randomItems(10, new Random(5));
+        HistoryIndex index = HistoryIndex.of(items);
+
+        items.remove(9);
+        assertFalse(index.covers(items));
+        assertEquals(Set.of("1", "7"), HistoryIndex.of(List.of(item(1, 1, null), item(7, 1, null))).distinctSellers());
+    }
+
+    private static void assertSameAsScan(List<V1SoldItem> items, HistoryIndex index) {
+        for (String paid : PAID) {
+            for (String seller : SELLERS) {
+                for (String method : METHODS) {
+                    FilterResult expected = FilterUtils.applyFiltersWithSum(items, paid, seller, method);
+                    FilterResult actual = FilterUtils.applyFiltersWithSum(index, paid, seller, method);
+                    String label = Arrays.asList(paid, seller, method).toString();
+                    assertEquals(expected.items(), actual.items(), label);
+                    assertEquals(expected.totalSum(), actual.totalSum(), label);
+                }
+            }
+        }
+    }
+
+    private static List<V1SoldItem> randomItems(int count, Random random) {
+        List<V1SoldItem> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            V1PaymentMethod method = switch (random.nextInt(5)) {
+                case 0 -> null;
+                case 1, 2 -> V1PaymentMethod.Swish;
+                default -> V1PaymentMethod.Kontant;
+            };
+            V1SoldItem item = item(1 + random.nextInt(10), 10 + random.nextInt(200), method);
+            if (random.nextInt(3) == 0) {
+                item.setCollectedBySellerTime(BASE.plusHours(2));
+            }
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static V1SoldItem item(int seller, int price, V1PaymentMethod method) {
+        return new V1SoldItem(UlidGenerator.generate(), UlidGenerator.generate(), BASE, seller, price, null, method, false);
+    }
+}